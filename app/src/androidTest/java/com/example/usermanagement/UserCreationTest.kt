@@ -38,7 +38,7 @@ class UserCreationTest {
             context,
             UserDatabase::class.java
         ).allowMainThreadQueries().build()
-        repository = UserRepositoryImpl(db.userDao())
+        repository = UserRepositoryImpl(db)
         validationStrategy = UserValidationStrategy(context)
     }
 
@@ -0,0 +1,133 @@
+package com.example.usermanagement.ui.components
+
+import androidx.compose.foundation.layout.Row
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.SideEffect
+import androidx.compose.runtime.Stable
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.test.junit4.createAndroidComposeRule
+import com.example.usermanagement.TestActivity
+import com.example.usermanagement.data.User
+import com.example.usermanagement.ui.state.UserListItem
+import com.example.usermanagement.ui.state.toListItem
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+
+/**
+ * Measures how often list rows recompose when the user list is re-emitted.
+ * "Before" renders mutable [User] rows in an unkeyed list, "after" renders [UserListItem] rows keyed by ID.
+ */
+class UserCardRecompositionTest {
+    @get:Rule
+    val composeTestRule = createAndroidComposeRule<TestActivity>()
+
+    private val users = (1L..5L).map { id ->
+        User(
+            id = id,
+            firstName = "First$id",
+            lastName = "Last$id",
+            email = "user$id@example.com",
+            phone = "123456789$id"
+        )
+    }
+
+    @Test
+    fun whenListReEmittedWithOneChange_onlyChangedStableRowRecomposes() {
+        val userList = mutableStateOf(users)
+        val before = RecompositionCounter()
+        val after = RecompositionCounter()
+
+        composeTestRule.setContent {
+            UserRows(userList.value, before, after)
+        }
+        composeTestRule.waitForIdle()
+
+        // Fresh instances with equal values, except a changed phone number on the first (always visible) row.
+        userList.value = users.map { if (it.id == 1L) it.copy(phone = "999999999") else it.copy() }
+        composeTestRule.waitForIdle()
+
+        assertEquals("Every visible unstable row should recompose", before.composedRows(), before.recompositions())
+        assertEquals("Only the changed stable row should recompose", 1, after.recompositions())
+        assertEquals("The changed stable row should recompose once", 1, after.recompositionsOf(1L))
+    }
+
+    @Test
+    fun whenUserInsertedAtTop_keyedRowsAreNotRecomposed() {
+        val userList = mutableStateOf(users)
+        val before = RecompositionCounter()
+        val after = RecompositionCounter()
+
+        composeTestRule.setContent {
+            UserRows(userList.value, before, after)
+        }
+        composeTestRule.waitForIdle()
+
+        val inserted = User(id = 0L, firstName = "New", lastName = "User", email = "new@example.com", phone = "1234567890")
+        userList.value = listOf(inserted) + users
+        composeTestRule.waitForIdle()
+
+        assertTrue("Unkeyed rows should rebind on insert", before.recompositions() > 0)
+        assertEquals("Keyed rows should not recompose on insert", 0, after.recompositions())
+    }
+}
+
+// Top-level so the composables have no unstable receiver that would defeat skipping.
+@Composable
+private fun UserRows(users: List<User>, before: RecompositionCounter, after: RecompositionCounter) {
+    Row(modifier = Modifier.fillMaxSize()) {
+        LazyColumn(modifier = Modifier.weight(1f)) {
+            items(users) { user -> UnstableRow(user, before) }
+        }
+        LazyColumn(modifier = Modifier.weight(1f)) {
+            items(
+                items = users.map { it.toListItem() },
+                key = { it.id }
+            ) { item -> StableRow(item, after) }
+        }
+    }
+}
+
+@Composable
+private fun UnstableRow(user: User, counter: RecompositionCounter) {
+    SideEffect { counter.record(user.id) }
+    UserCard(user = user.toListItem(), onEditClick = {}, onDeleteClick = {})
+}
+
+@Composable
+private fun StableRow(user: UserListItem, counter: RecompositionCounter) {
+    SideEffect { counter.record(user.id) }
+    UserCard(user = user, onEditClick = {}, onDeleteClick = {})
+}
+
+/**
+ * Counts compositions per user ID; declared stable so it does not defeat skipping on its own.
+ */
+@Stable
+private class RecompositionCounter {
+    private val counts = HashMap<Long, Int>()
+
+    fun record(id: Long) {
+        counts[id] = (counts[id] ?: 0) + 1
+    }
+
+    /**
+     * @return The number of distinct rows that have been composed at least once.
+     */
+    fun composedRows(): Int = counts.size
+
+    /**
+     * @return The number of compositions beyond the first one, summed over all IDs.
+     */
+    fun recompositions(): Int = counts.values.sumOf { it - 1 }
+
+    /**
+     * @return The number of compositions of the row of [id] beyond the first one.
+     */
+    fun recompositionsOf(id: Long): Int = (counts[id] ?: 1) - 1
+}
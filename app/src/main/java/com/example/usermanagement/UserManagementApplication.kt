@@ -1,16 +1,78 @@
 package com.example.usermanagement
 
 import android.app.Application
+import android.content.pm.ApplicationInfo
+import com.example.usermanagement.database.DatabaseExecutors
+import com.example.usermanagement.database.RoomDatabaseFactory
+import com.example.usermanagement.database.SlowQueryMonitor
+import com.example.usermanagement.metrics.RepositoryMetrics
 import com.example.usermanagement.repository.DefaultRepositoryFactory
 import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.InstrumentedRepositoryFactory
+import com.example.usermanagement.repository.RecordingRepositoryFactory
+import com.example.usermanagement.replay.WorkloadRecorder
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import com.example.usermanagement.trace.AppTrace
+import com.example.usermanagement.trace.ChromeTraceRecorder
+import java.io.File
 
 /**
  * Custom [Application] class for the User Management application.
  * This class is responsible for initializing and providing access to the application's repository.
  */
 class UserManagementApplication : Application() {
-    private val repositoryFactory = DefaultRepositoryFactory()
-    
+    /**
+     * Times every database statement and keeps slow ones, with their query plans, for inspection.
+     */
+    val slowQueryMonitor = SlowQueryMonitor()
+
+    /**
+     * Reader pool and serialized writer shared by Room and the repository, with interactive and background lanes.
+     */
+    val databaseExecutors = DatabaseExecutors.shared
+
+    private val instrumentedFactory = InstrumentedRepositoryFactory(
+        DefaultRepositoryFactory(RoomDatabaseFactory(slowQueryMonitor, databaseExecutors), databaseExecutors)
+    )
+
+    /**
+     * Outermost layer, so recordings capture exactly the calls made by the view models.
+     */
+    private val repositoryFactory = RecordingRepositoryFactory(instrumentedFactory)
+
+    /**
+     * Records the repository calls of this session for replay; idle until [startWorkloadRecording].
+     */
+    val workloadRecorder: WorkloadRecorder
+        get() = repositoryFactory.recorder
+
+    /**
+     * Records trace sections for export; only created in debuggable builds.
+     */
+    var traceRecorder: ChromeTraceRecorder? = null
+        private set
+
+    /**
+     * Whether this is a debuggable build, which enables the debug tools in the drawer.
+     */
+    val isDebuggable: Boolean
+        get() = applicationInfo.flags and ApplicationInfo.FLAG_DEBUGGABLE != 0
+
+    override fun onCreate() {
+        super.onCreate()
+        if (isDebuggable) {
+            traceRecorder = ChromeTraceRecorder().also { AppTrace.install(it) }
+        }
+        // Keeps the duplicate clusters current for the whole process, not just while a screen observes them.
+        repository.startDuplicateDetection()
+    }
+
+    /**
+     * Latency and throughput statistics of [repository].
+     */
+    val repositoryMetrics: RepositoryMetrics
+        get() = instrumentedFactory.metrics
+
     /**
      * Lazily initialized instance of [IUserRepository].
      * This ensures that the database and repository are only created when first accessed.
@@ -18,4 +80,70 @@ class UserManagementApplication : Application() {
     val repository: IUserRepository by lazy {
         repositoryFactory.createUserRepository(this)
     }
-} 
\ No newline at end of file
+
+    /**
+     * Writes a snapshot of [repositoryMetrics] and of the [databaseExecutors] queues to a timestamped JSON file
+     * in app storage, so runs of different builds can be compared.
+     * @return The written file.
+     */
+    fun dumpRepositoryMetrics(): File {
+        val snapshot = repositoryMetrics.snapshot()
+        val file = File(File(filesDir, METRICS_DIRECTORY), "repository-${snapshot.capturedAtMillis}.json")
+        file.parentFile?.mkdirs()
+        file.writeText(snapshot.toJson().put("databaseExecutors", databaseExecutors.toJson()).toString(2))
+        return file
+    }
+
+    /**
+     * Writes the recorded trace sections to a timestamped Chrome/Perfetto JSON trace file in app storage.
+     * @return The written file, or `null` if no recorder is installed (release builds).
+     */
+    fun dumpTrace(): File? {
+        val recorder = traceRecorder ?: return null
+        val file = File(File(filesDir, TRACES_DIRECTORY), "trace-${System.currentTimeMillis()}.json")
+        recorder.writeTo(file)
+        return file
+    }
+
+    /**
+     * Starts recording repository calls to a timestamped workload log in app storage,
+     * replacing any running recording.
+     * @param hashPii Whether to pseudonymize personal data in the log.
+     * @return The file being written.
+     */
+    fun startWorkloadRecording(hashPii: Boolean = true): File {
+        val file = File(File(filesDir, WORKLOADS_DIRECTORY), "workload-${System.currentTimeMillis()}.umwl")
+        file.parentFile?.mkdirs()
+        workloadRecorder.start(file.outputStream(), hashPii)
+        return file
+    }
+
+    /**
+     * Stops the running workload recording and closes its log.
+     */
+    fun stopWorkloadRecording() {
+        workloadRecorder.stop()
+    }
+
+    /**
+     * Streams [count] synthetic users into [repository] in batches.
+     * The dataset continues after the users already stored, so repeated seeding keeps growing it.
+     * @param count The number of users to generate.
+     * @return The number of inserted users.
+     */
+    suspend fun seedSyntheticUsers(count: Int): Int {
+        val start = repository.getUserIds("").size
+        return SyntheticUserGenerator().batches(count, start = start).sumOf { repository.insertUsers(it) }
+    }
+
+    companion object {
+        /**
+         * Size of the dataset seeded from the debug drawer.
+         */
+        const val SEED_USER_COUNT = 100_000
+
+        private const val METRICS_DIRECTORY = "metrics"
+        private const val TRACES_DIRECTORY = "traces"
+        private const val WORKLOADS_DIRECTORY = "workloads"
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.usermanagement.data;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import java.util.List;
+import kotlinx.coroutines.flow.Flow;
+
+/**
+ * Data Access Object for the duplicate detection: its queue of changed users, their blocking keys and the pairs found
+ */
+@Dao
+public interface DedupeDao {
+    /**
+     * Retrieves the oldest queued changes.
+     * @param limit The maximum number of entries.
+     * @return The entries in queue order.
+     */
+    @Query("SELECT * FROM dedupe_queue ORDER BY seq LIMIT :limit")
+    List<DedupeQueueEntry> getQueued(int limit);
+
+    /**
+     * Observes the length of the queue.
+     * @return A Flow emitting the number of queued changes whenever the queue changes.
+     */
+    @Query("SELECT COUNT(*) FROM dedupe_queue")
+    Flow<Integer> observeQueueSize();
+
+    /**
+     * Removes the entries up to and including the given position, once they are processed.
+     * @param seq The position of the last processed entry.
+     * @return The number of removed entries.
+     */
+    @Query("DELETE FROM dedupe_queue WHERE seq <= :seq")
+    int dequeueThrough(long seq);
+
+    /**
+     * Retrieves the users with the given IDs using primary key lookups.
+     * @param ids The IDs of the users; at most UserDao.MAX_IDS_PER_STATEMENT.
+     * @return The existing users among the IDs, in no particular order.
+     */
+    @Query("SELECT * FROM users WHERE id IN (:ids)")
+    List<User> getUsersByIds(long[] ids);
+
+    /**
+     * Retrieves every user holding one of the given blocking keys.
+     * @param keys The keys to look up; at most UserDao.MAX_IDS_PER_STATEMENT.
+     * @return One entry per key and user.
+     */
+    @Query("SELECT * FROM user_block_keys WHERE blockKey IN (:keys)")
+    List<UserBlockKey> getBlockMembers(List<String> keys);
+
+    @Query("DELETE FROM user_block_keys WHERE userId IN (:userIds)")
+    int deleteBlockKeys(long[] userIds);
+
+    /**
+     * Adds a blocking key, unless the user has been deleted meanwhile.
+     */
+    @Query("INSERT OR IGNORE INTO user_block_keys (blockKey, userId) SELECT :blockKey, id FROM users WHERE id = :userId")
+    void insertBlockKey(String blockKey, long userId);
+
+    /**
+     * Replaces the blocking keys of the given users in a single transaction.
+     * @param userIds The users whose keys are replaced; at most UserDao.MAX_IDS_PER_STATEMENT.
+     * @param keys Their new keys.
+     */
+    @Transaction
+    default void replaceBlockKeys(long[] userIds, List<UserBlockKey> keys) {
+        deleteBlockKeys(userIds);
+        for (UserBlockKey key : keys) {
+            insertBlockKey(key.blockKey, key.userId);
+        }
+    }
+
+    @Query("DELETE FROM duplicate_pairs WHERE dismissed = 0 AND (userId IN (:userIds) OR otherUserId IN (:userIds))")
+    int deleteOpenPairs(long[] userIds);
+
+    /**
+     * Adds a pair, unless either user has been deleted meanwhile or the pair was dismissed before.
+     */
+    @Query("INSERT OR IGNORE INTO duplicate_pairs (userId, otherUserId, score, reasons, dismissed) " +
+        "SELECT a.id, b.id, :score, :reasons, 0 FROM users a, users b WHERE a.id = :userId AND b.id = :otherUserId")
+    void insertPair(long userId, long otherUserId, double score, int reasons);
+
+    /**
+     * Replaces the open pairs of the given users and removes their queue entries, in a single transaction.
+     * Dismissed pairs are kept, so a reviewer's decision survives later edits of either user.
+     * @param userIds The processed users; at most UserDao.MAX_IDS_PER_STATEMENT / 2.
+     * @param pairs Every pair involving one of them.
+     * @param seq The position of the last processed queue entry.
+     */
+    @Transaction
+    default void replacePairs(long[] userIds, List<DuplicatePair> pairs, long seq) {
+        deleteOpenPairs(userIds);
+        for (DuplicatePair pair : pairs) {
+            insertPair(pair.userId, pair.otherUserId, pair.score, pair.reasons);
+        }
+        dequeueThrough(seq);
+    }
+
+    /**
+     * Observes the pairs awaiting review.
+     * @return A Flow emitting every pair not dismissed, whenever the pairs change.
+     */
+    @Query("SELECT * FROM duplicate_pairs WHERE dismissed = 0")
+    Flow<List<DuplicatePair>> observeOpenPairs();
+
+    /**
+     * Observes the users taking part in a pair awaiting review, using primary key lookups.
+     * @return A Flow emitting those users whenever the users or the pairs change.
+     */
+    @Query("SELECT * FROM users WHERE id IN (SELECT userId FROM duplicate_pairs WHERE dismissed = 0 " +
+        "UNION SELECT otherUserId FROM duplicate_pairs WHERE dismissed = 0)")
+    Flow<List<User>> observeUsersWithOpenPairs();
+
+    /**
+     * Marks every pair among the given users as different people.
+     * @param userIds The users, typically one cluster; at most UserDao.MAX_IDS_PER_STATEMENT / 2.
+     * @return The number of dismissed pairs.
+     */
+    @Query("UPDATE duplicate_pairs SET dismissed = 1 WHERE userId IN (:userIds) AND otherUserId IN (:userIds)")
+    int dismissPairs(long[] userIds);
+}
@@ -0,0 +1,20 @@
+package com.example.usermanagement.data
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * A user added or changed since the duplicate detection last looked at it, queued by the triggers in [DedupeTable].
+ * A user changed again while queued gets a second entry with a greater [seq], so no change is lost
+ * when the first one is removed.
+ * @property seq Queue position.
+ * @property userId The ID of the user; may no longer exist.
+ */
+@Entity(tableName = "dedupe_queue")
+data class DedupeQueueEntry(
+    @PrimaryKey(autoGenerate = true)
+    @JvmField
+    val seq: Long = 0,
+    @JvmField
+    val userId: Long
+)
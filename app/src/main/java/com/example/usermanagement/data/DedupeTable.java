@@ -0,0 +1,60 @@
+package com.example.usermanagement.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * SQL of the duplicate detection tables and the triggers queueing every added or changed user for it.
+ * Like {@link UserStatsTable}, the triggers are created by {@link #CALLBACK} every time the database opens.
+ */
+public final class DedupeTable {
+    static final String[] CREATE_TABLES = {
+        "CREATE TABLE IF NOT EXISTS `dedupe_queue` (" +
+            "`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` INTEGER NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS `user_block_keys` (" +
+            "`blockKey` TEXT NOT NULL, `userId` INTEGER NOT NULL, PRIMARY KEY(`blockKey`, `userId`), " +
+            "FOREIGN KEY(`userId`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )",
+        "CREATE INDEX IF NOT EXISTS `index_user_block_keys_userId` ON `user_block_keys` (`userId`)",
+        "CREATE TABLE IF NOT EXISTS `duplicate_pairs` (" +
+            "`userId` INTEGER NOT NULL, `otherUserId` INTEGER NOT NULL, `score` REAL NOT NULL, " +
+            "`reasons` INTEGER NOT NULL, `dismissed` INTEGER NOT NULL, PRIMARY KEY(`userId`, `otherUserId`), " +
+            "FOREIGN KEY(`userId`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+            "FOREIGN KEY(`otherUserId`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )",
+        "CREATE INDEX IF NOT EXISTS `index_duplicate_pairs_otherUserId` ON `duplicate_pairs` (`otherUserId`)"
+    };
+
+    /**
+     * Installs the triggers on every open, before Room hands out the database.
+     */
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            createTriggers(db);
+        }
+    };
+
+    private DedupeTable() {
+    }
+
+    /**
+     * Creates the triggers if they do not exist yet. Only the columns the duplicate detection compares
+     * queue an update; deletes need no trigger, as the foreign keys remove the user's keys and pairs.
+     * @param db The database to install the triggers in.
+     */
+    public static void createTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS dedupe_queue_insert AFTER INSERT ON users BEGIN " +
+            "INSERT INTO dedupe_queue (userId) VALUES (NEW.id); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS dedupe_queue_update " +
+            "AFTER UPDATE OF firstName, lastName, email, phone, dob ON users BEGIN " +
+            "INSERT INTO dedupe_queue (userId) VALUES (NEW.id); END");
+    }
+
+    /**
+     * Queues every existing user, so the detection covers the users stored before it existed.
+     * @param db The database to queue the users of.
+     */
+    static void queueAllUsers(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT INTO dedupe_queue (userId) SELECT id FROM users ORDER BY id");
+    }
+}
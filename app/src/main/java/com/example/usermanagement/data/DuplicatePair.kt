@@ -0,0 +1,36 @@
+package com.example.usermanagement.data
+
+import androidx.room.Entity
+import androidx.room.ForeignKey
+import androidx.room.Index
+
+/**
+ * Two users the duplicate detection considers the same person, awaiting review.
+ * @property userId The smaller of the two user IDs.
+ * @property otherUserId The greater of the two user IDs.
+ * @property score How alike the users are, from [com.example.usermanagement.dedupe.DuplicateScorer.MIN_SCORE] to 1.
+ * @property reasons Bit set of the `REASON_` flags of [com.example.usermanagement.dedupe.DuplicateScorer]
+ * telling which fields matched.
+ * @property dismissed Whether a reviewer decided these are different people; dismissed pairs are never raised again.
+ */
+@Entity(
+    tableName = "duplicate_pairs",
+    primaryKeys = ["userId", "otherUserId"],
+    foreignKeys = [
+        ForeignKey(entity = User::class, parentColumns = ["id"], childColumns = ["userId"], onDelete = ForeignKey.CASCADE),
+        ForeignKey(entity = User::class, parentColumns = ["id"], childColumns = ["otherUserId"], onDelete = ForeignKey.CASCADE)
+    ],
+    indices = [Index(value = ["otherUserId"])]
+)
+data class DuplicatePair(
+    @JvmField
+    val userId: Long,
+    @JvmField
+    val otherUserId: Long,
+    @JvmField
+    val score: Double,
+    @JvmField
+    val reasons: Int,
+    @JvmField
+    val dismissed: Boolean = false
+)
@@ -1,23 +1,33 @@
 package com.example.usermanagement.data
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Index
 import androidx.room.PrimaryKey
 
 /**
- * Represents a user in the system
+ * Represents a user in the system.
+ * The names compare case-insensitively (`NOCASE`), so equality and prefix filters on them can use their indexes.
  */
 @Entity(
     tableName = "users",
-    indices = [Index(value = ["email"], unique = true)]
+    indices = [
+        Index(value = ["email"], unique = true),
+        Index(value = ["firstName"]),
+        Index(value = ["lastName"]),
+        Index(value = ["phone"]),
+        Index(value = ["dob"])
+    ]
 )
 data class User(
     @JvmField
     @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
     @JvmField
+    @ColumnInfo(collate = ColumnInfo.NOCASE)
     var firstName: String = "",
     @JvmField
+    @ColumnInfo(collate = ColumnInfo.NOCASE)
     var lastName: String = "",
     @JvmField
     var email: String = "",
@@ -0,0 +1,27 @@
+package com.example.usermanagement.data
+
+import androidx.room.Entity
+import androidx.room.ForeignKey
+import androidx.room.Index
+
+/**
+ * One blocking key of a user, see [com.example.usermanagement.dedupe.DuplicateScorer.blockingKeys].
+ * Users sharing a key are the only ones the duplicate detection compares, so a new user is scored against a few
+ * candidates found by primary key prefix instead of against everyone.
+ * @property blockKey The key, prefixed by its kind.
+ * @property userId The ID of the user.
+ */
+@Entity(
+    tableName = "user_block_keys",
+    primaryKeys = ["blockKey", "userId"],
+    foreignKeys = [
+        ForeignKey(entity = User::class, parentColumns = ["id"], childColumns = ["userId"], onDelete = ForeignKey.CASCADE)
+    ],
+    indices = [Index(value = ["userId"])]
+)
+data class UserBlockKey(
+    @JvmField
+    val blockKey: String,
+    @JvmField
+    val userId: Long
+)
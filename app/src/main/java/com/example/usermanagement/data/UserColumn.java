@@ -0,0 +1,33 @@
+package com.example.usermanagement.data;
+
+import java.util.EnumSet;
+import java.util.Objects;
+
+/**
+ * Editable columns of the users table, used to narrow updates to the fields that actually changed
+ */
+public enum UserColumn {
+    FIRST_NAME,
+    LAST_NAME,
+    EMAIL,
+    PHONE,
+    DOB,
+    ADDRESS;
+
+    /**
+     * Computes which editable columns differ between two versions of the same user.
+     * @param current The user as currently stored.
+     * @param updated The user with the requested changes.
+     * @return The set of changed columns; empty if the update would be a no-op.
+     */
+    public static EnumSet<UserColumn> changedColumns(User current, User updated) {
+        EnumSet<UserColumn> changed = EnumSet.noneOf(UserColumn.class);
+        if (!Objects.equals(current.firstName, updated.firstName)) changed.add(FIRST_NAME);
+        if (!Objects.equals(current.lastName, updated.lastName)) changed.add(LAST_NAME);
+        if (!Objects.equals(current.email, updated.email)) changed.add(EMAIL);
+        if (!Objects.equals(current.phone, updated.phone)) changed.add(PHONE);
+        if (!Objects.equals(current.dob, updated.dob)) changed.add(DOB);
+        if (!Objects.equals(current.address, updated.address)) changed.add(ADDRESS);
+        return changed;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.usermanagement.data
+
+/**
+ * The name and email columns of a user, loaded without the rest of the row.
+ */
+data class UserContact(
+    @JvmField
+    val id: Long,
+    @JvmField
+    val firstName: String,
+    @JvmField
+    val lastName: String,
+    @JvmField
+    val email: String
+)
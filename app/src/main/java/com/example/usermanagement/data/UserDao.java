@@ -3,8 +3,16 @@ package com.example.usermanagement.data;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import com.example.usermanagement.search.Metaphone;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import kotlinx.coroutines.flow.Flow;
 
@@ -13,6 +21,16 @@ import kotlinx.coroutines.flow.Flow;
  */
 @Dao
 public interface UserDao {
+    /**
+     * Maximum number of IDs bound to one IN (...) list, kept below SQLite's default limit of 999 variables.
+     */
+    int MAX_IDS_PER_STATEMENT = 900;
+
+    /**
+     * Number of users given phonetic keys per backfill transaction.
+     */
+    int PHONETICS_BACKFILL_CHUNK = 500;
+
     /**
      * Retrieves all users from the database.
      * @return A Flow emitting a list of all users.
@@ -29,19 +47,134 @@ public interface UserDao {
     User getUserById(long userId);
 
     /**
-     * Inserts a new user into the database.
+     * Observes a specific user by their ID using a primary key lookup.
+     * @param userId The ID of the user to observe.
+     * @return A Flow emitting the User whenever the row changes, or null if it does not exist.
+     */
+    @Query("SELECT * FROM users WHERE id = :userId")
+    Flow<User> observeUserById(long userId);
+
+    /**
+     * Inserts a new user into the database, together with the phonetic keys of its names.
      * @param user The User object to insert.
      * @return The row ID of the newly inserted user.
      */
+    @Transaction
+    default long insertUser(User user) {
+        long id = insertUserRow(user);
+        insertPhonetics(UserPhonetics.of(id, user.firstName, user.lastName));
+        return id;
+    }
+
     @Insert
-    long insertUser(User user);
+    long insertUserRow(User user);
+
+    /**
+     * Inserts many users in a single transaction, reusing one compiled statement,
+     * together with the phonetic keys of their names.
+     * Users whose email already exists are skipped rather than aborting the whole batch.
+     * @param users The User objects to insert.
+     * @return The row IDs of the inserted users in the same order, with -1 for skipped users.
+     */
+    @Transaction
+    default List<Long> insertUsers(List<User> users) {
+        List<Long> ids = insertUserRows(users);
+        List<UserPhonetics> phonetics = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) != -1L) {
+                User user = users.get(i);
+                phonetics.add(UserPhonetics.of(ids.get(i), user.firstName, user.lastName));
+            }
+        }
+        insertPhonetics(phonetics);
+        return ids;
+    }
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertUserRows(List<User> users);
 
     /**
-     * Updates an existing user in the database.
+     * Updates an existing user in the database, together with the phonetic keys of its names.
      * @param user The User object to update.
      */
+    @Transaction
+    default void updateUser(User user) {
+        if (updateUserRow(user) > 0) {
+            insertPhonetics(UserPhonetics.of(user.id, user.firstName, user.lastName));
+        }
+    }
+
     @Update
-    void updateUser(User user);
+    int updateUserRow(User user);
+
+    /**
+     * Updates only the columns that differ from the stored row, all within one transaction.
+     * The diff is taken against the row read inside the transaction, so it can never act on stale data.
+     * Writes are skipped entirely when nothing changed; the full-row update is used only when every column changed.
+     * @param user The User object holding the requested values.
+     * @return The set of columns that were written, empty for a no-op, or null if no user has that ID.
+     */
+    @Transaction
+    default EnumSet<UserColumn> updateChangedColumns(User user) {
+        User current = getUserById(user.id);
+        if (current == null) {
+            return null;
+        }
+        EnumSet<UserColumn> changed = UserColumn.changedColumns(current, user);
+        if (changed.size() == UserColumn.values().length) {
+            updateUser(user);
+            return changed;
+        }
+        for (UserColumn column : changed) {
+            switch (column) {
+                case FIRST_NAME:
+                    updateFirstName(user.id, user.firstName);
+                    updateFirstNameCode(user.id, Metaphone.encode(user.firstName));
+                    break;
+                case LAST_NAME:
+                    updateLastName(user.id, user.lastName);
+                    updateLastNameCode(user.id, Metaphone.encode(user.lastName));
+                    break;
+                case EMAIL:
+                    updateEmail(user.id, user.email);
+                    break;
+                case PHONE:
+                    updatePhone(user.id, user.phone);
+                    break;
+                case DOB:
+                    updateDob(user.id, user.dob);
+                    break;
+                case ADDRESS:
+                    updateAddress(user.id, user.address);
+                    break;
+            }
+        }
+        return changed;
+    }
+
+    @Query("UPDATE users SET firstName = :firstName WHERE id = :userId")
+    int updateFirstName(long userId, String firstName);
+
+    @Query("UPDATE users SET lastName = :lastName WHERE id = :userId")
+    int updateLastName(long userId, String lastName);
+
+    @Query("UPDATE user_phonetics SET firstNameCode = :code WHERE id = :userId")
+    int updateFirstNameCode(long userId, String code);
+
+    @Query("UPDATE user_phonetics SET lastNameCode = :code WHERE id = :userId")
+    int updateLastNameCode(long userId, String code);
+
+    @Query("UPDATE users SET email = :email WHERE id = :userId")
+    int updateEmail(long userId, String email);
+
+    @Query("UPDATE users SET phone = :phone WHERE id = :userId")
+    int updatePhone(long userId, String phone);
+
+    @Query("UPDATE users SET dob = :dob WHERE id = :userId")
+    int updateDob(long userId, String dob);
+
+    @Query("UPDATE users SET address = :address WHERE id = :userId")
+    int updateAddress(long userId, String address);
 
     /**
      * Deletes a user from the database.
@@ -50,6 +183,93 @@ public interface UserDao {
     @Delete
     void deleteUser(User user);
 
+    /**
+     * Deletes the users with the given IDs.
+     * @param ids The IDs of the users to delete; at most MAX_IDS_PER_STATEMENT.
+     * @return The number of deleted rows.
+     */
+    @Query("DELETE FROM users WHERE id IN (:ids)")
+    int deleteUsersByIds(long[] ids);
+
+    @Query("UPDATE users SET firstName = :firstName WHERE id IN (:ids)")
+    int updateFirstNameForIds(long[] ids, String firstName);
+
+    @Query("UPDATE users SET lastName = :lastName WHERE id IN (:ids)")
+    int updateLastNameForIds(long[] ids, String lastName);
+
+    @Query("UPDATE user_phonetics SET firstNameCode = :code WHERE id IN (:ids)")
+    int updateFirstNameCodeForIds(long[] ids, String code);
+
+    @Query("UPDATE user_phonetics SET lastNameCode = :code WHERE id IN (:ids)")
+    int updateLastNameCodeForIds(long[] ids, String code);
+
+    @Query("UPDATE users SET phone = :phone WHERE id IN (:ids)")
+    int updatePhoneForIds(long[] ids, String phone);
+
+    @Query("UPDATE users SET dob = :dob WHERE id IN (:ids)")
+    int updateDobForIds(long[] ids, String dob);
+
+    @Query("UPDATE users SET address = :address WHERE id IN (:ids)")
+    int updateAddressForIds(long[] ids, String address);
+
+    /**
+     * Deletes any number of users by ID in a single transaction, one DELETE statement per chunk of IDs.
+     * @param ids The IDs of the users to delete.
+     * @return The number of deleted rows.
+     */
+    @Transaction
+    default int deleteUsersByIdsChunked(long[] ids) {
+        int deleted = 0;
+        for (int start = 0; start < ids.length; start += MAX_IDS_PER_STATEMENT) {
+            int end = Math.min(start + MAX_IDS_PER_STATEMENT, ids.length);
+            deleted += deleteUsersByIds(Arrays.copyOfRange(ids, start, end));
+        }
+        return deleted;
+    }
+
+    /**
+     * Sets one column to the same value for any number of users in a single transaction,
+     * one UPDATE statement per chunk of IDs.
+     * @param ids The IDs of the users to update.
+     * @param column The column to set; EMAIL is rejected because it must stay unique.
+     * @param value The new value of the column.
+     * @return The number of updated rows.
+     * @throws IllegalArgumentException if column is EMAIL.
+     */
+    @Transaction
+    default int updateColumnForIdsChunked(long[] ids, UserColumn column, String value) {
+        if (column == UserColumn.EMAIL) {
+            throw new IllegalArgumentException("Email is unique and cannot be bulk updated");
+        }
+        String code = Metaphone.encode(value);
+        int updated = 0;
+        for (int start = 0; start < ids.length; start += MAX_IDS_PER_STATEMENT) {
+            long[] chunk = Arrays.copyOfRange(ids, start, Math.min(start + MAX_IDS_PER_STATEMENT, ids.length));
+            switch (column) {
+                case FIRST_NAME:
+                    updated += updateFirstNameForIds(chunk, value);
+                    updateFirstNameCodeForIds(chunk, code);
+                    break;
+                case LAST_NAME:
+                    updated += updateLastNameForIds(chunk, value);
+                    updateLastNameCodeForIds(chunk, code);
+                    break;
+                case PHONE:
+                    updated += updatePhoneForIds(chunk, value);
+                    break;
+                case DOB:
+                    updated += updateDobForIds(chunk, value);
+                    break;
+                case ADDRESS:
+                    updated += updateAddressForIds(chunk, value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return updated;
+    }
+
     /**
      * Searches for users whose first name or last name matches the given query.
      * The search is case-insensitive and matches partial strings.
@@ -66,4 +286,113 @@ public interface UserDao {
      */
     @Query("SELECT * FROM users WHERE email = :email LIMIT 1")
     User getUserByEmail(String email);
-} 
\ No newline at end of file
+
+    /**
+     * Retrieves the IDs of all users without loading the rows.
+     * @return An array of every user ID.
+     */
+    @Query("SELECT id FROM users")
+    long[] getAllUserIds();
+
+    /**
+     * Retrieves the IDs of the users matching the same criteria as searchUsers, without loading the rows.
+     * @param query The search query string.
+     * @return An array of the matching user IDs.
+     */
+    @Query("SELECT id FROM users WHERE firstName LIKE '%' || :query || '%' OR lastName LIKE '%' || :query || '%'")
+    long[] searchUserIds(String query);
+
+    /**
+     * Retrieves the names of all users without the other columns, to build the fuzzy name index.
+     * @return The ID, first name and last name of every user.
+     */
+    @Query("SELECT id, firstName, lastName FROM users")
+    List<UserName> getAllUserNames();
+
+    /**
+     * Retrieves the names and emails of all users without the other columns, to build the typeahead index.
+     * @return The ID, first name, last name and email of every user.
+     */
+    @Query("SELECT id, firstName, lastName, email FROM users")
+    List<UserContact> getAllUserContacts();
+
+    /**
+     * Observes the users with the given IDs using primary key lookups.
+     * @param ids The IDs of the users to observe; at most MAX_IDS_PER_STATEMENT.
+     * @return A Flow emitting the existing users among the IDs, in no particular order, whenever the table changes.
+     */
+    @Query("SELECT * FROM users WHERE id IN (:ids)")
+    Flow<List<User>> observeUsersByIds(long[] ids);
+
+    /**
+     * Observes the users matching a compiled filter expression.
+     * @param query A {@code SELECT * FROM users} query, as built by
+     * {@link com.example.usermanagement.filter.FilterPlan#toQuery}.
+     * @return A Flow emitting the matching users whenever the users change.
+     */
+    @RawQuery(observedEntities = User.class)
+    Flow<List<User>> filterUsers(SupportSQLiteQuery query);
+
+    /**
+     * Writes the phonetic keys of one user, replacing any previous ones.
+     * @param phonetics The keys to write; the user must exist.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertPhonetics(UserPhonetics phonetics);
+
+    /**
+     * Writes the phonetic keys of many users, replacing any previous ones.
+     * @param phonetics The keys to write; the users must exist.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertPhonetics(List<UserPhonetics> phonetics);
+
+    /**
+     * Retrieves the next users, in ID order, that have no phonetic keys yet; a keyset page for the backfill.
+     * @param afterId Only users with a greater ID are returned.
+     * @param limit The maximum number of users.
+     * @return The ID, first name and last name of each user.
+     */
+    @Query("SELECT u.id, u.firstName, u.lastName FROM users u LEFT JOIN user_phonetics p ON p.id = u.id " +
+        "WHERE p.id IS NULL AND u.id > :afterId ORDER BY u.id LIMIT :limit")
+    List<UserName> getUserNamesWithoutPhonetics(long afterId, int limit);
+
+    /**
+     * Gives the next chunk of users without phonetic keys their keys, in a single transaction.
+     * Writes committed meanwhile keep their own keys, so a backfill can run alongside them chunk by chunk.
+     * @param afterId Only users with a greater ID are encoded.
+     * @return The ID of the last user encoded, or -1 once every user has keys.
+     */
+    @Transaction
+    default long backfillPhoneticsChunk(long afterId) {
+        List<UserName> names = getUserNamesWithoutPhonetics(afterId, PHONETICS_BACKFILL_CHUNK);
+        if (names.isEmpty()) {
+            return -1;
+        }
+        List<UserPhonetics> phonetics = new ArrayList<>(names.size());
+        for (UserName name : names) {
+            phonetics.add(UserPhonetics.of(name.id, name.firstName, name.lastName));
+        }
+        insertPhonetics(phonetics);
+        return names.get(names.size() - 1).id;
+    }
+
+    /**
+     * Finds the users whose first or last name sounds like one word, through the phonetic key indexes.
+     * @param code The Metaphone key of the word.
+     * @return A Flow emitting the matching users whenever the users or their keys change.
+     */
+    @Query("SELECT users.* FROM user_phonetics p JOIN users ON users.id = p.id " +
+        "WHERE p.firstNameCode = :code OR p.lastNameCode = :code")
+    Flow<List<User>> searchBySoundOfName(String code);
+
+    /**
+     * Finds the users whose first and last name both sound like one of several words, through the
+     * phonetic key indexes, so "Kathryn Smyth" and "Smyth Kathryn" both find Catherine Smith.
+     * @param codes The Metaphone keys of the words.
+     * @return A Flow emitting the matching users whenever the users or their keys change.
+     */
+    @Query("SELECT users.* FROM user_phonetics p JOIN users ON users.id = p.id " +
+        "WHERE p.firstNameCode IN (:codes) AND p.lastNameCode IN (:codes)")
+    Flow<List<User>> searchBySoundOfFullName(List<String> codes);
+}
\ No newline at end of file
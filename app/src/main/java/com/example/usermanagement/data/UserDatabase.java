@@ -10,7 +10,13 @@ import androidx.sqlite.db.SupportSQLiteDatabase;
 /**
  * Main database class for the application
  */
-@Database(entities = {User.class}, version = 8, exportSchema = false)
+@Database(
+    entities = {
+        User.class, UserStat.class, UserPhonetics.class, DedupeQueueEntry.class, UserBlockKey.class, DuplicatePair.class
+    },
+    version = 15,
+    exportSchema = false
+)
 public abstract class UserDatabase extends RoomDatabase {
     private static volatile UserDatabase INSTANCE;
 
@@ -20,6 +26,18 @@ public abstract class UserDatabase extends RoomDatabase {
      */
     public abstract UserDao userDao();
 
+    /**
+     * Provides the Data Access Object for the trigger-maintained user statistics.
+     * @return An instance of {@link UserStatsDao}.
+     */
+    public abstract UserStatsDao userStatsDao();
+
+    /**
+     * Provides the Data Access Object for the duplicate detection.
+     * @return An instance of {@link DedupeDao}.
+     */
+    public abstract DedupeDao dedupeDao();
+
     /**
      * Returns the singleton instance of the UserDatabase.
      * If the instance does not exist, it creates one using Room's database builder.
@@ -35,7 +53,9 @@ public abstract class UserDatabase extends RoomDatabase {
                             UserDatabase.class,
                             "user_database"
                         )
-                        .addMigrations(MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+                        .addMigrations(ALL_MIGRATIONS)
+                        .addCallback(UserStatsTable.CALLBACK)
+                        .addCallback(DedupeTable.CALLBACK)
                         .fallbackToDestructiveMigration() // Added as safety net
                         .build();
                 }
@@ -99,9 +119,141 @@ public abstract class UserDatabase extends RoomDatabase {
     public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
         @Override
         public void migrate(SupportSQLiteDatabase database) {
-            // Add new columns with empty string defaults
-            database.execSQL("ALTER TABLE users ADD COLUMN dob TEXT DEFAULT ''");
-            database.execSQL("ALTER TABLE users ADD COLUMN address TEXT DEFAULT ''");
+            // Add new columns with empty string defaults; NOT NULL matches the non-null entity fields Room validates against
+            database.execSQL("ALTER TABLE users ADD COLUMN dob TEXT NOT NULL DEFAULT ''");
+            database.execSQL("ALTER TABLE users ADD COLUMN address TEXT NOT NULL DEFAULT ''");
+        }
+    };
+
+    /**
+     * Migration from version 8 to 9
+     * Adds the user_stats counters and fills them from the existing users. Runs in the same transaction as
+     * the trigger installation, so no write can slip in between the rebuild and the first trigger firing.
+     * Room runs migrations on the first database access, which the repository always makes off the main thread.
+     */
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(UserStatsTable.CREATE_TABLE);
+            UserStatsTable.createTriggers(database);
+            UserStatsTable.rebuild(database);
+        }
+    };
+
+    /**
+     * Migration from version 9 to 10
+     * Adds the indexed phonetic keys of the names. The table starts empty so the upgrade stays instant even for
+     * large directories; the repository fills it in small chunks afterwards, and every write since keeps it current.
+     */
+    public static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `user_phonetics` (" +
+                "`id` INTEGER NOT NULL, `firstNameCode` TEXT NOT NULL, `lastNameCode` TEXT NOT NULL, " +
+                "PRIMARY KEY(`id`), " +
+                "FOREIGN KEY(`id`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_user_phonetics_firstNameCode` " +
+                "ON `user_phonetics` (`firstNameCode`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_user_phonetics_lastNameCode` " +
+                "ON `user_phonetics` (`lastNameCode`)");
+        }
+    };
+
+    /**
+     * Migration from version 10 to 11
+     * Adds the duplicate detection tables and queues every existing user, which the detection then works through
+     * in small chunks in the background.
+     */
+    public static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            for (String statement : DedupeTable.CREATE_TABLES) {
+                database.execSQL(statement);
+            }
+            DedupeTable.createTriggers(database);
+            DedupeTable.queueAllUsers(database);
+        }
+    };
+
+    /**
+     * Migration from version 11 to 12
+     * Rebuilds the users table with case-insensitive (NOCASE) name columns and indexes the names, phone and date
+     * of birth for the filter expressions. Foreign keys are not enforced while migrations run, so dropping the old
+     * table leaves the rows referencing users in place; the triggers on it go with it and are installed again.
+     */
+    public static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `users_new` (" +
+                "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "`firstName` TEXT NOT NULL COLLATE NOCASE, " +
+                "`lastName` TEXT NOT NULL COLLATE NOCASE, " +
+                "`email` TEXT NOT NULL, `phone` TEXT NOT NULL, `dob` TEXT NOT NULL, `address` TEXT NOT NULL)");
+            database.execSQL("INSERT INTO users_new (id, firstName, lastName, email, phone, dob, address) " +
+                "SELECT id, firstName, lastName, email, phone, dob, address FROM users");
+            database.execSQL("DROP TABLE users");
+            database.execSQL("ALTER TABLE users_new RENAME TO users");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_users_email` ON `users` (`email`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_users_firstName` ON `users` (`firstName`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_users_lastName` ON `users` (`lastName`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_users_phone` ON `users` (`phone`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_users_dob` ON `users` (`dob`)");
+            UserStatsTable.createTriggers(database);
+            DedupeTable.createTriggers(database);
+        }
+    };
+
+    /**
+     * Migration from version 12 to 13
+     * Adds the indexed collation keys behind the sorted pages. Like the phonetic keys, the table starts empty and
+     * the repository fills it in small chunks afterwards. Dropped again by {@link #MIGRATION_14_15}.
+     */
+    public static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `user_sort_keys` (" +
+                "`id` INTEGER NOT NULL, `locale` TEXT NOT NULL, `lastNameKey` BLOB NOT NULL, " +
+                "`firstNameKey` BLOB NOT NULL, `emailKey` BLOB NOT NULL, PRIMARY KEY(`id`), " +
+                "FOREIGN KEY(`id`) REFERENCES `users`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_user_sort_keys_lastNameKey_firstNameKey` " +
+                "ON `user_sort_keys` (`lastNameKey`, `firstNameKey`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_user_sort_keys_firstNameKey_lastNameKey` " +
+                "ON `user_sort_keys` (`firstNameKey`, `lastNameKey`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_user_sort_keys_emailKey` " +
+                "ON `user_sort_keys` (`emailKey`)");
         }
     };
-}
\ No newline at end of file
+
+    /**
+     * Migration from version 13 to 14
+     * Adds the first, last name and email initial counters behind the list sections. The insert and delete
+     * triggers are replaced by their new version and all counters are rebuilt in the same transaction.
+     */
+    public static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            UserStatsTable.dropInsertAndDeleteTriggers(database);
+            UserStatsTable.createTriggers(database);
+            UserStatsTable.rebuild(database);
+        }
+    };
+
+    /**
+     * Migration from version 14 to 15
+     * Drops the collation keys added in version 13 together with their indexes; lists are sorted in memory.
+     */
+    public static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("DROP TABLE IF EXISTS `user_sort_keys`");
+        }
+    };
+
+    /**
+     * Every migration, in order; each builder of this database must register all of them so upgrades
+     * from any released version keep the users' data.
+     */
+    public static final Migration[] ALL_MIGRATIONS = {MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9,
+        MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13,
+        MIGRATION_13_14, MIGRATION_14_15};
+}
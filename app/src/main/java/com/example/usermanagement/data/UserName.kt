@@ -0,0 +1,13 @@
+package com.example.usermanagement.data
+
+/**
+ * The name columns of a user, loaded without the rest of the row.
+ */
+data class UserName(
+    @JvmField
+    val id: Long,
+    @JvmField
+    val firstName: String,
+    @JvmField
+    val lastName: String
+)
@@ -0,0 +1,41 @@
+package com.example.usermanagement.data
+
+import androidx.room.Entity
+import androidx.room.ForeignKey
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import com.example.usermanagement.search.Metaphone
+
+/**
+ * Phonetic keys of one user's names, written by [UserDao] together with the user row and looked up through
+ * their indexes by the "sounds like" search. Kept apart from [User] so the keys never take part in its
+ * equality or go stale in a `copy()`; the rows go away with their user through the cascading foreign key.
+ * @property id The ID of the user.
+ * @property firstNameCode [Metaphone] key of the first name.
+ * @property lastNameCode [Metaphone] key of the last name.
+ */
+@Entity(
+    tableName = "user_phonetics",
+    foreignKeys = [
+        ForeignKey(entity = User::class, parentColumns = ["id"], childColumns = ["id"], onDelete = ForeignKey.CASCADE)
+    ],
+    indices = [Index(value = ["firstNameCode"]), Index(value = ["lastNameCode"])]
+)
+data class UserPhonetics(
+    @PrimaryKey
+    @JvmField
+    val id: Long,
+    @JvmField
+    val firstNameCode: String,
+    @JvmField
+    val lastNameCode: String
+) {
+    companion object {
+        /**
+         * Encodes the names of the user with the given [id].
+         */
+        @JvmStatic
+        fun of(id: Long, firstName: String, lastName: String) =
+            UserPhonetics(id, Metaphone.encode(firstName), Metaphone.encode(lastName))
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.usermanagement.data
+
+import androidx.room.Entity
+
+/**
+ * One counter of the `user_stats` table, maintained by the triggers in [UserStatsTable].
+ * @property kind What is counted: [UserStatsTable.KIND_TOTAL], [UserStatsTable.KIND_DOMAIN],
+ * [UserStatsTable.KIND_BIRTH_YEAR] or the initials of [UserStatsTable.KIND_FIRST_INITIAL],
+ * [UserStatsTable.KIND_LAST_INITIAL] and [UserStatsTable.KIND_EMAIL_INITIAL].
+ * @property bucket The counted value within [kind], e.g. an email domain; empty for the total and unknown values.
+ * @property count The number of users in the bucket.
+ */
+@Entity(tableName = "user_stats", primaryKeys = ["kind", "bucket"])
+data class UserStat(
+    @JvmField
+    val kind: String,
+    @JvmField
+    val bucket: String,
+    @JvmField
+    val count: Long
+)
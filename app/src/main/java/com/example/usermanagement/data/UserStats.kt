@@ -0,0 +1,95 @@
+package com.example.usermanagement.data
+
+/**
+ * Directory statistics read from the `user_stats` counters.
+ * @property total The number of users.
+ * @property byDomain Users per email domain, largest first.
+ * @property byBirthYear Users per birth year, for users whose date of birth has the yyyy-MM-dd format.
+ */
+data class UserStats(
+    val total: Long = 0,
+    val byDomain: List<Pair<String, Long>> = emptyList(),
+    val byBirthYear: Map<Int, Long> = emptyMap()
+) {
+    /**
+     * Users per age range, derived from [byBirthYear] so ages stay current without rewriting any counter.
+     * Ages are whole years since the birth year, so a user whose birthday is still ahead counts one year older.
+     * @param currentYear The year ages are computed in.
+     * @param bounds The ascending lower age bounds of every range after the first.
+     * @return One [AgeBucket] per range, including empty ones, youngest first.
+     */
+    fun ageBuckets(currentYear: Int, bounds: IntArray = DEFAULT_AGE_BOUNDS): List<AgeBucket> {
+        val counts = LongArray(bounds.size + 1)
+        for ((year, count) in byBirthYear) {
+            val age = currentYear - year
+            var index = 0
+            while (index < bounds.size && age >= bounds[index]) index++
+            counts[index] += count
+        }
+        return counts.mapIndexed { index, count ->
+            val label = when (index) {
+                0 -> "Under ${bounds[0]}"
+                bounds.size -> "${bounds.last()}+"
+                else -> "${bounds[index - 1]}–${bounds[index] - 1}"
+            }
+            AgeBucket(label, count)
+        }
+    }
+
+    companion object {
+        /**
+         * Lower bounds of the default age ranges: under 18, 18–24, 25–34, …, 65+.
+         */
+        val DEFAULT_AGE_BOUNDS = intArrayOf(18, 25, 35, 45, 55, 65)
+
+        /**
+         * Groups the raw counters by kind.
+         * @param rows Every row of the `user_stats` table.
+         */
+        fun from(rows: List<UserStat>): UserStats {
+            var total = 0L
+            val byDomain = ArrayList<Pair<String, Long>>()
+            val byBirthYear = HashMap<Int, Long>()
+            for (row in rows) {
+                when (row.kind) {
+                    UserStatsTable.KIND_TOTAL -> total = row.count
+                    UserStatsTable.KIND_DOMAIN -> if (row.bucket.isNotEmpty()) byDomain += row.bucket to row.count
+                    UserStatsTable.KIND_BIRTH_YEAR -> row.bucket.toIntOrNull()?.let { byBirthYear[it] = row.count }
+                }
+            }
+            byDomain.sortWith(compareByDescending<Pair<String, Long>> { it.second }.thenBy { it.first })
+            return UserStats(total, byDomain, byBirthYear)
+        }
+
+        /**
+         * Computes the same statistics directly from [users], with the bucketing rules of the triggers.
+         * Linear in the number of users; meant for repositories without the counters table.
+         */
+        fun of(users: List<User>): UserStats {
+            val rows = HashMap<Pair<String, String>, Long>()
+            for (user in users) {
+                val at = user.email.indexOf('@')
+                val domain = if (at >= 0) user.email.substring(at + 1).lowercase() else ""
+                val birthYear = birthYearOf(user.dob)
+                rows.merge(UserStatsTable.KIND_DOMAIN to domain, 1L, Long::plus)
+                rows.merge(UserStatsTable.KIND_BIRTH_YEAR to birthYear, 1L, Long::plus)
+            }
+            return from(rows.map { (key, count) -> UserStat(key.first, key.second, count) })
+                .copy(total = users.size.toLong())
+        }
+
+        /**
+         * The birth year bucket of [dob] as the triggers compute it: the year of a yyyy-MM-dd date, otherwise empty.
+         */
+        fun birthYearOf(dob: String): String = if (BIRTH_YEAR_PREFIX.matches(dob)) dob.substring(0, 4) else ""
+
+        private val BIRTH_YEAR_PREFIX = Regex("^[0-9]{4}-.*", RegexOption.DOT_MATCHES_ALL)
+    }
+}
+
+/**
+ * The number of users in one age range.
+ * @property label The range, e.g. "25–34".
+ * @property count The number of users in it.
+ */
+data class AgeBucket(val label: String, val count: Long)
@@ -0,0 +1,28 @@
+package com.example.usermanagement.data;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import java.util.List;
+import kotlinx.coroutines.flow.Flow;
+
+/**
+ * Data Access Object for the trigger-maintained user_stats counters
+ */
+@Dao
+public interface UserStatsDao {
+    /**
+     * Observes every counter. The table holds one row per distinct domain and birth year rather than per user,
+     * so each emission costs the same regardless of the number of users.
+     * @return A Flow emitting all counters whenever the triggers change any of them.
+     */
+    @Query("SELECT * FROM user_stats")
+    Flow<List<UserStat>> observeStats();
+
+    /**
+     * Observes the counters of one kind, a range of the primary key.
+     * @param kind The kind of counters, one of the UserStatsTable.KIND_ constants.
+     * @return A Flow emitting the counters of the kind whenever the triggers change any counter.
+     */
+    @Query("SELECT * FROM user_stats WHERE kind = :kind")
+    Flow<List<UserStat>> observeStatsOfKind(String kind);
+}
@@ -0,0 +1,178 @@
+package com.example.usermanagement.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * SQL of the user_stats counters and the triggers keeping them in step with the users table.
+ * Room cannot declare triggers, so they are created by {@link #CALLBACK} every time the database opens;
+ * that also covers fresh installs and destructive migrations, which drop them together with the table.
+ */
+public final class UserStatsTable {
+    public static final String KIND_TOTAL = "total";
+    public static final String KIND_DOMAIN = "domain";
+    public static final String KIND_BIRTH_YEAR = "birth_year";
+    public static final String KIND_FIRST_INITIAL = "first_initial";
+    public static final String KIND_LAST_INITIAL = "last_initial";
+    public static final String KIND_EMAIL_INITIAL = "email_initial";
+
+    /**
+     * Lower-cased text after the '@' of the email of the row alias %1$s, or '' if there is none.
+     */
+    private static final String DOMAIN =
+        "CASE WHEN instr(%1$s.email, '@') > 0 THEN lower(substr(%1$s.email, instr(%1$s.email, '@') + 1)) ELSE '' END";
+
+    /**
+     * Year of a yyyy-MM-dd dob of the row alias %1$s, or '' if it has another format.
+     * Birth years are counted rather than ages so the counters never go stale as time passes.
+     */
+    private static final String BIRTH_YEAR =
+        "CASE WHEN %1$s.dob GLOB '[0-9][0-9][0-9][0-9]-*' THEN substr(%1$s.dob, 1, 4) ELSE '' END";
+
+    /**
+     * First character of the column %2$s of the row alias %1$s, upper-cased for ASCII letters, or '' if empty.
+     * Accented and non-Latin letters are folded when read, see UserSections.
+     */
+    private static final String INITIAL = "upper(substr(%1$s.%2$s, 1, 1))";
+
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS `user_stats` (" +
+        "`kind` TEXT NOT NULL, `bucket` TEXT NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY(`kind`, `bucket`))";
+
+    /**
+     * Installs the triggers on every open, before Room hands out the database.
+     */
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            createTriggers(db);
+        }
+    };
+
+    private UserStatsTable() {
+    }
+
+    /**
+     * Creates the triggers if they do not exist yet. Each one touches only the counters of the changed row,
+     * so a write costs a few primary key lookups in user_stats no matter how many users there are.
+     * @param db The database to install the triggers in.
+     */
+    public static void createTriggers(SupportSQLiteDatabase db) {
+        String[] total = {KIND_TOTAL, "''"};
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS user_stats_insert AFTER INSERT ON users BEGIN " +
+            increment(total, domain("NEW"), birthYear("NEW"),
+                initial(KIND_FIRST_INITIAL, "NEW"), initial(KIND_LAST_INITIAL, "NEW"), initial(KIND_EMAIL_INITIAL, "NEW")) +
+            "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS user_stats_delete AFTER DELETE ON users BEGIN " +
+            decrement(total, domain("OLD"), birthYear("OLD"),
+                initial(KIND_FIRST_INITIAL, "OLD"), initial(KIND_LAST_INITIAL, "OLD"), initial(KIND_EMAIL_INITIAL, "OLD")) +
+            "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS user_stats_update_domain AFTER UPDATE OF email ON users " +
+            "WHEN " + domain("OLD")[1] + " <> " + domain("NEW")[1] + " BEGIN " +
+            decrement(domain("OLD")) +
+            increment(domain("NEW")) +
+            "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS user_stats_update_birth_year AFTER UPDATE OF dob ON users " +
+            "WHEN " + birthYear("OLD")[1] + " <> " + birthYear("NEW")[1] + " BEGIN " +
+            decrement(birthYear("OLD")) +
+            increment(birthYear("NEW")) +
+            "END");
+        createInitialTrigger(db, "user_stats_update_first_initial", KIND_FIRST_INITIAL);
+        createInitialTrigger(db, "user_stats_update_last_initial", KIND_LAST_INITIAL);
+        createInitialTrigger(db, "user_stats_update_email_initial", KIND_EMAIL_INITIAL);
+    }
+
+    /**
+     * Drops the insert and delete triggers, so the next {@link #createTriggers} installs their current version;
+     * CREATE TRIGGER IF NOT EXISTS would keep an older one.
+     * @param db The database to drop the triggers from.
+     */
+    static void dropInsertAndDeleteTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS user_stats_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS user_stats_delete");
+    }
+
+    private static void createInitialTrigger(SupportSQLiteDatabase db, String name, String kind) {
+        String[] oldInitial = initial(kind, "OLD");
+        String[] newInitial = initial(kind, "NEW");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + name + " AFTER UPDATE OF " + columnOf(kind) + " ON users " +
+            "WHEN " + oldInitial[1] + " <> " + newInitial[1] + " BEGIN " +
+            decrement(oldInitial) +
+            increment(newInitial) +
+            "END");
+    }
+
+    /**
+     * Recomputes every counter from the users table in one pass per kind.
+     * @param db The database to rebuild the counters of; should be inside a transaction.
+     */
+    public static void rebuild(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM user_stats");
+        db.execSQL("INSERT INTO user_stats (kind, bucket, count) " +
+            "SELECT '" + KIND_TOTAL + "', '', COUNT(*) FROM users");
+        db.execSQL("INSERT INTO user_stats (kind, bucket, count) " +
+            "SELECT '" + KIND_DOMAIN + "', " + String.format(DOMAIN, "users") + ", COUNT(*) FROM users GROUP BY 2");
+        db.execSQL("INSERT INTO user_stats (kind, bucket, count) " +
+            "SELECT '" + KIND_BIRTH_YEAR + "', " + String.format(BIRTH_YEAR, "users") + ", COUNT(*) FROM users GROUP BY 2");
+        for (String kind : new String[] {KIND_FIRST_INITIAL, KIND_LAST_INITIAL, KIND_EMAIL_INITIAL}) {
+            db.execSQL("INSERT INTO user_stats (kind, bucket, count) " +
+                "SELECT '" + kind + "', " + initial(kind, "users")[1] + ", COUNT(*) FROM users GROUP BY 2");
+        }
+    }
+
+    private static String[] domain(String row) {
+        return new String[] {KIND_DOMAIN, String.format(DOMAIN, row)};
+    }
+
+    private static String[] birthYear(String row) {
+        return new String[] {KIND_BIRTH_YEAR, String.format(BIRTH_YEAR, row)};
+    }
+
+    private static String[] initial(String kind, String row) {
+        return new String[] {kind, String.format(INITIAL, row, columnOf(kind))};
+    }
+
+    private static String columnOf(String kind) {
+        switch (kind) {
+            case KIND_FIRST_INITIAL:
+                return "firstName";
+            case KIND_LAST_INITIAL:
+                return "lastName";
+            case KIND_EMAIL_INITIAL:
+                return "email";
+            default:
+                throw new IllegalArgumentException("Not an initial counter: " + kind);
+        }
+    }
+
+    /**
+     * Adds one to each bucket, given as {kind, bucket expression}. UPSERT needs SQLite 3.24 (API 30),
+     * so missing counters are created with INSERT OR IGNORE before the UPDATE.
+     */
+    private static String increment(String[]... buckets) {
+        StringBuilder values = new StringBuilder();
+        for (String[] bucket : buckets) {
+            values.append(values.length() == 0 ? "" : ", ")
+                .append("('").append(bucket[0]).append("', ").append(bucket[1]).append(", 0)");
+        }
+        return "INSERT OR IGNORE INTO user_stats (kind, bucket, count) VALUES " + values + "; " +
+            "UPDATE user_stats SET count = count + 1 WHERE " + matching(buckets) + "; ";
+    }
+
+    /**
+     * Subtracts one from each bucket and drops the ones left empty; the total is never dropped.
+     */
+    private static String decrement(String[]... buckets) {
+        return "UPDATE user_stats SET count = count - 1 WHERE " + matching(buckets) + "; " +
+            "DELETE FROM user_stats WHERE count <= 0 AND kind <> '" + KIND_TOTAL + "' AND (" + matching(buckets) + "); ";
+    }
+
+    private static String matching(String[]... buckets) {
+        StringBuilder where = new StringBuilder();
+        for (String[] bucket : buckets) {
+            where.append(where.length() == 0 ? "" : " OR ")
+                .append("(kind = '").append(bucket[0]).append("' AND bucket = ").append(bucket[1]).append(")");
+        }
+        return where.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.usermanagement.database
+
+import androidx.room.RoomDatabase
+import com.example.usermanagement.metrics.toJson
+import kotlinx.coroutines.CoroutineDispatcher
+import org.json.JSONObject
+import java.io.Closeable
+
+/**
+ * The database execution layer: a small reader pool and a single serialized writer, each with priority lanes.
+ *
+ * Keeping database work off the shared `Dispatchers.IO` pool bounds how many threads can contend for SQLite,
+ * and the lanes let a user's list query or save overtake queued bulk work instead of waiting behind it.
+ * Writes are serialized here rather than on SQLite's lock, so they queue by priority instead of by lock order.
+ *
+ * Each instance owns its threads: the app runs on [shared], and any other instance, e.g. one per test, must be
+ * closed once its databases are closed.
+ * @param readerThreads Size of the reader pool; WAL lets this many readers run alongside the writer.
+ */
+class DatabaseExecutors(readerThreads: Int = DEFAULT_READER_THREADS) : Closeable {
+    private val readers = PriorityExecutor("db-read", readerThreads)
+    private val writer = PriorityExecutor("db-write", 1)
+
+    /**
+     * Dispatcher for queries of the given [priority].
+     */
+    fun read(priority: DbPriority = DbPriority.INTERACTIVE): CoroutineDispatcher = readers.dispatcher(priority)
+
+    /**
+     * Dispatcher for writes of the given [priority]; all writes run on one thread.
+     */
+    fun write(priority: DbPriority = DbPriority.INTERACTIVE): CoroutineDispatcher = writer.dispatcher(priority)
+
+    /**
+     * Routes Room's own work through this layer: observed queries (every Flow returned by a DAO) run in the
+     * interactive reader lane, and Room transactions on the writer.
+     * @param builder The database builder to configure.
+     * @return The same builder, for chaining.
+     */
+    fun <T : RoomDatabase> install(builder: RoomDatabase.Builder<T>): RoomDatabase.Builder<T> {
+        return builder
+            .setQueryExecutor(readers.executor(DbPriority.INTERACTIVE))
+            .setTransactionExecutor(writer.executor(DbPriority.INTERACTIVE))
+    }
+
+    /**
+     * Queue depth and wait time statistics of the reader pool and the writer.
+     */
+    fun snapshot(): List<PriorityExecutorSnapshot> = listOf(readers.snapshot(), writer.snapshot())
+
+    /**
+     * Serializes [snapshot] for the metrics dump.
+     * @return A [JSONObject] keyed by executor name, then by lane.
+     */
+    fun toJson(): JSONObject {
+        val json = JSONObject()
+        for (executor in snapshot()) {
+            val lanes = JSONObject()
+            for ((priority, lane) in executor.lanes) {
+                lanes.put(priority.name.lowercase(), JSONObject()
+                    .put("queueDepth", lane.queueDepth)
+                    .put("maxQueueDepth", lane.maxQueueDepth)
+                    .put("executed", lane.executed)
+                    .put("wait", lane.wait.toJson()))
+            }
+            json.put(executor.name, lanes)
+        }
+        return json
+    }
+
+    /**
+     * Lets queued work finish, then stops the reader and writer threads.
+     */
+    override fun close() {
+        readers.shutdown()
+        writer.shutdown()
+    }
+
+    companion object {
+        const val DEFAULT_READER_THREADS = 3
+
+        /**
+         * The process-wide instance, used wherever no instance is passed; lives as long as the process.
+         */
+        val shared: DatabaseExecutors by lazy { DatabaseExecutors() }
+    }
+}
@@ -2,7 +2,10 @@ package com.example.usermanagement.database
 
 import android.content.Context
 import androidx.room.Room
+import androidx.room.RoomDatabase
+import com.example.usermanagement.data.DedupeTable
 import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.data.UserStatsTable
 
 interface DatabaseFactory {
     /**
@@ -15,21 +18,34 @@ interface DatabaseFactory {
 
 /**
  * Implementation of [DatabaseFactory] that provides a Room database instance.
+ * @param slowQueryMonitor Optional monitor timing every statement and capturing plans of slow ones.
+ * @param executors Optional execution layer that Room's query and transaction executors are routed through.
  */
-class RoomDatabaseFactory : DatabaseFactory {
+class RoomDatabaseFactory(
+    private val slowQueryMonitor: SlowQueryMonitor? = null,
+    private val executors: DatabaseExecutors? = null
+) : DatabaseFactory {
     /**
      * Creates and returns a persistent Room database instance named "user_database".
+     * The database always uses write-ahead logging, which gives it a pool of read connections next to the
+     * write connection: readers see the last commit instead of waiting for a running write transaction.
      * @param context The application context.
      * @return A Room [UserDatabase] instance.
      */
     override fun createDatabase(context: Context): UserDatabase {
-        return Room.databaseBuilder(
+        val builder = Room.databaseBuilder(
             context.applicationContext,
             UserDatabase::class.java,
             "user_database"
         )
-        .addMigrations(UserDatabase.MIGRATION_6_7)
-        .build()
+        .addMigrations(*UserDatabase.ALL_MIGRATIONS)
+        .addCallback(UserStatsTable.CALLBACK)
+        .addCallback(DedupeTable.CALLBACK)
+        // AUTOMATIC would silently drop to TRUNCATE on low-RAM devices, losing concurrent reads.
+        .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+        slowQueryMonitor?.install(builder)
+        executors?.install(builder)
+        return builder.build()
     }
 }
 
@@ -48,6 +64,8 @@ class InMemoryDatabaseFactory : DatabaseFactory {
             context.applicationContext,
             UserDatabase::class.java
         )
+        .addCallback(UserStatsTable.CALLBACK)
+        .addCallback(DedupeTable.CALLBACK)
         .allowMainThreadQueries()
         .build()
     }
@@ -0,0 +1,149 @@
+package com.example.usermanagement.database
+
+import com.example.usermanagement.metrics.HistogramSnapshot
+import com.example.usermanagement.metrics.LatencyHistogram
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.asCoroutineDispatcher
+import java.util.EnumMap
+import java.util.concurrent.Executor
+import java.util.concurrent.PriorityBlockingQueue
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Scheduling class of database work.
+ */
+enum class DbPriority {
+    /**
+     * Work a user is waiting for, such as the list query behind a scroll or search, or saving a form.
+     */
+    INTERACTIVE,
+
+    /**
+     * Work nobody is watching, such as imports, bulk edits and maintenance; runs only when no interactive work is queued.
+     */
+    BACKGROUND
+}
+
+/**
+ * Fixed-size thread pool whose queue orders tasks by [DbPriority], then by submission order.
+ * Queued interactive tasks therefore overtake queued background tasks, while tasks already running are never preempted.
+ * Records per-lane queue depth and queue wait time.
+ * @param name Prefix of the pool's thread names.
+ * @param threads Number of threads; 1 serializes all tasks.
+ * @param clock Source of monotonic nanosecond timestamps; replaceable in tests.
+ */
+class PriorityExecutor(
+    private val name: String,
+    threads: Int,
+    private val clock: () -> Long = System::nanoTime
+) {
+    private val sequence = AtomicLong()
+    private val threadCount = AtomicInteger()
+    private val lanes = EnumMap<DbPriority, Lane>(DbPriority::class.java).apply {
+        DbPriority.values().forEach { put(it, Lane()) }
+    }
+    private val executors = EnumMap<DbPriority, Executor>(DbPriority::class.java).apply {
+        DbPriority.values().forEach { priority -> put(priority, Executor { submit(it, priority) }) }
+    }
+    private val dispatchers = EnumMap<DbPriority, CoroutineDispatcher>(DbPriority::class.java).apply {
+        DbPriority.values().forEach { put(it, executors.getValue(it).asCoroutineDispatcher()) }
+    }
+
+    private val pool = ThreadPoolExecutor(
+        threads, threads, 0L, TimeUnit.MILLISECONDS,
+        PriorityBlockingQueue<Runnable>(),
+        ThreadFactory { runnable ->
+            Thread(runnable, "$name-${threadCount.incrementAndGet()}").apply { isDaemon = true }
+        }
+    )
+
+    /**
+     * An [Executor] submitting to the lane of [priority], e.g. for Room's query and transaction executors.
+     */
+    fun executor(priority: DbPriority): Executor = executors.getValue(priority)
+
+    /**
+     * A [CoroutineDispatcher] submitting to the lane of [priority].
+     */
+    fun dispatcher(priority: DbPriority): CoroutineDispatcher = dispatchers.getValue(priority)
+
+    /**
+     * Point-in-time statistics of every lane.
+     */
+    fun snapshot(): PriorityExecutorSnapshot =
+        PriorityExecutorSnapshot(name, lanes.mapValues { it.value.snapshot() })
+
+    /**
+     * Lets queued tasks finish, then stops the threads; tasks submitted afterwards are rejected.
+     */
+    fun shutdown() {
+        pool.shutdown()
+    }
+
+    private fun submit(command: Runnable, priority: DbPriority) {
+        val lane = lanes.getValue(priority)
+        lane.enqueued()
+        pool.execute(Task(priority.ordinal, sequence.getAndIncrement(), clock(), command, lane))
+    }
+
+    private inner class Task(
+        private val rank: Int,
+        private val sequence: Long,
+        private val enqueuedAt: Long,
+        private val command: Runnable,
+        private val lane: Lane
+    ) : Runnable, Comparable<Task> {
+        override fun run() {
+            lane.started(clock() - enqueuedAt)
+            command.run()
+        }
+
+        override fun compareTo(other: Task): Int =
+            if (rank != other.rank) rank.compareTo(other.rank) else sequence.compareTo(other.sequence)
+    }
+
+    private class Lane {
+        private val depth = AtomicInteger()
+        private val maxDepth = AtomicInteger()
+        private val executed = AtomicLong()
+        val waits = LatencyHistogram()
+
+        fun enqueued() {
+            val current = depth.incrementAndGet()
+            maxDepth.accumulateAndGet(current) { a, b -> maxOf(a, b) }
+        }
+
+        fun started(waitNanos: Long) {
+            depth.decrementAndGet()
+            executed.incrementAndGet()
+            waits.record(waitNanos)
+        }
+
+        fun snapshot() = LaneSnapshot(depth.get(), maxDepth.get(), executed.get(), waits.snapshot())
+    }
+}
+
+/**
+ * Statistics of one [PriorityExecutor].
+ * @param name The executor's name.
+ * @param lanes Statistics per priority.
+ */
+data class PriorityExecutorSnapshot(val name: String, val lanes: Map<DbPriority, LaneSnapshot>)
+
+/**
+ * Statistics of one priority lane.
+ * @param queueDepth Tasks currently waiting.
+ * @param maxQueueDepth Highest number of tasks waiting at once.
+ * @param executed Tasks started so far.
+ * @param wait Time tasks spent queued before starting.
+ */
+data class LaneSnapshot(
+    val queueDepth: Int,
+    val maxQueueDepth: Int,
+    val executed: Long,
+    val wait: HistogramSnapshot
+)
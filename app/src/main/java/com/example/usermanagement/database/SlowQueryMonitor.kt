@@ -0,0 +1,141 @@
+package com.example.usermanagement.database
+
+import android.util.Log
+import android.util.LruCache
+import androidx.room.RoomDatabase
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import java.util.concurrent.Executor
+
+/**
+ * A statement that exceeded the [SlowQueryMonitor] threshold.
+ * @param sql The SQL as issued by Room.
+ * @param bindArgs The bound arguments, as reported by Room's query callback.
+ * @param durationNanos How long the statement took; for queries, until the cursor was closed.
+ * @param plan The `EXPLAIN QUERY PLAN` detail lines, or empty if the statement cannot be explained.
+ * @param isFullScan `true` if the plan scans the users table instead of searching an index.
+ * @param timestampMillis Wall-clock time the statement finished.
+ */
+data class SlowQuery(
+    val sql: String,
+    val bindArgs: List<Any?>,
+    val durationNanos: Long,
+    val plan: List<String>,
+    val isFullScan: Boolean,
+    val timestampMillis: Long
+)
+
+/**
+ * Times every statement Room executes and keeps the slow ones, with their query plan, in a bounded ring buffer.
+ *
+ * Room's [RoomDatabase.QueryCallback] supplies each statement's SQL and bind arguments; it is registered with a
+ * direct executor so the arguments are captured on the executing thread. The timing itself comes from
+ * [TimingOpenHelperFactory], which wraps the real open helper. Plans are cached per SQL string, so
+ * `EXPLAIN QUERY PLAN` runs at most once per distinct slow statement.
+ * @param thresholdMillis Statements taking at least this long are captured; 0 captures everything.
+ * @param capacity The number of most recent slow statements kept.
+ */
+class SlowQueryMonitor(
+    @Volatile var thresholdMillis: Long = DEFAULT_THRESHOLD_MILLIS,
+    private val capacity: Int = DEFAULT_CAPACITY
+) : RoomDatabase.QueryCallback {
+
+    private class PendingStatement(val sql: String, val bindArgs: List<Any?>)
+
+    private val pending = ThreadLocal<PendingStatement?>()
+    private val buffer = ArrayDeque<SlowQuery>()
+    private val planCache = LruCache<String, List<String>>(MAX_CACHED_PLANS)
+
+    /**
+     * Installs the monitor into [builder]: wraps the open helper for timing and registers the query callback.
+     * @param builder The Room builder of the database to monitor.
+     * @return The same [builder], for chaining.
+     */
+    fun <T : RoomDatabase> install(builder: RoomDatabase.Builder<T>): RoomDatabase.Builder<T> {
+        return builder
+            .openHelperFactory(TimingOpenHelperFactory(FrameworkSQLiteOpenHelperFactory(), this))
+            .setQueryCallback(this, DIRECT_EXECUTOR)
+    }
+
+    override fun onQuery(sqlQuery: String, bindArgs: List<Any?>) {
+        pending.set(PendingStatement(sqlQuery, bindArgs.toList()))
+    }
+
+    /**
+     * Called by the timing wrapper when a statement completes.
+     * @param sql The statement that completed.
+     * @param durationNanos How long it took.
+     * @param database The unwrapped database, used to explain the statement without being timed again.
+     */
+    internal fun onStatementFinished(sql: String, durationNanos: Long, database: SupportSQLiteDatabase) {
+        val statement = pending.get()?.takeIf { it.sql == sql }
+        pending.set(null)
+        if (durationNanos < thresholdMillis * 1_000_000) return
+        val bindArgs = statement?.bindArgs ?: emptyList()
+        val plan = planFor(sql, bindArgs, database)
+        val slowQuery = SlowQuery(
+            sql = sql,
+            bindArgs = bindArgs,
+            durationNanos = durationNanos,
+            plan = plan,
+            isFullScan = plan.any { FULL_SCAN.containsMatchIn(it) },
+            timestampMillis = System.currentTimeMillis()
+        )
+        synchronized(buffer) {
+            if (buffer.size == capacity) buffer.removeFirst()
+            buffer.addLast(slowQuery)
+        }
+        if (slowQuery.isFullScan) {
+            Log.w(TAG, "Full scan (${durationNanos / 1_000_000} ms): $sql -> ${plan.joinToString(" | ")}")
+        }
+    }
+
+    /**
+     * @return The captured slow statements, oldest first.
+     */
+    fun slowQueries(): List<SlowQuery> = synchronized(buffer) { buffer.toList() }
+
+    /**
+     * @return The captured slow statements whose plan scans the users table.
+     */
+    fun fullScans(): List<SlowQuery> = slowQueries().filter { it.isFullScan }
+
+    /**
+     * Drops all captured statements and cached plans.
+     */
+    fun clear() {
+        synchronized(buffer) { buffer.clear() }
+        planCache.evictAll()
+    }
+
+    private fun planFor(sql: String, bindArgs: List<Any?>, database: SupportSQLiteDatabase): List<String> {
+        planCache.get(sql)?.let { return it }
+        if (!EXPLAINABLE.containsMatchIn(sql)) return emptyList()
+        val plan = try {
+            database.query("EXPLAIN QUERY PLAN $sql", bindArgs.toTypedArray()).use { cursor ->
+                val detail = cursor.getColumnIndexOrThrow("detail")
+                buildList { while (cursor.moveToNext()) add(cursor.getString(detail)) }
+            }
+        } catch (e: Exception) {
+            // Plans are diagnostics only; never let them break the statement being monitored.
+            emptyList()
+        }
+        planCache.put(sql, plan)
+        return plan
+    }
+
+    companion object {
+        private const val TAG = "SlowQueryMonitor"
+        private const val DEFAULT_THRESHOLD_MILLIS = 50L
+        private const val DEFAULT_CAPACITY = 64
+        private const val MAX_CACHED_PLANS = 128
+
+        private val DIRECT_EXECUTOR = Executor { it.run() }
+        private val EXPLAINABLE = Regex("^\\s*(SELECT|INSERT|UPDATE|DELETE|REPLACE|WITH)\\b", RegexOption.IGNORE_CASE)
+
+        /**
+         * Matches both the pre-3.36 ("SCAN TABLE users") and current ("SCAN users") plan wording.
+         */
+        private val FULL_SCAN = Regex("\\bSCAN (TABLE )?`?users`?\\b")
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.usermanagement.database
+
+import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.repository.UserSnapshot
+import java.io.Closeable
+
+/**
+ * Runs groups of reads inside one SQLite read transaction, so they all see the same committed state.
+ *
+ * The reads use a separate read-only connection to the database file and a deferred transaction, started by a
+ * `SAVEPOINT` because the framework turns every `BEGIN` into `BEGIN EXCLUSIVE`. In WAL mode a deferred transaction
+ * reads a snapshot of the last commit and neither waits for nor blocks the writer, so a screen's list, counts and
+ * aggregates stay consistent even during a bulk write. The connection is opened on the first read and serves one
+ * snapshot at a time; [close] closes it, as does the first read after the database itself was closed.
+ *
+ * In-memory databases have no file to open a second connection to, so their reads run in a Room transaction instead,
+ * which is consistent but waits for the write transaction in progress.
+ * @param database The Room database whose file is read.
+ */
+class SnapshotReader(private val database: UserDatabase) : Closeable {
+    /**
+     * The read-only connection; guarded by `this`, which also keeps two snapshots from sharing it.
+     */
+    private var readConnection: SQLiteDatabase? = null
+
+    /**
+     * Runs [block] against one consistent snapshot of the users table. Blocks the calling thread.
+     * @param block The reads to run; must not keep the [UserSnapshot] beyond its own execution.
+     * @return The result of [block].
+     * @throws IllegalStateException if the database has been closed.
+     */
+    fun <T> read(block: (UserSnapshot) -> T): T {
+        if (!database.isOpen) {
+            close()
+            throw IllegalStateException("The database is closed")
+        }
+        val path = database.openHelper.databaseName?.let { database.openHelper.readableDatabase.path }
+            ?: return database.runInTransaction<T> {
+                block(SqlUserSnapshot { sql, args -> database.query(sql, args) })
+            }
+        synchronized(this) {
+            val connection = readConnection
+                ?: SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY).also { readConnection = it }
+            connection.execSQL("SAVEPOINT $SAVEPOINT")
+            try {
+                return block(SqlUserSnapshot { sql, args -> connection.rawQuery(sql, args) })
+            } finally {
+                // Nothing was written, so releasing just ends the transaction.
+                connection.execSQL("RELEASE $SAVEPOINT")
+            }
+        }
+    }
+
+    /**
+     * Closes the read-only connection; a later [read] opens a new one.
+     */
+    override fun close() {
+        synchronized(this) {
+            readConnection?.close()
+            readConnection = null
+        }
+    }
+
+    private companion object {
+        const val SAVEPOINT = "snapshot"
+    }
+}
+
+/**
+ * [UserSnapshot] over plain SQL, shared by both transaction flavours of [SnapshotReader].
+ * The search criteria mirror `UserDao.searchUsers`.
+ */
+private class SqlUserSnapshot(private val rawQuery: (String, Array<String>) -> Cursor) : UserSnapshot {
+
+    override fun users(query: String): List<User> {
+        val (where, args) = criteria(query)
+        return rawQuery("SELECT * FROM users$where", args).use { readUsers(it) }
+    }
+
+    override fun count(query: String): Int {
+        val (where, args) = criteria(query)
+        return rawQuery("SELECT COUNT(*) FROM users$where", args).use { if (it.moveToFirst()) it.getInt(0) else 0 }
+    }
+
+    override fun userById(id: Long): User? =
+        rawQuery("SELECT * FROM users WHERE id = ?", arrayOf(id.toString())).use { readUsers(it) }.firstOrNull()
+
+    private fun readUsers(cursor: Cursor): List<User> {
+        val id = cursor.getColumnIndexOrThrow("id")
+        val firstName = cursor.getColumnIndexOrThrow("firstName")
+        val lastName = cursor.getColumnIndexOrThrow("lastName")
+        val email = cursor.getColumnIndexOrThrow("email")
+        val phone = cursor.getColumnIndexOrThrow("phone")
+        val dob = cursor.getColumnIndexOrThrow("dob")
+        val address = cursor.getColumnIndexOrThrow("address")
+        val users = ArrayList<User>(cursor.count)
+        while (cursor.moveToNext()) {
+            users += User(
+                id = cursor.getLong(id),
+                firstName = cursor.getString(firstName),
+                lastName = cursor.getString(lastName),
+                email = cursor.getString(email),
+                phone = cursor.getString(phone),
+                dob = cursor.getString(dob),
+                address = cursor.getString(address)
+            )
+        }
+        return users
+    }
+
+    private fun criteria(query: String): Pair<String, Array<String>> =
+        if (query.isBlank()) {
+            "" to emptyArray()
+        } else {
+            " WHERE firstName LIKE '%' || ? || '%' OR lastName LIKE '%' || ? || '%'" to arrayOf(query, query)
+        }
+}
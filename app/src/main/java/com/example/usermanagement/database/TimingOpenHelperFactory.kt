@@ -0,0 +1,122 @@
+package com.example.usermanagement.database
+
+import android.database.Cursor
+import android.database.CursorWrapper
+import android.os.CancellationSignal
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import androidx.sqlite.db.SupportSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteStatement
+
+/**
+ * [SupportSQLiteOpenHelper.Factory] that times every statement of the databases it opens and reports
+ * the durations to [monitor]. Queries are timed until their cursor is closed, because SQLite steps
+ * through the result lazily while Room reads the cursor.
+ * @param delegate The factory creating the real open helper.
+ * @param monitor The monitor receiving the timings.
+ */
+class TimingOpenHelperFactory(
+    private val delegate: SupportSQLiteOpenHelper.Factory,
+    private val monitor: SlowQueryMonitor
+) : SupportSQLiteOpenHelper.Factory {
+    override fun create(configuration: SupportSQLiteOpenHelper.Configuration): SupportSQLiteOpenHelper {
+        return TimingOpenHelper(delegate.create(configuration), monitor)
+    }
+}
+
+private class TimingOpenHelper(
+    private val delegate: SupportSQLiteOpenHelper,
+    private val monitor: SlowQueryMonitor
+) : SupportSQLiteOpenHelper by delegate {
+    // Room asks for the database on every transaction, so reuse the wrapper while the underlying instance is the same.
+    @Volatile
+    private var wrapped: TimingDatabase? = null
+
+    override val writableDatabase: SupportSQLiteDatabase
+        get() = wrap(delegate.writableDatabase)
+
+    override val readableDatabase: SupportSQLiteDatabase
+        get() = wrap(delegate.readableDatabase)
+
+    private fun wrap(database: SupportSQLiteDatabase): SupportSQLiteDatabase {
+        wrapped?.takeIf { it.wraps(database) }?.let { return it }
+        return TimingDatabase(database, monitor).also { wrapped = it }
+    }
+}
+
+private class TimingDatabase(
+    private val delegate: SupportSQLiteDatabase,
+    private val monitor: SlowQueryMonitor
+) : SupportSQLiteDatabase by delegate {
+
+    fun wraps(database: SupportSQLiteDatabase): Boolean = delegate === database
+
+    override fun query(query: String): Cursor =
+        timedCursor(query) { delegate.query(query) }
+
+    override fun query(query: String, bindArgs: Array<out Any?>): Cursor =
+        timedCursor(query) { delegate.query(query, bindArgs) }
+
+    override fun query(query: SupportSQLiteQuery): Cursor =
+        timedCursor(query.sql) { delegate.query(query) }
+
+    override fun query(query: SupportSQLiteQuery, cancellationSignal: CancellationSignal?): Cursor =
+        timedCursor(query.sql) { delegate.query(query, cancellationSignal) }
+
+    override fun execSQL(sql: String) {
+        timed(sql) { delegate.execSQL(sql) }
+    }
+
+    override fun execSQL(sql: String, bindArgs: Array<out Any?>) {
+        timed(sql) { delegate.execSQL(sql, bindArgs) }
+    }
+
+    override fun compileStatement(sql: String): SupportSQLiteStatement =
+        TimingStatement(delegate.compileStatement(sql), sql, this)
+
+    fun <T> timed(sql: String, block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            monitor.onStatementFinished(sql, System.nanoTime() - start, delegate)
+        }
+    }
+
+    private inline fun timedCursor(sql: String, open: () -> Cursor): Cursor {
+        val start = System.nanoTime()
+        val cursor = try {
+            open()
+        } catch (e: Exception) {
+            monitor.onStatementFinished(sql, System.nanoTime() - start, delegate)
+            throw e
+        }
+        return object : CursorWrapper(cursor) {
+            private var finished = false
+
+            override fun close() {
+                super.close()
+                if (!finished) {
+                    finished = true
+                    monitor.onStatementFinished(sql, System.nanoTime() - start, delegate)
+                }
+            }
+        }
+    }
+}
+
+private class TimingStatement(
+    private val delegate: SupportSQLiteStatement,
+    private val sql: String,
+    private val database: TimingDatabase
+) : SupportSQLiteStatement by delegate {
+    override fun execute() = database.timed(sql) { delegate.execute() }
+
+    override fun executeUpdateDelete(): Int = database.timed(sql) { delegate.executeUpdateDelete() }
+
+    override fun executeInsert(): Long = database.timed(sql) { delegate.executeInsert() }
+
+    override fun simpleQueryForLong(): Long = database.timed(sql) { delegate.simpleQueryForLong() }
+
+    override fun simpleQueryForString(): String? = database.timed(sql) { delegate.simpleQueryForString() }
+}
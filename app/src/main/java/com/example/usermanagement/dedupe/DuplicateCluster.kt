@@ -0,0 +1,60 @@
+package com.example.usermanagement.dedupe
+
+import com.example.usermanagement.data.DuplicatePair
+import com.example.usermanagement.data.User
+
+/**
+ * Users that are probably one person: every user is linked to the others through at least one [DuplicatePair].
+ * @property users The users, by ascending ID.
+ * @property pairs The pairs linking them.
+ */
+data class DuplicateCluster(
+    val users: List<User>,
+    val pairs: List<DuplicatePair>
+) {
+    /**
+     * The score of the strongest link, which orders clusters for review.
+     */
+    val score: Double get() = pairs.maxOf { it.score }
+
+    /**
+     * The IDs of [users], e.g. to dismiss the whole cluster.
+     */
+    val userIds: LongArray get() = LongArray(users.size) { users[it].id }
+
+    companion object {
+        /**
+         * Groups [pairs] into clusters of transitively linked users.
+         * Pairs whose users are missing from [users] are left out, as happens briefly while both are observed
+         * separately; clusters left with fewer than two users are dropped.
+         * @return The clusters, strongest first.
+         */
+        fun from(pairs: List<DuplicatePair>, users: List<User>): List<DuplicateCluster> {
+            val byId = users.associateBy { it.id }
+            val parent = HashMap<Long, Long>()
+            fun root(id: Long): Long {
+                var node = id
+                while (true) {
+                    val next = parent.getOrPut(node) { node }
+                    if (next == node) return node
+                    // Path halving keeps the trees flat without recursion.
+                    val grandparent = parent.getValue(next)
+                    parent[node] = grandparent
+                    node = grandparent
+                }
+            }
+            val linked = pairs.filter { it.userId in byId && it.otherUserId in byId }
+            for (pair in linked) {
+                val a = root(pair.userId)
+                val b = root(pair.otherUserId)
+                if (a != b) parent[maxOf(a, b)] = minOf(a, b)
+            }
+            return linked.groupBy { root(it.userId) }
+                .map { (_, clusterPairs) ->
+                    val ids = clusterPairs.flatMapTo(sortedSetOf()) { listOf(it.userId, it.otherUserId) }
+                    DuplicateCluster(ids.map { byId.getValue(it) }, clusterPairs)
+                }
+                .sortedWith(compareByDescending<DuplicateCluster> { it.score }.thenBy { it.users.first().id })
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.usermanagement.dedupe
+
+import com.example.usermanagement.data.DedupeDao
+import com.example.usermanagement.data.DuplicatePair
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserBlockKey
+import com.example.usermanagement.data.UserDao
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.database.DatabaseExecutors
+import com.example.usermanagement.database.DbPriority
+import com.example.usermanagement.trace.AppTrace
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.filter
+import kotlinx.coroutines.withContext
+
+/**
+ * Background job keeping the `duplicate_pairs` table current.
+ *
+ * Triggers queue every added or changed user (see [com.example.usermanagement.data.DedupeTable]); the job takes
+ * the queue in chunks and compares each queued user only with the users sharing one of its blocking keys, so the
+ * work per change stays the same however many users there are. Pairs are scored in parallel on [scoringDispatcher].
+ * All database work runs on the background lanes of [executors], behind the user's own reads and writes.
+ * @param database The database holding the queue, the blocking keys and the pairs.
+ * @param executors The database execution layer.
+ * @param scoringDispatcher Where the pairs are scored; one task per core.
+ */
+class DuplicateDetector(
+    database: UserDatabase,
+    private val executors: DatabaseExecutors,
+    private val scoringDispatcher: CoroutineDispatcher = Dispatchers.Default
+) {
+    private val dao: DedupeDao = database.dedupeDao()
+
+    /**
+     * Processes the queue whenever it is not empty, until cancelled. Changes queued while a drain runs are
+     * picked up by the same drain, so a burst of writes costs one wake-up.
+     */
+    suspend fun run() {
+        (dao.observeQueueSize() as Flow<Int>)
+            .conflate()
+            .filter { it > 0 }
+            .collect { drain() }
+    }
+
+    /**
+     * Processes queued changes until the queue is empty.
+     * @return The number of queue entries processed.
+     */
+    suspend fun drain(): Int {
+        var processed = 0
+        while (true) {
+            val entries = withContext(executors.read(DbPriority.BACKGROUND)) { dao.getQueued(QUEUE_CHUNK) }
+            if (entries.isEmpty()) return processed
+            process(LongArray(entries.size) { entries[it].userId }.distinct().toLongArray(), entries.last().seq)
+            processed += entries.size
+        }
+    }
+
+    /**
+     * Recomputes the pairs of [userIds]. Their blocking keys are written first, so users queued in the same chunk
+     * find each other; the pairs replace the old ones in one transaction that also dequeues the chunk, so a crash
+     * in between only means the chunk is processed again.
+     */
+    private suspend fun process(userIds: LongArray, lastSeq: Long) {
+        val users = withContext(executors.read(DbPriority.BACKGROUND)) { dao.getUsersByIds(userIds) }
+        val keys = users.flatMap { user -> DuplicateScorer.blockingKeys(user).map { UserBlockKey(it, user.id) } }
+        withContext(executors.write(DbPriority.BACKGROUND)) {
+            AppTrace.section("DedupeDao.replaceBlockKeys") { dao.replaceBlockKeys(userIds, keys) }
+        }
+
+        val candidates = withContext(executors.read(DbPriority.BACKGROUND)) {
+            AppTrace.section("DuplicateDetector.candidates") { candidates(users, keys) }
+        }
+        val pairs = score(candidates)
+        withContext(executors.write(DbPriority.BACKGROUND)) {
+            AppTrace.section("DedupeDao.replacePairs") { dao.replacePairs(userIds, pairs, lastSeq) }
+        }
+    }
+
+    /**
+     * The users to compare with each of [users]: the other members of their blocks, skipping oversized blocks.
+     */
+    private fun candidates(users: List<User>, keys: List<UserBlockKey>): List<Pair<User, User>> {
+        val members = keys.map { it.blockKey }.distinct()
+            .chunked(UserDao.MAX_IDS_PER_STATEMENT)
+            .flatMap { dao.getBlockMembers(it) }
+            .groupBy({ it.blockKey }, { it.userId })
+        val byUser = keys.groupBy({ it.userId }, { it.blockKey })
+        val otherIds = members.values.flatten().toHashSet()
+        val byId = HashMap<Long, User>(otherIds.size)
+        users.forEach { byId[it.id] = it }
+        otherIds.removeAll(byId.keys)
+        otherIds.chunked(UserDao.MAX_IDS_PER_STATEMENT).forEach { chunk ->
+            dao.getUsersByIds(chunk.toLongArray()).forEach { byId[it.id] = it }
+        }
+
+        val seen = HashSet<Pair<Long, Long>>()
+        val candidates = ArrayList<Pair<User, User>>()
+        for (user in users) {
+            for (key in byUser[user.id].orEmpty()) {
+                val block = members[key] ?: continue
+                if (block.size > DuplicateScorer.MAX_BLOCK_SIZE) continue
+                for (otherId in block) {
+                    if (otherId == user.id) continue
+                    val other = byId[otherId] ?: continue
+                    if (seen.add(minOf(user.id, otherId) to maxOf(user.id, otherId))) candidates += user to other
+                }
+            }
+        }
+        return candidates
+    }
+
+    /**
+     * Scores the candidates in one slice per core.
+     */
+    private suspend fun score(candidates: List<Pair<User, User>>): List<DuplicatePair> {
+        if (candidates.isEmpty()) return emptyList()
+        val sliceSize = (candidates.size + PARALLELISM - 1) / PARALLELISM
+        return coroutineScope {
+            candidates.chunked(maxOf(sliceSize, MIN_SLICE_SIZE))
+                .map { slice ->
+                    async(scoringDispatcher) { slice.mapNotNull { (a, b) -> DuplicateScorer.score(a, b) } }
+                }
+                .awaitAll()
+                .flatten()
+        }
+    }
+
+    companion object {
+        /**
+         * Queue entries per chunk; with three keys per user this stays below the SQL variable limit.
+         */
+        const val QUEUE_CHUNK = 200
+
+        private val PARALLELISM = Runtime.getRuntime().availableProcessors()
+
+        /**
+         * Smaller slices cost more to dispatch than to score.
+         */
+        private const val MIN_SLICE_SIZE = 64
+    }
+}
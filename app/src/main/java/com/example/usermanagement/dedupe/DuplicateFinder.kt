@@ -0,0 +1,30 @@
+package com.example.usermanagement.dedupe
+
+import com.example.usermanagement.data.DuplicatePair
+import com.example.usermanagement.data.User
+
+/**
+ * Finds the duplicate pairs among a complete list of users in one pass, grouping them by blocking key in memory.
+ * Used where there is no database to keep the blocks in; [DuplicateDetector] does the same incrementally.
+ */
+object DuplicateFinder {
+    /**
+     * @return Every pair scoring at least [DuplicateScorer.MIN_SCORE], each once.
+     */
+    fun find(users: List<User>): List<DuplicatePair> {
+        val blocks = HashMap<String, MutableList<User>>()
+        for (user in users) {
+            for (key in DuplicateScorer.blockingKeys(user)) blocks.getOrPut(key) { ArrayList(2) } += user
+        }
+        val pairs = LinkedHashMap<Pair<Long, Long>, DuplicatePair>()
+        for (block in blocks.values) {
+            if (block.size < 2 || block.size > DuplicateScorer.MAX_BLOCK_SIZE) continue
+            for (i in block.indices) {
+                for (j in i + 1 until block.size) {
+                    DuplicateScorer.score(block[i], block[j])?.let { pairs[it.userId to it.otherUserId] = it }
+                }
+            }
+        }
+        return pairs.values.toList()
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.usermanagement.dedupe
+
+import com.example.usermanagement.data.DuplicatePair
+import com.example.usermanagement.data.User
+import com.example.usermanagement.search.EditDistance
+import com.example.usermanagement.search.Metaphone
+import com.example.usermanagement.search.NameTokens
+import java.util.Locale
+
+/**
+ * Rules of the duplicate detection: which users are compared at all, and how alike two users are.
+ *
+ * Users are only compared when they share a blocking key: the same phone number, the same email local part at
+ * any domain, or names that sound alike with the same date of birth. That keeps the comparisons proportional to
+ * the number of users instead of its square, at the cost of missing pairs that share none of the three.
+ */
+object DuplicateScorer {
+    const val REASON_EMAIL = 1
+    const val REASON_PHONE = 2
+    const val REASON_NAME = 4
+    const val REASON_DOB = 8
+
+    /**
+     * Lowest score reported as a duplicate: matching names and date of birth alone reach it, a shared phone
+     * number or email local part alone does not.
+     */
+    const val MIN_SCORE = 0.5
+
+    /**
+     * Blocks with more users than this, such as a placeholder phone number, are skipped: they say nothing
+     * about identity and would bring back the quadratic cost.
+     */
+    const val MAX_BLOCK_SIZE = 50
+
+    private const val EMAIL_WEIGHT = 0.3
+    private const val PHONE_WEIGHT = 0.3
+    private const val NAME_WEIGHT = 0.3
+    private const val DOB_WEIGHT = 0.2
+
+    /**
+     * Names less similar than this contribute nothing; above it they contribute in proportion.
+     */
+    private const val MIN_NAME_SIMILARITY = 0.7
+
+    /**
+     * Names at least this similar count as [REASON_NAME].
+     */
+    private const val NAME_MATCH_SIMILARITY = 0.85
+
+    private const val MIN_PHONE_DIGITS = 7
+    private const val PHONE_DIGITS_COMPARED = 10
+
+    /**
+     * The blocking keys of [user], each prefixed by its kind; empty or missing fields produce no key.
+     */
+    fun blockingKeys(user: User): List<String> {
+        val keys = ArrayList<String>(3)
+        phoneKey(user.phone)?.let { keys += "p:$it" }
+        emailKey(user.email)?.let { keys += "e:$it" }
+        val dob = user.dob.trim()
+        val firstName = Metaphone.encode(user.firstName)
+        val lastName = Metaphone.encode(user.lastName)
+        if (dob.isNotEmpty() && firstName.isNotEmpty() && lastName.isNotEmpty()) {
+            keys += "n:$firstName|$lastName|$dob"
+        }
+        return keys
+    }
+
+    /**
+     * Scores two users as potential duplicates.
+     * @return The pair with the smaller ID first, or `null` if they score below [MIN_SCORE].
+     */
+    fun score(a: User, b: User): DuplicatePair? {
+        if (a.id == b.id) return null
+        var score = 0.0
+        var reasons = 0
+        val email = emailKey(a.email)
+        if (email != null && email == emailKey(b.email)) {
+            score += EMAIL_WEIGHT
+            reasons = reasons or REASON_EMAIL
+        }
+        val phone = phoneKey(a.phone)
+        if (phone != null && phone == phoneKey(b.phone)) {
+            score += PHONE_WEIGHT
+            reasons = reasons or REASON_PHONE
+        }
+        val nameSimilarity = nameSimilarity(a, b)
+        if (nameSimilarity >= MIN_NAME_SIMILARITY) {
+            score += NAME_WEIGHT * nameSimilarity
+        }
+        if (nameSimilarity >= NAME_MATCH_SIMILARITY) {
+            reasons = reasons or REASON_NAME
+        }
+        if (a.dob.isNotBlank() && a.dob.trim() == b.dob.trim()) {
+            score += DOB_WEIGHT
+            reasons = reasons or REASON_DOB
+        }
+        if (score < MIN_SCORE) return null
+        val (first, second) = if (a.id < b.id) a to b else b to a
+        return DuplicatePair(first.id, second.id, minOf(score, 1.0), reasons)
+    }
+
+    /**
+     * Similarity of the full names from 0 to 1, one minus the edit distance over the longer length;
+     * first and last name may be swapped.
+     */
+    private fun nameSimilarity(a: User, b: User): Double {
+        val nameA = fullName(a.firstName, a.lastName)
+        if (nameA.isEmpty()) return 0.0
+        return maxOf(
+            similarity(nameA, fullName(b.firstName, b.lastName)),
+            similarity(nameA, fullName(b.lastName, b.firstName))
+        )
+    }
+
+    private fun similarity(a: String, b: String): Double {
+        val length = maxOf(a.length, b.length)
+        return if (length == 0) 0.0 else 1.0 - EditDistance.optimalStringAlignment(a, b).toDouble() / length
+    }
+
+    private fun fullName(first: String, last: String): String =
+        NameTokens.tokenize("$first $last").joinToString(" ")
+
+    /**
+     * The last [PHONE_DIGITS_COMPARED] digits, so formatting and country prefixes do not matter.
+     */
+    private fun phoneKey(phone: String): String? {
+        val digits = phone.filter { it in '0'..'9' }
+        return if (digits.length < MIN_PHONE_DIGITS) null else digits.takeLast(PHONE_DIGITS_COMPARED)
+    }
+
+    /**
+     * The lower-cased local part without dots and "+tag" suffixes, which most providers ignore.
+     */
+    private fun emailKey(email: String): String? {
+        val local = email.substringBefore('@').substringBefore('+').replace(".", "").lowercase(Locale.ROOT).trim()
+        return local.ifEmpty { null }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.usermanagement.filter
+
+/**
+ * A parsed user filter, see [FilterParser] for the syntax.
+ * [toString] renders the expression in the syntax [FilterParser] reads, and for a [normalized] expression that
+ * rendering is canonical: expressions that differ only in case, order, nesting or repetition render alike.
+ */
+sealed class FilterExpression {
+
+    /**
+     * Returns the canonical form of this expression: nested [And]s and [Or]s are flattened, their operands
+     * deduplicated and sorted, double negations removed and values of case-insensitive fields case-folded.
+     */
+    abstract fun normalized(): FilterExpression
+
+    /**
+     * Returns a copy with every [Match.value] replaced by [transform]; ages are kept.
+     */
+    abstract fun mapValues(transform: (String) -> String): FilterExpression
+
+    /**
+     * Matches users matching every one of [operands].
+     */
+    data class And(val operands: List<FilterExpression>) : FilterExpression() {
+        override fun normalized() =
+            combine(operands.map { it.normalized() }.flatMap { if (it is And) it.operands else listOf(it) }, ::And)
+        override fun mapValues(transform: (String) -> String) = And(operands.map { it.mapValues(transform) })
+        override fun toString() = operands.joinToString(" AND ") { if (it is Or) "($it)" else "$it" }
+    }
+
+    /**
+     * Matches users matching at least one of [operands].
+     */
+    data class Or(val operands: List<FilterExpression>) : FilterExpression() {
+        override fun normalized() =
+            combine(operands.map { it.normalized() }.flatMap { if (it is Or) it.operands else listOf(it) }, ::Or)
+        override fun mapValues(transform: (String) -> String) = Or(operands.map { it.mapValues(transform) })
+        override fun toString() = operands.joinToString(" OR ") { if (it is And) "($it)" else "$it" }
+    }
+
+    /**
+     * Matches users not matching [operand].
+     */
+    data class Not(val operand: FilterExpression) : FilterExpression() {
+        override fun normalized(): FilterExpression =
+            if (operand is Not) operand.operand.normalized() else Not(operand.normalized())
+        override fun mapValues(transform: (String) -> String) = Not(operand.mapValues(transform))
+        override fun toString() = if (operand is And || operand is Or) "NOT ($operand)" else "NOT $operand"
+    }
+
+    /**
+     * Matches users whose [field] matches [value] as [kind] says.
+     */
+    data class Match(val field: FilterField, val kind: MatchKind, val value: String) : FilterExpression() {
+        override fun normalized() = if (field.ignoresCase) copy(value = FilterField.foldCase(value)) else this
+        override fun mapValues(transform: (String) -> String) = copy(value = transform(value))
+        override fun toString(): String {
+            val pattern = when (kind) {
+                MatchKind.EXACT -> value
+                MatchKind.PREFIX -> "$value*"
+                MatchKind.SUFFIX -> "*$value"
+                MatchKind.CONTAINS -> "*$value*"
+            }
+            return "${field.key}:${quoteIfNeeded(pattern)}"
+        }
+    }
+
+    /**
+     * Matches users whose age in whole years is between [min] and [max], both inclusive; an open bound is null.
+     * Users without a valid `yyyy-MM-dd` date of birth never match.
+     */
+    data class AgeBetween(val min: Int?, val max: Int?) : FilterExpression() {
+        init {
+            require(min != null || max != null) { "An age range needs a bound" }
+            require(min == null || max == null || min <= max) { "Empty age range $min..$max" }
+        }
+
+        override fun normalized() = this
+        override fun mapValues(transform: (String) -> String) = this
+        override fun toString() = if (min == max) "age:$min" else "age:${min ?: ""}..${max ?: ""}"
+    }
+
+    private companion object {
+        fun combine(operands: List<FilterExpression>, create: (List<FilterExpression>) -> FilterExpression): FilterExpression {
+            val distinct = operands.distinctBy { it.toString() }.sortedBy { it.toString() }
+            return distinct.singleOrNull() ?: create(distinct)
+        }
+
+        fun quoteIfNeeded(pattern: String): String {
+            val needsQuotes = pattern.uppercase() in FilterParser.KEYWORDS ||
+                pattern.any { it.isWhitespace() || it == '(' || it == ')' || it == '"' || it == '\\' }
+            if (!needsQuotes) return pattern
+            return buildString(pattern.length + 2) {
+                append('"')
+                for (c in pattern) {
+                    if (c == '"' || c == '\\') append('\\')
+                    append(c)
+                }
+                append('"')
+            }
+        }
+    }
+}
+
+/**
+ * How a [FilterExpression.Match] compares its value, written with `*` wildcards at either end.
+ */
+enum class MatchKind {
+    /** The whole field equals the value: `last:smith`. */
+    EXACT,
+
+    /** The field starts with the value: `last:sm*`. */
+    PREFIX,
+
+    /** The field ends with the value: `email:*@acme.com`, or just `email:@acme.com`. */
+    SUFFIX,
+
+    /** The field contains the value: `address:*high street*`. */
+    CONTAINS
+}
@@ -0,0 +1,62 @@
+package com.example.usermanagement.filter
+
+import com.example.usermanagement.data.User
+
+/**
+ * A [User] column a filter expression can match, named by [key] as in `last:sm*`.
+ * @property key The name used in expressions.
+ * @property column The column in the users table.
+ * @property ignoresCase Whether matching ignores the case of ASCII letters, as SQLite's `NOCASE` and `LIKE` do.
+ * @property indexed Whether [column] has an index whose collation serves equality and prefix ranges, so those
+ * terms are index lookups rather than scans.
+ */
+enum class FilterField(
+    val key: String,
+    internal val column: String,
+    internal val ignoresCase: Boolean,
+    internal val indexed: Boolean
+) {
+    FIRST_NAME("first", "firstName", ignoresCase = true, indexed = true),
+    LAST_NAME("last", "lastName", ignoresCase = true, indexed = true),
+
+    // The unique email index compares case-sensitively, so case-insensitive email terms cannot use it.
+    EMAIL("email", "email", ignoresCase = true, indexed = false),
+    PHONE("phone", "phone", ignoresCase = false, indexed = true),
+    DOB("dob", "dob", ignoresCase = false, indexed = true),
+    ADDRESS("address", "address", ignoresCase = true, indexed = false);
+
+    /**
+     * Reads this field of [user], case-folded if the field [ignoresCase].
+     */
+    internal fun valueOf(user: User): String {
+        val value = when (this) {
+            FIRST_NAME -> user.firstName
+            LAST_NAME -> user.lastName
+            EMAIL -> user.email
+            PHONE -> user.phone
+            DOB -> user.dob
+            ADDRESS -> user.address
+        }
+        return if (ignoresCase) foldCase(value) else value
+    }
+
+    companion object {
+        /**
+         * Looks up the field named [key], ignoring case.
+         * @return The field, or null if there is none of that name.
+         */
+        fun byKey(key: String): FilterField? = values().firstOrNull { it.key.equals(key, ignoreCase = true) }
+
+        /**
+         * Lower-cases ASCII letters only, exactly like SQLite's `NOCASE` collation and `LIKE`, so the in-memory
+         * predicates match the same rows as the SQL they are compiled alongside.
+         */
+        internal fun foldCase(value: String): String {
+            if (value.none { it in 'A'..'Z' }) return value
+            return String(CharArray(value.length) { i ->
+                val c = value[i]
+                if (c in 'A'..'Z') c + ('a' - 'A') else c
+            })
+        }
+    }
+}
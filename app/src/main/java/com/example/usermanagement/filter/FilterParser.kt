@@ -0,0 +1,254 @@
+package com.example.usermanagement.filter
+
+/**
+ * Parses user filter expressions such as `last:sm* AND (email:@acme.com OR phone:+44*) AND age:30..40`.
+ *
+ * - A term is `field:value` with a field of [FilterField] (`first`, `last`, `email`, `phone`, `dob`, `address`),
+ *   `name` for either name, or `age` with a range `30..40`, `30..`, `..40` or a single age `35`.
+ * - `*` at the start or end of a value is a wildcard, see [MatchKind]; an email value starting with `@`
+ *   matches the domain. Values with spaces or parentheses are quoted: `address:"*high street*"`.
+ * - A word without a field matches the start of either name, so `ann` finds Anna and Hanna Annis.
+ * - Terms combine with `AND`, `OR`, `NOT` (upper case) and parentheses; `AND` binds tighter than `OR`,
+ *   adjacent terms are ANDed and `-term` is short for `NOT term`.
+ *
+ * Matching ignores the case of ASCII letters in every field but `phone` and `dob`.
+ */
+object FilterParser {
+    /**
+     * Words that are operators unless quoted.
+     */
+    internal val KEYWORDS = setOf("AND", "OR", "NOT")
+
+    /**
+     * Deepest nesting of parentheses and negations accepted, which bounds the recursion of parsing and evaluation.
+     */
+    const val MAX_DEPTH = 32
+
+    private const val MAX_AGE = 150
+
+    /**
+     * Parses [text] as a filter expression.
+     * @return The expression as written; see [FilterExpression.normalized] for its canonical form.
+     * @throws FilterSyntaxException if [text] is not a valid filter expression.
+     */
+    @JvmStatic
+    fun parse(text: String): FilterExpression {
+        val tokens = Lexer(text).tokens()
+        if (tokens.isEmpty()) throw FilterSyntaxException("Empty filter", 0)
+        return Parser(tokens, text.length).parse()
+    }
+
+    private sealed class Token(val position: Int) {
+        class Open(position: Int) : Token(position)
+        class Close(position: Int) : Token(position)
+        class And(position: Int) : Token(position)
+        class Or(position: Int) : Token(position)
+        class Not(position: Int) : Token(position)
+        class Word(position: Int, val field: String?, val value: String) : Token(position)
+    }
+
+    private class Lexer(private val text: String) {
+        private var i = 0
+
+        fun tokens(): List<Token> {
+            val tokens = mutableListOf<Token>()
+            while (i < text.length) {
+                val c = text[i]
+                when {
+                    c.isWhitespace() -> i++
+                    c == '(' -> tokens += Token.Open(i++)
+                    c == ')' -> tokens += Token.Close(i++)
+                    c == '-' && i + 1 < text.length && !text[i + 1].isWhitespace() && text[i + 1] != ')' ->
+                        tokens += Token.Not(i++)
+                    else -> tokens += word()
+                }
+            }
+            return tokens
+        }
+
+        private fun word(): Token {
+            val start = i
+            val value = StringBuilder()
+            var field: String? = null
+            var quoted = false
+            while (i < text.length) {
+                val c = text[i]
+                when {
+                    c == '"' -> {
+                        value.append(quoted())
+                        quoted = true
+                    }
+                    c.isWhitespace() || c == '(' || c == ')' -> break
+                    c == ':' && field == null && !quoted -> {
+                        field = value.toString()
+                        value.clear()
+                        i++
+                    }
+                    else -> {
+                        value.append(c)
+                        i++
+                    }
+                }
+            }
+            val word = value.toString()
+            if (field == null && !quoted) {
+                when (word) {
+                    "AND" -> return Token.And(start)
+                    "OR" -> return Token.Or(start)
+                    "NOT" -> return Token.Not(start)
+                }
+            }
+            return Token.Word(start, field, word)
+        }
+
+        private fun quoted(): String {
+            val start = i++
+            val value = StringBuilder()
+            while (i < text.length) {
+                when (val c = text[i++]) {
+                    '"' -> return value.toString()
+                    '\\' -> if (i < text.length) value.append(text[i++])
+                    else -> value.append(c)
+                }
+            }
+            throw FilterSyntaxException("Unterminated quote", start)
+        }
+    }
+
+    private class Parser(private val tokens: List<Token>, private val length: Int) {
+        private var next = 0
+        private var depth = 0
+
+        fun parse(): FilterExpression {
+            val expression = or()
+            if (next < tokens.size) throw unexpected(tokens[next])
+            return expression
+        }
+
+        private fun peek(): Token? = tokens.getOrNull(next)
+
+        private fun or(): FilterExpression {
+            val operands = mutableListOf(and())
+            while (peek() is Token.Or) {
+                next++
+                operands += and()
+            }
+            return operands.singleOrNull() ?: FilterExpression.Or(operands)
+        }
+
+        private fun and(): FilterExpression {
+            val operands = mutableListOf(unary())
+            while (true) {
+                val token = peek()
+                if (token == null || token is Token.Or || token is Token.Close) break
+                if (token is Token.And) next++
+                operands += unary()
+            }
+            return operands.singleOrNull() ?: FilterExpression.And(operands)
+        }
+
+        private fun unary(): FilterExpression {
+            val token = peek() ?: throw FilterSyntaxException("Unexpected end of filter", length)
+            if (token !is Token.Not && token !is Token.Open) return primary()
+            if (++depth > MAX_DEPTH) throw FilterSyntaxException("Filter nested too deeply", token.position)
+            next++
+            val expression = if (token is Token.Not) {
+                FilterExpression.Not(unary())
+            } else {
+                val inner = or()
+                if (peek() !is Token.Close) throw FilterSyntaxException("Missing ')'", peek()?.position ?: length)
+                next++
+                inner
+            }
+            depth--
+            return expression
+        }
+
+        private fun primary(): FilterExpression {
+            val token = tokens[next]
+            if (token !is Token.Word) throw unexpected(token)
+            next++
+            return term(token)
+        }
+
+        private fun unexpected(token: Token): FilterSyntaxException = FilterSyntaxException(
+            when (token) {
+                is Token.Close -> "Unexpected ')'"
+                is Token.And -> "Unexpected AND"
+                is Token.Or -> "Unexpected OR"
+                else -> "Unexpected term"
+            },
+            token.position
+        )
+
+        private fun term(word: Token.Word): FilterExpression {
+            val key = word.field
+            if (key == null) {
+                return names(word, MatchKind.PREFIX)
+            }
+            if (word.value.isEmpty()) throw FilterSyntaxException("Missing value for '$key'", word.position)
+            return when (key.lowercase()) {
+                "name" -> names(word, MatchKind.EXACT)
+                "age" -> age(word)
+                else -> {
+                    val field = FilterField.byKey(key)
+                        ?: throw FilterSyntaxException("Unknown field '$key'", word.position)
+                    val value = if (field == FilterField.EMAIL && word.value.startsWith("@")) "*${word.value}" else word.value
+                    match(field, value, MatchKind.EXACT, word.position)
+                }
+            }
+        }
+
+        private fun names(word: Token.Word, default: MatchKind) = FilterExpression.Or(
+            listOf(
+                match(FilterField.FIRST_NAME, word.value, default, word.position),
+                match(FilterField.LAST_NAME, word.value, default, word.position)
+            )
+        )
+
+        private fun match(field: FilterField, pattern: String, default: MatchKind, position: Int): FilterExpression.Match {
+            val leading = pattern.startsWith('*')
+            val trailing = pattern.endsWith('*')
+            val value = pattern.trim('*')
+            if (value.isEmpty()) throw FilterSyntaxException("'${field.key}' needs text besides wildcards", position)
+            val kind = when {
+                leading && trailing -> MatchKind.CONTAINS
+                leading -> MatchKind.SUFFIX
+                trailing -> MatchKind.PREFIX
+                else -> default
+            }
+            return FilterExpression.Match(field, kind, value)
+        }
+
+        private fun age(word: Token.Word): FilterExpression.AgeBetween {
+            val value = word.value
+            val range = value.indexOf("..")
+            val min: Int?
+            val max: Int?
+            if (range < 0) {
+                min = age(value, word.position)
+                max = min
+            } else {
+                min = value.substring(0, range).takeIf { it.isNotEmpty() }?.let { age(it, word.position) }
+                max = value.substring(range + 2).takeIf { it.isNotEmpty() }?.let { age(it, word.position) }
+            }
+            if (min == null && max == null) throw FilterSyntaxException("Age range needs a bound", word.position)
+            if (min != null && max != null && min > max) {
+                throw FilterSyntaxException("Empty age range $value", word.position)
+            }
+            return FilterExpression.AgeBetween(min, max)
+        }
+
+        private fun age(text: String, position: Int): Int {
+            val age = text.toIntOrNull()
+            if (age == null || age < 0 || age > MAX_AGE) throw FilterSyntaxException("Invalid age '$text'", position)
+            return age
+        }
+    }
+}
+
+/**
+ * Thrown by [FilterParser.parse] for malformed filter expressions.
+ * @property position Zero-based offset in the expression where the problem was found.
+ */
+class FilterSyntaxException(message: String, val position: Int) : IllegalArgumentException(message)
@@ -0,0 +1,250 @@
+package com.example.usermanagement.filter
+
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteQuery
+import com.example.usermanagement.data.User
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import java.time.Duration
+import java.time.LocalDate
+import java.time.LocalDateTime
+
+/**
+ * A [FilterExpression] compiled once into both a parameterized SQL `WHERE` clause over the users table and an
+ * equivalent in-memory predicate, so the Room and the in-memory repository return the same users.
+ *
+ * Equality and prefix terms on indexed fields become `=` and range comparisons the indexes serve, e.g.
+ * `last:sm*` becomes `lastName >= 'sm' AND lastName < 'sn'` under the column's `NOCASE` collation; other terms
+ * become `LIKE` or `GLOB` patterns. Ages are bound as date-of-birth bounds relative to the day the plan is
+ * bound, which is why the arguments are only resolved by [toQuery] and [toPredicate]; results observed across
+ * midnight must be bound again for each of the [days].
+ * Obtain plans from a [FilterPlanner], which caches them.
+ * @property expression The normalized expression this plan was compiled from.
+ */
+class FilterPlan internal constructor(val expression: FilterExpression) {
+    /**
+     * The canonical text of [expression], which identifies the plan.
+     */
+    val normalized: String = expression.toString()
+
+    /**
+     * The compiled condition with `?` placeholders for the arguments bound by [toQuery].
+     */
+    val whereClause: String
+
+    private val arguments: List<Argument>
+    private val predicate: Predicate
+
+    init {
+        val compiler = Compiler()
+        predicate = compiler.compile(expression)
+        whereClause = compiler.sql.toString()
+        arguments = compiler.arguments
+    }
+
+    /**
+     * Whether the bound arguments depend on the day, i.e. the expression has an age term.
+     */
+    val dependsOnToday: Boolean
+        get() = arguments.any { it is Argument.BirthdayYearsAgo }
+
+    /**
+     * Builds the query for Room's raw query methods.
+     * @param today The day ages are computed on.
+     * @return `SELECT * FROM users WHERE` [whereClause], with the arguments bound.
+     */
+    fun toQuery(today: LocalDate = LocalDate.now()): SupportSQLiteQuery =
+        SimpleSQLiteQuery("SELECT * FROM users WHERE $whereClause", arrayOf<Any?>(*bind(today)))
+
+    /**
+     * Builds the in-memory equivalent of [toQuery]; AND operands are evaluated cheapest first.
+     * @param today The day ages are computed on.
+     * @return A predicate accepting the users the query would return.
+     */
+    fun toPredicate(today: LocalDate = LocalDate.now()): (User) -> Boolean {
+        val args = bind(today)
+        return { predicate.test(it, args) }
+    }
+
+    private fun bind(today: LocalDate): Array<String> = Array(arguments.size) { arguments[it].resolve(today) }
+
+    override fun toString() = "FilterPlan($normalized: $whereClause)"
+
+    private fun interface Predicate {
+        fun test(user: User, args: Array<String>): Boolean
+    }
+
+    private sealed class Argument {
+        abstract fun resolve(today: LocalDate): String
+
+        class Constant(private val value: String) : Argument() {
+            override fun resolve(today: LocalDate) = value
+        }
+
+        /**
+         * The ISO date of birth of someone turning [years] old [today].
+         */
+        class BirthdayYearsAgo(private val years: Int) : Argument() {
+            override fun resolve(today: LocalDate): String = today.minusYears(years.toLong()).toString()
+        }
+    }
+
+    /**
+     * Appends the SQL of an expression to [sql] while building its predicate, so both come from one traversal
+     * and cannot drift apart. Every subexpression is parenthesized, which keeps the SQL precedence trivially right.
+     */
+    private class Compiler {
+        val sql = StringBuilder()
+        val arguments = mutableListOf<Argument>()
+
+        fun compile(expression: FilterExpression): Predicate = when (expression) {
+            is FilterExpression.And -> {
+                val operands = expression.operands.sortedBy { cost(it) }
+                val predicates = operands.mapIndexed { i, operand ->
+                    if (i > 0) sql.append(" AND ")
+                    parenthesized(operand)
+                }.toTypedArray()
+                Predicate { user, args -> predicates.all { it.test(user, args) } }
+            }
+            is FilterExpression.Or -> {
+                val predicates = expression.operands.mapIndexed { i, operand ->
+                    if (i > 0) sql.append(" OR ")
+                    parenthesized(operand)
+                }.toTypedArray()
+                Predicate { user, args -> predicates.any { it.test(user, args) } }
+            }
+            is FilterExpression.Not -> {
+                sql.append("NOT ")
+                val operand = parenthesized(expression.operand)
+                Predicate { user, args -> !operand.test(user, args) }
+            }
+            is FilterExpression.Match -> match(expression)
+            is FilterExpression.AgeBetween -> age(expression)
+        }
+
+        private fun parenthesized(expression: FilterExpression): Predicate {
+            sql.append('(')
+            val predicate = compile(expression)
+            sql.append(')')
+            return predicate
+        }
+
+        private fun match(match: FilterExpression.Match): Predicate {
+            val field = match.field
+            val column = field.column
+            val value = match.value
+            val upperBound = if (match.kind == MatchKind.PREFIX && field.indexed) successor(value, field.ignoresCase) else null
+            when {
+                match.kind == MatchKind.EXACT && field.indexed -> {
+                    // The column's own collation applies, NOCASE for the names.
+                    sql.append(column).append(" = ?")
+                    arguments += Argument.Constant(value)
+                }
+                upperBound != null -> {
+                    sql.append(column).append(" >= ? AND ").append(column).append(" < ?")
+                    arguments += Argument.Constant(value)
+                    arguments += Argument.Constant(upperBound)
+                }
+                field.ignoresCase -> {
+                    sql.append(column).append(" LIKE ? ESCAPE '\\'")
+                    arguments += Argument.Constant(pattern(match.kind, escapeLike(value), "%"))
+                }
+                else -> {
+                    sql.append(column).append(" GLOB ?")
+                    arguments += Argument.Constant(pattern(match.kind, escapeGlob(value), "*"))
+                }
+            }
+            return when (match.kind) {
+                MatchKind.EXACT -> Predicate { user, _ -> field.valueOf(user) == value }
+                MatchKind.PREFIX -> Predicate { user, _ -> field.valueOf(user).startsWith(value) }
+                MatchKind.SUFFIX -> Predicate { user, _ -> field.valueOf(user).endsWith(value) }
+                MatchKind.CONTAINS -> Predicate { user, _ -> field.valueOf(user).contains(value) }
+            }
+        }
+
+        /**
+         * Age `a..b` means a date of birth after the day someone turning `b + 1` was born, up to and including the
+         * day someone turning `a` was born. Dates compare correctly as ISO strings; other values never match.
+         */
+        private fun age(age: FilterExpression.AgeBetween): Predicate {
+            val conditions = mutableListOf<String>()
+            var latest = -1
+            var earliestExclusive = -1
+            if (age.min != null) {
+                conditions += "dob <= ?"
+                latest = arguments.size
+                arguments += Argument.BirthdayYearsAgo(age.min)
+            }
+            if (age.max != null) {
+                conditions += "dob > ?"
+                earliestExclusive = arguments.size
+                arguments += Argument.BirthdayYearsAgo(age.max + 1)
+            }
+            conditions += "dob GLOB '$ISO_DATE_GLOB'"
+            sql.append(conditions.joinToString(" AND "))
+            return Predicate { user, args ->
+                val dob = user.dob
+                (latest < 0 || dob <= args[latest]) &&
+                    (earliestExclusive < 0 || dob > args[earliestExclusive]) &&
+                    ISO_DATE.matches(dob)
+            }
+        }
+
+        /**
+         * Rough evaluation cost, so that cheap and selective operands of an AND short-circuit the others.
+         */
+        private fun cost(expression: FilterExpression): Int = when (expression) {
+            is FilterExpression.Match -> expression.kind.ordinal
+            is FilterExpression.AgeBetween -> MatchKind.values().size
+            is FilterExpression.Not -> cost(expression.operand) + 1
+            is FilterExpression.And -> expression.operands.sumOf { cost(it) }
+            is FilterExpression.Or -> expression.operands.sumOf { cost(it) }
+        }
+    }
+
+    companion object {
+        /**
+         * Emits today's date right away and again just after every midnight, for binding plans that
+         * [dependsOnToday] in results observed for longer than a day.
+         */
+        fun days(): Flow<LocalDate> = flow {
+            while (true) {
+                val today = LocalDate.now()
+                emit(today)
+                delay(Duration.between(LocalDateTime.now(), today.plusDays(1).atStartOfDay()).toMillis() + 1)
+            }
+        }
+
+        private const val ISO_DATE_GLOB = "[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]"
+        private val ISO_DATE = Regex("[0-9]{4}-[0-9]{2}-[0-9]{2}")
+
+        private fun pattern(kind: MatchKind, value: String, wildcard: String) = when (kind) {
+            MatchKind.EXACT -> value
+            MatchKind.PREFIX -> value + wildcard
+            MatchKind.SUFFIX -> wildcard + value
+            MatchKind.CONTAINS -> wildcard + value + wildcard
+        }
+
+        private fun escapeLike(value: String) = value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+
+        private fun escapeGlob(value: String) = buildString(value.length) {
+            for (c in value) {
+                if (c == '*' || c == '?' || c == '[') append('[').append(c).append(']') else append(c)
+            }
+        }
+
+        /**
+         * The smallest string greater than every string starting with [prefix], or null if there is none that is
+         * cheap to state. Under NOCASE upper-case ASCII letters sort as lower-case ones, so the successor skips them.
+         */
+        private fun successor(prefix: String, ignoresCase: Boolean): String? {
+            val last = prefix.last()
+            if (last == Char.MAX_VALUE || last.isSurrogate()) return null
+            var next = last + 1
+            if (ignoresCase && next in 'A'..'Z') next = '['
+            if (next.isSurrogate()) return null
+            return prefix.substring(0, prefix.length - 1) + next
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.usermanagement.filter
+
+/**
+ * Parses and compiles filter expressions into [FilterPlan]s, keeping the most recently used plans.
+ * Plans are cached by the normalized expression, so `last:Smith* AND age:30..40` and
+ * `age:30..40 last:smith*` share one plan. Thread safe.
+ * @param capacity The number of plans kept.
+ */
+class FilterPlanner(private val capacity: Int = DEFAULT_CAPACITY) {
+
+    // Access-ordered, so the eldest entry is the least recently used one.
+    private val plans = object : LinkedHashMap<String, FilterPlan>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, FilterPlan>?) = size > capacity
+    }
+
+    /**
+     * The number of plans currently cached.
+     */
+    val cachedPlans: Int
+        get() = synchronized(plans) { plans.size }
+
+    /**
+     * Returns the plan of [expression], compiling it only if no equivalent expression was planned recently.
+     * @param expression The filter expression, see [FilterParser].
+     * @return The plan.
+     * @throws FilterSyntaxException if [expression] is not a valid filter expression.
+     */
+    fun plan(expression: String): FilterPlan {
+        val normalized = FilterParser.parse(expression).normalized()
+        val key = normalized.toString()
+        synchronized(plans) { plans[key]?.let { return it } }
+        // Compiled outside the lock; a concurrent miss on the same key keeps whichever plan was stored first.
+        val plan = FilterPlan(normalized)
+        return synchronized(plans) { plans.getOrPut(key) { plan } }
+    }
+
+    companion object {
+        /**
+         * Default number of cached plans, comfortably more than the filters one person switches between.
+         */
+        const val DEFAULT_CAPACITY = 32
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.usermanagement.filter
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.util.TopK
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveAction
+
+/**
+ * Filters, counts and ranks large in-memory user lists on every core.
+ *
+ * A list of at least [PARALLEL_THRESHOLD] users is split into chunks of [CHUNK_SIZE], which the common
+ * [ForkJoinPool] processes by recursive halving; each chunk writes its own result slot, and the slots are merged
+ * once, in chunk order, so results keep the list order exactly as the sequential loop would. Smaller lists, and
+ * devices whose common pool has a single worker, take the sequential path, where forking costs more than it saves.
+ *
+ * Predicates run concurrently and must be side-effect free.
+ */
+object ParallelUserFilter {
+    /**
+     * The list size from which the parallel path is taken. Not yet confirmed on a multi-core device. On one JDK 17
+     * core the in-memory search costs 0.27 to 0.45 µs per user, so a chunk is 1 to 2 ms of work, and this
+     * threshold is about five chunks: enough for each core of a typical phone to get one. `ParallelFilterBenchmark`
+     * (run with `-Pperf`) times both paths at half, once and twice this size and writes the timings to
+     * `build/perf/parallel-filter.json`.
+     */
+    const val PARALLEL_THRESHOLD = 20_000
+
+    /**
+     * Users per leaf task; large enough that a leaf costs far more than scheduling it.
+     */
+    const val CHUNK_SIZE = 4_096
+
+    /**
+     * Orders users by last name, then first name, ignoring case, then by ID so that the order is total.
+     */
+    val BY_NAME: Comparator<User> = compareBy<User, String>(String.CASE_INSENSITIVE_ORDER) { it.lastName }
+        .thenBy(String.CASE_INSENSITIVE_ORDER) { it.firstName }
+        .thenBy { it.id }
+
+    /**
+     * Returns the users matching [predicate], in list order.
+     * @param threshold The list size from which chunks are filtered in parallel.
+     */
+    fun filter(users: List<User>, threshold: Int = PARALLEL_THRESHOLD, predicate: (User) -> Boolean): List<User> {
+        if (!isParallel(users, threshold)) return users.filter(predicate)
+        val chunks = inChunks(users) { list, from, to ->
+            val matches = ArrayList<User>()
+            for (i in from until to) {
+                val user = list[i]
+                if (predicate(user)) matches.add(user)
+            }
+            matches
+        }
+        val result = ArrayList<User>(chunks.sumOf { it.size })
+        chunks.forEach { result.addAll(it) }
+        return result
+    }
+
+    /**
+     * Counts the users matching [predicate].
+     * @param threshold The list size from which chunks are counted in parallel.
+     */
+    fun count(users: List<User>, threshold: Int = PARALLEL_THRESHOLD, predicate: (User) -> Boolean): Int {
+        if (!isParallel(users, threshold)) return users.count(predicate)
+        return inChunks(users) { list, from, to ->
+            var count = 0
+            for (i in from until to) if (predicate(list[i])) count++
+            count
+        }.sum()
+    }
+
+    /**
+     * Returns the first [k] users matching [predicate] in [comparator] order without sorting the whole list: each
+     * chunk keeps its own [TopK], and the chunks' winners are ranked once more.
+     * @param comparator A total order; with ties the order among equal users is unspecified.
+     * @param threshold The list size from which chunks are ranked in parallel.
+     * @return At most [k] users, best first.
+     */
+    fun topK(
+        users: List<User>,
+        k: Int,
+        comparator: Comparator<User> = BY_NAME,
+        threshold: Int = PARALLEL_THRESHOLD,
+        predicate: (User) -> Boolean = { true }
+    ): List<User> {
+        require(k > 0) { "k must be positive: $k" }
+        val best = TopK(k, comparator)
+        if (!isParallel(users, threshold)) {
+            for (user in users) if (predicate(user)) best.offer(user)
+        } else {
+            val chunks = inChunks(users) { list, from, to ->
+                val chunkBest = TopK(k, comparator)
+                for (i in from until to) {
+                    val user = list[i]
+                    if (predicate(user)) chunkBest.offer(user)
+                }
+                chunkBest.sorted()
+            }
+            chunks.forEach { chunk -> chunk.forEach { best.offer(it) } }
+        }
+        return best.sorted()
+    }
+
+    private fun isParallel(users: List<User>, threshold: Int): Boolean =
+        users.size >= threshold && users.size > CHUNK_SIZE && ForkJoinPool.getCommonPoolParallelism() > 1
+
+    /**
+     * Runs [leaf] on every [CHUNK_SIZE] slice of [users] in the common pool.
+     * @return The leaves' results in chunk order.
+     */
+    private fun <R> inChunks(users: List<User>, leaf: (List<User>, Int, Int) -> R): List<R> {
+        // Leaves index the list, which must be cheap for every chunk.
+        val list = if (users is RandomAccess) users else users.toList()
+        val results = arrayOfNulls<Any?>((list.size + CHUNK_SIZE - 1) / CHUNK_SIZE)
+        ForkJoinPool.commonPool().invoke(ChunkTask(list, 0, results.size, results, leaf))
+        @Suppress("UNCHECKED_CAST")
+        return results.asList() as List<R>
+    }
+
+    /**
+     * Processes chunks `from until to`, halving the range until a single chunk is left.
+     */
+    private class ChunkTask<R>(
+        private val users: List<User>,
+        private val from: Int,
+        private val to: Int,
+        private val results: Array<Any?>,
+        private val leaf: (List<User>, Int, Int) -> R
+    ) : RecursiveAction() {
+        override fun compute() {
+            if (to - from == 1) {
+                val start = from * CHUNK_SIZE
+                results[from] = leaf(users, start, minOf(start + CHUNK_SIZE, users.size))
+                return
+            }
+            val middle = (from + to) ushr 1
+            invokeAll(ChunkTask(users, from, middle, results, leaf), ChunkTask(users, middle, to, results, leaf))
+        }
+    }
+}
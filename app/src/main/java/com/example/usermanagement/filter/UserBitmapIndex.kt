@@ -0,0 +1,272 @@
+package com.example.usermanagement.filter
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.util.CompressedBitmap
+import java.time.LocalDate
+import java.util.TreeMap
+
+/**
+ * Posting lists over the dense ordinals (list positions) of an immutable list of [users], stored as
+ * [CompressedBitmap]s, which evaluate [FilterExpression]s as bitmap operations instead of re-scanning the list
+ * once per criterion.
+ *
+ * The attributes indexed are the first [PREFIX_LENGTH] characters of the case-folded first and last names,
+ * the case-folded email domain, the phone country code (up to [COUNTRY_CODE_DIGITS] digits after a leading `+`)
+ * and the year of the date of birth. AND, OR and NOT become intersections, unions and differences of those
+ * bitmaps; terms they only narrow down (longer prefixes, exact names, boundary years of an age range) are checked
+ * against the narrowed candidates, and terms no posting list serves are checked last against what every other
+ * operand left. Building the index is one pass over the users; it is meant to be built once per version of the
+ * list and shared by every filter over it.
+ *
+ * The result is a [UserSelection], whose size is the bitmap's cardinality and whose elements are only looked up
+ * when read, so counting the matches or reading the first page costs nothing per match.
+ * Instances are immutable and thread safe.
+ * @property users The users indexed; ordinal `i` is `users[i]`.
+ */
+class UserBitmapIndex(val users: List<User>) {
+    private val all = CompressedBitmap.range(0, users.size)
+    private val firstNamePrefixes: Map<String, CompressedBitmap>
+    private val lastNamePrefixes: Map<String, CompressedBitmap>
+    private val emailDomains: Map<String, CompressedBitmap>
+    private val phonePrefixes: Map<String, CompressedBitmap>
+    private val birthYears: TreeMap<Int, CompressedBitmap>
+    private val malformedDates: CompressedBitmap
+
+    init {
+        val firstNames = HashMap<String, CompressedBitmap.Builder>()
+        val lastNames = HashMap<String, CompressedBitmap.Builder>()
+        val domains = HashMap<String, CompressedBitmap.Builder>()
+        val phones = HashMap<String, CompressedBitmap.Builder>()
+        val years = HashMap<Int, CompressedBitmap.Builder>()
+        val malformed = CompressedBitmap.Builder()
+        users.forEachIndexed { ordinal, user ->
+            val firstName = FilterField.FIRST_NAME.valueOf(user)
+            for (length in 1..minOf(PREFIX_LENGTH, firstName.length)) {
+                firstNames.getOrPut(firstName.substring(0, length), CompressedBitmap::Builder).add(ordinal)
+            }
+            val lastName = FilterField.LAST_NAME.valueOf(user)
+            for (length in 1..minOf(PREFIX_LENGTH, lastName.length)) {
+                lastNames.getOrPut(lastName.substring(0, length), CompressedBitmap::Builder).add(ordinal)
+            }
+            domainOf(FilterField.EMAIL.valueOf(user))?.let { domains.getOrPut(it, CompressedBitmap::Builder).add(ordinal) }
+            val phone = user.phone
+            for (length in 2..countryCodeLength(phone)) {
+                phones.getOrPut(phone.substring(0, length), CompressedBitmap::Builder).add(ordinal)
+            }
+            val year = yearOf(user.dob)
+            if (year != null) {
+                years.getOrPut(year, CompressedBitmap::Builder).add(ordinal)
+                if (!ISO_DATE.matches(user.dob)) malformed.add(ordinal)
+            }
+        }
+        firstNamePrefixes = firstNames.mapValues { it.value.build() }
+        lastNamePrefixes = lastNames.mapValues { it.value.build() }
+        emailDomains = domains.mapValues { it.value.build() }
+        phonePrefixes = phones.mapValues { it.value.build() }
+        birthYears = years.mapValuesTo(TreeMap()) { it.value.build() }
+        malformedDates = malformed.build()
+    }
+
+    /**
+     * Selects the users matching [expression], the same users a [FilterPlan] of it selects.
+     * @param today The day ages are computed on.
+     * @return The matching users in list order, looked up lazily.
+     */
+    fun select(expression: FilterExpression, today: LocalDate = LocalDate.now()): UserSelection =
+        UserSelection(users, Evaluator(today).evaluate(expression.normalized(), all))
+
+    /**
+     * A superset of the users matching [match] from a single posting list, or null if none serves it.
+     */
+    private fun postingsFor(match: FilterExpression.Match): Candidates? {
+        val value = match.value
+        if (value.isEmpty() || match.kind == MatchKind.SUFFIX && match.field != FilterField.EMAIL) return null
+        return when (match.field) {
+            FilterField.FIRST_NAME, FilterField.LAST_NAME -> {
+                if (match.kind == MatchKind.CONTAINS) return null
+                val postings = if (match.field == FilterField.FIRST_NAME) firstNamePrefixes else lastNamePrefixes
+                Candidates(
+                    postings[value.take(PREFIX_LENGTH)] ?: CompressedBitmap.empty(),
+                    exact = match.kind == MatchKind.PREFIX && value.length <= PREFIX_LENGTH
+                )
+            }
+            FilterField.EMAIL -> {
+                // A suffix "@domain" holds exactly for the emails whose part after the last '@' is that domain.
+                val at = value.lastIndexOf('@')
+                val exact = match.kind == MatchKind.SUFFIX && at == 0
+                if (!exact && match.kind != MatchKind.EXACT || at < 0) return null
+                Candidates(emailDomains[value.substring(at + 1)] ?: CompressedBitmap.empty(), exact)
+            }
+            FilterField.PHONE -> {
+                val length = countryCodeLength(value)
+                if (match.kind == MatchKind.CONTAINS || length < 2) return null
+                Candidates(
+                    phonePrefixes[value.substring(0, length)] ?: CompressedBitmap.empty(),
+                    exact = match.kind == MatchKind.PREFIX && length == value.length
+                )
+            }
+            FilterField.DOB -> {
+                val year = yearOf(value)
+                if (match.kind == MatchKind.CONTAINS || year == null) return null
+                Candidates(
+                    birthYears[year] ?: CompressedBitmap.empty(),
+                    exact = match.kind == MatchKind.PREFIX && value.length == YEAR_DIGITS
+                )
+            }
+            FilterField.ADDRESS -> null
+        }
+    }
+
+    /**
+     * The ordinals in [postings], exactly the matches of a term if [exact], otherwise a superset of them.
+     */
+    private class Candidates(val postings: CompressedBitmap, val exact: Boolean)
+
+    /**
+     * Evaluates one expression; predicates of the terms checked one by one are bound to [today].
+     */
+    private inner class Evaluator(private val today: LocalDate) {
+
+        /**
+         * @return The ordinals of [candidates] whose users match [expression].
+         */
+        fun evaluate(expression: FilterExpression, candidates: CompressedBitmap): CompressedBitmap {
+            if (candidates.isEmpty()) return candidates
+            if (!isIndexed(expression)) return verify(expression, candidates)
+            return when (expression) {
+                is FilterExpression.And -> intersect(expression.operands, candidates)
+                is FilterExpression.Or -> expression.operands.fold(CompressedBitmap.empty()) { union, operand ->
+                    union or evaluate(operand, candidates andNot union)
+                }
+                is FilterExpression.Not -> candidates andNot evaluate(expression.operand, candidates)
+                is FilterExpression.Match -> {
+                    val match = postingsFor(expression)!!
+                    val narrowed = candidates and match.postings
+                    if (match.exact) narrowed else verify(expression, narrowed)
+                }
+                is FilterExpression.AgeBetween -> age(expression, candidates)
+            }
+        }
+
+        /**
+         * Intersects the indexed operands, smallest posting list first, then checks the remaining operands against
+         * what is left in a single pass.
+         */
+        private fun intersect(operands: List<FilterExpression>, candidates: CompressedBitmap): CompressedBitmap {
+            val (indexed, checked) = operands.partition { isIndexed(it) }
+            var result = candidates
+            for (operand in indexed.sortedBy { estimate(it) }) {
+                result = evaluate(operand, result)
+            }
+            return when {
+                checked.isEmpty() -> result
+                else -> verify(checked.singleOrNull() ?: FilterExpression.And(checked), result)
+            }
+        }
+
+        /**
+         * Valid dates in years strictly between those of the two bounds match as a whole; only the boundary years'
+         * users are checked against the exact dates.
+         */
+        private fun age(age: FilterExpression.AgeBetween, candidates: CompressedBitmap): CompressedBitmap {
+            val firstYear = age.max?.let { today.minusYears(it + 1L).year } ?: Int.MIN_VALUE
+            val lastYear = age.min?.let { today.minusYears(it.toLong()).year } ?: Int.MAX_VALUE
+            var inner = CompressedBitmap.empty()
+            var boundary = CompressedBitmap.empty()
+            for ((year, postings) in birthYears.subMap(firstYear, true, lastYear, true)) {
+                if (year == firstYear || year == lastYear) boundary = boundary or postings else inner = inner or postings
+            }
+            return (candidates and inner andNot malformedDates) or verify(age, candidates and boundary)
+        }
+
+        /**
+         * @return The ordinals of [candidates] whose users match [expression], checked one by one.
+         */
+        private fun verify(expression: FilterExpression, candidates: CompressedBitmap): CompressedBitmap {
+            if (candidates.isEmpty()) return candidates
+            val matches = FilterPlan(expression).toPredicate(today)
+            return candidates.filter { matches(users[it]) }
+        }
+
+        /**
+         * Whether posting lists narrow [expression] down; if not it is checked against every candidate.
+         */
+        private fun isIndexed(expression: FilterExpression): Boolean = when (expression) {
+            is FilterExpression.And -> expression.operands.any { isIndexed(it) }
+            is FilterExpression.Or -> expression.operands.all { isIndexed(it) }
+            is FilterExpression.Not -> isIndexed(expression.operand)
+            is FilterExpression.Match -> postingsFor(expression) != null
+            is FilterExpression.AgeBetween -> true
+        }
+
+        /**
+         * An upper bound of the matches of an indexed [expression], to intersect the most selective ones first.
+         */
+        private fun estimate(expression: FilterExpression): Int = when (expression) {
+            is FilterExpression.Match -> postingsFor(expression)!!.postings.cardinality
+            else -> users.size
+        }
+    }
+
+    companion object {
+        /**
+         * How many leading characters of the names have posting lists; longer prefixes are checked against those.
+         */
+        const val PREFIX_LENGTH = 3
+
+        /**
+         * The longest country code; `phone:+44*` is a posting list, `phone:+4420*` is checked against `+442`.
+         */
+        const val COUNTRY_CODE_DIGITS = 3
+
+        private const val YEAR_DIGITS = 4
+        private val ISO_DATE = Regex("[0-9]{4}-[0-9]{2}-[0-9]{2}")
+
+        private fun domainOf(email: String): String? {
+            val at = email.lastIndexOf('@')
+            return if (at < 0) null else email.substring(at + 1)
+        }
+
+        /**
+         * The length of the `+` and up to [COUNTRY_CODE_DIGITS] digits [phone] starts with, or 0 if it has no `+`.
+         */
+        private fun countryCodeLength(phone: String): Int {
+            if (!phone.startsWith('+')) return 0
+            var length = 1
+            while (length <= COUNTRY_CODE_DIGITS && length < phone.length && phone[length] in '0'..'9') length++
+            return length
+        }
+
+        /**
+         * The year of a date of birth starting with four digits, whether or not the rest is a valid date.
+         */
+        private fun yearOf(dob: String): Int? {
+            if (dob.length < YEAR_DIGITS || (0 until YEAR_DIGITS).any { dob[it] !in '0'..'9' }) return null
+            return dob.substring(0, YEAR_DIGITS).toInt()
+        }
+    }
+}
+
+/**
+ * The users selected by [UserBitmapIndex.select], as a read-only list over the selected ordinals.
+ * Nothing is copied: [size] is the bitmap's cardinality, [get] looks the `index`-th selected user up and
+ * iteration walks the bitmap, so `count` and `subList(0, pageSize)` cost nothing per match.
+ * @property ordinals The positions of the selected users in the indexed list.
+ */
+class UserSelection internal constructor(
+    private val users: List<User>,
+    val ordinals: CompressedBitmap
+) : AbstractList<User>(), RandomAccess {
+
+    override val size: Int get() = ordinals.cardinality
+
+    override fun get(index: Int): User = users[ordinals.select(index)]
+
+    override fun iterator(): Iterator<User> {
+        val positions = ordinals.iterator()
+        return object : Iterator<User> {
+            override fun hasNext() = positions.hasNext()
+            override fun next() = users[positions.nextInt()]
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.usermanagement.metrics
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.data.UserStats
+import com.example.usermanagement.dedupe.DuplicateCluster
+import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.UserOperation
+import com.example.usermanagement.repository.UserSnapshot
+import com.example.usermanagement.search.UserSuggestion
+import com.example.usermanagement.sort.UserSection
+import com.example.usermanagement.sort.UserSort
+import com.example.usermanagement.util.Result
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.onEach
+
+/**
+ * [IUserRepository] decorator that records latency, call, error and row statistics of every operation,
+ * and emission statistics of every observed flow, into [metrics].
+ * @param delegate The repository doing the actual work.
+ * @param metrics The registry receiving the measurements.
+ */
+class InstrumentedUserRepository(
+    private val delegate: IUserRepository,
+    val metrics: RepositoryMetrics = RepositoryMetrics()
+) : IUserRepository {
+
+    override val allUsers: Flow<List<User>> = delegate.allUsers.instrumented("allUsers") { it.size }
+
+    override val stats: Flow<UserStats> = delegate.stats.instrumented("stats") { it.byDomain.size }
+
+    override val duplicateClusters: Flow<List<DuplicateCluster>> =
+        delegate.duplicateClusters.instrumented("duplicateClusters") { it.size }
+
+    override suspend fun getUserById(id: Long): User? =
+        timed("getUserById", { if (it == null) 0 else 1 }) { delegate.getUserById(id) }
+
+    override fun observeUserById(id: Long): Flow<User?> =
+        delegate.observeUserById(id).instrumented("observeUserById") { if (it == null) 0 else 1 }
+
+    override suspend fun getUserByEmail(email: String): User? =
+        timed("getUserByEmail", { if (it == null) 0 else 1 }) { delegate.getUserByEmail(email) }
+
+    override suspend fun insertUser(user: User): Long =
+        timed("insertUser", { 1 }) { delegate.insertUser(user) }
+
+    override suspend fun updateUser(user: User) =
+        timed("updateUser", { 1 }) { delegate.updateUser(user) }
+
+    override suspend fun deleteUser(user: User) =
+        timed("deleteUser", { 1 }) { delegate.deleteUser(user) }
+
+    override fun searchUsers(query: String): Flow<List<User>> =
+        delegate.searchUsers(query).instrumented("searchUsers") { it.size }
+
+    override fun fuzzySearch(query: String, limit: Int): Flow<List<User>> =
+        delegate.fuzzySearch(query, limit).instrumented("fuzzySearch") { it.size }
+
+    override fun soundsLike(query: String): Flow<List<User>> =
+        delegate.soundsLike(query).instrumented("soundsLike") { it.size }
+
+    override suspend fun suggest(text: String, limit: Int): List<UserSuggestion> =
+        timed("suggest", { it.size }) { delegate.suggest(text, limit) }
+
+    override suspend fun prepareSuggestions() =
+        timed("prepareSuggestions", { 0 }) { delegate.prepareSuggestions() }
+
+    override fun filterUsers(expression: String): Flow<List<User>> =
+        delegate.filterUsers(expression).instrumented("filterUsers") { it.size }
+
+    override fun observeSections(sort: UserSort): Flow<List<UserSection>> =
+        delegate.observeSections(sort).instrumented("observeSections") { it.size }
+
+    override suspend fun applyBatch(operations: List<UserOperation>): List<Result<Unit>> =
+        timed("applyBatch", { results -> results.count { it is Result.Success } }) {
+            delegate.applyBatch(operations)
+        }
+
+    override suspend fun getUserIds(query: String): LongArray =
+        timed("getUserIds", { it.size }) { delegate.getUserIds(query) }
+
+    override suspend fun deleteUsersByIds(ids: LongArray): Int =
+        timed("deleteUsersByIds", { it }) { delegate.deleteUsersByIds(ids) }
+
+    override suspend fun updateColumnForIds(ids: LongArray, column: UserColumn, value: String): Int =
+        timed("updateColumnForIds", { it }) { delegate.updateColumnForIds(ids, column, value) }
+
+    override suspend fun insertUsers(users: List<User>): Int =
+        timed("insertUsers", { it }) { delegate.insertUsers(users) }
+
+    override suspend fun <T> readSnapshot(block: (UserSnapshot) -> T): T =
+        timed("readSnapshot", { 0 }) { delegate.readSnapshot(block) }
+
+    override suspend fun dismissDuplicates(userIds: LongArray): Int =
+        timed("dismissDuplicates", { it }) { delegate.dismissDuplicates(userIds) }
+
+    override fun startDuplicateDetection() = delegate.startDuplicateDetection()
+
+    /**
+     * Runs [block] and records its duration and row count under [name].
+     * Cancellation is not counted as an error, and cancelled calls are not recorded.
+     */
+    private suspend inline fun <T> timed(name: String, rows: (T) -> Int, block: () -> T): T {
+        val stats = metrics.operation(name)
+        val start = metrics.now()
+        val result = try {
+            block()
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            stats.record(metrics.now() - start, 0, failed = true)
+            throw e
+        }
+        stats.record(metrics.now() - start, rows(result), failed = false)
+        return result
+    }
+
+    /**
+     * Wraps a flow so each collection records its first-emission latency, emission intervals and rows under [name].
+     */
+    private fun <T> Flow<T>.instrumented(name: String, rows: (T) -> Int): Flow<T> {
+        val upstream = this
+        return flow {
+            val stats = metrics.flow(name)
+            stats.recordCollection()
+            val start = metrics.now()
+            var last = start
+            var hasEmitted = false
+            emitAll(
+                upstream
+                    .catch { e ->
+                        if (e !is CancellationException) stats.recordError()
+                        throw e
+                    }
+                    .onEach { value ->
+                        val now = metrics.now()
+                        if (hasEmitted) {
+                            stats.emissionInterval.record(now - last)
+                        } else {
+                            stats.firstEmissionLatency.record(now - start)
+                            hasEmitted = true
+                        }
+                        last = now
+                        stats.recordEmission(rows(value))
+                    }
+            )
+        }
+    }
+}
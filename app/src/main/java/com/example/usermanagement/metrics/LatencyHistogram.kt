@@ -0,0 +1,115 @@
+package com.example.usermanagement.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock-free latency histogram with HdrHistogram-style log-linear buckets.
+ * Every power-of-two range is split into [SUB_BUCKETS] linear sub-buckets, so any recorded value is
+ * reported within about 6% of its true value while the whole range of `Long` nanoseconds fits in under
+ * a thousand counters. Recording is a single atomic increment plus atomic updates of the sum and max.
+ */
+class LatencyHistogram {
+    private val counts = AtomicLongArray(BUCKET_COUNT)
+    private val totalNanos = AtomicLong()
+    private val maxNanos = AtomicLong()
+
+    /**
+     * Records one measured duration.
+     * @param nanos The duration in nanoseconds; negative values are recorded as zero.
+     */
+    fun record(nanos: Long) {
+        val value = nanos.coerceAtLeast(0L)
+        counts.incrementAndGet(bucketIndex(value))
+        totalNanos.addAndGet(value)
+        var currentMax = maxNanos.get()
+        while (value > currentMax && !maxNanos.compareAndSet(currentMax, value)) {
+            currentMax = maxNanos.get()
+        }
+    }
+
+    /**
+     * Captures the current distribution.
+     * Concurrent recordings may be partially included, which only skews a snapshot by the in-flight samples.
+     * @return A [HistogramSnapshot] with percentiles computed from the bucket counts.
+     */
+    fun snapshot(): HistogramSnapshot {
+        val buckets = LongArray(BUCKET_COUNT) { counts.get(it) }
+        val count = buckets.sum()
+        return HistogramSnapshot(
+            count = count,
+            meanNanos = if (count == 0L) 0L else totalNanos.get() / count,
+            p50Nanos = valueAtPercentile(buckets, count, 50.0),
+            p90Nanos = valueAtPercentile(buckets, count, 90.0),
+            p99Nanos = valueAtPercentile(buckets, count, 99.0),
+            p999Nanos = valueAtPercentile(buckets, count, 99.9),
+            maxNanos = maxNanos.get()
+        )
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    fun reset() {
+        for (i in 0 until BUCKET_COUNT) counts.set(i, 0L)
+        totalNanos.set(0L)
+        maxNanos.set(0L)
+    }
+
+    private fun valueAtPercentile(buckets: LongArray, count: Long, percentile: Double): Long {
+        if (count == 0L) return 0L
+        val rank = maxOf(1L, Math.ceil(count * percentile / 100.0).toLong())
+        var seen = 0L
+        for (i in buckets.indices) {
+            seen += buckets[i]
+            if (seen >= rank) return minOf(highestValueInBucket(i), maxNanos.get())
+        }
+        return maxNanos.get()
+    }
+
+    companion object {
+        private const val SUB_BUCKET_BITS = 4
+        private const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+        private const val BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS
+
+        /**
+         * Maps a value to its bucket: values below [SUB_BUCKETS] get exact buckets, larger values are grouped by
+         * their highest set bit and split linearly by the next [SUB_BUCKET_BITS] bits.
+         */
+        internal fun bucketIndex(value: Long): Int {
+            if (value < SUB_BUCKETS) return value.toInt()
+            val highestBit = 63 - java.lang.Long.numberOfLeadingZeros(value)
+            val shift = highestBit - SUB_BUCKET_BITS
+            val subBucket = ((value ushr shift) and (SUB_BUCKETS - 1).toLong()).toInt()
+            return ((shift + 1) shl SUB_BUCKET_BITS) + subBucket
+        }
+
+        internal fun highestValueInBucket(index: Int): Long {
+            if (index < SUB_BUCKETS) return index.toLong()
+            val shift = (index ushr SUB_BUCKET_BITS) - 1
+            val subBucket = (index and (SUB_BUCKETS - 1)).toLong()
+            val lowest = (SUB_BUCKETS + subBucket) shl shift
+            return lowest + (1L shl shift) - 1
+        }
+    }
+}
+
+/**
+ * Point-in-time view of a [LatencyHistogram]. All durations are in nanoseconds.
+ * @param count The number of recorded values.
+ * @param meanNanos The arithmetic mean of the recorded values.
+ * @param p50Nanos The median.
+ * @param p90Nanos The 90th percentile.
+ * @param p99Nanos The 99th percentile.
+ * @param p999Nanos The 99.9th percentile.
+ * @param maxNanos The largest recorded value.
+ */
+data class HistogramSnapshot(
+    val count: Long,
+    val meanNanos: Long,
+    val p50Nanos: Long,
+    val p90Nanos: Long,
+    val p99Nanos: Long,
+    val p999Nanos: Long,
+    val maxNanos: Long
+)
@@ -0,0 +1,232 @@
+package com.example.usermanagement.metrics
+
+import org.json.JSONObject
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Registry of per-operation and per-flow statistics recorded by [InstrumentedUserRepository].
+ * All recording paths are lock-free, so instrumentation can stay enabled in production builds.
+ * @param clock Monotonic nanosecond clock; replaceable in tests.
+ */
+class RepositoryMetrics(private val clock: () -> Long = System::nanoTime) {
+    private val startNanos = clock()
+    private val operations = ConcurrentHashMap<String, OperationStats>()
+    private val flows = ConcurrentHashMap<String, FlowStats>()
+
+    /**
+     * @return The current time of this registry's clock in nanoseconds.
+     */
+    fun now(): Long = clock()
+
+    /**
+     * @param name The operation name, e.g. `getUserById`.
+     * @return The statistics of [name], created on first use.
+     */
+    fun operation(name: String): OperationStats = operations.getOrPut(name) { OperationStats() }
+
+    /**
+     * @param name The flow name, e.g. `searchUsers`.
+     * @return The statistics of [name], created on first use.
+     */
+    fun flow(name: String): FlowStats = flows.getOrPut(name) { FlowStats() }
+
+    /**
+     * Captures all statistics recorded so far.
+     * @return A [RepositoryMetricsSnapshot] keyed by operation and flow name.
+     */
+    fun snapshot(): RepositoryMetricsSnapshot {
+        val uptimeNanos = clock() - startNanos
+        return RepositoryMetricsSnapshot(
+            capturedAtMillis = System.currentTimeMillis(),
+            uptimeMillis = uptimeNanos / 1_000_000,
+            operations = operations.mapValues { it.value.snapshot() }.toSortedMap(),
+            flows = flows.mapValues { it.value.snapshot(uptimeNanos) }.toSortedMap()
+        )
+    }
+
+    /**
+     * Clears all statistics, e.g. between benchmark runs.
+     */
+    fun reset() {
+        operations.clear()
+        flows.clear()
+    }
+}
+
+/**
+ * Call, error and row counters plus a latency histogram of one suspend operation.
+ */
+class OperationStats {
+    val latency = LatencyHistogram()
+    private val calls = AtomicLong()
+    private val errors = AtomicLong()
+    private val rows = AtomicLong()
+
+    /**
+     * Records one completed call.
+     * @param nanos The call duration in nanoseconds.
+     * @param rowCount The number of rows returned or affected.
+     * @param failed `true` if the call threw.
+     */
+    fun record(nanos: Long, rowCount: Int, failed: Boolean) {
+        calls.incrementAndGet()
+        if (failed) errors.incrementAndGet()
+        rows.addAndGet(rowCount.toLong())
+        latency.record(nanos)
+    }
+
+    fun snapshot(): OperationSnapshot = OperationSnapshot(
+        calls = calls.get(),
+        errors = errors.get(),
+        rows = rows.get(),
+        latency = latency.snapshot()
+    )
+}
+
+/**
+ * Emission statistics of one observed flow, aggregated over all of its collectors.
+ */
+class FlowStats {
+    /**
+     * Time from the start of a collection to its first emission, i.e. the initial query latency.
+     */
+    val firstEmissionLatency = LatencyHistogram()
+
+    /**
+     * Time between consecutive emissions of the same collection.
+     */
+    val emissionInterval = LatencyHistogram()
+    private val collections = AtomicLong()
+    private val emissions = AtomicLong()
+    private val rows = AtomicLong()
+    private val errors = AtomicLong()
+
+    fun recordCollection() {
+        collections.incrementAndGet()
+    }
+
+    fun recordEmission(rowCount: Int) {
+        emissions.incrementAndGet()
+        rows.addAndGet(rowCount.toLong())
+    }
+
+    fun recordError() {
+        errors.incrementAndGet()
+    }
+
+    /**
+     * @param uptimeNanos The time the registry has been recording, used to derive the emission rate.
+     */
+    fun snapshot(uptimeNanos: Long): FlowSnapshot {
+        val emitted = emissions.get()
+        val minutes = uptimeNanos / 60_000_000_000.0
+        return FlowSnapshot(
+            collections = collections.get(),
+            emissions = emitted,
+            rows = rows.get(),
+            errors = errors.get(),
+            emissionsPerMinute = if (minutes > 0) emitted / minutes else 0.0,
+            firstEmissionLatency = firstEmissionLatency.snapshot(),
+            emissionInterval = emissionInterval.snapshot()
+        )
+    }
+}
+
+/**
+ * Point-in-time statistics of one repository operation.
+ * @param calls The number of completed calls.
+ * @param errors The number of calls that threw.
+ * @param rows The total number of rows returned or affected.
+ * @param latency The call latency distribution.
+ */
+data class OperationSnapshot(
+    val calls: Long,
+    val errors: Long,
+    val rows: Long,
+    val latency: HistogramSnapshot
+)
+
+/**
+ * Point-in-time statistics of one repository flow.
+ * @param collections The number of times the flow was collected.
+ * @param emissions The number of emitted values.
+ * @param rows The total number of users emitted.
+ * @param errors The number of collections that ended with an error.
+ * @param emissionsPerMinute The average emission rate since the registry was created.
+ * @param firstEmissionLatency Time from collection start to the first value.
+ * @param emissionInterval Time between consecutive values of a collection.
+ */
+data class FlowSnapshot(
+    val collections: Long,
+    val emissions: Long,
+    val rows: Long,
+    val errors: Long,
+    val emissionsPerMinute: Double,
+    val firstEmissionLatency: HistogramSnapshot,
+    val emissionInterval: HistogramSnapshot
+)
+
+/**
+ * Point-in-time statistics of a whole instrumented repository.
+ * @param capturedAtMillis Wall-clock time of the capture.
+ * @param uptimeMillis How long the registry had been recording.
+ * @param operations Statistics per suspend operation name.
+ * @param flows Statistics per flow name.
+ */
+data class RepositoryMetricsSnapshot(
+    val capturedAtMillis: Long,
+    val uptimeMillis: Long,
+    val operations: Map<String, OperationSnapshot>,
+    val flows: Map<String, FlowSnapshot>
+) {
+    /**
+     * Serializes the snapshot, so dumps of different builds can be diffed or compared by tooling.
+     * @return A [JSONObject] mirroring this snapshot.
+     */
+    fun toJson(): JSONObject {
+        val operationsJson = JSONObject()
+        for ((name, stats) in operations) {
+            operationsJson.put(name, JSONObject()
+                .put("calls", stats.calls)
+                .put("errors", stats.errors)
+                .put("rows", stats.rows)
+                .put("latency", stats.latency.toJson()))
+        }
+        val flowsJson = JSONObject()
+        for ((name, stats) in flows) {
+            flowsJson.put(name, JSONObject()
+                .put("collections", stats.collections)
+                .put("emissions", stats.emissions)
+                .put("rows", stats.rows)
+                .put("errors", stats.errors)
+                .put("emissionsPerMinute", stats.emissionsPerMinute)
+                .put("firstEmissionLatency", stats.firstEmissionLatency.toJson())
+                .put("emissionInterval", stats.emissionInterval.toJson()))
+        }
+        return JSONObject()
+            .put("capturedAtMillis", capturedAtMillis)
+            .put("uptimeMillis", uptimeMillis)
+            .put("operations", operationsJson)
+            .put("flows", flowsJson)
+    }
+
+    /**
+     * Writes [toJson] to [file], replacing any previous content.
+     * @param file The destination, typically under `Context.getFilesDir()`.
+     */
+    fun writeJson(file: File) {
+        file.parentFile?.mkdirs()
+        file.writeText(toJson().toString(2))
+    }
+}
+
+internal fun HistogramSnapshot.toJson(): JSONObject = JSONObject()
+    .put("count", count)
+    .put("meanNanos", meanNanos)
+    .put("p50Nanos", p50Nanos)
+    .put("p90Nanos", p90Nanos)
+    .put("p99Nanos", p99Nanos)
+    .put("p999Nanos", p999Nanos)
+    .put("maxNanos", maxNanos)
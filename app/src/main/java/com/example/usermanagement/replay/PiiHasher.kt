@@ -0,0 +1,61 @@
+package com.example.usermanagement.replay
+
+import com.example.usermanagement.data.User
+import java.security.MessageDigest
+import java.util.Locale
+
+/**
+ * Replaces personal data with salted SHA-256 pseudonyms.
+ * Equal inputs map to equal pseudonyms within one recording, but the salt is never written, so values cannot be
+ * recovered by hashing guesses. Emails keep their shape so they remain valid addresses.
+ *
+ * Replays stay faithful where equality is all that matters: lookups of a previously recorded email or ID, and
+ * searches for whole names. Names and search queries are hashed word by word ignoring case, like the searches
+ * compare them, so searching "smith" or "John Smith" still finds the pseudonymized Smiths. Partial words,
+ * typos and phonetic variants cannot survive hashing, so such searches replay as misses.
+ * @param salt Random bytes unique to one recording.
+ */
+internal class PiiHasher(private val salt: ByteArray) {
+
+    fun text(value: String): String {
+        if (value.isEmpty()) return value
+        val digest = MessageDigest.getInstance("SHA-256")
+        digest.update(salt)
+        val hash = digest.digest(value.toByteArray(Charsets.UTF_8))
+        return buildString(PSEUDONYM_LENGTH) {
+            append('h')
+            for (i in 0 until (PSEUDONYM_LENGTH - 1) / 2) {
+                append(HEX[hash[i].toInt() shr 4 and 0xF])
+                append(HEX[hash[i].toInt() and 0xF])
+            }
+        }
+    }
+
+    fun email(value: String): String = if (value.isEmpty()) value else "${text(value)}@hashed.invalid"
+
+    /**
+     * Pseudonymizes a first or last name, ignoring case.
+     */
+    fun name(value: String): String = text(value.lowercase(Locale.ROOT))
+
+    /**
+     * Pseudonymizes a search query word by word, each like a [name].
+     */
+    fun query(value: String): String =
+        if (value.isBlank()) value else value.trim().split(WHITESPACE).joinToString(" ") { name(it) }
+
+    fun user(user: User): User = user.copy(
+        firstName = name(user.firstName),
+        lastName = name(user.lastName),
+        email = email(user.email),
+        phone = text(user.phone),
+        dob = text(user.dob),
+        address = text(user.address)
+    )
+
+    private companion object {
+        const val PSEUDONYM_LENGTH = 13
+        const val HEX = "0123456789abcdef"
+        val WHITESPACE = Regex("\\s+")
+    }
+}
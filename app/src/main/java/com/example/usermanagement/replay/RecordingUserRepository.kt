@@ -0,0 +1,157 @@
+package com.example.usermanagement.replay
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.data.UserStats
+import com.example.usermanagement.dedupe.DuplicateCluster
+import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.UserOperation
+import com.example.usermanagement.repository.UserSnapshot
+import com.example.usermanagement.search.UserSuggestion
+import com.example.usermanagement.sort.UserSection
+import com.example.usermanagement.sort.UserSort
+import com.example.usermanagement.util.Result
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.onEach
+
+/**
+ * [IUserRepository] decorator that logs every call and its timing to [recorder] while it is recording.
+ * Flows are logged once per collection, timed until their first value.
+ * @param delegate The repository doing the actual work.
+ * @param recorder The recorder receiving the calls.
+ */
+class RecordingUserRepository(
+    private val delegate: IUserRepository,
+    val recorder: WorkloadRecorder = WorkloadRecorder()
+) : IUserRepository {
+
+    override val allUsers: Flow<List<User>> = delegate.allUsers.recorded { RepositoryCall.AllUsers }
+
+    override val stats: Flow<UserStats> = delegate.stats.recorded { RepositoryCall.Stats }
+
+    override val duplicateClusters: Flow<List<DuplicateCluster>> =
+        delegate.duplicateClusters.recorded { RepositoryCall.DuplicateClusters }
+
+    override suspend fun getUserById(id: Long): User? =
+        recorded({ RepositoryCall.GetUserById(id) }) { delegate.getUserById(id) }
+
+    override fun observeUserById(id: Long): Flow<User?> =
+        delegate.observeUserById(id).recorded { RepositoryCall.ObserveUserById(id) }
+
+    override suspend fun getUserByEmail(email: String): User? =
+        recorded({ RepositoryCall.GetUserByEmail(email) }) { delegate.getUserByEmail(email) }
+
+    override suspend fun insertUser(user: User): Long =
+        recorded({ RepositoryCall.InsertUser(user) }) { delegate.insertUser(user) }
+
+    override suspend fun updateUser(user: User) =
+        recorded({ RepositoryCall.UpdateUser(user) }) { delegate.updateUser(user) }
+
+    override suspend fun deleteUser(user: User) =
+        recorded({ RepositoryCall.DeleteUser(user) }) { delegate.deleteUser(user) }
+
+    override fun searchUsers(query: String): Flow<List<User>> =
+        delegate.searchUsers(query).recorded { RepositoryCall.SearchUsers(query) }
+
+    override fun fuzzySearch(query: String, limit: Int): Flow<List<User>> =
+        delegate.fuzzySearch(query, limit).recorded { RepositoryCall.FuzzySearch(query, limit) }
+
+    override fun soundsLike(query: String): Flow<List<User>> =
+        delegate.soundsLike(query).recorded { RepositoryCall.SoundsLike(query) }
+
+    override suspend fun suggest(text: String, limit: Int): List<UserSuggestion> =
+        recorded({ RepositoryCall.Suggest(text, limit) }) { delegate.suggest(text, limit) }
+
+    /**
+     * Not recorded: a replay prepares whatever its first suggest needs on its own.
+     */
+    override suspend fun prepareSuggestions() = delegate.prepareSuggestions()
+
+    override fun filterUsers(expression: String): Flow<List<User>> =
+        delegate.filterUsers(expression).recorded { RepositoryCall.FilterUsers(expression) }
+
+    override fun observeSections(sort: UserSort): Flow<List<UserSection>> =
+        delegate.observeSections(sort).recorded { RepositoryCall.ObserveSections(sort) }
+
+    override suspend fun applyBatch(operations: List<UserOperation>): List<Result<Unit>> =
+        recorded({ RepositoryCall.ApplyBatch(operations) }) { delegate.applyBatch(operations) }
+
+    override suspend fun getUserIds(query: String): LongArray =
+        recorded({ RepositoryCall.GetUserIds(query) }) { delegate.getUserIds(query) }
+
+    override suspend fun deleteUsersByIds(ids: LongArray): Int =
+        recorded({ RepositoryCall.DeleteUsersByIds(ids.toList()) }) { delegate.deleteUsersByIds(ids) }
+
+    override suspend fun updateColumnForIds(ids: LongArray, column: UserColumn, value: String): Int =
+        recorded({ RepositoryCall.UpdateColumnForIds(ids.toList(), column, value) }) {
+            delegate.updateColumnForIds(ids, column, value)
+        }
+
+    override suspend fun insertUsers(users: List<User>): Int =
+        recorded({ RepositoryCall.InsertUsers(users) }) { delegate.insertUsers(users) }
+
+    /**
+     * Not recorded: the reads are arbitrary code, which a log cannot replay.
+     */
+    override suspend fun <T> readSnapshot(block: (UserSnapshot) -> T): T = delegate.readSnapshot(block)
+
+    override suspend fun dismissDuplicates(userIds: LongArray): Int =
+        recorded({ RepositoryCall.DismissDuplicates(userIds.toList()) }) { delegate.dismissDuplicates(userIds) }
+
+    /**
+     * Not recorded: starts background work rather than serving a call of the UI.
+     */
+    override fun startDuplicateDetection() = delegate.startDuplicateDetection()
+
+    /**
+     * Runs [block] and logs [call] with its duration. Cancelled calls are not logged.
+     */
+    private suspend inline fun <T> recorded(call: () -> RepositoryCall, block: () -> T): T {
+        if (!recorder.isRecording) return block()
+        val start = recorder.now()
+        val result = try {
+            block()
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            recorder.record(call(), start, recorder.now() - start, failed = true)
+            throw e
+        }
+        recorder.record(call(), start, recorder.now() - start, failed = false)
+        return result
+    }
+
+    /**
+     * Wraps a flow so each collection started while recording logs [call] at its first value.
+     */
+    private fun <T> Flow<T>.recorded(call: () -> RepositoryCall): Flow<T> {
+        val upstream = this
+        return flow {
+            if (!recorder.isRecording) {
+                emitAll(upstream)
+                return@flow
+            }
+            val start = recorder.now()
+            var hasEmitted = false
+            emitAll(
+                upstream
+                    .catch { e ->
+                        if (e !is CancellationException && !hasEmitted) {
+                            recorder.record(call(), start, recorder.now() - start, failed = true)
+                        }
+                        throw e
+                    }
+                    .onEach {
+                        if (!hasEmitted) {
+                            hasEmitted = true
+                            recorder.record(call(), start, recorder.now() - start, failed = false)
+                        }
+                    }
+            )
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.usermanagement.replay
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.filter.FilterParser
+import com.example.usermanagement.filter.FilterSyntaxException
+import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.UserOperation
+import com.example.usermanagement.sort.UserSort
+import kotlinx.coroutines.flow.first
+
+/**
+ * One call of an [IUserRepository] method with its arguments, as captured by [WorkloadRecorder].
+ * Flow-returning methods are represented by collecting the flow's first value.
+ */
+sealed class RepositoryCall {
+    /**
+     * Name of the repository method, used to group latencies.
+     */
+    abstract val name: String
+
+    /**
+     * Repeats this call against [repository].
+     * @param repository The repository to drive.
+     */
+    abstract suspend fun execute(repository: IUserRepository)
+
+    /**
+     * Returns a copy whose personal data is replaced by pseudonyms from [hasher]; IDs are kept.
+     */
+    internal abstract fun pseudonymized(hasher: PiiHasher): RepositoryCall
+
+    object AllUsers : RepositoryCall() {
+        override val name get() = "allUsers"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.allUsers.first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+
+    data class GetUserById(val id: Long) : RepositoryCall() {
+        override val name get() = "getUserById"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.getUserById(id)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+
+    data class ObserveUserById(val id: Long) : RepositoryCall() {
+        override val name get() = "observeUserById"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.observeUserById(id).first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+
+    data class GetUserByEmail(val email: String) : RepositoryCall() {
+        override val name get() = "getUserByEmail"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.getUserByEmail(email)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = GetUserByEmail(hasher.email(email))
+    }
+
+    data class InsertUser(val user: User) : RepositoryCall() {
+        override val name get() = "insertUser"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.insertUser(user)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = InsertUser(hasher.user(user))
+    }
+
+    data class UpdateUser(val user: User) : RepositoryCall() {
+        override val name get() = "updateUser"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.updateUser(user)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = UpdateUser(hasher.user(user))
+    }
+
+    data class DeleteUser(val user: User) : RepositoryCall() {
+        override val name get() = "deleteUser"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.deleteUser(user)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = DeleteUser(hasher.user(user))
+    }
+
+    data class SearchUsers(val query: String) : RepositoryCall() {
+        override val name get() = "searchUsers"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.searchUsers(query).first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = SearchUsers(hasher.query(query))
+    }
+
+    data class ApplyBatch(val operations: List<UserOperation>) : RepositoryCall() {
+        override val name get() = "applyBatch"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.applyBatch(operations)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = ApplyBatch(operations.map { operation ->
+            val user = hasher.user(operation.user)
+            when (operation) {
+                is UserOperation.Add -> UserOperation.Add(user)
+                is UserOperation.Update -> UserOperation.Update(user)
+                is UserOperation.Delete -> UserOperation.Delete(user)
+            }
+        })
+    }
+
+    data class GetUserIds(val query: String) : RepositoryCall() {
+        override val name get() = "getUserIds"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.getUserIds(query)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = GetUserIds(hasher.query(query))
+    }
+
+    data class DeleteUsersByIds(val ids: List<Long>) : RepositoryCall() {
+        override val name get() = "deleteUsersByIds"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.deleteUsersByIds(ids.toLongArray())
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+
+    data class UpdateColumnForIds(val ids: List<Long>, val column: UserColumn, val value: String) : RepositoryCall() {
+        override val name get() = "updateColumnForIds"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.updateColumnForIds(ids.toLongArray(), column, value)
+        }
+        override fun pseudonymized(hasher: PiiHasher): UpdateColumnForIds {
+            val isName = column == UserColumn.FIRST_NAME || column == UserColumn.LAST_NAME
+            return UpdateColumnForIds(ids, column, if (isName) hasher.name(value) else hasher.text(value))
+        }
+    }
+
+    data class InsertUsers(val users: List<User>) : RepositoryCall() {
+        override val name get() = "insertUsers"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.insertUsers(users)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = InsertUsers(users.map { hasher.user(it) })
+    }
+
+    data class FuzzySearch(val query: String, val limit: Int) : RepositoryCall() {
+        override val name get() = "fuzzySearch"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.fuzzySearch(query, limit).first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = FuzzySearch(hasher.query(query), limit)
+    }
+
+    data class SoundsLike(val query: String) : RepositoryCall() {
+        override val name get() = "soundsLike"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.soundsLike(query).first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = SoundsLike(hasher.query(query))
+    }
+
+    data class Suggest(val text: String, val limit: Int) : RepositoryCall() {
+        override val name get() = "suggest"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.suggest(text, limit)
+        }
+        override fun pseudonymized(hasher: PiiHasher) = Suggest(hasher.query(text), limit)
+    }
+
+    data class FilterUsers(val expression: String) : RepositoryCall() {
+        override val name get() = "filterUsers"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.filterUsers(expression).first()
+        }
+
+        // Only the values are personal; keeping the structure keeps the replayed query plan alike.
+        override fun pseudonymized(hasher: PiiHasher) = FilterUsers(
+            try {
+                FilterParser.parse(expression).mapValues { hasher.text(it) }.toString()
+            } catch (e: FilterSyntaxException) {
+                hasher.text(expression)
+            }
+        )
+    }
+
+    data class ObserveSections(val sort: UserSort) : RepositoryCall() {
+        override val name get() = "observeSections"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.observeSections(sort).first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+
+    object DuplicateClusters : RepositoryCall() {
+        override val name get() = "duplicateClusters"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.duplicateClusters.first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+
+    data class DismissDuplicates(val userIds: List<Long>) : RepositoryCall() {
+        override val name get() = "dismissDuplicates"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.dismissDuplicates(userIds.toLongArray())
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+
+    object Stats : RepositoryCall() {
+        override val name get() = "stats"
+        override suspend fun execute(repository: IUserRepository) {
+            repository.stats.first()
+        }
+        override fun pseudonymized(hasher: PiiHasher) = this
+    }
+}
+
+/**
+ * A [RepositoryCall] with the timing it had when recorded.
+ * @param startMicros When the call started, relative to the start of the recording.
+ * @param durationMicros How long the call took; for flows, the time to the first value.
+ * @param failed Whether the call threw.
+ * @param call The call itself.
+ */
+data class RecordedCall(
+    val startMicros: Long,
+    val durationMicros: Long,
+    val failed: Boolean,
+    val call: RepositoryCall
+)
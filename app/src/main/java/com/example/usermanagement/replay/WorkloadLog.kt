@@ -0,0 +1,301 @@
+package com.example.usermanagement.replay
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.repository.UserOperation
+import com.example.usermanagement.sort.UserSort
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.Closeable
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * A recorded sequence of repository calls.
+ *
+ * The binary format is a header (`UMWL`, format version, flags) followed by one record per call:
+ * an opcode byte whose high bit marks failed calls, the start offset and duration in microseconds,
+ * then the arguments. Integers are unsigned LEB128 varints and strings are length-prefixed UTF-8,
+ * so a typical lookup takes four to six bytes.
+ * @param piiHashed Whether personal data was replaced by pseudonyms while recording.
+ * @param calls The calls in the order they completed.
+ */
+data class WorkloadLog(val piiHashed: Boolean, val calls: List<RecordedCall>) {
+
+    companion object {
+        internal val MAGIC = byteArrayOf('U'.code.toByte(), 'M'.code.toByte(), 'W'.code.toByte(), 'L'.code.toByte())
+        internal const val FORMAT_VERSION = 1
+        internal const val FLAG_PII_HASHED = 1
+        internal const val FAILED_BIT = 0x80
+
+        /**
+         * Reads a log written by [WorkloadLogWriter]. Does not close [input].
+         * @param input The stream to read from.
+         * @return The decoded log.
+         * @throws IOException if the stream is not a workload log or is truncated mid-record.
+         */
+        fun read(input: InputStream): WorkloadLog {
+            val reader = LogReader(BufferedInputStream(input))
+            val magic = ByteArray(MAGIC.size) { reader.byte().toByte() }
+            if (!magic.contentEquals(MAGIC)) throw IOException("Not a workload log")
+            val version = reader.byte()
+            if (version != FORMAT_VERSION) throw IOException("Unsupported workload log version $version")
+            val flags = reader.byte()
+            val calls = mutableListOf<RecordedCall>()
+            while (true) {
+                val opcode = reader.byteOrEnd()
+                if (opcode < 0) break
+                val startMicros = reader.varint()
+                val durationMicros = reader.varint()
+                val call = reader.call(opcode and FAILED_BIT.inv())
+                calls += RecordedCall(startMicros, durationMicros, opcode and FAILED_BIT != 0, call)
+            }
+            return WorkloadLog(flags and FLAG_PII_HASHED != 0, calls)
+        }
+    }
+}
+
+/**
+ * Writes [RecordedCall]s in the [WorkloadLog] format. Not thread safe; [WorkloadRecorder] serializes access.
+ * @param output The stream to write to; closed by [close].
+ * @param piiHashed Whether the calls written carry pseudonyms instead of personal data.
+ */
+class WorkloadLogWriter(output: OutputStream, piiHashed: Boolean) : Closeable {
+    private val out = BufferedOutputStream(output)
+
+    init {
+        out.write(WorkloadLog.MAGIC)
+        out.write(WorkloadLog.FORMAT_VERSION)
+        out.write(if (piiHashed) WorkloadLog.FLAG_PII_HASHED else 0)
+    }
+
+    /**
+     * Appends one call to the log.
+     * @param recorded The call and its timing.
+     */
+    fun write(recorded: RecordedCall) {
+        val call = recorded.call
+        out.write(opcodeOf(call) or if (recorded.failed) WorkloadLog.FAILED_BIT else 0)
+        varint(recorded.startMicros)
+        varint(recorded.durationMicros)
+        when (call) {
+            RepositoryCall.AllUsers -> Unit
+            is RepositoryCall.GetUserById -> varint(call.id)
+            is RepositoryCall.ObserveUserById -> varint(call.id)
+            is RepositoryCall.GetUserByEmail -> string(call.email)
+            is RepositoryCall.InsertUser -> user(call.user)
+            is RepositoryCall.UpdateUser -> user(call.user)
+            is RepositoryCall.DeleteUser -> user(call.user)
+            is RepositoryCall.SearchUsers -> string(call.query)
+            is RepositoryCall.ApplyBatch -> {
+                varint(call.operations.size.toLong())
+                for (operation in call.operations) {
+                    out.write(
+                        when (operation) {
+                            is UserOperation.Add -> BATCH_ADD
+                            is UserOperation.Update -> BATCH_UPDATE
+                            is UserOperation.Delete -> BATCH_DELETE
+                        }
+                    )
+                    user(operation.user)
+                }
+            }
+            is RepositoryCall.GetUserIds -> string(call.query)
+            is RepositoryCall.DeleteUsersByIds -> ids(call.ids)
+            is RepositoryCall.UpdateColumnForIds -> {
+                ids(call.ids)
+                string(call.column.name)
+                string(call.value)
+            }
+            is RepositoryCall.InsertUsers -> {
+                varint(call.users.size.toLong())
+                call.users.forEach { user(it) }
+            }
+            RepositoryCall.Stats -> Unit
+            is RepositoryCall.FuzzySearch -> {
+                string(call.query)
+                varint(call.limit.toLong())
+            }
+            is RepositoryCall.SoundsLike -> string(call.query)
+            RepositoryCall.DuplicateClusters -> Unit
+            is RepositoryCall.DismissDuplicates -> ids(call.userIds)
+            is RepositoryCall.FilterUsers -> string(call.expression)
+            is RepositoryCall.ObserveSections -> string(call.sort.name)
+            is RepositoryCall.Suggest -> {
+                string(call.text)
+                varint(call.limit.toLong())
+            }
+        }
+    }
+
+    /**
+     * Writes buffered records to the underlying stream.
+     */
+    fun flush() = out.flush()
+
+    override fun close() = out.close()
+
+    private fun varint(value: Long) {
+        require(value >= 0) { "Negative values are not encoded: $value" }
+        var remaining = value
+        while (remaining >= 0x80) {
+            out.write((remaining and 0x7F).toInt() or 0x80)
+            remaining = remaining ushr 7
+        }
+        out.write(remaining.toInt())
+    }
+
+    private fun string(value: String) {
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        varint(bytes.size.toLong())
+        out.write(bytes)
+    }
+
+    private fun ids(ids: List<Long>) {
+        varint(ids.size.toLong())
+        ids.forEach { varint(it) }
+    }
+
+    private fun user(user: User) {
+        varint(user.id)
+        string(user.firstName)
+        string(user.lastName)
+        string(user.email)
+        string(user.phone)
+        string(user.dob)
+        string(user.address)
+    }
+
+    private fun opcodeOf(call: RepositoryCall): Int = when (call) {
+        RepositoryCall.AllUsers -> OP_ALL_USERS
+        is RepositoryCall.GetUserById -> OP_GET_USER_BY_ID
+        is RepositoryCall.ObserveUserById -> OP_OBSERVE_USER_BY_ID
+        is RepositoryCall.GetUserByEmail -> OP_GET_USER_BY_EMAIL
+        is RepositoryCall.InsertUser -> OP_INSERT_USER
+        is RepositoryCall.UpdateUser -> OP_UPDATE_USER
+        is RepositoryCall.DeleteUser -> OP_DELETE_USER
+        is RepositoryCall.SearchUsers -> OP_SEARCH_USERS
+        is RepositoryCall.ApplyBatch -> OP_APPLY_BATCH
+        is RepositoryCall.GetUserIds -> OP_GET_USER_IDS
+        is RepositoryCall.DeleteUsersByIds -> OP_DELETE_USERS_BY_IDS
+        is RepositoryCall.UpdateColumnForIds -> OP_UPDATE_COLUMN_FOR_IDS
+        is RepositoryCall.InsertUsers -> OP_INSERT_USERS
+        RepositoryCall.Stats -> OP_STATS
+        is RepositoryCall.FuzzySearch -> OP_FUZZY_SEARCH
+        is RepositoryCall.SoundsLike -> OP_SOUNDS_LIKE
+        RepositoryCall.DuplicateClusters -> OP_DUPLICATE_CLUSTERS
+        is RepositoryCall.DismissDuplicates -> OP_DISMISS_DUPLICATES
+        is RepositoryCall.FilterUsers -> OP_FILTER_USERS
+        is RepositoryCall.ObserveSections -> OP_OBSERVE_SECTIONS
+        is RepositoryCall.Suggest -> OP_SUGGEST
+    }
+}
+
+private class LogReader(private val input: InputStream) {
+
+    fun byteOrEnd(): Int = input.read()
+
+    fun byte(): Int {
+        val value = input.read()
+        if (value < 0) throw EOFException("Truncated workload log")
+        return value
+    }
+
+    fun varint(): Long {
+        var result = 0L
+        var shift = 0
+        while (true) {
+            val b = byte()
+            result = result or ((b and 0x7F).toLong() shl shift)
+            if (b and 0x80 == 0) return result
+            shift += 7
+            if (shift > 63) throw IOException("Malformed varint")
+        }
+    }
+
+    fun string(): String {
+        val bytes = ByteArray(varint().toInt())
+        var offset = 0
+        while (offset < bytes.size) {
+            val read = input.read(bytes, offset, bytes.size - offset)
+            if (read < 0) throw EOFException("Truncated workload log")
+            offset += read
+        }
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    fun ids(): List<Long> = List(varint().toInt()) { varint() }
+
+    fun user(): User = User(
+        id = varint(),
+        firstName = string(),
+        lastName = string(),
+        email = string(),
+        phone = string(),
+        dob = string(),
+        address = string()
+    )
+
+    fun call(opcode: Int): RepositoryCall = when (opcode) {
+        OP_ALL_USERS -> RepositoryCall.AllUsers
+        OP_GET_USER_BY_ID -> RepositoryCall.GetUserById(varint())
+        OP_OBSERVE_USER_BY_ID -> RepositoryCall.ObserveUserById(varint())
+        OP_GET_USER_BY_EMAIL -> RepositoryCall.GetUserByEmail(string())
+        OP_INSERT_USER -> RepositoryCall.InsertUser(user())
+        OP_UPDATE_USER -> RepositoryCall.UpdateUser(user())
+        OP_DELETE_USER -> RepositoryCall.DeleteUser(user())
+        OP_SEARCH_USERS -> RepositoryCall.SearchUsers(string())
+        OP_APPLY_BATCH -> RepositoryCall.ApplyBatch(List(varint().toInt()) {
+            when (val kind = byte()) {
+                BATCH_ADD -> UserOperation.Add(user())
+                BATCH_UPDATE -> UserOperation.Update(user())
+                BATCH_DELETE -> UserOperation.Delete(user())
+                else -> throw IOException("Unknown batch operation $kind")
+            }
+        })
+        OP_GET_USER_IDS -> RepositoryCall.GetUserIds(string())
+        OP_DELETE_USERS_BY_IDS -> RepositoryCall.DeleteUsersByIds(ids())
+        OP_UPDATE_COLUMN_FOR_IDS -> RepositoryCall.UpdateColumnForIds(ids(), UserColumn.valueOf(string()), string())
+        OP_INSERT_USERS -> RepositoryCall.InsertUsers(List(varint().toInt()) { user() })
+        OP_STATS -> RepositoryCall.Stats
+        OP_FUZZY_SEARCH -> RepositoryCall.FuzzySearch(string(), varint().toInt())
+        OP_SOUNDS_LIKE -> RepositoryCall.SoundsLike(string())
+        OP_DUPLICATE_CLUSTERS -> RepositoryCall.DuplicateClusters
+        OP_DISMISS_DUPLICATES -> RepositoryCall.DismissDuplicates(ids())
+        OP_FILTER_USERS -> RepositoryCall.FilterUsers(string())
+        OP_GET_USERS_SORTED -> throw IOException("getUsersSorted has been removed; this log cannot be replayed")
+        OP_OBSERVE_SECTIONS -> RepositoryCall.ObserveSections(UserSort.valueOf(string()))
+        OP_SUGGEST -> RepositoryCall.Suggest(string(), varint().toInt())
+        else -> throw IOException("Unknown workload log opcode $opcode")
+    }
+}
+
+// Opcodes are part of the file format: append new ones, never renumber.
+private const val OP_ALL_USERS = 1
+private const val OP_GET_USER_BY_ID = 2
+private const val OP_OBSERVE_USER_BY_ID = 3
+private const val OP_GET_USER_BY_EMAIL = 4
+private const val OP_INSERT_USER = 5
+private const val OP_UPDATE_USER = 6
+private const val OP_DELETE_USER = 7
+private const val OP_SEARCH_USERS = 8
+private const val OP_APPLY_BATCH = 9
+private const val OP_GET_USER_IDS = 10
+private const val OP_DELETE_USERS_BY_IDS = 11
+private const val OP_UPDATE_COLUMN_FOR_IDS = 12
+private const val OP_INSERT_USERS = 13
+private const val OP_STATS = 14
+private const val OP_FUZZY_SEARCH = 15
+private const val OP_SOUNDS_LIKE = 16
+private const val OP_DUPLICATE_CLUSTERS = 17
+private const val OP_DISMISS_DUPLICATES = 18
+private const val OP_FILTER_USERS = 19
+private const val OP_GET_USERS_SORTED = 20 // Removed; kept so the number is not reused.
+private const val OP_OBSERVE_SECTIONS = 21
+private const val OP_SUGGEST = 22
+
+private const val BATCH_ADD = 0
+private const val BATCH_UPDATE = 1
+private const val BATCH_DELETE = 2
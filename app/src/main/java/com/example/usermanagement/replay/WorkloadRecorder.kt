@@ -0,0 +1,77 @@
+package com.example.usermanagement.replay
+
+import java.io.OutputStream
+import java.security.SecureRandom
+
+/**
+ * Captures repository calls into a [WorkloadLog] while a recording is running.
+ * Calls are recorded through [RecordingUserRepository]; when no recording is running they cost one volatile read.
+ * @param clock Source of monotonic nanosecond timestamps; replaceable in tests.
+ */
+class WorkloadRecorder(private val clock: () -> Long = System::nanoTime) {
+    private val lock = Any()
+    private var writer: WorkloadLogWriter? = null
+    private var hasher: PiiHasher? = null
+    private var originNanos = 0L
+
+    /**
+     * Whether a recording is running.
+     */
+    @Volatile
+    var isRecording: Boolean = false
+        private set
+
+    /**
+     * Starts a new recording into [output], replacing any running one.
+     * @param output The stream receiving the log; closed by [stop].
+     * @param hashPii Whether to replace names, emails, phones, dates of birth, addresses and search text
+     *   with salted pseudonyms before they are written.
+     */
+    fun start(output: OutputStream, hashPii: Boolean = true) {
+        synchronized(lock) {
+            stopLocked()
+            writer = WorkloadLogWriter(output, hashPii)
+            hasher = if (hashPii) PiiHasher(ByteArray(SALT_BYTES).also { SecureRandom().nextBytes(it) }) else null
+            originNanos = clock()
+            isRecording = true
+        }
+    }
+
+    /**
+     * Stops the running recording, if any, and closes its stream.
+     */
+    fun stop() {
+        synchronized(lock) { stopLocked() }
+    }
+
+    internal fun now(): Long = clock()
+
+    /**
+     * Appends [call] to the running recording; calls that started before the recording are logged at offset 0.
+     */
+    internal fun record(call: RepositoryCall, startNanos: Long, durationNanos: Long, failed: Boolean) {
+        synchronized(lock) {
+            val writer = writer ?: return
+            val logged = hasher?.let { call.pseudonymized(it) } ?: call
+            writer.write(
+                RecordedCall(
+                    startMicros = maxOf(0L, startNanos - originNanos) / 1_000,
+                    durationMicros = durationNanos / 1_000,
+                    failed = failed,
+                    call = logged
+                )
+            )
+        }
+    }
+
+    private fun stopLocked() {
+        isRecording = false
+        writer?.close()
+        writer = null
+        hasher = null
+    }
+
+    private companion object {
+        const val SALT_BYTES = 16
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.usermanagement.replay
+
+import com.example.usermanagement.metrics.HistogramSnapshot
+import com.example.usermanagement.metrics.LatencyHistogram
+import com.example.usermanagement.metrics.toJson
+import com.example.usermanagement.repository.IUserRepository
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import org.json.JSONObject
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * How fast [WorkloadReplayer] issues the recorded calls.
+ */
+enum class ReplaySpeed {
+    /**
+     * Each call starts at its recorded offset, concurrently with calls still running, as in the original session.
+     */
+    ORIGINAL,
+
+    /**
+     * Calls run back to back in recorded order, measuring the repository's saturated throughput.
+     */
+    MAXIMUM
+}
+
+/**
+ * Drives an [IUserRepository] with a recorded [WorkloadLog] and measures how it copes.
+ * Needs nothing from Android but `org.json` for the report, so logs can be replayed headlessly on the JVM, under
+ * Robolectric or with the `org.json` artifact on the classpath, against any implementation.
+ * Failing calls are counted and do not stop the replay.
+ * @param repository The repository under test.
+ * @param clock Source of monotonic nanosecond timestamps; replaceable in tests.
+ */
+class WorkloadReplayer(
+    private val repository: IUserRepository,
+    private val clock: () -> Long = System::nanoTime
+) {
+
+    /**
+     * Replays [calls] and reports throughput and latency percentiles.
+     * @param calls The recorded calls, typically [WorkloadLog.calls].
+     * @param speed Whether to keep the recorded pacing or run as fast as possible.
+     * @return The measurements of this replay.
+     */
+    suspend fun replay(calls: List<RecordedCall>, speed: ReplaySpeed = ReplaySpeed.MAXIMUM): ReplayReport {
+        val ordered = calls.sortedBy { it.startMicros }
+        val overall = LatencyHistogram()
+        val byOperation = ConcurrentHashMap<String, LatencyHistogram>()
+        val errors = AtomicInteger()
+
+        suspend fun execute(call: RepositoryCall) {
+            val start = clock()
+            try {
+                call.execute(repository)
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                errors.incrementAndGet()
+            }
+            val nanos = clock() - start
+            overall.record(nanos)
+            byOperation.getOrPut(call.name) { LatencyHistogram() }.record(nanos)
+        }
+
+        val start = clock()
+        when (speed) {
+            ReplaySpeed.MAXIMUM -> ordered.forEach { execute(it.call) }
+            ReplaySpeed.ORIGINAL -> coroutineScope {
+                val firstMicros = ordered.firstOrNull()?.startMicros ?: 0L
+                for (recorded in ordered) {
+                    val dueNanos = (recorded.startMicros - firstMicros) * 1_000
+                    val waitMillis = (dueNanos - (clock() - start)) / 1_000_000
+                    if (waitMillis > 0) delay(waitMillis)
+                    launch { execute(recorded.call) }
+                }
+            }
+        }
+        return ReplayReport(
+            calls = ordered.size,
+            errors = errors.get(),
+            wallNanos = clock() - start,
+            latency = overall.snapshot(),
+            operations = byOperation.mapValues { it.value.snapshot() }.toSortedMap()
+        )
+    }
+}
+
+/**
+ * Result of one [WorkloadReplayer.replay].
+ * @param calls Number of replayed calls.
+ * @param errors Number of calls that threw.
+ * @param wallNanos Wall time of the whole replay.
+ * @param latency Latency distribution over all calls.
+ * @param operations Latency distribution per repository method.
+ */
+data class ReplayReport(
+    val calls: Int,
+    val errors: Int,
+    val wallNanos: Long,
+    val latency: HistogramSnapshot,
+    val operations: Map<String, HistogramSnapshot>
+) {
+    /**
+     * Completed calls per second of wall time.
+     */
+    val throughputPerSecond: Double
+        get() = if (wallNanos == 0L) 0.0 else calls * 1e9 / wallNanos
+
+    /**
+     * Serializes the report in the same shape as repository metrics dumps.
+     * @return A [JSONObject] mirroring this report.
+     */
+    fun toJson(): JSONObject {
+        val operationsJson = JSONObject()
+        for ((name, snapshot) in operations) {
+            operationsJson.put(name, snapshot.toJson())
+        }
+        return JSONObject()
+            .put("calls", calls)
+            .put("errors", errors)
+            .put("wallNanos", wallNanos)
+            .put("throughputPerSecond", throughputPerSecond)
+            .put("latency", latency.toJson())
+            .put("operations", operationsJson)
+    }
+
+    /**
+     * A plain-text summary for logs and console output.
+     */
+    fun format(): String = buildString {
+        append(String.format(Locale.ROOT, "%d calls, %d errors, %.1f calls/s%n", calls, errors, throughputPerSecond))
+        for ((name, snapshot) in operations) {
+            append(
+                String.format(
+                    Locale.ROOT, "%-20s n=%-7d p50=%8.1fµs p99=%8.1fµs max=%8.1fµs%n",
+                    name, snapshot.count, snapshot.p50Nanos / 1e3, snapshot.p99Nanos / 1e3, snapshot.maxNanos / 1e3
+                )
+            )
+        }
+    }
+}
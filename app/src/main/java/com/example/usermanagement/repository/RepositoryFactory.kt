@@ -1,18 +1,58 @@
 package com.example.usermanagement.repository
 
 import android.content.Context
+import com.example.usermanagement.database.DatabaseExecutors
 import com.example.usermanagement.database.DatabaseFactory
 import com.example.usermanagement.database.RoomDatabaseFactory
+import com.example.usermanagement.metrics.InstrumentedUserRepository
+import com.example.usermanagement.metrics.RepositoryMetrics
+import com.example.usermanagement.replay.RecordingUserRepository
+import com.example.usermanagement.replay.WorkloadRecorder
 
 interface RepositoryFactory {
     fun createUserRepository(context: Context): IUserRepository
 }
 
+/**
+ * [RepositoryFactory] creating Room-backed repositories.
+ * @param databaseFactory The factory opening the database.
+ * @param executors The execution layer the repositories run their database work on; pass the same instance
+ *   to [RoomDatabaseFactory] so Room's own queries share its lanes.
+ */
 class DefaultRepositoryFactory(
-    private val databaseFactory: DatabaseFactory = RoomDatabaseFactory()
+    private val databaseFactory: DatabaseFactory = RoomDatabaseFactory(),
+    private val executors: DatabaseExecutors = DatabaseExecutors.shared
 ) : RepositoryFactory {
     override fun createUserRepository(context: Context): IUserRepository {
         val database = databaseFactory.createDatabase(context)
-        return UserRepositoryImpl(database.userDao())
+        return UserRepositoryImpl(database, executors)
     }
-} 
\ No newline at end of file
+}
+
+/**
+ * [RepositoryFactory] that wraps the repositories of [delegate] in an [InstrumentedUserRepository].
+ * @param delegate The factory creating the underlying repository.
+ * @param metrics The registry shared by all repositories created by this factory.
+ */
+class InstrumentedRepositoryFactory(
+    private val delegate: RepositoryFactory = DefaultRepositoryFactory(),
+    val metrics: RepositoryMetrics = RepositoryMetrics()
+) : RepositoryFactory {
+    override fun createUserRepository(context: Context): IUserRepository {
+        return InstrumentedUserRepository(delegate.createUserRepository(context), metrics)
+    }
+}
+
+/**
+ * [RepositoryFactory] that wraps the repositories of [delegate] in a [RecordingUserRepository].
+ * @param delegate The factory creating the underlying repository.
+ * @param recorder The recorder shared by all repositories created by this factory.
+ */
+class RecordingRepositoryFactory(
+    private val delegate: RepositoryFactory = DefaultRepositoryFactory(),
+    val recorder: WorkloadRecorder = WorkloadRecorder()
+) : RepositoryFactory {
+    override fun createUserRepository(context: Context): IUserRepository {
+        return RecordingUserRepository(delegate.createUserRepository(context), recorder)
+    }
+}
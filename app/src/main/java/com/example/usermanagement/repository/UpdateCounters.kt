@@ -0,0 +1,57 @@
+package com.example.usermanagement.repository
+
+import com.example.usermanagement.data.UserColumn
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts how user updates were applied, to show how much write work field-level updates save.
+ */
+class UpdateCounters {
+    private val skipped = AtomicLong()
+    private val narrowed = AtomicLong()
+    private val full = AtomicLong()
+    private val columnsWritten = AtomicLong()
+    private val columnsAvoided = AtomicLong()
+
+    /**
+     * Records the outcome of one update.
+     * @param changedColumns The columns that were written; empty when the update was skipped.
+     */
+    fun record(changedColumns: Set<UserColumn>) {
+        val total = UserColumn.values().size
+        when (changedColumns.size) {
+            0 -> skipped.incrementAndGet()
+            total -> full.incrementAndGet()
+            else -> narrowed.incrementAndGet()
+        }
+        columnsWritten.addAndGet(changedColumns.size.toLong())
+        columnsAvoided.addAndGet((total - changedColumns.size).toLong())
+    }
+
+    /**
+     * @return A copy of the current counter values for display or logging.
+     */
+    fun snapshot(): UpdateCountersSnapshot = UpdateCountersSnapshot(
+        skipped = skipped.get(),
+        narrowed = narrowed.get(),
+        full = full.get(),
+        columnsWritten = columnsWritten.get(),
+        columnsAvoided = columnsAvoided.get()
+    )
+}
+
+/**
+ * Point-in-time values of [UpdateCounters].
+ * @param skipped Updates that changed nothing and issued no write.
+ * @param narrowed Updates that wrote only some of the columns.
+ * @param full Updates that changed every column and rewrote the whole row.
+ * @param columnsWritten Total number of columns written.
+ * @param columnsAvoided Total number of column writes saved compared to full-row updates.
+ */
+data class UpdateCountersSnapshot(
+    val skipped: Long,
+    val narrowed: Long,
+    val full: Long,
+    val columnsWritten: Long,
+    val columnsAvoided: Long
+)
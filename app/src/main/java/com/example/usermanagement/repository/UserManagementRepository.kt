@@ -1,6 +1,20 @@
 package com.example.usermanagement.repository
 
 import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserStats
+import com.example.usermanagement.dedupe.DuplicateCluster
+import com.example.usermanagement.dedupe.DuplicateScorer
+import com.example.usermanagement.filter.FilterParser
+import com.example.usermanagement.filter.FilterSyntaxException
+import com.example.usermanagement.search.FuzzyNameIndex
+import com.example.usermanagement.search.Metaphone
+import com.example.usermanagement.search.TypeaheadIndex
+import com.example.usermanagement.search.UserSuggestion
+import com.example.usermanagement.sort.UserSection
+import com.example.usermanagement.sort.UserSections
+import com.example.usermanagement.sort.UserSort
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.util.Result
 import kotlinx.coroutines.flow.Flow
 
 interface IUserRepository {
@@ -9,6 +23,18 @@ interface IUserRepository {
      */
     val allUsers: Flow<List<User>>
 
+    /**
+     * A [Flow] of the directory statistics, emitting only when they change.
+     */
+    val stats: Flow<UserStats>
+
+    /**
+     * A [Flow] of the clusters of probable duplicate users awaiting review, strongest first;
+     * see [DuplicateScorer] for what counts as a duplicate. Detection runs in the background,
+     * so a change can take a moment to show up here.
+     */
+    val duplicateClusters: Flow<List<DuplicateCluster>>
+
     /**
      * Retrieves a [User] by their unique [id].
      * @param id The ID of the user to retrieve.
@@ -16,6 +42,13 @@ interface IUserRepository {
      */
     suspend fun getUserById(id: Long): User?
 
+    /**
+     * Observes a [User] by their unique [id].
+     * @param id The ID of the user to observe.
+     * @return A [Flow] emitting the current [User], or `null` if no user has that ID.
+     */
+    fun observeUserById(id: Long): Flow<User?>
+
     /**
      * Retrieves a [User] by their unique [email].
      * @param email The email of the user to retrieve.
@@ -48,4 +81,112 @@ interface IUserRepository {
      * @return A [Flow] emitting a [List] of [User] objects that match the query.
      */
     fun searchUsers(query: String): Flow<List<User>>
-} 
\ No newline at end of file
+
+    /**
+     * Typo-tolerant search over first and last names: every word of [query] must match a name exactly, as a prefix
+     * or within a few edits, and results are ranked exact before prefix before fuzzy, see [FuzzyNameIndex.search].
+     * @param query The search string.
+     * @param limit The maximum number of results.
+     * @return A [Flow] emitting the best matching users, best first, whenever they change.
+     */
+    fun fuzzySearch(query: String, limit: Int = FuzzyNameIndex.DEFAULT_LIMIT): Flow<List<User>>
+
+    /**
+     * "Sounds like" search over first and last names, comparing [Metaphone] keys so "Smyth" finds Smith and
+     * "Kathryn" finds Catherine. A single word may match either name; with several words, both names must
+     * sound like one of them.
+     * @param query The search string.
+     * @return A [Flow] emitting the matching users whenever they change; empty if [query] has no letters.
+     */
+    fun soundsLike(query: String): Flow<List<User>>
+
+    /**
+     * Typeahead completions of [text] for the search bar: users whose first name, last name, whole name or email
+     * starts with it, see [TypeaheadIndex.suggest]. Cheap enough to call on every keystroke.
+     * @param text The typed text.
+     * @param limit The maximum number of suggestions.
+     * @return At most [limit] suggestions, one per user, best first; empty if [text] is blank.
+     */
+    suspend fun suggest(text: String, limit: Int = TypeaheadIndex.DEFAULT_LIMIT): List<UserSuggestion>
+
+    /**
+     * Prepares [suggest] in the background, e.g. once the search bar is focused, so the first keystroke does not
+     * wait for it. Optional: [suggest] prepares itself on first use otherwise.
+     */
+    suspend fun prepareSuggestions()
+
+    /**
+     * Filters users by an expression such as `last:sm* AND (email:@acme.com OR phone:+44*) AND age:30..40`,
+     * see [FilterParser] for the syntax. Ages are computed on the day of the call.
+     * @param expression The filter expression.
+     * @return A [Flow] emitting the matching users whenever they change.
+     * @throws FilterSyntaxException if [expression] is not a valid filter expression.
+     */
+    fun filterUsers(expression: String): Flow<List<User>>
+
+    /**
+     * Observes the sections of the whole user list in [sort] order, see [UserSections].
+     * @param sort The order.
+     * @return A [Flow] emitting the sections, in list order, whenever their counts change.
+     */
+    fun observeSections(sort: UserSort): Flow<List<UserSection>>
+
+    /**
+     * Applies a chunk of mixed add, update and delete operations as one unit of work.
+     * Failures are reported per operation and do not abort the remaining operations.
+     * @param operations The operations to apply, in order.
+     * @return One [Result] per operation, in the same order.
+     */
+    suspend fun applyBatch(operations: List<UserOperation>): List<Result<Unit>>
+
+    /**
+     * Retrieves the IDs of the users matching [query] without loading the users themselves.
+     * @param query The search string; blank matches every user.
+     * @return The IDs of the matching users, as [searchUsers] would return them.
+     */
+    suspend fun getUserIds(query: String): LongArray
+
+    /**
+     * Deletes the users with the given [ids] in one transaction.
+     * @param ids The IDs of the users to delete.
+     * @return The number of deleted users.
+     */
+    suspend fun deleteUsersByIds(ids: LongArray): Int
+
+    /**
+     * Sets one [column] to the same [value] for the users with the given [ids] in one transaction.
+     * @param ids The IDs of the users to update.
+     * @param column The column to set; [UserColumn.EMAIL] is not allowed because emails are unique.
+     * @param value The new value of the column.
+     * @return The number of updated users.
+     * @throws IllegalArgumentException if [column] is [UserColumn.EMAIL].
+     */
+    suspend fun updateColumnForIds(ids: LongArray, column: UserColumn, value: String): Int
+
+    /**
+     * Inserts many users in one transaction; users whose email already exists are skipped.
+     * @param users The users to insert; their IDs are assigned by the data source.
+     * @return The number of inserted users.
+     */
+    suspend fun insertUsers(users: List<User>): Int
+
+    /**
+     * Runs a group of reads against one consistent state of the data, e.g. a list together with its counts.
+     * @param block The reads to run; must not keep the [UserSnapshot] beyond its own execution.
+     * @return The result of [block].
+     */
+    suspend fun <T> readSnapshot(block: (UserSnapshot) -> T): T
+
+    /**
+     * Marks users as different people, so the pairs among them are no longer reported, now or after later edits.
+     * @param userIds The users, typically the [DuplicateCluster.userIds] of one cluster.
+     * @return The number of pairs dismissed.
+     */
+    suspend fun dismissDuplicates(userIds: LongArray): Int
+
+    /**
+     * Starts keeping [duplicateClusters] current in the background, for as long as the repository lives.
+     * Called once by the application at startup; later calls do nothing.
+     */
+    fun startDuplicateDetection()
+}
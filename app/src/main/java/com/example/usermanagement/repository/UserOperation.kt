@@ -0,0 +1,28 @@
+package com.example.usermanagement.repository
+
+import com.example.usermanagement.data.User
+
+/**
+ * A single write against the user data source, used to describe mixed batches.
+ */
+sealed class UserOperation {
+    /**
+     * The [User] the operation applies to.
+     */
+    abstract val user: User
+
+    /**
+     * Inserts [user] as a new user.
+     */
+    data class Add(override val user: User) : UserOperation()
+
+    /**
+     * Updates the stored user with the same ID as [user].
+     */
+    data class Update(override val user: User) : UserOperation()
+
+    /**
+     * Deletes the stored user with the same ID as [user].
+     */
+    data class Delete(override val user: User) : UserOperation()
+}
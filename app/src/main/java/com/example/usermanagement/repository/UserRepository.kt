@@ -1,21 +1,78 @@
 package com.example.usermanagement.repository
 
 import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.data.UserContact
+import com.example.usermanagement.data.UserName
+import com.example.usermanagement.data.UserStats
+import com.example.usermanagement.dedupe.DuplicateCluster
+import com.example.usermanagement.dedupe.DuplicateFinder
+import com.example.usermanagement.filter.FilterPlan
+import com.example.usermanagement.filter.FilterPlanner
+import com.example.usermanagement.filter.ParallelUserFilter
+import com.example.usermanagement.filter.UserBitmapIndex
+import com.example.usermanagement.search.FuzzyNameIndex
+import com.example.usermanagement.search.Metaphone
+import com.example.usermanagement.search.TypeaheadIndex
+import com.example.usermanagement.search.UserSuggestion
+import com.example.usermanagement.sort.UserSection
+import com.example.usermanagement.sort.UserSections
+import com.example.usermanagement.sort.UserSort
+import com.example.usermanagement.util.LongIdSet
+import com.example.usermanagement.util.Result
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.map
 
 class UserRepository : IUserRepository {
 
     private val _users = MutableStateFlow<List<User>>(emptyList())
 
+    private val filterPlanner = FilterPlanner()
+
+    /**
+     * The bitmap index of the latest list filtered, shared by every filter until the list changes.
+     */
+    @Volatile
+    private var bitmapIndex: UserBitmapIndex? = null
+
+    /**
+     * The names of the current users, changed by each write just before it publishes its list.
+     */
+    private val fuzzyIndex = FuzzyNameIndex()
+
+    /**
+     * The names and emails of the current users, changed alongside [fuzzyIndex].
+     */
+    private val typeaheadIndex = TypeaheadIndex()
+
     override val allUsers: Flow<List<User>> = _users.asStateFlow()
 
+    override val stats: Flow<UserStats> = _users.map { UserStats.of(it) }.distinctUntilChanged()
+
+    /**
+     * Pairs dismissed by [dismissDuplicates], as (smaller ID, greater ID).
+     */
+    private val dismissedDuplicates = MutableStateFlow<Set<Pair<Long, Long>>>(emptySet())
+
+    override val duplicateClusters: Flow<List<DuplicateCluster>> =
+        combine(_users, dismissedDuplicates) { users, dismissed ->
+            val pairs = DuplicateFinder.find(users).filter { (it.userId to it.otherUserId) !in dismissed }
+            DuplicateCluster.from(pairs, users)
+        }.distinctUntilChanged()
+
     override suspend fun getUserById(id: Long): User? {
         return _users.value.find { it.id == id }
     }
 
+    override fun observeUserById(id: Long): Flow<User?> {
+        return _users.map { userList -> userList.find { it.id == id } }.distinctUntilChanged()
+    }
+
     override suspend fun getUserByEmail(email: String): User? {
         return _users.value.find { it.email == email }
     }
@@ -23,15 +80,23 @@ class UserRepository : IUserRepository {
     override suspend fun insertUser(user: User): Long {
         // In a real scenario, you'd assign a new ID. For a fake, a simple increment or fixed value might suffice.
         val newId = (_users.value.maxOfOrNull { it.id } ?: 0L) + 1
+        fuzzyIndex.put(newId, user.firstName, user.lastName)
+        typeaheadIndex.put(newId, user.firstName, user.lastName, user.email)
         _users.value = _users.value + user.copy(id = newId)
         return newId
     }
 
     override suspend fun updateUser(user: User) {
+        if (_users.value.any { it.id == user.id }) {
+            fuzzyIndex.put(user.id, user.firstName, user.lastName)
+            typeaheadIndex.put(user.id, user.firstName, user.lastName, user.email)
+        }
         _users.value = _users.value.map { if (it.id == user.id) user else it }
     }
 
     override suspend fun deleteUser(user: User) {
+        fuzzyIndex.remove(user.id)
+        typeaheadIndex.remove(user.id)
         _users.value = _users.value.filter { it.id != user.id }
     }
 
@@ -40,13 +105,196 @@ class UserRepository : IUserRepository {
             if (query.isBlank()) {
                 userList
             } else {
-                userList.filter {
-                    it.firstName.contains(query, ignoreCase = true) ||
-                            it.lastName.contains(query, ignoreCase = true) ||
-                            it.email.contains(query, ignoreCase = true)
+                ParallelUserFilter.filter(userList) { it.matches(query) }
+            }
+        }
+    }
+
+    override fun fuzzySearch(query: String, limit: Int): Flow<List<User>> {
+        return _users.map { userList ->
+            val matches = fuzzyIndex.search(query, limit)
+            if (matches.isEmpty()) return@map emptyList()
+            val ranks = HashMap<Long, Int>(matches.size * 2)
+            matches.forEachIndexed { rank, match -> ranks[match.userId] = rank }
+            // One pass over the list, in chunks when it is large, picks the matched users in rank order.
+            ParallelUserFilter.topK(userList, matches.size, compareBy { ranks.getValue(it.id) }) { it.id in ranks }
+        }.distinctUntilChanged()
+    }
+
+    override fun soundsLike(query: String): Flow<List<User>> {
+        val codes = Metaphone.encodeWords(query)
+        return _users.map { userList ->
+            ParallelUserFilter.filter(userList) {
+                val firstNameCode = Metaphone.encode(it.firstName)
+                val lastNameCode = Metaphone.encode(it.lastName)
+                when (codes.size) {
+                    0 -> false
+                    1 -> firstNameCode == codes[0] || lastNameCode == codes[0]
+                    else -> firstNameCode in codes && lastNameCode in codes
                 }
             }
+        }.distinctUntilChanged()
+    }
+
+    override suspend fun suggest(text: String, limit: Int): List<UserSuggestion> {
+        return typeaheadIndex.suggest(text, limit)
+    }
+
+    /**
+     * Does nothing: [typeaheadIndex] is kept current by every write.
+     */
+    override suspend fun prepareSuggestions() = Unit
+
+    override fun filterUsers(expression: String): Flow<List<User>> {
+        val plan = filterPlanner.plan(expression)
+        // Emits lazy selections: counting them or reading a page does not copy the matching users.
+        val selections = if (plan.dependsOnToday) {
+            // Selected again at midnight, when the ages change even if the users do not.
+            combine(_users, FilterPlan.days()) { userList, today ->
+                bitmapIndexOf(userList).select(plan.expression, today)
+            }
+        } else {
+            _users.map { userList -> bitmapIndexOf(userList).select(plan.expression) }
         }
+        return selections.distinctUntilChanged()
+    }
+
+    private fun bitmapIndexOf(users: List<User>): UserBitmapIndex {
+        val index = bitmapIndex
+        if (index != null && index.users === users) return index
+        return UserBitmapIndex(users).also { bitmapIndex = it }
+    }
+
+    override fun observeSections(sort: UserSort): Flow<List<UserSection>> {
+        return _users.map { userList -> UserSections.of(sort, userList) }.distinctUntilChanged()
     }
 
-}
\ No newline at end of file
+    override suspend fun applyBatch(operations: List<UserOperation>): List<Result<Unit>> {
+        // Work on a local copy and publish once, so observers see the whole chunk as a single change.
+        val users = _users.value.toMutableList()
+        var nextId = (users.maxOfOrNull { it.id } ?: 0L) + 1
+        // Replayed in order once the list is complete, as a later operation may undo an earlier one.
+        val indexChanges = ArrayList<() -> Unit>()
+        val results = operations.map { operation ->
+            when (operation) {
+                is UserOperation.Add -> {
+                    val user = operation.user.copy(id = nextId++)
+                    users.add(user)
+                    indexChanges.add { index(user) }
+                }
+                is UserOperation.Update -> {
+                    val user = operation.user
+                    if (users.any { it.id == user.id }) {
+                        users.replaceAll { if (it.id == user.id) user else it }
+                        indexChanges.add { index(user) }
+                    }
+                }
+                is UserOperation.Delete -> {
+                    users.removeAll { it.id == operation.user.id }
+                    indexChanges.add {
+                        fuzzyIndex.remove(operation.user.id)
+                        typeaheadIndex.remove(operation.user.id)
+                    }
+                }
+            }
+            Result.Success(Unit)
+        }
+        indexChanges.forEach { it() }
+        _users.value = users
+        return results
+    }
+
+    override suspend fun getUserIds(query: String): LongArray {
+        return searchUsers(query).first().map { it.id }.toLongArray()
+    }
+
+    override suspend fun deleteUsersByIds(ids: LongArray): Int {
+        val idSet = LongIdSet.of(ids)
+        val remaining = _users.value.filter { it.id !in idSet }
+        val deleted = _users.value.size - remaining.size
+        fuzzyIndex.remove(*ids)
+        typeaheadIndex.remove(*ids)
+        _users.value = remaining
+        return deleted
+    }
+
+    override suspend fun updateColumnForIds(ids: LongArray, column: UserColumn, value: String): Int {
+        require(column != UserColumn.EMAIL) { "Email is unique and cannot be bulk updated" }
+        val idSet = LongIdSet.of(ids)
+        when (column) {
+            UserColumn.FIRST_NAME -> {
+                fuzzyIndex.setFirstName(ids, value)
+                typeaheadIndex.setFirstName(ids, value)
+            }
+            UserColumn.LAST_NAME -> {
+                fuzzyIndex.setLastName(ids, value)
+                typeaheadIndex.setLastName(ids, value)
+            }
+            else -> Unit
+        }
+        var updated = 0
+        _users.value = _users.value.map { user ->
+            if (user.id !in idSet) return@map user
+            updated++
+            when (column) {
+                UserColumn.FIRST_NAME -> user.copy(firstName = value)
+                UserColumn.LAST_NAME -> user.copy(lastName = value)
+                UserColumn.PHONE -> user.copy(phone = value)
+                UserColumn.DOB -> user.copy(dob = value)
+                UserColumn.ADDRESS -> user.copy(address = value)
+                UserColumn.EMAIL -> user
+            }
+        }
+        return updated
+    }
+
+    override suspend fun <T> readSnapshot(block: (UserSnapshot) -> T): T {
+        // The list is immutable, so one read of the state flow is already a consistent snapshot.
+        val users = _users.value
+        return block(object : UserSnapshot {
+            override fun users(query: String): List<User> = ParallelUserFilter.filter(users) { it.matches(query) }
+            override fun count(query: String): Int = ParallelUserFilter.count(users) { it.matches(query) }
+            override fun userById(id: Long): User? = users.find { it.id == id }
+        })
+    }
+
+    /**
+     * Indexes or re-indexes [user] in both name indexes.
+     */
+    private fun index(user: User) {
+        fuzzyIndex.put(user.id, user.firstName, user.lastName)
+        typeaheadIndex.put(user.id, user.firstName, user.lastName, user.email)
+    }
+
+    private fun User.matches(query: String): Boolean =
+        query.isBlank() ||
+            firstName.contains(query, ignoreCase = true) ||
+            lastName.contains(query, ignoreCase = true) ||
+            email.contains(query, ignoreCase = true)
+
+    override suspend fun insertUsers(users: List<User>): Int {
+        val current = _users.value
+        val emails = current.mapTo(HashSet()) { it.email }
+        var nextId = (current.maxOfOrNull { it.id } ?: 0L) + 1
+        val inserted = users.filter { emails.add(it.email) }.map { it.copy(id = nextId++) }
+        fuzzyIndex.putAll(inserted.map { UserName(it.id, it.firstName, it.lastName) })
+        typeaheadIndex.putAll(inserted.map { UserContact(it.id, it.firstName, it.lastName, it.email) })
+        _users.value = current + inserted
+        return inserted.size
+    }
+
+    /**
+     * Does nothing: [duplicateClusters] is computed from the list on every change.
+     */
+    override fun startDuplicateDetection() = Unit
+
+    override suspend fun dismissDuplicates(userIds: LongArray): Int {
+        val ids = userIds.toHashSet()
+        val pairs = DuplicateFinder.find(_users.value)
+            .filter { it.userId in ids && it.otherUserId in ids }
+            .map { it.userId to it.otherUserId }
+            .filter { it !in dismissedDuplicates.value }
+        dismissedDuplicates.value = dismissedDuplicates.value + pairs
+        return pairs.size
+    }
+}
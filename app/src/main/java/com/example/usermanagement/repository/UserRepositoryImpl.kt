@@ -1,83 +1,645 @@
 package com.example.usermanagement.repository
 
+import android.database.sqlite.SQLiteConstraintException
+import android.util.Log
+import android.util.LruCache
+import com.example.usermanagement.data.DedupeDao
+import com.example.usermanagement.data.DuplicatePair
 import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.data.UserContact
 import com.example.usermanagement.data.UserDao
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.data.UserName
+import com.example.usermanagement.data.UserStat
+import com.example.usermanagement.data.UserStats
+import com.example.usermanagement.database.DatabaseExecutors
+import com.example.usermanagement.database.DbPriority
+import com.example.usermanagement.database.SnapshotReader
+import com.example.usermanagement.dedupe.DuplicateCluster
+import com.example.usermanagement.dedupe.DuplicateDetector
+import com.example.usermanagement.filter.FilterPlan
+import com.example.usermanagement.filter.FilterPlanner
+import com.example.usermanagement.search.FuzzyNameIndex
+import com.example.usermanagement.search.Metaphone
+import com.example.usermanagement.search.TypeaheadIndex
+import com.example.usermanagement.search.UserSuggestion
+import com.example.usermanagement.sort.UserSection
+import com.example.usermanagement.sort.UserSections
+import com.example.usermanagement.sort.UserSort
+import com.example.usermanagement.trace.AppTrace
+import com.example.usermanagement.trace.traceFirstEmission
+import com.example.usermanagement.util.Result
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
-class UserRepositoryImpl(private val userDao: UserDao) : IUserRepository {
+/**
+ * Room-backed implementation of [IUserRepository].
+ * Reads run on the interactive reader lane of [executors] and writes on its serialized writer.
+ * Bulk operations use the background lanes, so a user's query or save never queues behind them; a save can still
+ * wait for the one background write that is already running, since all writes share the single writer.
+ * @param database The database providing the DAO and transactions for batch operations.
+ * @param executors The database execution layer; defaults to the process-wide [DatabaseExecutors.shared].
+ * @param externalScope Scope in which shared per-user flows are kept alive and background maintenance such as the
+ * duplicate detection started by [startDuplicateDetection] runs; outlives individual screens.
+ */
+class UserRepositoryImpl(
+    private val database: UserDatabase,
+    private val executors: DatabaseExecutors = DatabaseExecutors.shared,
+    private val externalScope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+) : IUserRepository {
+    private val userDao: UserDao = database.userDao()
+    private val dedupeDao: DedupeDao = database.dedupeDao()
+    private val snapshotReader = SnapshotReader(database)
+    private val filterPlanner = FilterPlanner()
+
+    /**
+     * Name index behind [fuzzySearch], loaded on first use and then kept current by every write below.
+     * Loading and all index updates happen on the serialized writer, so no write can fall between the two.
+     */
+    private val fuzzyIndex = FuzzyNameIndex()
+
+    @Volatile
+    private var isFuzzyIndexLoaded = false
+
+    /**
+     * Name and email prefix index behind [suggest], loaded and kept current like [fuzzyIndex].
+     */
+    private val typeaheadIndex = TypeaheadIndex()
+
+    @Volatile
+    private var isTypeaheadIndexLoaded = false
+
+    /**
+     * Gives users stored before the phonetic keys existed their keys, see [backfillPhoneticCodes].
+     * Started right away, so it normally finishes long before the first "sounds like" search. A failure is logged
+     * and leaves the remaining users without keys until the next start; searches keep working meanwhile.
+     */
+    private val phoneticBackfill: Job = externalScope.launch {
+        try {
+            backfillPhoneticCodes()
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.w(TAG, "Phonetic key backfill failed", e)
+        }
+    }
+
+    /**
+     * The running [DuplicateDetector], once [startDuplicateDetection] has been called.
+     */
+    private var duplicateDetection: Job? = null
+
     /**
      * Provides a [Flow] that emits a [List] of all [User] objects from the underlying data source.
-     * This property directly exposes the [UserDao.getAllUsers] flow.
+     * This property exposes the [UserDao.getAllUsers] flow, traced until its first result.
      */
-    override val allUsers: Flow<List<User>> = userDao.getAllUsers() as Flow<List<User>>
+    override val allUsers: Flow<List<User>> =
+        (userDao.getAllUsers() as Flow<List<User>>).traceFirstEmission("UserDao.getAllUsers")
+
+    /**
+     * Provides a [Flow] of the directory statistics from the trigger-maintained `user_stats` counters.
+     * Every write to the counters invalidates the query, so unchanged results are dropped before mapping.
+     */
+    override val stats: Flow<UserStats> =
+        (database.userStatsDao().observeStats() as Flow<List<UserStat>>)
+            .distinctUntilChanged()
+            .map { UserStats.from(it) }
+
+    /**
+     * Provides a [Flow] of the duplicate clusters from the pairs maintained by [DuplicateDetector].
+     * Pairs and users are observed separately, so a pair can briefly lack its users; [DuplicateCluster.from]
+     * leaves such pairs out until both arrive.
+     */
+    override val duplicateClusters: Flow<List<DuplicateCluster>> =
+        combine(
+            dedupeDao.observeOpenPairs() as Flow<List<DuplicatePair>>,
+            dedupeDao.observeUsersWithOpenPairs() as Flow<List<User>>
+        ) { pairs, users -> DuplicateCluster.from(pairs, users) }
+            .distinctUntilChanged()
+
+    /**
+     * Shared per-ID flows, so every observer of the same user reuses one primary key query.
+     * Bounded so rarely viewed users are evicted.
+     */
+    private val userFlowCache = LruCache<Long, SharedFlow<User?>>(MAX_CACHED_USER_FLOWS)
 
     /**
      * Retrieves a [User] by their unique [id] from the data source.
-     * The operation is performed on the IO dispatcher.
+     * The operation is performed on the interactive reader lane.
      * @param id The ID of the user to retrieve.
      * @return The [User] object if found, or `null` otherwise.
      */
     override suspend fun getUserById(id: Long): User? {
-        return withContext(Dispatchers.IO) {
-            userDao.getUserById(id)
+        return withContext(executors.read()) {
+            AppTrace.section("UserDao.getUserById") { userDao.getUserById(id) }
+        }
+    }
+
+    /**
+     * Observes a [User] by their unique [id] through a primary key query.
+     * The flow is shared and keeps its latest value for [USER_FLOW_STOP_TIMEOUT_MS] after the last
+     * subscriber leaves, so a brief warm-up subscription makes the next observer start instantly.
+     * @param id The ID of the user to observe.
+     * @return A [Flow] emitting the current [User], or `null` if no user has that ID.
+     */
+    override fun observeUserById(id: Long): Flow<User?> {
+        synchronized(userFlowCache) {
+            userFlowCache.get(id)?.let { return it }
+            val flow = (userDao.observeUserById(id) as Flow<User?>)
+                .distinctUntilChanged()
+                .shareIn(
+                    externalScope,
+                    SharingStarted.WhileSubscribed(
+                        stopTimeoutMillis = USER_FLOW_STOP_TIMEOUT_MS,
+                        replayExpirationMillis = 0
+                    ),
+                    replay = 1
+                )
+            userFlowCache.put(id, flow)
+            return flow
         }
     }
 
     /**
      * Inserts a new [User] into the data source.
-     * The operation is performed on the IO dispatcher.
+     * The operation is performed on the interactive writer lane.
      * @param user The [User] object to insert.
      * @return The ID of the newly inserted user.
      */
     override suspend fun insertUser(user: User): Long {
-        return withContext(Dispatchers.IO) {
-            userDao.insertUser(user) as Long
+        return withContext(executors.write()) {
+            val id = AppTrace.section("UserDao.insertUser") { userDao.insertUser(user) as Long }
+            indexNames { put(id, user.firstName, user.lastName) }
+            indexSuggestions { put(id, user.firstName, user.lastName, user.email) }
+            id
         }
     }
 
+    /**
+     * Outcome counters of [updateUser], showing how many writes were skipped or narrowed.
+     */
+    val updateCounters = UpdateCounters()
+
     /**
      * Updates an existing [User] in the data source.
-     * The operation is performed on the IO dispatcher.
+     * Only the columns that differ from the stored row are written, and unchanged users are not written at all,
+     * which avoids index maintenance and change notifications for untouched data.
+     * The operation is performed on the interactive writer lane.
      * @param user The [User] object to update.
      */
     override suspend fun updateUser(user: User) {
-        withContext(Dispatchers.IO) {
-            userDao.updateUser(user)
+        withContext(executors.write()) {
+            val changed = AppTrace.section("UserDao.updateChangedColumns") {
+                userDao.updateChangedColumns(user)?.also { updateCounters.record(it) }
+            }
+            if (changed != null && (UserColumn.FIRST_NAME in changed || UserColumn.LAST_NAME in changed)) {
+                indexNames { put(user.id, user.firstName, user.lastName) }
+            }
+            if (changed != null && changed.any { it in SUGGESTED_COLUMNS }) {
+                indexSuggestions { put(user.id, user.firstName, user.lastName, user.email) }
+            }
         }
     }
 
     /**
      * Deletes a [User] from the data source.
-     * The operation is performed on the IO dispatcher.
+     * The operation is performed on the interactive writer lane.
      * @param user The [User] object to delete.
      */
     override suspend fun deleteUser(user: User) {
-        withContext(Dispatchers.IO) {
-            userDao.deleteUser(user)
+        withContext(executors.write()) {
+            AppTrace.section("UserDao.deleteUser") { userDao.deleteUser(user) }
+            indexNames { remove(user.id) }
+            indexSuggestions { remove(user.id) }
         }
     }
 
+    /**
+     * Applies a chunk of mixed operations in a single transaction.
+     * Each operation is isolated: a failing operation is reported as [Result.Error] while the rest of the chunk is
+     * still committed. Adds and updates whose email belongs to another user are rejected before they are written.
+     * Any other failure leaves SQLite no choice but to roll the whole transaction back, because the DAO's nested
+     * transaction has marked it as failed, so the chunk is then applied again without the failed operation.
+     * Indexes and counters only see the writes of the transaction that committed.
+     * The operation is performed on the background writer lane, behind any queued interactive work.
+     * @param operations The operations to apply, in order.
+     * @return One [Result] per operation, in the same order.
+     */
+    override suspend fun applyBatch(operations: List<UserOperation>): List<Result<Unit>> {
+        return withContext(executors.write(DbPriority.BACKGROUND)) {
+            AppTrace.section("UserRepository.applyBatch") {
+                val failures = arrayOfNulls<Exception>(operations.size)
+                val afterCommit = ArrayList<() -> Unit>()
+                while (!tryApplyBatch(operations, failures, afterCommit)) afterCommit.clear()
+                afterCommit.forEach { it() }
+                failures.map { if (it == null) Result.Success(Unit) else Result.Error(it) }
+            }
+        }
+    }
+
+    /**
+     * Applies the operations of [applyBatch] that have no entry in [failures] yet, in one transaction, and collects
+     * the index and counter changes of their writes in [afterCommit].
+     * @return `true` if the transaction committed; `false` if an operation threw, in which case its exception is
+     * recorded in [failures] and nothing was written.
+     */
+    private fun tryApplyBatch(
+        operations: List<UserOperation>,
+        failures: Array<Exception?>,
+        afterCommit: MutableList<() -> Unit>
+    ): Boolean {
+        var current = -1
+        try {
+            database.runInTransaction(Runnable {
+                for ((index, operation) in operations.withIndex()) {
+                    if (failures[index] != null) continue
+                    current = index
+                    failures[index] = applyOperation(operation, afterCommit)
+                }
+                current = -1
+            })
+        } catch (e: Exception) {
+            if (current < 0) throw e
+            failures[current] = e
+            return false
+        }
+        return true
+    }
+
+    /**
+     * Writes one operation of [applyBatch] and adds the changes to apply once it is committed to [afterCommit].
+     * @return The reason the operation was rejected without writing, or `null` if it was written.
+     */
+    private fun applyOperation(operation: UserOperation, afterCommit: MutableList<() -> Unit>): Exception? {
+        val user = operation.user
+        when (operation) {
+            is UserOperation.Add -> {
+                if (userDao.getUserByEmail(user.email) != null) return emailInUse()
+                val id = userDao.insertUser(user)
+                afterCommit += {
+                    indexNames { put(id, user.firstName, user.lastName) }
+                    indexSuggestions { put(id, user.firstName, user.lastName, user.email) }
+                }
+            }
+            is UserOperation.Update -> {
+                val owner = userDao.getUserByEmail(user.email)
+                if (owner != null && owner.id != user.id) return emailInUse()
+                val changed = userDao.updateChangedColumns(user) ?: return null
+                afterCommit += {
+                    updateCounters.record(changed)
+                    if (UserColumn.FIRST_NAME in changed || UserColumn.LAST_NAME in changed) {
+                        indexNames { put(user.id, user.firstName, user.lastName) }
+                    }
+                    if (changed.any { it in SUGGESTED_COLUMNS }) {
+                        indexSuggestions { put(user.id, user.firstName, user.lastName, user.email) }
+                    }
+                }
+            }
+            is UserOperation.Delete -> {
+                userDao.deleteUser(user)
+                afterCommit += {
+                    indexNames { remove(user.id) }
+                    indexSuggestions { remove(user.id) }
+                }
+            }
+        }
+        return null
+    }
+
     /**
      * Searches for users whose first or last name matches the given [query].
-     * The operation is performed on the IO dispatcher by the underlying DAO.
+     * The query runs on the interactive reader lane, which Room uses for observed queries.
      * @param query The search string.
      * @return A [Flow] emitting a [List] of [User] objects that match the query.
      */
     override fun searchUsers(query: String): Flow<List<User>> {
-        return userDao.searchUsers(query) as Flow<List<User>>
+        return (userDao.searchUsers(query) as Flow<List<User>>).traceFirstEmission("UserDao.searchUsers")
     }
 
     /**
      * Retrieves a [User] by their email from the data source.
-     * The operation is performed on the IO dispatcher.
+     * The operation is performed on the interactive reader lane.
      * @param email The email of the user to retrieve.
      * @return The [User] object if found, or `null` otherwise.
      */
     override suspend fun getUserByEmail(email: String): User? {
-        return withContext(Dispatchers.IO) {
-            userDao.getUserByEmail(email)
+        return withContext(executors.read()) {
+            AppTrace.section("UserDao.getUserByEmail") { userDao.getUserByEmail(email) }
+        }
+    }
+
+    /**
+     * Retrieves the matching IDs with a single-column query, so no [User] objects are created.
+     * The operation is performed on the interactive reader lane.
+     * @param query The search string; blank matches every user.
+     * @return The IDs of the matching users.
+     */
+    override suspend fun getUserIds(query: String): LongArray {
+        return withContext(executors.read()) {
+            AppTrace.section("UserDao.getUserIds") {
+                if (query.isBlank()) userDao.getAllUserIds() else userDao.searchUserIds(query)
+            }
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Deletes the users with `DELETE ... WHERE id IN (...)` statements, chunked within one transaction.
+     * The operation is performed on the background writer lane, behind any queued interactive work.
+     * @param ids The IDs of the users to delete.
+     * @return The number of deleted users.
+     */
+    override suspend fun deleteUsersByIds(ids: LongArray): Int {
+        if (ids.isEmpty()) return 0
+        return withContext(executors.write(DbPriority.BACKGROUND)) {
+            val deleted = AppTrace.section("UserDao.deleteUsersByIds") { userDao.deleteUsersByIdsChunked(ids) }
+            indexNames { remove(*ids) }
+            indexSuggestions { remove(*ids) }
+            deleted
+        }
+    }
+
+    /**
+     * Updates the users with `UPDATE ... WHERE id IN (...)` statements, chunked within one transaction.
+     * The operation is performed on the background writer lane, behind any queued interactive work.
+     * @param ids The IDs of the users to update.
+     * @param column The column to set.
+     * @param value The new value of the column.
+     * @return The number of updated users.
+     */
+    override suspend fun updateColumnForIds(ids: LongArray, column: UserColumn, value: String): Int {
+        if (ids.isEmpty()) return 0
+        return withContext(executors.write(DbPriority.BACKGROUND)) {
+            val updated = AppTrace.section("UserDao.updateColumnForIds") {
+                userDao.updateColumnForIdsChunked(ids, column, value)
+            }
+            when (column) {
+                UserColumn.FIRST_NAME -> {
+                    indexNames { setFirstName(ids, value) }
+                    indexSuggestions { setFirstName(ids, value) }
+                }
+                UserColumn.LAST_NAME -> {
+                    indexNames { setLastName(ids, value) }
+                    indexSuggestions { setLastName(ids, value) }
+                }
+                else -> Unit
+            }
+            updated
+        }
+    }
+
+    /**
+     * Inserts the users with one prepared statement in a single transaction.
+     * The operation is performed on the background writer lane, behind any queued interactive work.
+     * @param users The users to insert.
+     * @return The number of inserted users; users with an existing email are skipped.
+     */
+    override suspend fun insertUsers(users: List<User>): Int {
+        if (users.isEmpty()) return 0
+        return withContext(executors.write(DbPriority.BACKGROUND)) {
+            val ids = AppTrace.section("UserDao.insertUsers") { userDao.insertUsers(users) }
+            indexNames {
+                putAll(users.indices.filter { ids[it] != -1L }.map { UserName(ids[it], users[it].firstName, users[it].lastName) })
+            }
+            indexSuggestions {
+                putAll(users.indices.filter { ids[it] != -1L }.map {
+                    UserContact(ids[it], users[it].firstName, users[it].lastName, users[it].email)
+                })
+            }
+            ids.count { it != -1L }
+        }
+    }
+
+    /**
+     * Runs the reads in one SQLite read transaction; see [SnapshotReader] for how this avoids waiting on writers.
+     * The operation is performed on the interactive reader lane.
+     * @param block The reads to run.
+     * @return The result of [block].
+     */
+    override suspend fun <T> readSnapshot(block: (UserSnapshot) -> T): T {
+        return withContext(executors.read()) {
+            AppTrace.section("UserRepository.readSnapshot") { snapshotReader.read(block) }
+        }
+    }
+
+    /**
+     * Dismisses every pair among the users in one statement.
+     * The operation is performed on the interactive writer lane.
+     * @param userIds The users; at most [UserDao.MAX_IDS_PER_STATEMENT] / 2, far more than a cluster holds.
+     * @return The number of pairs dismissed.
+     */
+    override suspend fun dismissDuplicates(userIds: LongArray): Int {
+        if (userIds.size < 2) return 0
+        return withContext(executors.write()) {
+            AppTrace.section("DedupeDao.dismissPairs") { dedupeDao.dismissPairs(userIds) }
+        }
+    }
+
+    /**
+     * Runs a [DuplicateDetector] in [externalScope]. A failure is logged and stops the detection until the next
+     * start; the queued changes stay queued and are processed then.
+     */
+    @Synchronized
+    override fun startDuplicateDetection() {
+        if (duplicateDetection != null) return
+        duplicateDetection = externalScope.launch {
+            try {
+                DuplicateDetector(database, executors).run()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.w(TAG, "Duplicate detection failed", e)
+            }
+        }
+    }
+
+    /**
+     * Ranks users by name with [FuzzyNameIndex], loading the index on the interactive writer lane on first use.
+     * The search runs on the interactive reader lane and is repeated whenever a write changes any name; the
+     * matching rows are observed by primary key, so edits of other columns show up without searching again.
+     * @param query The search string.
+     * @param limit The maximum number of results.
+     * @return A [Flow] emitting the best matches, best first.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    override fun fuzzySearch(query: String, limit: Int): Flow<List<User>> {
+        return flow {
+            loadFuzzyIndex()
+            emitAll(fuzzyIndex.version.flatMapLatest {
+                val matches = withContext(executors.read()) {
+                    AppTrace.section("FuzzyNameIndex.search") { fuzzyIndex.search(query, limit) }
+                }
+                if (matches.isEmpty()) {
+                    flowOf(emptyList())
+                } else {
+                    val ids = LongArray(matches.size) { matches[it].userId }
+                    (userDao.observeUsersByIds(ids) as Flow<List<User>>).map { users ->
+                        val byId = users.associateBy { it.id }
+                        matches.mapNotNull { byId[it.userId] }
+                    }
+                }
+            })
+        }.traceFirstEmission("UserRepository.fuzzySearch")
+    }
+
+    /**
+     * Finds users by the sound of their names through the indexed phonetic keys; nothing is encoded per row.
+     * Waits for [phoneticBackfill] first, so users stored before the keys existed are found as well; if it failed,
+     * only the users it had not reached yet are missing.
+     * The query runs on the interactive reader lane, which Room uses for observed queries.
+     * @param query The search string.
+     * @return A [Flow] emitting the matching users whenever the users change.
+     */
+    override fun soundsLike(query: String): Flow<List<User>> {
+        val codes = Metaphone.encodeWords(query)
+        if (codes.isEmpty()) return flowOf(emptyList())
+        return flow {
+            phoneticBackfill.join()
+            val matches = if (codes.size == 1) {
+                userDao.searchBySoundOfName(codes[0])
+            } else {
+                userDao.searchBySoundOfFullName(codes)
+            }
+            emitAll(matches as Flow<List<User>>)
+        }.traceFirstEmission("UserDao.searchBySound")
+    }
+
+    /**
+     * Filters users with the SQL of the expression's cached [FilterPlanner] plan, whose name, phone and date of
+     * birth terms are index lookups. Runs on the interactive reader lane, which Room uses for observed queries.
+     * Age terms are bound to the current day and bound again at midnight, so an open result never keeps
+     * yesterday's ages.
+     * @param expression The filter expression.
+     * @return A [Flow] emitting the matching users whenever the users change.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    override fun filterUsers(expression: String): Flow<List<User>> {
+        val plan = filterPlanner.plan(expression)
+        val users = if (plan.dependsOnToday) {
+            FilterPlan.days().flatMapLatest { today -> userDao.filterUsers(plan.toQuery(today)) as Flow<List<User>> }
+        } else {
+            userDao.filterUsers(plan.toQuery()) as Flow<List<User>>
+        }
+        return users.traceFirstEmission("UserDao.filterUsers")
+    }
+
+    /**
+     * Completes [text] from the in-memory [typeaheadIndex], so no query runs per keystroke; the index is loaded by
+     * [prepareSuggestions] or else on the first call. The lookup runs on [Dispatchers.Default] rather than the
+     * reader lane, where it could queue behind a long list query and miss the frame.
+     * @param text The typed text.
+     * @param limit The maximum number of suggestions.
+     * @return The suggestions, best first.
+     */
+    override suspend fun suggest(text: String, limit: Int): List<UserSuggestion> {
+        if (text.isBlank()) return emptyList()
+        loadTypeaheadIndex()
+        return withContext(Dispatchers.Default) {
+            AppTrace.section("TypeaheadIndex.suggest") { typeaheadIndex.suggest(text, limit) }
+        }
+    }
+
+    /**
+     * Loads the [typeaheadIndex] if it is not loaded yet.
+     */
+    override suspend fun prepareSuggestions() = loadTypeaheadIndex()
+
+    /**
+     * Builds the sections from the trigger-maintained initial or birth year counters of [sort], so neither the
+     * first emission nor the updates after a write read the users table.
+     * @param sort The order.
+     * @return A [Flow] emitting the sections whenever their counts change.
+     */
+    override fun observeSections(sort: UserSort): Flow<List<UserSection>> =
+        (database.userStatsDao().observeStatsOfKind(UserSections.kindOf(sort)) as Flow<List<UserStat>>)
+            .distinctUntilChanged()
+            .map { UserSections.fromCounters(sort, it) }
+
+    /**
+     * Encodes the users without phonetic keys in chunks of [UserDao.PHONETICS_BACKFILL_CHUNK], one transaction
+     * each on the background writer lane, so queued interactive writes run between the chunks.
+     * Only needed once after the upgrade that added the keys; afterwards it finds nothing to do in one query.
+     */
+    private suspend fun backfillPhoneticCodes() {
+        var afterId = 0L
+        while (afterId >= 0) {
+            afterId = withContext(executors.write(DbPriority.BACKGROUND)) {
+                AppTrace.section("UserDao.backfillPhoneticsChunk") { userDao.backfillPhoneticsChunk(afterId) }
+            }
+        }
+    }
+
+    private suspend fun loadFuzzyIndex() {
+        if (isFuzzyIndexLoaded) return
+        withContext(executors.write()) {
+            if (!isFuzzyIndexLoaded) {
+                AppTrace.section("UserRepository.loadFuzzyIndex") { fuzzyIndex.putAll(userDao.getAllUserNames()) }
+                isFuzzyIndexLoaded = true
+            }
+        }
+    }
+
+    /**
+     * Loads the [typeaheadIndex] on the background writer lane: the full contact scan must not hold up the user's
+     * saves, and a keystroke arriving meanwhile waits for the one load rather than starting another.
+     */
+    private suspend fun loadTypeaheadIndex() {
+        if (isTypeaheadIndexLoaded) return
+        withContext(executors.write(DbPriority.BACKGROUND)) {
+            if (!isTypeaheadIndexLoaded) {
+                AppTrace.section("UserRepository.loadTypeaheadIndex") {
+                    typeaheadIndex.putAll(userDao.getAllUserContacts())
+                }
+                isTypeaheadIndexLoaded = true
+            }
+        }
+    }
+
+    /**
+     * Applies [change] to the fuzzy index if it is loaded; an index loaded later reads the committed rows anyway.
+     * Must run on the writer, after the change has been committed.
+     */
+    private inline fun indexNames(change: FuzzyNameIndex.() -> Unit) {
+        if (isFuzzyIndexLoaded) fuzzyIndex.change()
+    }
+
+    /**
+     * Applies [change] to the typeahead index if it is loaded, like [indexNames].
+     */
+    private inline fun indexSuggestions(change: TypeaheadIndex.() -> Unit) {
+        if (isTypeaheadIndexLoaded) typeaheadIndex.change()
+    }
+
+    companion object {
+        private const val TAG = "UserRepositoryImpl"
+        private const val MAX_CACHED_USER_FLOWS = 64
+        private const val USER_FLOW_STOP_TIMEOUT_MS = 5_000L
+
+        /**
+         * Columns shown or matched by the suggestions.
+         */
+        private val SUGGESTED_COLUMNS = setOf(UserColumn.FIRST_NAME, UserColumn.LAST_NAME, UserColumn.EMAIL)
+
+        /**
+         * The error the unique email index would raise, reported without attempting the write.
+         */
+        private fun emailInUse() = SQLiteConstraintException("UNIQUE constraint failed: users.email")
+    }
+}
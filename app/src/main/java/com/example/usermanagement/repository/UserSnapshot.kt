@@ -0,0 +1,27 @@
+package com.example.usermanagement.repository
+
+import com.example.usermanagement.data.User
+
+/**
+ * Read access to one consistent state of the users, for screens that combine several queries.
+ * Every call on the same snapshot sees the same data, regardless of writes committed meanwhile.
+ * Only valid inside the block passed to [IUserRepository.readSnapshot].
+ */
+interface UserSnapshot {
+    /**
+     * The users matching [query] with the same criteria as [IUserRepository.searchUsers].
+     * @param query The search string; blank matches every user.
+     */
+    fun users(query: String = ""): List<User>
+
+    /**
+     * The number of users matching [query], without loading them.
+     * @param query The search string; blank counts every user.
+     */
+    fun count(query: String = ""): Int
+
+    /**
+     * The user with the given [id], or `null` if there is none.
+     */
+    fun userById(id: Long): User?
+}
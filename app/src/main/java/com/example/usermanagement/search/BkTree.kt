@@ -0,0 +1,62 @@
+package com.example.usermanagement.search
+
+/**
+ * Burkhard-Keller tree over distinct name tokens under [EditDistance.levenshtein].
+ * Each child is keyed by its distance to the parent, so by the triangle inequality a search with radius r only
+ * descends into children keyed within r of the query's distance to the parent, visiting a small part of the tree.
+ * Tokens cannot be removed; [FuzzyNameIndex] skips tokens no user has any more and rebuilds the tree when
+ * they pile up. Not thread-safe.
+ */
+internal class BkTree {
+    private class Node(val token: String) {
+        var children: HashMap<Int, Node>? = null
+    }
+
+    private var root: Node? = null
+
+    /**
+     * The number of tokens in the tree.
+     */
+    var size: Int = 0
+        private set
+
+    /**
+     * Adds [token] unless it is already present.
+     */
+    fun add(token: String) {
+        var node = root ?: run {
+            root = Node(token)
+            size++
+            return
+        }
+        while (true) {
+            val distance = EditDistance.levenshtein(token, node.token)
+            if (distance == 0) return
+            val children = node.children ?: HashMap<Int, Node>().also { node.children = it }
+            val child = children[distance]
+            if (child == null) {
+                children[distance] = Node(token)
+                size++
+                return
+            }
+            node = child
+        }
+    }
+
+    /**
+     * Calls [action] with every token within [radius] edits of [query] and its distance.
+     */
+    fun search(query: String, radius: Int, action: (token: String, distance: Int) -> Unit) {
+        val pending = ArrayDeque<Node>()
+        root?.let { pending.addLast(it) }
+        while (pending.isNotEmpty()) {
+            val node = pending.removeLast()
+            val distance = EditDistance.levenshtein(query, node.token)
+            if (distance <= radius) action(node.token, distance)
+            val children = node.children ?: continue
+            for (edge in (distance - radius).coerceAtLeast(1)..distance + radius) {
+                children[edge]?.let { pending.addLast(it) }
+            }
+        }
+    }
+}
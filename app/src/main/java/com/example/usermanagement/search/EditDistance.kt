@@ -0,0 +1,52 @@
+package com.example.usermanagement.search
+
+/**
+ * Edit distances over normalized name tokens.
+ */
+internal object EditDistance {
+    /**
+     * Levenshtein distance: the minimum number of single character insertions, deletions and substitutions.
+     * A metric, which [BkTree] relies on to prune.
+     */
+    fun levenshtein(a: String, b: String): Int {
+        if (a == b) return 0
+        if (a.isEmpty()) return b.length
+        if (b.isEmpty()) return a.length
+        var previous = IntArray(b.length + 1) { it }
+        var current = IntArray(b.length + 1)
+        for (i in 1..a.length) {
+            current[0] = i
+            for (j in 1..b.length) {
+                val cost = if (a[i - 1] == b[j - 1]) 0 else 1
+                current[j] = minOf(previous[j] + 1, current[j - 1] + 1, previous[j - 1] + cost)
+            }
+            val swap = previous
+            previous = current
+            current = swap
+        }
+        return previous[b.length]
+    }
+
+    /**
+     * Optimal string alignment distance: Levenshtein plus transpositions of adjacent characters, so the
+     * typical typo "jonh" is one edit away from "john" instead of two. Never larger than [levenshtein].
+     * Not a metric, so it only ranks candidates found with [levenshtein].
+     */
+    fun optimalStringAlignment(a: String, b: String): Int {
+        if (a == b) return 0
+        val d = Array(a.length + 1) { IntArray(b.length + 1) }
+        for (i in 0..a.length) d[i][0] = i
+        for (j in 0..b.length) d[0][j] = j
+        for (i in 1..a.length) {
+            for (j in 1..b.length) {
+                val cost = if (a[i - 1] == b[j - 1]) 0 else 1
+                var best = minOf(d[i - 1][j] + 1, d[i][j - 1] + 1, d[i - 1][j - 1] + cost)
+                if (i > 1 && j > 1 && a[i - 1] == b[j - 2] && a[i - 2] == b[j - 1]) {
+                    best = minOf(best, d[i - 2][j - 2] + 1)
+                }
+                d[i][j] = best
+            }
+        }
+        return d[a.length][b.length]
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.usermanagement.search
+
+import com.example.usermanagement.data.UserName
+import com.example.usermanagement.util.LongIdSet
+import com.example.usermanagement.util.TopK
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import java.util.TreeMap
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+import kotlin.math.abs
+
+/**
+ * How a query term matched a name token, best first.
+ */
+enum class MatchKind {
+    /** The token equals the term. */
+    EXACT,
+
+    /** The token starts with the term. */
+    PREFIX,
+
+    /** The token is within the term's edit budget, see [FuzzyNameIndex.maxEdits]. */
+    FUZZY
+}
+
+/**
+ * One ranked result of [FuzzyNameIndex.search]. For multi-word queries the fields combine every term:
+ * [kind] is the worst term's kind, [distance] and [lengthDifference] are sums.
+ * @property userId The ID of the matching user.
+ * @property kind How the user matched.
+ * @property distance The edit distance of fuzzy matches, counting adjacent transpositions as one edit; 0 otherwise.
+ * @property lengthDifference How much longer or shorter the matched tokens are than the terms.
+ */
+data class NameMatch(val userId: Long, val kind: MatchKind, val distance: Int, val lengthDifference: Int)
+
+/**
+ * In-memory index of user first and last names for typo-tolerant search.
+ *
+ * Names are split into normalized tokens with posting sets of user IDs. Exact and prefix candidates come from a
+ * sorted token map; fuzzy candidates from a [BkTree] searched with a Levenshtein radius of [maxEdits]. Candidate
+ * tokens are visited in rank order and their users offered to a bounded [TopK] heap, which stops as soon as no
+ * remaining token can beat the worst kept result, so a search costs far less than ranking every user.
+ *
+ * The index is maintained incrementally with [put], [setFirstName], [setLastName] and [remove]; each change
+ * increments [version]. Thread-safe: searches share a read lock, changes take the write lock.
+ */
+class FuzzyNameIndex {
+    private class Entry(val firstName: Array<String>, val lastName: Array<String>)
+
+    private class TokenMatch(val token: String, val kind: MatchKind, val distance: Int, val lengthDifference: Int)
+
+    private val lock = ReentrantReadWriteLock()
+    private val postings = TreeMap<String, LongIdSet>()
+    private val entries = HashMap<Long, Entry>()
+    private var tree = BkTree()
+    private val _version = MutableStateFlow(0L)
+
+    /**
+     * Incremented on every change of the indexed names, so observers know when to search again.
+     */
+    val version: StateFlow<Long> = _version.asStateFlow()
+
+    /**
+     * The number of indexed users.
+     */
+    val size: Int
+        get() = lock.read { entries.size }
+
+    /**
+     * Indexes or re-indexes the names of one user.
+     */
+    fun put(id: Long, firstName: String, lastName: String) {
+        lock.write {
+            putLocked(id, tokens(firstName), tokens(lastName))
+            changed()
+        }
+    }
+
+    /**
+     * Indexes many users with a single [version] change, e.g. when loading the index.
+     * @param names The names to index.
+     */
+    fun putAll(names: Iterable<UserName>) {
+        lock.write {
+            for (name in names) putLocked(name.id, tokens(name.firstName), tokens(name.lastName))
+            changed()
+        }
+    }
+
+    /**
+     * Replaces the first name of the given users, keeping their last names; unknown IDs are ignored.
+     */
+    fun setFirstName(ids: LongArray, firstName: String) {
+        val tokens = tokens(firstName)
+        lock.write {
+            for (id in ids) entries[id]?.let { putLocked(id, tokens, it.lastName) }
+            changed()
+        }
+    }
+
+    /**
+     * Replaces the last name of the given users, keeping their first names; unknown IDs are ignored.
+     */
+    fun setLastName(ids: LongArray, lastName: String) {
+        val tokens = tokens(lastName)
+        lock.write {
+            for (id in ids) entries[id]?.let { putLocked(id, it.firstName, tokens) }
+            changed()
+        }
+    }
+
+    /**
+     * Removes the given users from the index; unknown IDs are ignored.
+     */
+    fun remove(vararg ids: Long) {
+        lock.write {
+            for (id in ids) entries.remove(id)?.let { unpost(id, it) }
+            changed()
+        }
+    }
+
+    /**
+     * Finds the users whose names best match [query]. Every query word must match a first or last name token:
+     * exactly, as a prefix, or within [maxEdits] edits. Results rank exact before prefix before fuzzy matches,
+     * then by fewer edits, then by closer token length, then by ID.
+     * @param query The search text; blank finds nothing.
+     * @param limit The maximum number of results.
+     * @return At most [limit] matches, best first.
+     */
+    fun search(query: String, limit: Int = DEFAULT_LIMIT): List<NameMatch> {
+        val terms = NameTokens.tokenize(query).distinct()
+        if (terms.isEmpty() || limit <= 0) return emptyList()
+        lock.read {
+            // Drive the search with the most selective term; the others are checked per candidate.
+            val candidates = terms.associateWith { exactAndPrefixTokens(it) }
+            val driving = terms.minBy { term -> candidates.getValue(term).sumOf { postings[it.token]?.size ?: 0 } }
+            val top = TopK(limit, RANKING)
+            val seen = LongIdSet()
+            if (offer(candidates.getValue(driving), terms, top, seen)) {
+                offer(fuzzyTokens(driving), terms, top, seen)
+            }
+            return top.sorted()
+        }
+    }
+
+    /**
+     * Offers the users of [tokens], which must be sorted by rank, until no further token can improve [top].
+     * @return `false` if the search stopped early.
+     */
+    private fun offer(tokens: List<TokenMatch>, terms: List<String>, top: TopK<NameMatch>, seen: LongIdSet): Boolean {
+        for (candidate in tokens) {
+            val worst = top.worst()
+            // Users not seen yet match the driving term no better than this token, and adding the other
+            // terms can only make their rank worse, so none of them can beat the worst kept result.
+            if (top.isFull && worst != null && compareRank(candidate, worst) > 0) return false
+            postings[candidate.token]?.forEach { id ->
+                if (seen.add(id)) match(id, terms)?.let { top.offer(it) }
+            }
+        }
+        return true
+    }
+
+    private fun exactAndPrefixTokens(term: String): List<TokenMatch> {
+        val matches = ArrayList<TokenMatch>()
+        if (postings.containsKey(term)) matches += TokenMatch(term, MatchKind.EXACT, 0, 0)
+        for (token in postings.subMap(term, false, term + Char.MAX_VALUE, false).keys) {
+            matches += TokenMatch(token, MatchKind.PREFIX, 0, token.length - term.length)
+        }
+        matches.sortWith(TOKEN_RANKING)
+        return matches
+    }
+
+    private fun fuzzyTokens(term: String): List<TokenMatch> {
+        val matches = ArrayList<TokenMatch>()
+        val radius = maxEdits(term)
+        if (radius == 0) return matches
+        tree.search(term, radius) { token, _ ->
+            // Tokens no user has any more stay in the tree until the next compaction.
+            if (postings.containsKey(token) && !token.startsWith(term)) {
+                matches += fuzzyMatch(term, token)
+            }
+        }
+        matches.sortWith(TOKEN_RANKING)
+        return matches
+    }
+
+    /**
+     * Combines the best match of every term against the tokens of user [id], or `null` if a term matches none.
+     */
+    private fun match(id: Long, terms: List<String>): NameMatch? {
+        val entry = entries[id] ?: return null
+        var kind = MatchKind.EXACT
+        var distance = 0
+        var lengthDifference = 0
+        for (term in terms) {
+            var best: TokenMatch? = null
+            for (tokens in arrayOf(entry.firstName, entry.lastName)) {
+                for (token in tokens) {
+                    val candidate = matchToken(term, token) ?: continue
+                    if (best == null || TOKEN_RANKING.compare(candidate, best) < 0) best = candidate
+                }
+            }
+            if (best == null) return null
+            if (best.kind > kind) kind = best.kind
+            distance += best.distance
+            lengthDifference += best.lengthDifference
+        }
+        return NameMatch(id, kind, distance, lengthDifference)
+    }
+
+    private fun matchToken(term: String, token: String): TokenMatch? = when {
+        token == term -> TokenMatch(token, MatchKind.EXACT, 0, 0)
+        token.startsWith(term) -> TokenMatch(token, MatchKind.PREFIX, 0, token.length - term.length)
+        abs(token.length - term.length) <= maxEdits(term) &&
+            EditDistance.levenshtein(term, token) <= maxEdits(term) -> fuzzyMatch(term, token)
+        else -> null
+    }
+
+    private fun fuzzyMatch(term: String, token: String) = TokenMatch(
+        token,
+        MatchKind.FUZZY,
+        EditDistance.optimalStringAlignment(term, token),
+        abs(token.length - term.length)
+    )
+
+    private fun putLocked(id: Long, firstName: Array<String>, lastName: Array<String>) {
+        val previous = entries[id]
+        if (previous != null) unpost(id, previous)
+        entries[id] = Entry(firstName.map { post(it, id) }.toTypedArray(), lastName.map { post(it, id) }.toTypedArray())
+    }
+
+    /**
+     * Adds [id] to the postings of [token] and returns the index's own instance of the token string,
+     * so users sharing a name share one string.
+     */
+    private fun post(token: String, id: Long): String {
+        val ids = postings[token]
+        if (ids != null) {
+            ids.add(id)
+            return postings.ceilingKey(token)
+        }
+        postings[token] = LongIdSet().apply { add(id) }
+        tree.add(token)
+        return token
+    }
+
+    private fun unpost(id: Long, entry: Entry) {
+        for (tokens in arrayOf(entry.firstName, entry.lastName)) {
+            for (token in tokens) {
+                val ids = postings[token] ?: continue
+                ids.remove(id)
+                if (ids.isEmpty()) postings.remove(token)
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the tree once tokens no user has any more make up most of it, then publishes the change.
+     */
+    private fun changed() {
+        if (tree.size > postings.size * 2 + COMPACTION_SLACK) {
+            tree = BkTree().apply { postings.keys.forEach { add(it) } }
+        }
+        _version.value = _version.value + 1
+    }
+
+    companion object {
+        /**
+         * Default number of results of [search].
+         */
+        const val DEFAULT_LIMIT = 50
+
+        /**
+         * Tokens that may be dropped from the tree before it is rebuilt, beyond the number of live tokens.
+         */
+        private const val COMPACTION_SLACK = 1_024
+
+        private val RANKING: Comparator<NameMatch> = compareBy<NameMatch>(
+            { it.kind }, { it.distance }, { it.lengthDifference }, { it.userId }
+        )
+
+        private val TOKEN_RANKING: Comparator<TokenMatch> = compareBy<TokenMatch>(
+            { it.kind }, { it.distance }, { it.lengthDifference }, { it.token }
+        )
+
+        /**
+         * The number of edits a fuzzy match of [term] may need: none below 3 characters, where nearly every
+         * token would match, one for 3 characters and two from 4 characters on.
+         */
+        fun maxEdits(term: String): Int = when {
+            term.length < 3 -> 0
+            term.length == 3 -> 1
+            else -> 2
+        }
+
+        private fun tokens(name: String): Array<String> = NameTokens.tokenize(name).distinct().toTypedArray()
+
+        private fun compareRank(token: TokenMatch, match: NameMatch): Int = when {
+            token.kind != match.kind -> token.kind.compareTo(match.kind)
+            token.distance != match.distance -> token.distance.compareTo(match.distance)
+            else -> token.lengthDifference.compareTo(match.lengthDifference)
+        }
+    }
+}
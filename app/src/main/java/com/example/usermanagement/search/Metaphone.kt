@@ -0,0 +1,121 @@
+package com.example.usermanagement.search
+
+import java.util.Locale
+
+/**
+ * Phonetic key of a name after Lawrence Philips' original Metaphone, so names that sound alike share a key:
+ * "Smith" and "Smyth" both encode to `SM0`, "Catherine" and "Kathryn" both to `K0RN`.
+ * Vowels only count at the start of a key and `0` stands for "th".
+ */
+object Metaphone {
+    /**
+     * Longest key produced; longer names share the key of their first sounds.
+     */
+    const val MAX_LENGTH = 6
+
+    /**
+     * Encodes [name] as one word: accents and apostrophes are dropped, so are digits and separators,
+     * which makes "Mary-Ann" and "Maryann" encode alike.
+     * @return The key, or an empty string if [name] has no Latin letters.
+     */
+    @JvmStatic
+    fun encode(name: String): String {
+        val letters = NameTokens.tokenize(name).joinToString("").uppercase(Locale.ROOT).filter { it in 'A'..'Z' }
+        return encodeLetters(letters)
+    }
+
+    /**
+     * Encodes every word of [query] separately, for searches naming first and last name at once.
+     * @return The distinct non-empty keys, in order.
+     */
+    fun encodeWords(query: String): List<String> =
+        NameTokens.tokenize(query).map { encode(it) }.filter { it.isNotEmpty() }.distinct()
+
+    private fun encodeLetters(input: String): String {
+        if (input.isEmpty()) return ""
+        val word = when {
+            input.startsWith("AE") -> input.substring(1)
+            input.length > 1 && input.substring(0, 2) in SILENT_FIRST_LETTER -> input.substring(1)
+            input.startsWith("WH") -> "W" + input.substring(2)
+            input[0] == 'X' -> "S" + input.substring(1)
+            else -> input
+        }
+        val key = StringBuilder(MAX_LENGTH + 1)
+        var i = 0
+        while (i < word.length && key.length < MAX_LENGTH) {
+            val c = word[i]
+            val previous = word.getOrNull(i - 1)
+            val next = word.getOrNull(i + 1)
+            val afterNext = word.getOrNull(i + 2)
+            if (c == previous && c != 'C') {
+                i++
+                continue
+            }
+            when (c) {
+                'A', 'E', 'I', 'O', 'U' -> if (i == 0) key.append(c)
+                'B' -> if (!(previous == 'M' && i == word.length - 1)) key.append('B')
+                'C' -> when {
+                    previous == 'S' && next in FRONT_VOWELS -> Unit
+                    next == 'I' && afterNext == 'A' -> key.append('X')
+                    next in FRONT_VOWELS -> key.append('S')
+                    previous == 'S' && next == 'H' -> {
+                        key.append('K')
+                        i++
+                    }
+                    next == 'H' -> {
+                        key.append('X')
+                        i++
+                    }
+                    else -> key.append('K')
+                }
+                'D' -> if (next == 'G' && afterNext in FRONT_VOWELS) {
+                    key.append('J')
+                    i += 2
+                } else {
+                    key.append('T')
+                }
+                'G' -> when {
+                    next == 'H' && afterNext != null && afterNext !in VOWELS -> Unit
+                    next == 'N' && (afterNext == null || word.startsWith("ED", i + 2) && i + 4 == word.length) -> Unit
+                    next in FRONT_VOWELS && previous != 'G' -> key.append('J')
+                    else -> key.append('K')
+                }
+                'H' -> if (previous !in SILENCING_H && (previous !in VOWELS || next in VOWELS)) key.append('H')
+                'K' -> if (previous != 'C') key.append('K')
+                'P' -> key.append(if (next == 'H') 'F' else 'P')
+                'Q' -> key.append('K')
+                'S' -> when {
+                    next == 'H' -> {
+                        key.append('X')
+                        i++
+                    }
+                    next == 'I' && (afterNext == 'O' || afterNext == 'A') -> key.append('X')
+                    else -> key.append('S')
+                }
+                'T' -> when {
+                    next == 'I' && (afterNext == 'O' || afterNext == 'A') -> key.append('X')
+                    next == 'H' -> {
+                        key.append('0')
+                        i++
+                    }
+                    next == 'C' && afterNext == 'H' -> Unit
+                    else -> key.append('T')
+                }
+                'V' -> key.append('F')
+                'W', 'Y' -> if (next in VOWELS) key.append(c)
+                'X' -> key.append("KS")
+                'Z' -> key.append('S')
+                else -> key.append(c)
+            }
+            i++
+        }
+        return if (key.length > MAX_LENGTH) key.substring(0, MAX_LENGTH) else key.toString()
+    }
+
+    private const val VOWELS = "AEIOU"
+    private const val FRONT_VOWELS = "EIY"
+    private const val SILENCING_H = "CGPST"
+    private val SILENT_FIRST_LETTER = setOf("GN", "KN", "PN", "WR")
+
+    private operator fun String.contains(c: Char?): Boolean = c != null && indexOf(c) >= 0
+}
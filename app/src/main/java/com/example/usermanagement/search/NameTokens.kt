@@ -0,0 +1,23 @@
+package com.example.usermanagement.search
+
+import java.text.Normalizer
+import java.util.Locale
+
+/**
+ * Splits names and queries into normalized tokens, so "José O'Brien-Smith" and "jose obrien smith" match.
+ */
+internal object NameTokens {
+    private val APOSTROPHES = Regex("['’]")
+    private val COMBINING_MARKS = Regex("\\p{Mn}+")
+    private val SEPARATORS = Regex("[^\\p{L}\\p{Nd}]+")
+
+    /**
+     * Lower-cases [text], strips accents and apostrophes, and splits it on everything but letters and digits.
+     * @return The non-empty tokens, in order.
+     */
+    fun tokenize(text: String): List<String> {
+        val decomposed = Normalizer.normalize(text.lowercase(Locale.ROOT), Normalizer.Form.NFD)
+        val folded = COMBINING_MARKS.replace(APOSTROPHES.replace(decomposed, ""), "")
+        return folded.split(SEPARATORS).filter { it.isNotEmpty() }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.usermanagement.search
+
+import com.example.usermanagement.data.UserContact
+import com.example.usermanagement.util.LongIdSet
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import java.util.Locale
+import java.util.TreeMap
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * One typeahead completion: a user whose name or email starts with the typed text.
+ * @property userId The ID of the user.
+ * @property fullName The user's first and last name.
+ * @property email The user's email.
+ * @property matchedEmail `true` if the text completes the email rather than a name.
+ */
+data class UserSuggestion(val userId: Long, val fullName: String, val email: String, val matchedEmail: Boolean)
+
+/**
+ * In-memory prefix index of user names and emails for search bar suggestions.
+ *
+ * Every first and last name token, the whole normalized name and the lower-cased email are keys of sorted maps
+ * with posting sets of user IDs, so completing a prefix is one range lookup that stops after [DEFAULT_LIMIT]
+ * users, however many users share the prefix. Completions rank name matches before email matches, then by
+ * completed key, then by ID. The results of the most recent queries are kept until the next change, so typing
+ * back over a prefix costs a map lookup.
+ *
+ * Maintained incrementally like [FuzzyNameIndex], with [put], [setFirstName], [setLastName] and [remove].
+ * Thread-safe: lookups share a read lock, changes take the write lock.
+ */
+class TypeaheadIndex {
+    private class Entry(
+        val fullName: String,
+        val firstName: String,
+        val lastName: String,
+        val email: String,
+        val nameKeys: Array<String>,
+        val emailKey: String
+    )
+
+    private val lock = ReentrantReadWriteLock()
+    private val names = TreeMap<String, LongIdSet>()
+    private val emails = TreeMap<String, LongIdSet>()
+    private val entries = HashMap<Long, Entry>()
+    private val _version = MutableStateFlow(0L)
+
+    /**
+     * Results of recent queries with the [version] they were computed at, least recently used first.
+     */
+    private val recent = object : LinkedHashMap<String, Pair<Long, List<UserSuggestion>>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Pair<Long, List<UserSuggestion>>>) =
+            size > RECENT_QUERIES
+    }
+
+    /**
+     * Incremented on every change of the indexed users.
+     */
+    val version: StateFlow<Long> = _version.asStateFlow()
+
+    /**
+     * The number of indexed users.
+     */
+    val size: Int
+        get() = lock.read { entries.size }
+
+    /**
+     * Indexes or re-indexes one user.
+     */
+    fun put(id: Long, firstName: String, lastName: String, email: String) {
+        lock.write {
+            putLocked(id, firstName, lastName, email)
+            changed()
+        }
+    }
+
+    /**
+     * Indexes many users with a single [version] change, e.g. when loading the index.
+     * @param contacts The users to index.
+     */
+    fun putAll(contacts: Iterable<UserContact>) {
+        lock.write {
+            for (contact in contacts) putLocked(contact.id, contact.firstName, contact.lastName, contact.email)
+            changed()
+        }
+    }
+
+    /**
+     * Replaces the first name of the given users; unknown IDs are ignored.
+     */
+    fun setFirstName(ids: LongArray, firstName: String) {
+        lock.write {
+            for (id in ids) entries[id]?.let { putLocked(id, firstName, it.lastName, it.email) }
+            changed()
+        }
+    }
+
+    /**
+     * Replaces the last name of the given users; unknown IDs are ignored.
+     */
+    fun setLastName(ids: LongArray, lastName: String) {
+        lock.write {
+            for (id in ids) entries[id]?.let { putLocked(id, it.firstName, lastName, it.email) }
+            changed()
+        }
+    }
+
+    /**
+     * Removes the given users from the index; unknown IDs are ignored.
+     */
+    fun remove(vararg ids: Long) {
+        lock.write {
+            for (id in ids) entries.remove(id)?.let { unpost(id, it) }
+            changed()
+        }
+    }
+
+    /**
+     * Completes [text] to the users whose first name, last name, whole name or email starts with it. Names are
+     * compared like [FuzzyNameIndex] compares them, ignoring case, accents and punctuation; emails ignore case.
+     * @param text The typed text; blank completes to nothing.
+     * @param limit The maximum number of suggestions.
+     * @return At most [limit] suggestions, one per user, best first.
+     */
+    fun suggest(text: String, limit: Int = DEFAULT_LIMIT): List<UserSuggestion> {
+        val emailPrefix = text.trim().lowercase(Locale.ROOT)
+        if (emailPrefix.isEmpty() || limit <= 0) return emptyList()
+        val cacheKey = "$limit:$emailPrefix"
+        synchronized(recent) {
+            recent[cacheKey]?.let { (version, suggestions) -> if (version == _version.value) return suggestions }
+        }
+        val namePrefix = NameTokens.tokenize(emailPrefix).joinToString(" ")
+        val (version, suggestions) = lock.read {
+            val suggestions = ArrayList<UserSuggestion>(limit)
+            val seen = LongIdSet()
+            if (namePrefix.isNotEmpty()) complete(names, namePrefix, false, limit, seen, suggestions)
+            complete(emails, emailPrefix, true, limit, seen, suggestions)
+            _version.value to suggestions
+        }
+        synchronized(recent) { recent[cacheKey] = version to suggestions }
+        return suggestions
+    }
+
+    /**
+     * Adds the users of the keys starting with [prefix], in key order, until [suggestions] holds [limit].
+     */
+    private fun complete(
+        keys: TreeMap<String, LongIdSet>,
+        prefix: String,
+        matchedEmail: Boolean,
+        limit: Int,
+        seen: LongIdSet,
+        suggestions: MutableList<UserSuggestion>
+    ) {
+        for (ids in keys.subMap(prefix, true, prefix + Char.MAX_VALUE, false).values) {
+            for (id in ids.toLongArray().apply { sort() }) {
+                if (suggestions.size == limit) return
+                if (!seen.add(id)) continue
+                val entry = entries.getValue(id)
+                suggestions += UserSuggestion(id, entry.fullName, entry.email, matchedEmail)
+            }
+        }
+    }
+
+    private fun putLocked(id: Long, firstName: String, lastName: String, email: String) {
+        entries.remove(id)?.let { unpost(id, it) }
+        val firstNameTokens = NameTokens.tokenize(firstName)
+        val lastNameTokens = NameTokens.tokenize(lastName)
+        val nameKeys = (firstNameTokens + lastNameTokens + (firstNameTokens + lastNameTokens).joinToString(" "))
+            .filter { it.isNotEmpty() }
+            .distinct()
+            .toTypedArray()
+        val emailKey = email.trim().lowercase(Locale.ROOT)
+        val entry = Entry("$firstName $lastName".trim(), firstName, lastName, email, nameKeys, emailKey)
+        entries[id] = entry
+        for (key in nameKeys) names.getOrPut(key) { LongIdSet() }.add(id)
+        if (emailKey.isNotEmpty()) emails.getOrPut(emailKey) { LongIdSet() }.add(id)
+    }
+
+    private fun unpost(id: Long, entry: Entry) {
+        for (key in entry.nameKeys) unpost(names, key, id)
+        unpost(emails, entry.emailKey, id)
+    }
+
+    private fun unpost(keys: TreeMap<String, LongIdSet>, key: String, id: Long) {
+        val ids = keys[key] ?: return
+        ids.remove(id)
+        if (ids.isEmpty()) keys.remove(key)
+    }
+
+    private fun changed() {
+        _version.value = _version.value + 1
+        synchronized(recent) { recent.clear() }
+    }
+
+    companion object {
+        /**
+         * Default number of suggestions, about what a dropdown under the search bar shows without scrolling.
+         */
+        const val DEFAULT_LIMIT = 8
+
+        /**
+         * The number of queries whose results are kept.
+         */
+        private const val RECENT_QUERIES = 64
+    }
+}
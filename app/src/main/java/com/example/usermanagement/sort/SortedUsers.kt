@@ -0,0 +1,107 @@
+package com.example.usermanagement.sort
+
+import com.example.usermanagement.data.User
+
+/**
+ * A list of users kept sorted in one [UserSort] order, with each user's [SortKey] computed once.
+ *
+ * Single changes are binary-search insertions and removals, so adding one user to a sorted list of 100k costs
+ * one key and about 17 comparisons instead of a full sort. [update] brings the list in line with a new version
+ * of the users the same way when only a few changed, and otherwise sorts again, still reusing the keys of the
+ * users that did not change.
+ *
+ * Not thread-safe; confine each instance to one thread.
+ * @property sort The order kept.
+ */
+class SortedUsers(val sort: UserSort) {
+    private class Entry(val user: User, val key: SortKey)
+
+    private var entries = ArrayList<Entry>()
+    private var byId = HashMap<Long, Entry>()
+
+    /**
+     * The number of users.
+     */
+    val size: Int get() = entries.size
+
+    /**
+     * The users in [sort] order, as a read-only view that changes with this list.
+     */
+    val users: List<User> = object : AbstractList<User>(), RandomAccess {
+        override val size get() = entries.size
+        override fun get(index: Int) = entries[index].user
+    }
+
+    /**
+     * Inserts [user] at its position, replacing the user with the same ID if there is one.
+     */
+    fun insert(user: User) {
+        remove(user.id)
+        val entry = Entry(user, sort.keyOf(user))
+        entries.add(-(search(entry.key) + 1), entry)
+        byId[user.id] = entry
+    }
+
+    /**
+     * Removes the user with the given [id].
+     * @return `true` if there was one.
+     */
+    fun remove(id: Long): Boolean {
+        val entry = byId.remove(id) ?: return false
+        entries.removeAt(search(entry.key))
+        return true
+    }
+
+    /**
+     * Makes this list hold exactly [users], which must have distinct IDs. Users removed or changed since the last
+     * update are removed and inserted again one by one while they are few; otherwise the list is sorted again.
+     * @return [users] in [sort] order.
+     */
+    fun update(users: List<User>): List<User> {
+        val incoming = HashMap<Long, User>(users.size * 2)
+        users.forEach { incoming[it.id] = it }
+        val removed = byId.values.filter { incoming[it.user.id] != it.user }
+        val added = users.filter { byId[it.id]?.user != it }
+        if (removed.size + added.size <= entries.size / INCREMENTAL_FRACTION) {
+            removed.forEach { remove(it.user.id) }
+            added.forEach { insert(it) }
+        } else {
+            val sorted = ArrayList<Entry>(users.size)
+            for (user in users) {
+                val previous = byId[user.id]
+                sorted.add(if (previous != null && previous.user == user) previous else Entry(user, sort.keyOf(user)))
+            }
+            sorted.sortWith { a, b -> a.key.compareTo(b.key) }
+            entries = sorted
+            byId = HashMap(sorted.size * 2)
+            sorted.forEach { byId[it.user.id] = it }
+        }
+        return this.users
+    }
+
+    /**
+     * Binary search for [key], see [java.util.Collections.binarySearch] for the result.
+     */
+    private fun search(key: SortKey): Int {
+        var low = 0
+        var high = entries.size - 1
+        while (low <= high) {
+            val middle = (low + high) ushr 1
+            val comparison = entries[middle].key.compareTo(key)
+            when {
+                comparison < 0 -> low = middle + 1
+                comparison > 0 -> high = middle - 1
+                else -> return middle
+            }
+        }
+        return -(low + 1)
+    }
+
+    private companion object {
+        /**
+         * Changes beyond one in this many users are applied by sorting again, which is then cheaper than
+         * shifting the array once per change.
+         */
+        const val INCREMENTAL_FRACTION = 64
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.usermanagement.sort
+
+import java.text.Collator
+import java.util.Locale
+
+/**
+ * Locale-aware sort keys for names and emails.
+ *
+ * A key is the byte form of the [Collator]'s `CollationKey` for the default locale. Keys compare with [compare]
+ * exactly as the collator compares the texts. Computing a key costs about one collator comparison, which is why
+ * sorts compute each user's key once instead of running the collator on every comparison.
+ */
+object UserCollation {
+    private val collators = ThreadLocal<Pair<Locale, Collator>>()
+
+    /**
+     * Computes the sort key of [text] for the default locale.
+     * Collators are not thread safe, so each thread keeps its own, replaced when the default locale changes.
+     */
+    @JvmStatic
+    fun key(text: String): ByteArray {
+        val locale = Locale.getDefault()
+        val cached = collators.get()
+        val collator = if (cached != null && cached.first == locale) {
+            cached.second
+        } else {
+            Collator.getInstance(locale).also { collators.set(locale to it) }
+        }
+        return collator.getCollationKey(text).toByteArray()
+    }
+
+    /**
+     * Compares two keys as unsigned bytes, shorter first on a common prefix.
+     */
+    @JvmStatic
+    fun compare(a: ByteArray, b: ByteArray): Int {
+        val length = minOf(a.size, b.size)
+        for (i in 0 until length) {
+            val diff = (a[i].toInt() and 0xFF) - (b[i].toInt() and 0xFF)
+            if (diff != 0) return diff
+        }
+        return a.size - b.size
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.usermanagement.sort
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserStat
+import com.example.usermanagement.data.UserStats
+import com.example.usermanagement.data.UserStatsTable
+import java.text.Normalizer
+import java.util.Locale
+
+/**
+ * One section of a user list sorted in a [UserSort] order, as shown by the sticky headers and the fast-scroll
+ * index of the list screen.
+ * @property label The header: an upper-case letter, a birth year, or [UserSections.OTHER].
+ * @property offset The index of the section's first user in the sorted list.
+ * @property count The number of users in the section.
+ */
+data class UserSection(val label: String, val offset: Int, val count: Int)
+
+/**
+ * Splits sorted user lists into [UserSection]s.
+ *
+ * Name and email orders are sectioned by the initial of the sorted column with accents removed, so "Émile" is
+ * listed under E, where the collation sorts it; initials that are not letters share the [OTHER] section, which
+ * comes first like they do. Date of birth orders are sectioned by birth year, with unknown dates in [OTHER];
+ * malformed dates, which validation rejects, are counted there as well. Sections are counted from the
+ * `user_stats` counters, whose triggers keep them current on every write, so the offsets of a 100k user list
+ * cost a few dozen rows rather than a pass over the users.
+ */
+object UserSections {
+    /**
+     * Label of the section of users whose sorted column does not start with a letter or a birth year.
+     */
+    const val OTHER = "#"
+
+    /**
+     * The `user_stats` counters the sections of [sort] are built from.
+     */
+    fun kindOf(sort: UserSort): String = when (sort) {
+        UserSort.LAST_NAME -> UserStatsTable.KIND_LAST_INITIAL
+        UserSort.FIRST_NAME -> UserStatsTable.KIND_FIRST_INITIAL
+        UserSort.EMAIL -> UserStatsTable.KIND_EMAIL_INITIAL
+        UserSort.DOB -> UserStatsTable.KIND_BIRTH_YEAR
+    }
+
+    /**
+     * Builds the sections of [sort] from the counters of [kindOf]; counters of other kinds are ignored.
+     * @param rows The counters, e.g. as observed through the stats DAO.
+     * @return The non-empty sections in list order.
+     */
+    fun fromCounters(sort: UserSort, rows: List<UserStat>): List<UserSection> {
+        val kind = kindOf(sort)
+        val counts = HashMap<String, Long>()
+        for (row in rows) {
+            if (row.kind == kind) counts.merge(labelOfBucket(sort, row.bucket), row.count, Long::plus)
+        }
+        return sections(sort, counts)
+    }
+
+    /**
+     * Computes the same sections directly from [users], with the bucketing rules of the triggers.
+     * Linear in the number of users; meant for repositories without the counters table.
+     */
+    fun of(sort: UserSort, users: List<User>): List<UserSection> {
+        val counts = HashMap<String, Long>()
+        for (user in users) counts.merge(labelOf(sort, user), 1L, Long::plus)
+        return sections(sort, counts)
+    }
+
+    /**
+     * The label of the section [user] belongs to in [sort] order.
+     */
+    fun labelOf(sort: UserSort, user: User): String = when (sort) {
+        UserSort.LAST_NAME -> initialOf(user.lastName)
+        UserSort.FIRST_NAME -> initialOf(user.firstName)
+        UserSort.EMAIL -> initialOf(user.email)
+        UserSort.DOB -> UserStats.birthYearOf(user.dob).ifEmpty { OTHER }
+    }
+
+    private fun labelOfBucket(sort: UserSort, bucket: String): String =
+        if (sort == UserSort.DOB) bucket.ifEmpty { OTHER } else initialOf(bucket)
+
+    /**
+     * The first letter of [text] without accents, upper-cased, or [OTHER]. Works on whole code points, so a
+     * trigger bucket, which SQLite cuts by code point, and the text it was cut from fold alike.
+     */
+    private fun initialOf(text: String): String {
+        if (text.isEmpty()) return OTHER
+        val first = String(Character.toChars(text.codePointAt(0)))
+        val base = Normalizer.normalize(first, Normalizer.Form.NFD).codePointAt(0)
+        if (!Character.isLetter(base)) return OTHER
+        val upper = String(Character.toChars(base)).uppercase(Locale.ROOT)
+        return String(Character.toChars(upper.codePointAt(0)))
+    }
+
+    private fun sections(sort: UserSort, counts: Map<String, Long>): List<UserSection> {
+        val labels = counts.keys.sortedWith(labelOrder(sort))
+        var offset = 0
+        return labels.map { label ->
+            val count = counts.getValue(label).toInt()
+            UserSection(label, offset, count).also { offset += count }
+        }
+    }
+
+    private fun labelOrder(sort: UserSort): Comparator<String> {
+        val byValue: Comparator<String> = if (sort == UserSort.DOB) {
+            compareBy { it.toIntOrNull() }
+        } else {
+            Comparator { a, b -> UserCollation.compare(UserCollation.key(a), UserCollation.key(b)) }
+        }
+        return compareBy<String> { it != OTHER }.then(byValue)
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.usermanagement.sort
+
+import com.example.usermanagement.data.User
+
+/**
+ * The orders a user list can be sorted in. Names and emails sort by their [UserCollation] keys, dates of birth
+ * as the ISO strings they are stored as; ties fall back to the other name and finally to the ID, so every order
+ * is total.
+ */
+enum class UserSort {
+    /** By last name, then first name. */
+    LAST_NAME,
+
+    /** By first name, then last name. */
+    FIRST_NAME,
+
+    /** By email address. */
+    EMAIL,
+
+    /** By date of birth, oldest first; users without one come first. */
+    DOB;
+
+    /**
+     * Computes the position of [user] in this order.
+     */
+    fun keyOf(user: User): SortKey = when (this) {
+        LAST_NAME -> SortKey(UserCollation.key(user.lastName), UserCollation.key(user.firstName), user.id)
+        FIRST_NAME -> SortKey(UserCollation.key(user.firstName), UserCollation.key(user.lastName), user.id)
+        EMAIL -> SortKey(UserCollation.key(user.email), EMPTY, user.id)
+        DOB -> SortKey(user.dob.toByteArray(Charsets.UTF_8), EMPTY, user.id)
+    }
+
+    private companion object {
+        val EMPTY = ByteArray(0)
+    }
+}
+
+/**
+ * The position of one user in a [UserSort] order.
+ * @property primary The key of the sorted column.
+ * @property secondary The key breaking ties of [primary]; empty if the order has none.
+ * @property id The user's ID, breaking the remaining ties.
+ */
+class SortKey(val primary: ByteArray, val secondary: ByteArray, val id: Long) : Comparable<SortKey> {
+
+    override fun compareTo(other: SortKey): Int {
+        val byPrimary = UserCollation.compare(primary, other.primary)
+        if (byPrimary != 0) return byPrimary
+        val bySecondary = UserCollation.compare(secondary, other.secondary)
+        if (bySecondary != 0) return bySecondary
+        return id.compareTo(other.id)
+    }
+
+    override fun equals(other: Any?) = other is SortKey && compareTo(other) == 0
+
+    override fun hashCode() = 31 * (31 * primary.contentHashCode() + secondary.contentHashCode()) + id.hashCode()
+}
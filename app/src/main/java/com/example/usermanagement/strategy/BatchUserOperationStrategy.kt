@@ -0,0 +1,105 @@
+package com.example.usermanagement.strategy
+
+import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.UserOperation
+import com.example.usermanagement.util.Result
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+
+/**
+ * Progress of a batch run, emitted once per committed chunk.
+ * @param processed The number of operations processed so far.
+ * @param total The total number of operations in the batch.
+ * @param chunkStart The index of the first operation covered by [chunkResults].
+ * @param chunkResults One [Result] per operation of the chunk just committed, in order.
+ */
+data class BatchProgress(
+    val processed: Int,
+    val total: Int,
+    val chunkStart: Int,
+    val chunkResults: List<Result<Unit>>
+) {
+    /**
+     * `true` once every operation has been processed.
+     */
+    val isComplete: Boolean
+        get() = processed == total
+}
+
+/**
+ * Strategy for running many mixed add, update and delete operations at batch speed.
+ * Operations are applied in chunks, each chunk in a single repository transaction,
+ * and add/update operations of a chunk are validated in parallel beforehand.
+ * @param validationStrategy Validates added and updated users; `null` skips validation.
+ * @param chunkSize The number of operations committed per transaction.
+ * @param validationParallelism The maximum number of coroutines validating a chunk concurrently.
+ */
+class BatchUserOperationStrategy(
+    private val validationStrategy: ValidationStrategy? = null,
+    private val chunkSize: Int = DEFAULT_CHUNK_SIZE,
+    private val validationParallelism: Int = DEFAULT_VALIDATION_PARALLELISM
+) {
+    init {
+        require(chunkSize > 0) { "chunkSize must be positive" }
+        require(validationParallelism > 0) { "validationParallelism must be positive" }
+    }
+
+    /**
+     * Executes the given [operations] against the [repository].
+     * The returned [Flow] is cold; collecting it runs the batch and emits a [BatchProgress] after every chunk.
+     * Operations that fail validation are reported as [Result.Error] and are not written.
+     * @param operations The operations to execute, in order.
+     * @param repository The [IUserRepository] to apply the operations to.
+     * @return A [Flow] of [BatchProgress] updates carrying the per-operation results.
+     */
+    fun executeAll(
+        operations: Collection<UserOperation>,
+        repository: IUserRepository
+    ): Flow<BatchProgress> = flow {
+        val all = operations.toList()
+        for (chunkStart in all.indices step chunkSize) {
+            val chunk = all.subList(chunkStart, minOf(chunkStart + chunkSize, all.size))
+            val validationErrors = validate(chunk)
+            val applied = repository.applyBatch(chunk.filterIndexed { index, _ -> validationErrors[index] == null })
+            val appliedResults = applied.iterator()
+            val chunkResults = validationErrors.map { it ?: appliedResults.next() }
+            emit(BatchProgress(chunkStart + chunk.size, all.size, chunkStart, chunkResults))
+        }
+    }
+
+    /**
+     * Validates a chunk in up to [validationParallelism] slices on [Dispatchers.Default].
+     * @param chunk The operations to validate.
+     * @return One entry per operation: `null` if it may be applied, otherwise the [Result.Error] to report.
+     */
+    private suspend fun validate(chunk: List<UserOperation>): List<Result<Unit>?> {
+        val validator = validationStrategy ?: return List(chunk.size) { null }
+        val sliceSize = (chunk.size + validationParallelism - 1) / validationParallelism
+        return coroutineScope {
+            chunk.chunked(sliceSize.coerceAtLeast(1))
+                .map { slice ->
+                    async(Dispatchers.Default) {
+                        slice.map { operation ->
+                            if (operation is UserOperation.Delete) {
+                                null
+                            } else {
+                                val result = validator.validate(operation.user)
+                                if (result.isValid()) null else Result.Error(Exception(result.getErrorMessage()))
+                            }
+                        }
+                    }
+                }
+                .awaitAll()
+                .flatten()
+        }
+    }
+
+    companion object {
+        const val DEFAULT_CHUNK_SIZE = 500
+        const val DEFAULT_VALIDATION_PARALLELISM = 4
+    }
+}
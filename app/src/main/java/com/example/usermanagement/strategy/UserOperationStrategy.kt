@@ -2,7 +2,9 @@ package com.example.usermanagement.strategy
 
 import com.example.usermanagement.data.User
 import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.UserOperation
 import com.example.usermanagement.util.Result
+import kotlinx.coroutines.flow.Flow
 
 interface UserOperationStrategy {
     /**
@@ -12,12 +14,34 @@ interface UserOperationStrategy {
      * @return A [Result] indicating the success or failure of the operation.
      */
     suspend fun execute(user: User, repository: IUserRepository): Result<Unit>
+
+    /**
+     * Describes this strategy's operation on the given [user] so it can be batched.
+     * @param user The [User] object on which the operation is to be performed.
+     * @return The [UserOperation] equivalent to [execute] for [user].
+     */
+    fun operationFor(user: User): UserOperation
+
+    /**
+     * Executes this strategy's operation on many users in chunked transactions.
+     * @param users The users on which the operation is to be performed.
+     * @param repository The [IUserRepository] to interact with the data source.
+     * @param batch The [BatchUserOperationStrategy] controlling chunk size and validation.
+     * @return A [Flow] of [BatchProgress] updates carrying the per-user results.
+     */
+    fun executeAll(
+        users: Collection<User>,
+        repository: IUserRepository,
+        batch: BatchUserOperationStrategy = BatchUserOperationStrategy()
+    ): Flow<BatchProgress> = batch.executeAll(users.map(::operationFor), repository)
 }
 
 /**
  * Strategy for adding a new user.
  */
 class AddUserStrategy : UserOperationStrategy {
+    override fun operationFor(user: User): UserOperation = UserOperation.Add(user)
+
     /**
      * Inserts the given [user] into the repository.
      * @param user The [User] to be added.
@@ -38,6 +62,8 @@ class AddUserStrategy : UserOperationStrategy {
  * Strategy for updating an existing user.
  */
 class UpdateUserStrategy : UserOperationStrategy {
+    override fun operationFor(user: User): UserOperation = UserOperation.Update(user)
+
     /**
      * Updates the given [user] in the repository.
      * @param user The [User] to be updated.
@@ -58,6 +84,8 @@ class UpdateUserStrategy : UserOperationStrategy {
  * Strategy for deleting a user.
  */
 class DeleteUserStrategy : UserOperationStrategy {
+    override fun operationFor(user: User): UserOperation = UserOperation.Delete(user)
+
     /**
      * Deletes the given [user] from the repository.
      * @param user The [User] to be deleted.
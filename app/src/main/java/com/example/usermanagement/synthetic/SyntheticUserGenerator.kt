@@ -0,0 +1,147 @@
+package com.example.usermanagement.synthetic
+
+import com.example.usermanagement.data.User
+import java.util.Locale
+import java.util.Random
+
+/**
+ * Deterministic generator of realistic-looking users for benchmarks, tests and debug seeding.
+ *
+ * The same seed and index always produce the same user, so datasets are identical across runs and machines,
+ * and any slice can be generated independently. Names follow a Zipf distribution, so a few first names are very
+ * common and many users share last names, as in real directories. Emails embed the index and are therefore unique,
+ * as the users table requires. Phones and dates of birth pass [com.example.usermanagement.util.ValidationUtils].
+ * @param seed The seed of the pseudo-random sequence.
+ */
+class SyntheticUserGenerator(private val seed: Long = DEFAULT_SEED) {
+
+    /**
+     * Generates the user at position [index] of the dataset.
+     * @param index The position in the dataset, starting at 0.
+     * @return A new [User] with an unassigned ID.
+     */
+    fun user(index: Int): User {
+        val random = Random(seed * 31 + index)
+        val firstName = FIRST_NAMES[FIRST_NAME_RANKS.sample(random)]
+        val lastName = LAST_NAMES[LAST_NAME_RANKS.sample(random)]
+        val domain = DOMAINS[DOMAIN_RANKS.sample(random)]
+        return User(
+            firstName = firstName,
+            lastName = lastName,
+            email = "${firstName.lowercase(Locale.ROOT)}.${lastName.lowercase(Locale.ROOT)}.$index@$domain",
+            phone = phone(random),
+            dob = dateOfBirth(random),
+            address = "${1 + random.nextInt(9_999)} ${STREETS[random.nextInt(STREETS.size)]}, " +
+                CITIES[CITY_RANKS.sample(random)]
+        )
+    }
+
+    /**
+     * Generates a contiguous slice of the dataset.
+     * @param start The index of the first user.
+     * @param count The number of users to generate.
+     * @return The users at indices `start until start + count`.
+     */
+    fun users(start: Int, count: Int): List<User> = List(count) { user(start + it) }
+
+    /**
+     * Lazily generates [count] users in batches, so large datasets can be streamed into the database
+     * without holding them in memory.
+     * @param count The total number of users.
+     * @param batchSize The number of users per batch.
+     * @param start The index of the first user.
+     * @return A sequence of batches covering `start until start + count`.
+     */
+    fun batches(count: Int, batchSize: Int = DEFAULT_BATCH_SIZE, start: Int = 0): Sequence<List<User>> {
+        require(batchSize > 0) { "batchSize must be positive" }
+        return generateSequence(start) { it + batchSize }
+            .takeWhile { it < start + count }
+            .map { users(it, minOf(batchSize, start + count - it)) }
+    }
+
+    /**
+     * A phone number in one of several national formats, all matching the app's E.164-style validation.
+     */
+    private fun phone(random: Random): String {
+        val subscriber = (random.nextInt(90_000_000) + 10_000_000).toString()
+        return when (random.nextInt(10)) {
+            in 0..4 -> "+1${2 + random.nextInt(8)}${random.nextInt(10)}$subscriber"
+            in 5..6 -> "+91${6 + random.nextInt(4)}${random.nextInt(10)}$subscriber"
+            7 -> "+447${random.nextInt(10)}$subscriber"
+            else -> "${2 + random.nextInt(8)}${random.nextInt(10)}$subscriber"
+        }
+    }
+
+    /**
+     * A date of birth for an adult aged 18 to 90 on [REFERENCE_YEAR], concentrated around middle age.
+     * Days stop at 28, so every generated date is valid.
+     */
+    private fun dateOfBirth(random: Random): String {
+        val age = 18 + (random.nextInt(37) + random.nextInt(37))
+        return String.format(
+            Locale.ROOT, "%04d-%02d-%02d", REFERENCE_YEAR - age, 1 + random.nextInt(12), 1 + random.nextInt(28)
+        )
+    }
+
+    /**
+     * Cumulative Zipf weights over ranks `0 until size`, sampled by binary search.
+     */
+    private class ZipfTable(size: Int, exponent: Double) {
+        private val cumulative = DoubleArray(size).also { weights ->
+            var total = 0.0
+            for (rank in 0 until size) {
+                total += 1.0 / Math.pow(rank + 1.0, exponent)
+                weights[rank] = total
+            }
+        }
+
+        fun sample(random: Random): Int {
+            val target = random.nextDouble() * cumulative.last()
+            val index = cumulative.binarySearch(target)
+            return if (index >= 0) index else -index - 1
+        }
+    }
+
+    companion object {
+        const val DEFAULT_SEED = 20_240_101L
+        const val DEFAULT_BATCH_SIZE = 5_000
+
+        /**
+         * The year ages are computed against; fixed so datasets do not change over time.
+         */
+        const val REFERENCE_YEAR = 2024
+
+        private val FIRST_NAMES = listOf(
+            "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Priya", "Arjun", "Wei", "Mei", "Hiroshi", "Yuki", "Olga", "Ivan", "Fatima", "Omar",
+            "Lucia", "Mateo", "Sofia", "Liam", "Emma", "Noah", "Olivia", "Aisha", "Kwame", "Zanele",
+            "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Sandra", "Donald", "Ashley",
+            "Ravi", "Ananya", "Chen", "Hana", "Kenji", "Amara", "Diego", "Camila", "Lukas", "Ingrid"
+        )
+        private val LAST_NAMES = listOf(
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+            "Kumar", "Sharma", "Wang", "Li", "Tanaka", "Sato", "Ivanova", "Petrov", "Haddad", "Khan",
+            "Rossi", "Silva", "Muller", "Schmidt", "Dubois", "Nowak", "Okafor", "Mensah", "Nguyen", "Kim",
+            "Lee", "Patel", "Singh", "Chen", "Zhang", "Yamamoto", "Novak", "Kowalski", "Johansson", "Fischer",
+            "Thompson", "White", "Harris", "Clark", "Lewis", "Robinson", "Walker", "Young", "Allen", "King"
+        )
+        private val DOMAINS = listOf(
+            "mail.example", "example.com", "inbox.test", "corp.example", "users.test", "post.example"
+        )
+        private val STREETS = listOf(
+            "Main St", "Oak Ave", "Pine Rd", "Maple Dr", "Cedar Ln", "Elm St", "Lake Blvd", "Park Ave",
+            "Hill Rd", "River Way", "Station Rd", "Church St", "Mill Ln", "Garden Ct"
+        )
+        private val CITIES = listOf(
+            "Springfield", "Riverton", "Fairview", "Madison", "Georgetown", "Franklin", "Clinton", "Greenville",
+            "Salem", "Bristol", "Ashford", "Kingston", "Lakeside", "Oakland", "Milton", "Newport"
+        )
+
+        private val FIRST_NAME_RANKS = ZipfTable(FIRST_NAMES.size, 1.0)
+        private val LAST_NAME_RANKS = ZipfTable(LAST_NAMES.size, 1.1)
+        private val DOMAIN_RANKS = ZipfTable(DOMAINS.size, 1.2)
+        private val CITY_RANKS = ZipfTable(CITIES.size, 0.8)
+    }
+}
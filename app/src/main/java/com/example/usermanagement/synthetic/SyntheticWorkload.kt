@@ -0,0 +1,142 @@
+package com.example.usermanagement.synthetic
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.filter.FilterExpression
+import com.example.usermanagement.filter.FilterField
+import com.example.usermanagement.filter.MatchKind
+import com.example.usermanagement.repository.IUserRepository
+import kotlinx.coroutines.flow.first
+import java.util.Random
+
+/**
+ * One operation of a synthetic workload.
+ */
+sealed class WorkloadStep {
+    /**
+     * Looks up the user with [id].
+     */
+    data class Read(val id: Long) : WorkloadStep()
+
+    /**
+     * Searches for [query], as typed into the search box.
+     */
+    data class Search(val query: String) : WorkloadStep()
+
+    /**
+     * Filters the users by [firstName] prefix with a filter expression, as the filter dialog does.
+     */
+    data class Filter(val firstName: String) : WorkloadStep()
+
+    /**
+     * Inserts [user].
+     */
+    data class Insert(val user: User) : WorkloadStep()
+
+    /**
+     * Changes the address of the user with [id].
+     */
+    data class Update(val id: Long, val address: String) : WorkloadStep()
+
+    /**
+     * Deletes the user with [id].
+     */
+    data class Delete(val id: Long) : WorkloadStep()
+
+    /**
+     * Executes this step against [repository] the way the app's screens would.
+     * Updates and deletes of users that no longer exist are no-ops.
+     * @param repository The repository to drive.
+     */
+    suspend fun execute(repository: IUserRepository) {
+        when (this) {
+            is Read -> repository.getUserById(id)
+            is Search -> repository.searchUsers(query).first()
+            is Filter -> repository.filterUsers(
+                FilterExpression.Match(FilterField.FIRST_NAME, MatchKind.PREFIX, firstName).toString()
+            ).first()
+            is Insert -> repository.insertUser(user)
+            is Update -> repository.getUserById(id)?.let { repository.updateUser(it.copy(address = address)) }
+            is Delete -> repository.getUserById(id)?.let { repository.deleteUser(it) }
+        }
+    }
+}
+
+/**
+ * Deterministic stream of [WorkloadStep]s following a [WorkloadProfile], over a dataset seeded with [generator].
+ *
+ * Lookups and edits favour a small set of hot users, as real traffic does, and search queries are
+ * prefixes of names that exist in the dataset. The same arguments always produce the same steps.
+ * @param profile The operation mix.
+ * @param populationSize The number of users seeded with [generator], whose IDs are assumed to be `1..populationSize`.
+ * @param generator The generator the dataset was seeded with; also generates inserted users.
+ * @param seed The seed of the pseudo-random sequence.
+ */
+class SyntheticWorkload(
+    private val profile: WorkloadProfile,
+    private val populationSize: Int,
+    private val generator: SyntheticUserGenerator = SyntheticUserGenerator(),
+    private val seed: Long = SyntheticUserGenerator.DEFAULT_SEED
+) {
+    init {
+        require(populationSize > 0) { "populationSize must be positive" }
+    }
+
+    /**
+     * Generates the first [count] steps of the workload.
+     * @param count The number of steps.
+     * @return A lazy sequence of steps.
+     */
+    fun steps(count: Int): Sequence<WorkloadStep> = sequence {
+        val random = Random(seed)
+        var nextInsert = populationSize
+        repeat(count) {
+            val roll = random.nextInt(profile.total)
+            yield(
+                when {
+                    roll < profile.reads -> WorkloadStep.Read(hotId(random))
+                    roll < profile.reads + profile.searches -> WorkloadStep.Search(query(random))
+                    roll < profile.reads + profile.searches + profile.filters ->
+                        WorkloadStep.Filter(namePrefix(generator.user(random.nextInt(populationSize)).firstName, random))
+                    else -> when (random.nextInt(100)) {
+                        in 0 until INSERT_PERCENT -> WorkloadStep.Insert(generator.user(nextInsert++))
+                        in INSERT_PERCENT until INSERT_PERCENT + UPDATE_PERCENT ->
+                            WorkloadStep.Update(hotId(random), "${1 + random.nextInt(9_999)} Workload Ave")
+                        else -> WorkloadStep.Delete(1L + random.nextInt(populationSize))
+                    }
+                }
+            )
+        }
+    }
+
+    /**
+     * Picks an ID, sending [HOT_TRAFFIC_PERCENT] of picks to the first [HOT_USER_PERCENT] of users.
+     */
+    private fun hotId(random: Random): Long {
+        val hotUsers = maxOf(1, populationSize * HOT_USER_PERCENT / 100)
+        val range = if (random.nextInt(100) < HOT_TRAFFIC_PERCENT) hotUsers else populationSize
+        return 1L + random.nextInt(range)
+    }
+
+    /**
+     * A search query as typed so far: a prefix of a first or last name, occasionally the full name.
+     */
+    private fun query(random: Random): String {
+        val user = generator.user(random.nextInt(populationSize))
+        return when (random.nextInt(10)) {
+            in 0..3 -> namePrefix(user.firstName, random)
+            in 4..8 -> namePrefix(user.lastName, random)
+            else -> user.fullName
+        }
+    }
+
+    private fun namePrefix(name: String, random: Random): String =
+        name.take(minOf(name.length, MIN_PREFIX_LENGTH + random.nextInt(3)))
+
+    private companion object {
+        const val INSERT_PERCENT = 40
+        const val UPDATE_PERCENT = 45
+        const val HOT_USER_PERCENT = 5
+        const val HOT_TRAFFIC_PERCENT = 80
+        const val MIN_PREFIX_LENGTH = 2
+    }
+}
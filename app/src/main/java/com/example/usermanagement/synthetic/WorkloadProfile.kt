@@ -0,0 +1,37 @@
+package com.example.usermanagement.synthetic
+
+/**
+ * A named mix of repository operations, given as relative weights.
+ * Writes are further split into inserts, updates and deletes by [SyntheticWorkload].
+ * @param reads Weight of single-user lookups, as when opening a user's details.
+ * @param searches Weight of search-as-you-type queries.
+ * @param filters Weight of first-name prefix filter expressions.
+ * @param writes Weight of inserts, updates and deletes.
+ */
+enum class WorkloadProfile(val reads: Int, val searches: Int, val filters: Int, val writes: Int) {
+    /**
+     * Scrolling and opening users, with occasional searches and edits.
+     */
+    BROWSE(reads = 70, searches = 15, filters = 10, writes = 5),
+
+    /**
+     * A help desk looking people up by name.
+     */
+    SEARCH_HEAVY(reads = 20, searches = 60, filters = 15, writes = 5),
+
+    /**
+     * An even mix of every operation type.
+     */
+    BALANCED(reads = 40, searches = 25, filters = 15, writes = 20),
+
+    /**
+     * Bulk data entry and cleanup, dominated by writes.
+     */
+    DATA_ENTRY(reads = 20, searches = 10, filters = 5, writes = 65);
+
+    /**
+     * Sum of all weights.
+     */
+    val total: Int
+        get() = reads + searches + filters + writes
+}
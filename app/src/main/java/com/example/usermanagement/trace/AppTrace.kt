@@ -0,0 +1,109 @@
+package com.example.usermanagement.trace
+
+import androidx.tracing.Trace
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Entry point for trace sections across the app.
+ * Every section is always emitted to the platform tracer via [androidx.tracing.Trace], so it shows up in
+ * Perfetto or systrace captures, and is additionally recorded by the installed [TraceRecorder], if any.
+ */
+object AppTrace {
+    private val nextCookie = AtomicInteger()
+
+    /**
+     * The recorder receiving sections in addition to the platform tracer; `null` in release builds.
+     */
+    @Volatile
+    var recorder: TraceRecorder? = null
+        private set
+
+    /**
+     * Installs [recorder] so subsequent sections are recorded by it.
+     * @param recorder The recorder to install, or `null` to stop recording.
+     */
+    @JvmStatic
+    fun install(recorder: TraceRecorder?) {
+        this.recorder = recorder
+    }
+
+    /**
+     * Runs [block] inside a synchronous section named [name].
+     * @param name The section name.
+     * @param block The code to trace.
+     * @return The result of [block].
+     */
+    inline fun <T> section(name: String, block: () -> T): T {
+        begin(name)
+        try {
+            return block()
+        } finally {
+            end()
+        }
+    }
+
+    /**
+     * Begins a synchronous section on the current thread; must be balanced by [end] on the same thread.
+     * @param name The section name.
+     */
+    @JvmStatic
+    fun begin(name: String) {
+        Trace.beginSection(name)
+        recorder?.begin(name)
+    }
+
+    /**
+     * Ends the innermost section begun on the current thread.
+     */
+    @JvmStatic
+    fun end() {
+        recorder?.end()
+        Trace.endSection()
+    }
+
+    /**
+     * Begins an asynchronous section that may end on another thread or coroutine.
+     * @param name The section name; pass the same name to [endAsync].
+     * @return The cookie identifying this section, to be passed to [endAsync].
+     */
+    @JvmStatic
+    fun beginAsync(name: String): Int {
+        val cookie = nextCookie.incrementAndGet()
+        Trace.beginAsyncSection(name, cookie)
+        recorder?.beginAsync(name, cookie)
+        return cookie
+    }
+
+    /**
+     * Ends an asynchronous section begun with [beginAsync].
+     * @param name The section name passed to [beginAsync].
+     * @param cookie The cookie returned by [beginAsync].
+     */
+    @JvmStatic
+    fun endAsync(name: String, cookie: Int) {
+        recorder?.endAsync(name, cookie)
+        Trace.endAsyncSection(name, cookie)
+    }
+
+    /**
+     * Records the current value of a counter track, e.g. the number of rows on screen.
+     * @param name The counter name.
+     * @param value The current value.
+     */
+    @JvmStatic
+    fun counter(name: String, value: Int) {
+        Trace.setCounter(name, value)
+        recorder?.counter(name, value)
+    }
+}
+
+/**
+ * Receives the sections reported through [AppTrace].
+ */
+interface TraceRecorder {
+    fun begin(name: String)
+    fun end()
+    fun beginAsync(name: String, cookie: Int)
+    fun endAsync(name: String, cookie: Int)
+    fun counter(name: String, value: Int)
+}
@@ -0,0 +1,123 @@
+package com.example.usermanagement.trace
+
+import org.json.JSONObject
+import java.io.File
+
+/**
+ * [TraceRecorder] that keeps the most recent trace events in memory and writes them in the Chrome trace event
+ * JSON format, which both `chrome://tracing` and the Perfetto UI open directly.
+ * Intended for debug builds only; recording takes a short lock per event.
+ * @param maxEvents The number of most recent events kept; older events are dropped.
+ * @param processId The process ID written into every event.
+ * @param clock Monotonic nanosecond clock; replaceable in tests.
+ */
+class ChromeTraceRecorder(
+    private val maxEvents: Int = DEFAULT_MAX_EVENTS,
+    private val processId: Int = android.os.Process.myPid(),
+    private val clock: () -> Long = System::nanoTime
+) : TraceRecorder {
+
+    private class Event(
+        val name: String,
+        val phase: Char,
+        val timestampNanos: Long,
+        val durationNanos: Long,
+        val threadId: Long,
+        val id: Int
+    )
+
+    private class OpenSection(val name: String, val startNanos: Long)
+
+    private val events = ArrayDeque<Event>()
+    private val threadNames = HashMap<Long, String>()
+    private val openSections = object : ThreadLocal<ArrayDeque<OpenSection>>() {
+        override fun initialValue() = ArrayDeque<OpenSection>()
+    }
+
+    override fun begin(name: String) {
+        openSections.get()!!.addLast(OpenSection(name, clock()))
+    }
+
+    override fun end() {
+        val section = openSections.get()!!.removeLastOrNull() ?: return
+        val now = clock()
+        add(Event(section.name, PHASE_COMPLETE, section.startNanos, now - section.startNanos, currentThreadId(), 0))
+    }
+
+    override fun beginAsync(name: String, cookie: Int) {
+        add(Event(name, PHASE_ASYNC_BEGIN, clock(), 0, currentThreadId(), cookie))
+    }
+
+    override fun endAsync(name: String, cookie: Int) {
+        add(Event(name, PHASE_ASYNC_END, clock(), 0, currentThreadId(), cookie))
+    }
+
+    override fun counter(name: String, value: Int) {
+        add(Event(name, PHASE_COUNTER, clock(), 0, currentThreadId(), value))
+    }
+
+    /**
+     * Writes all retained events to [file] as a Chrome trace JSON document, replacing any previous content.
+     * @param file The destination, typically under `Context.getFilesDir()`.
+     * @return The number of events written.
+     */
+    fun writeTo(file: File): Int {
+        val (snapshot, names) = synchronized(this) { events.toList() to threadNames.toMap() }
+        file.parentFile?.mkdirs()
+        file.bufferedWriter().use { writer ->
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[")
+            var first = true
+            fun separator() {
+                if (!first) writer.write(",\n")
+                first = false
+            }
+            for ((threadId, threadName) in names) {
+                separator()
+                writer.write(
+                    "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":$processId,\"tid\":$threadId," +
+                        "\"args\":{\"name\":${JSONObject.quote(threadName)}}}"
+                )
+            }
+            for (event in snapshot) {
+                separator()
+                writer.write("{\"name\":${JSONObject.quote(event.name)},\"ph\":\"${event.phase}\"")
+                writer.write(",\"pid\":$processId,\"tid\":${event.threadId},\"ts\":${micros(event.timestampNanos)}")
+                when (event.phase) {
+                    PHASE_COMPLETE -> writer.write(",\"dur\":${micros(event.durationNanos)}")
+                    PHASE_ASYNC_BEGIN, PHASE_ASYNC_END -> writer.write(",\"cat\":\"async\",\"id\":${event.id}")
+                    PHASE_COUNTER -> writer.write(",\"args\":{\"value\":${event.id}}")
+                }
+                writer.write("}")
+            }
+            writer.write("]}")
+        }
+        return snapshot.size
+    }
+
+    /**
+     * Drops all recorded events.
+     */
+    @Synchronized
+    fun clear() {
+        events.clear()
+    }
+
+    @Synchronized
+    private fun add(event: Event) {
+        if (events.size == maxEvents) events.removeFirst()
+        events.addLast(event)
+        if (event.threadId !in threadNames) threadNames[event.threadId] = Thread.currentThread().name
+    }
+
+    private fun currentThreadId(): Long = Thread.currentThread().id
+
+    private fun micros(nanos: Long): String = String.format(java.util.Locale.US, "%.3f", nanos / 1_000.0)
+
+    companion object {
+        private const val DEFAULT_MAX_EVENTS = 100_000
+        private const val PHASE_COMPLETE = 'X'
+        private const val PHASE_ASYNC_BEGIN = 'b'
+        private const val PHASE_ASYNC_END = 'e'
+        private const val PHASE_COUNTER = 'C'
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.usermanagement.trace
+
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+
+/**
+ * Wraps this flow so each collection is traced as an async section named [name], from the start of the
+ * collection until its first value arrives. For Room flows this spans the initial query execution.
+ * @param name The async section name.
+ * @return A flow emitting the same values as this flow.
+ */
+fun <T> Flow<T>.traceFirstEmission(name: String): Flow<T> {
+    val upstream = this
+    return flow {
+        var cookie = AppTrace.beginAsync(name)
+        try {
+            upstream.collect { value ->
+                if (cookie != 0) {
+                    AppTrace.endAsync(name, cookie)
+                    cookie = 0
+                }
+                emit(value)
+            }
+        } finally {
+            if (cookie != 0) AppTrace.endAsync(name, cookie)
+        }
+    }
+}
@@ -13,8 +13,7 @@ import androidx.lifecycle.lifecycleScope
 import androidx.lifecycle.repeatOnLifecycle
 import androidx.lifecycle.Lifecycle
 import kotlinx.coroutines.launch
-import com.example.usermanagement.data.UserDatabase
-import com.example.usermanagement.repository.UserRepositoryImpl
+import com.example.usermanagement.UserManagementApplication
 import com.example.usermanagement.viewmodel.UserViewModelFactory
 import com.example.usermanagement.ui.components.UserFilterDialog
 
@@ -33,20 +32,25 @@ class FilteredResultsActivity : AppCompatActivity() {
         noResultsText = findViewById(R.id.textViewNoResults)
 
         // Setup RecyclerView
+        // The list is constrained by its parent, so item changes never need to re-measure the RecyclerView.
         adapter = UserAdapter()
-        recyclerView.layoutManager = LinearLayoutManager(this)
+        recyclerView.setHasFixedSize(true)
+        recyclerView.layoutManager = LinearLayoutManager(this).apply {
+            isItemPrefetchEnabled = true
+        }
+        recyclerView.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE)
+        recyclerView.recycledViewPool.setMaxRecycledViews(UserAdapter.VIEW_TYPE_USER, UserAdapter.MAX_POOLED_VIEWS)
         recyclerView.adapter = adapter
 
-        // Initialize repository and ViewModel
-        val database = UserDatabase.getDatabase(application)
-        val repository = UserRepositoryImpl(database.userDao())
+        // Share the application's repository, so this screen uses the same database connection and writer
+        val repository = (application as UserManagementApplication).repository
         val factory = UserViewModelFactory(application, repository)
         viewModel = ViewModelProvider(this, factory)[UserViewModel::class.java]
 
-        // Retrieve filter from Intent and apply it
-        val firstNameFilter = intent.getStringExtra(UserFilterDialog.EXTRA_FIRST_NAME_FILTER)
-        if (!firstNameFilter.isNullOrEmpty()) {
-            viewModel.setFirstNameFilter(firstNameFilter)
+        // Retrieve filter from Intent and apply it; the dialog only passes valid expressions
+        val filterExpression = intent.getStringExtra(UserFilterDialog.EXTRA_FILTER_EXPRESSION)
+        if (!filterExpression.isNullOrEmpty()) {
+            viewModel.setFilter(filterExpression)
         } else {
             viewModel.clearFilters() // Clear filters if no filter is provided
         }
@@ -55,16 +59,25 @@ class FilteredResultsActivity : AppCompatActivity() {
         lifecycleScope.launch {
             repeatOnLifecycle(Lifecycle.State.STARTED) {
                 viewModel.filteredUsers.collect { users ->
+                    // Always submit so an emptied list does not leave stale rows behind;
+                    // the diff itself runs on the adapter's background executor.
+                    adapter.submitList(users)
                     if (users.isEmpty()) {
                         recyclerView.visibility = View.GONE
                         noResultsText.visibility = View.VISIBLE
                     } else {
                         recyclerView.visibility = View.VISIBLE
                         noResultsText.visibility = View.GONE
-                        adapter.submitList(users)
                     }
                 }
             }
         }
     }
-} 
\ No newline at end of file
+
+    companion object {
+        /**
+         * Number of off-screen rows kept bound, so short scroll reversals do not rebind at all.
+         */
+        private const val ITEM_VIEW_CACHE_SIZE = 10
+    }
+}
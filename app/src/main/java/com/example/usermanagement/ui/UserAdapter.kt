@@ -4,13 +4,36 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
+import androidx.recyclerview.widget.AsyncDifferConfig
 import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.example.usermanagement.R
 import com.example.usermanagement.data.User
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 
-class UserAdapter : ListAdapter<User, UserAdapter.UserViewHolder>(UserDiffCallback()) {
+/**
+ * [ListAdapter] for user rows.
+ * Diffs run on a dedicated background executor, items have stable IDs and field changes are
+ * delivered as payloads so only the affected [TextView] is rebound.
+ * @param diffExecutor The executor used to compute list diffs off the main thread.
+ */
+class UserAdapter(
+    diffExecutor: Executor = DIFF_EXECUTOR
+) : ListAdapter<User, UserAdapter.UserViewHolder>(
+    AsyncDifferConfig.Builder(UserDiffCallback())
+        .setBackgroundThreadExecutor(diffExecutor)
+        .build()
+) {
+
+    init {
+        setHasStableIds(true)
+    }
+
+    override fun getItemId(position: Int): Long = getItem(position).id
+
+    override fun getItemViewType(position: Int): Int = VIEW_TYPE_USER
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): UserViewHolder {
         val view = LayoutInflater.from(parent.context)
@@ -23,6 +46,19 @@ class UserAdapter : ListAdapter<User, UserAdapter.UserViewHolder>(UserDiffCallba
         holder.bind(user)
     }
 
+    override fun onBindViewHolder(holder: UserViewHolder, position: Int, payloads: MutableList<Any>) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position)
+            return
+        }
+        // Payloads from consecutive diffs may be coalesced, so merge all change flags first.
+        var changes = 0
+        for (payload in payloads) {
+            changes = changes or (payload as Int)
+        }
+        holder.bindChanges(getItem(position), changes)
+    }
+
     class UserViewHolder(itemView: View) : RecyclerView.ViewHolder(itemView) {
         private val nameTextView: TextView = itemView.findViewById(R.id.textViewName)
         private val emailTextView: TextView = itemView.findViewById(R.id.textViewEmail)
@@ -33,15 +69,63 @@ class UserAdapter : ListAdapter<User, UserAdapter.UserViewHolder>(UserDiffCallba
             emailTextView.text = user.email
             phoneTextView.text = user.phone
         }
+
+        /**
+         * Rebinds only the views whose fields are flagged in [changes].
+         * @param user The updated user.
+         * @param changes A bit set of `PAYLOAD_*` flags.
+         */
+        fun bindChanges(user: User, changes: Int) {
+            if (changes and PAYLOAD_NAME != 0) nameTextView.text = user.fullName
+            if (changes and PAYLOAD_EMAIL != 0) emailTextView.text = user.email
+            if (changes and PAYLOAD_PHONE != 0) phoneTextView.text = user.phone
+        }
     }
 
+    /**
+     * Compares only the fields a row displays, so edits to hidden fields (DOB, address) do not rebind rows.
+     */
     private class UserDiffCallback : DiffUtil.ItemCallback<User>() {
         override fun areItemsTheSame(oldItem: User, newItem: User): Boolean {
             return oldItem.id == newItem.id
         }
 
         override fun areContentsTheSame(oldItem: User, newItem: User): Boolean {
-            return oldItem == newItem
+            return oldItem.firstName == newItem.firstName &&
+                oldItem.lastName == newItem.lastName &&
+                oldItem.email == newItem.email &&
+                oldItem.phone == newItem.phone
+        }
+
+        override fun getChangePayload(oldItem: User, newItem: User): Any {
+            var changes = 0
+            if (oldItem.firstName != newItem.firstName || oldItem.lastName != newItem.lastName) {
+                changes = changes or PAYLOAD_NAME
+            }
+            if (oldItem.email != newItem.email) changes = changes or PAYLOAD_EMAIL
+            if (oldItem.phone != newItem.phone) changes = changes or PAYLOAD_PHONE
+            return changes
+        }
+    }
+
+    companion object {
+        const val VIEW_TYPE_USER = 0
+
+        private const val PAYLOAD_NAME = 1
+        private const val PAYLOAD_EMAIL = 1 shl 1
+        private const val PAYLOAD_PHONE = 1 shl 2
+
+        /**
+         * Number of user row views a list's recycled view pool keeps; enough for about two screens of rows.
+         */
+        const val MAX_POOLED_VIEWS = 20
+
+        /**
+         * Single background thread shared by all adapters, so diffs never run on the main thread
+         * and never contend with each other.
+         */
+        private val DIFF_EXECUTOR: Executor = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "UserAdapter-diff").apply { isDaemon = true }
         }
     }
-} 
\ No newline at end of file
+}
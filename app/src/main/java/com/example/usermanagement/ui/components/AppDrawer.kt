@@ -4,7 +4,12 @@ import androidx.compose.foundation.background
 import androidx.compose.foundation.layout.*
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.Add
+import androidx.compose.material.icons.filled.AddCircle
 import androidx.compose.material.icons.filled.ExitToApp
+import androidx.compose.material.icons.filled.Info
+import androidx.compose.material.icons.filled.Person
+import androidx.compose.material.icons.filled.PlayArrow
+import androidx.compose.material.icons.filled.Share
 import androidx.compose.material3.*
 import androidx.compose.runtime.Composable
 import androidx.compose.ui.Modifier
@@ -16,14 +21,27 @@ import androidx.compose.ui.unit.dp
  * It provides options for user actions like adding a user and logging out.
  * @param onLogout Callback function invoked when the 'Logout' button is clicked.
  * @param onAddUser Callback function invoked when the 'Add User' button is clicked.
+ * @param onShowStatistics Callback function invoked when the 'Statistics' button is clicked.
+ * @param onShowDuplicates Callback function invoked when the 'Duplicates' button is clicked.
  * @param modifier The [Modifier] to be applied to the layout.
+ * @param onExportTrace Callback function invoked when the debug 'Export Trace' item is clicked; the item is hidden when `null`.
+ * @param onSeedUsers Callback function invoked when the debug 'Seed 100k Users' item is clicked; the item is hidden when `null`.
+ * @param onToggleWorkloadRecording Callback function invoked when the debug workload recording item is clicked;
+ * the item is hidden when `null`.
+ * @param isRecordingWorkload Whether a workload recording is running, which switches the item to 'Stop Recording'.
  */
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun AppDrawer(
     onLogout: () -> Unit,
     onAddUser: () -> Unit,
-    modifier: Modifier = Modifier
+    onShowStatistics: () -> Unit,
+    onShowDuplicates: () -> Unit,
+    modifier: Modifier = Modifier,
+    onExportTrace: (() -> Unit)? = null,
+    onSeedUsers: (() -> Unit)? = null,
+    onToggleWorkloadRecording: (() -> Unit)? = null,
+    isRecordingWorkload: Boolean = false
 ) {
     ModalDrawerSheet(modifier = modifier) {
         Spacer(modifier = Modifier.height(12.dp))
@@ -40,6 +58,52 @@ fun AppDrawer(
             onClick = onAddUser,
             modifier = Modifier.padding(horizontal = 12.dp)
         )
+        NavigationDrawerItem(
+            icon = { Icon(Icons.Default.Info, contentDescription = null) },
+            label = { Text("Statistics", modifier = Modifier.testTag("drawer_statistics_button_text")) },
+            selected = false,
+            onClick = onShowStatistics,
+            modifier = Modifier.padding(horizontal = 12.dp)
+        )
+        NavigationDrawerItem(
+            icon = { Icon(Icons.Default.Person, contentDescription = null) },
+            label = { Text("Duplicates", modifier = Modifier.testTag("drawer_duplicates_button_text")) },
+            selected = false,
+            onClick = onShowDuplicates,
+            modifier = Modifier.padding(horizontal = 12.dp)
+        )
+        if (onExportTrace != null) {
+            NavigationDrawerItem(
+                icon = { Icon(Icons.Default.Share, contentDescription = null) },
+                label = { Text("Export Trace", modifier = Modifier.testTag("drawer_export_trace_button_text")) },
+                selected = false,
+                onClick = onExportTrace,
+                modifier = Modifier.padding(horizontal = 12.dp)
+            )
+        }
+        if (onSeedUsers != null) {
+            NavigationDrawerItem(
+                icon = { Icon(Icons.Default.AddCircle, contentDescription = null) },
+                label = { Text("Seed 100k Users", modifier = Modifier.testTag("drawer_seed_users_button_text")) },
+                selected = false,
+                onClick = onSeedUsers,
+                modifier = Modifier.padding(horizontal = 12.dp)
+            )
+        }
+        if (onToggleWorkloadRecording != null) {
+            NavigationDrawerItem(
+                icon = { Icon(Icons.Default.PlayArrow, contentDescription = null) },
+                label = {
+                    Text(
+                        if (isRecordingWorkload) "Stop Recording" else "Record Workload",
+                        modifier = Modifier.testTag("drawer_record_workload_button_text")
+                    )
+                },
+                selected = isRecordingWorkload,
+                onClick = onToggleWorkloadRecording,
+                modifier = Modifier.padding(horizontal = 12.dp)
+            )
+        }
         NavigationDrawerItem(
             icon = { Icon(Icons.Default.ExitToApp, contentDescription = null) },
             label = { Text("Logout", modifier = Modifier.testTag("drawer_logout_button_text")) },
@@ -0,0 +1,56 @@
+package com.example.usermanagement.ui.components
+
+import androidx.compose.material3.AlertDialog
+import androidx.compose.material3.Button
+import androidx.compose.material3.OutlinedTextField
+import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.platform.testTag
+import androidx.compose.ui.res.stringResource
+import com.example.usermanagement.R
+
+/**
+ * Dialog asking for a single value to apply to every selected user.
+ * @param title The dialog title, e.g. "Set address for 12 users".
+ * @param label The label of the value field.
+ * @param onConfirm Callback function invoked with the entered value.
+ * @param onDismiss Callback function invoked when the dialog is cancelled.
+ */
+@Composable
+fun BulkEditDialog(
+    title: String,
+    label: String,
+    onConfirm: (String) -> Unit,
+    onDismiss: () -> Unit
+) {
+    var value by remember { mutableStateOf("") }
+    AlertDialog(
+        onDismissRequest = onDismiss,
+        title = { Text(title) },
+        text = {
+            OutlinedTextField(
+                value = value,
+                onValueChange = { value = it },
+                label = { Text(label) },
+                singleLine = true,
+                modifier = Modifier.testTag("bulk_edit_value")
+            )
+        },
+        confirmButton = {
+            Button(onClick = { onConfirm(value.trim()) }) {
+                Text(stringResource(R.string.button_confirm))
+            }
+        },
+        dismissButton = {
+            TextButton(onClick = onDismiss) {
+                Text(stringResource(R.string.button_cancel))
+            }
+        }
+    )
+}
@@ -1,6 +1,7 @@
 package com.example.usermanagement.ui.components
 
-import androidx.compose.foundation.clickable
+import androidx.compose.foundation.ExperimentalFoundationApi
+import androidx.compose.foundation.combinedClickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.material3.*
 import androidx.compose.runtime.Composable
@@ -10,31 +11,39 @@ import androidx.compose.ui.platform.testTag
 import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.unit.dp
 import com.example.usermanagement.R
-import com.example.usermanagement.data.User
-import java.text.SimpleDateFormat
-import java.util.*
+import com.example.usermanagement.ui.state.UserListItem
 
 /**
  * A composable function that displays a single user's information in a card format.
  * It includes the user's full name, email, and phone number, along with action buttons for editing and deleting the user.
- * @param user The [User] data object to display.
- * @param onEditClick Callback function invoked when the "Edit" button is clicked, providing the [User] object.
- * @param onDeleteClick Callback function invoked when the "Delete" button is clicked, providing the [User] object.
+ * All parameters are stable, so the card is skipped when recomposed with an unchanged [user].
+ * @param user The [UserListItem] to display.
+ * @param onEditClick Callback function invoked when the card or its "Edit" button is clicked, providing the user's ID.
+ * @param onDeleteClick Callback function invoked when the "Delete" button is clicked, providing the [UserListItem].
  * @param modifier The [Modifier] to be applied to the card layout.
+ * @param selectionMode `true` while the list is in multi-select mode; clicks then toggle selection instead of editing.
+ * @param selected `true` if this user is part of the current selection.
+ * @param onSelectClick Callback function invoked on long press, or on click in [selectionMode], providing the user's ID.
  */
-@OptIn(ExperimentalMaterial3Api::class)
+@OptIn(ExperimentalMaterial3Api::class, ExperimentalFoundationApi::class)
 @Composable
 fun UserCard(
-    user: User,
-    onEditClick: (User) -> Unit,
-    onDeleteClick: (User) -> Unit,
-    modifier: Modifier = Modifier
+    user: UserListItem,
+    onEditClick: (Long) -> Unit,
+    onDeleteClick: (UserListItem) -> Unit,
+    modifier: Modifier = Modifier,
+    selectionMode: Boolean = false,
+    selected: Boolean = false,
+    onSelectClick: (Long) -> Unit = {}
 ) {
     Card(
         modifier = modifier
             .fillMaxWidth()
             .padding(8.dp)
-            .clickable { onEditClick(user) },
+            .combinedClickable(
+                onClick = { if (selectionMode) onSelectClick(user.id) else onEditClick(user.id) },
+                onLongClick = { onSelectClick(user.id) }
+            ),
         elevation = CardDefaults.cardElevation(defaultElevation = 4.dp)
     ) {
         Column(
@@ -42,11 +51,20 @@ fun UserCard(
                 .padding(16.dp)
                 .fillMaxWidth()
         ) {
-            Text(
-                text = user.fullName,
-                style = MaterialTheme.typography.titleMedium,
-                modifier = Modifier.testTag("user_card_name_${user.id}")
-            )
+            Row(verticalAlignment = Alignment.CenterVertically) {
+                if (selectionMode) {
+                    Checkbox(
+                        checked = selected,
+                        onCheckedChange = { onSelectClick(user.id) },
+                        modifier = Modifier.testTag("user_card_checkbox_${user.id}")
+                    )
+                }
+                Text(
+                    text = user.fullName,
+                    style = MaterialTheme.typography.titleMedium,
+                    modifier = Modifier.testTag("user_card_name_${user.id}")
+                )
+            }
             Spacer(modifier = Modifier.height(4.dp))
             Text(
                 text = user.email,
@@ -56,17 +74,19 @@ fun UserCard(
                 text = user.phone,
                 style = MaterialTheme.typography.bodyMedium
             )
-            Row(
-                modifier = Modifier
-                    .fillMaxWidth()
-                    .padding(top = 8.dp),
-                horizontalArrangement = Arrangement.End
-            ) {
-                TextButton(onClick = { onEditClick(user) }) {
-                    Text(stringResource(R.string.button_edit))
-                }
-                TextButton(onClick = { onDeleteClick(user) }) {
-                    Text(stringResource(R.string.button_delete))
+            if (!selectionMode) {
+                Row(
+                    modifier = Modifier
+                        .fillMaxWidth()
+                        .padding(top = 8.dp),
+                    horizontalArrangement = Arrangement.End
+                ) {
+                    TextButton(onClick = { onEditClick(user.id) }) {
+                        Text(stringResource(R.string.button_edit))
+                    }
+                    TextButton(onClick = { onDeleteClick(user) }) {
+                        Text(stringResource(R.string.button_delete))
+                    }
                 }
             }
         }
@@ -9,16 +9,21 @@ import android.widget.Button;
 import android.widget.EditText;
 import androidx.annotation.NonNull;
 import com.example.usermanagement.R;
+import com.example.usermanagement.filter.FilterParser;
+import com.example.usermanagement.filter.FilterSyntaxException;
 import com.example.usermanagement.ui.FilteredResultsActivity;
 import com.example.usermanagement.viewmodel.UserViewModel;
 
 public class UserFilterDialog extends Dialog {
     private final UserViewModel viewModel;
-    private EditText firstNameEditText;
+    private EditText filterEditText;
     private Button applyButton;
     private Button cancelButton;
 
-    public static final String EXTRA_FIRST_NAME_FILTER = "com.example.usermanagement.FIRST_NAME_FILTER";
+    /**
+     * Intent extra carrying the filter expression for {@link FilteredResultsActivity}, see {@link FilterParser}.
+     */
+    public static final String EXTRA_FILTER_EXPRESSION = "com.example.usermanagement.FILTER_EXPRESSION";
 
     public UserFilterDialog(@NonNull Context context, UserViewModel viewModel) {
         super(context);
@@ -31,7 +36,7 @@ public class UserFilterDialog extends Dialog {
         setContentView(R.layout.dialog_user_filter);
 
         // Initialize views
-        firstNameEditText = findViewById(R.id.editTextFirstName);
+        filterEditText = findViewById(R.id.editTextFilter);
         applyButton = findViewById(R.id.buttonApply);
         cancelButton = findViewById(R.id.buttonCancel);
 
@@ -39,15 +44,19 @@ public class UserFilterDialog extends Dialog {
         applyButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                String firstName = firstNameEditText.getText().toString().trim();
-                // No longer setting filter on ViewModel directly here, 
-                // as FilteredResultsActivity will do it from the Intent.
-                // viewModel.setFirstNameFilter(firstName.isEmpty() ? null : firstName);
-                
+                String expression = filterEditText.getText().toString().trim();
+                if (!expression.isEmpty()) {
+                    // Reject malformed expressions here, where they can still be corrected
+                    if (!viewModel.validateFilter(expression)) {
+                        showFilterError(expression);
+                        return;
+                    }
+                }
+
                 // Launch FilteredResultsActivity and pass the filter
                 Intent intent = new Intent(getContext(), FilteredResultsActivity.class);
-                if (!firstName.isEmpty()) {
-                    intent.putExtra(EXTRA_FIRST_NAME_FILTER, firstName);
+                if (!expression.isEmpty()) {
+                    intent.putExtra(EXTRA_FILTER_EXPRESSION, expression);
                 }
                 getContext().startActivity(intent);
                 dismiss();
@@ -61,4 +70,15 @@ public class UserFilterDialog extends Dialog {
             }
         });
     }
+
+    /**
+     * Shows the view model's {@link UserViewModel#getFilterError() filter error} on the expression field and moves
+     * the cursor to the offending position.
+     */
+    private void showFilterError(String expression) {
+        FilterSyntaxException error = viewModel.getFilterError().getValue();
+        if (error == null) return;
+        filterEditText.setError(error.getMessage());
+        filterEditText.setSelection(Math.min(error.getPosition(), expression.length()));
+    }
 } 
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.example.usermanagement.ui.screens
 
+import android.widget.Toast
 import androidx.compose.foundation.layout.*
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.Menu
@@ -13,10 +14,13 @@ import androidx.navigation.compose.NavHost
 import androidx.navigation.compose.composable
 import androidx.navigation.compose.rememberNavController
 import com.example.usermanagement.R
+import com.example.usermanagement.UserManagementApplication
 import com.example.usermanagement.ui.components.AppDrawer
 import com.example.usermanagement.ui.components.UserFilterDialog
 import com.example.usermanagement.viewmodel.UserViewModel
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
 /**
  * A composable function that represents the main screen of the User Management application.
@@ -36,6 +40,8 @@ fun DrawerScreen(
     val drawerState = rememberDrawerState(initialValue = DrawerValue.Closed)
     val scope = rememberCoroutineScope()
     val context = LocalContext.current
+    val application = context.applicationContext as? UserManagementApplication
+    var isRecordingWorkload by remember { mutableStateOf(application?.workloadRecorder?.isRecording == true) }
 
     ModalNavigationDrawer(
         drawerState = drawerState,
@@ -47,7 +53,54 @@ fun DrawerScreen(
                         drawerState.close()
                         navController.navigate("addUser")
                     }
-                }
+                },
+                onShowStatistics = {
+                    scope.launch {
+                        drawerState.close()
+                        navController.navigate("statistics")
+                    }
+                },
+                onShowDuplicates = {
+                    scope.launch {
+                        drawerState.close()
+                        navController.navigate("duplicates")
+                    }
+                },
+                onExportTrace = application?.traceRecorder?.let {
+                    {
+                        scope.launch {
+                            drawerState.close()
+                            val file = withContext(Dispatchers.IO) { application.dumpTrace() }
+                            Toast.makeText(context, "Trace written to ${file?.path}", Toast.LENGTH_LONG).show()
+                        }
+                    }
+                },
+                onSeedUsers = application?.takeIf { it.isDebuggable }?.let { app ->
+                    {
+                        scope.launch {
+                            drawerState.close()
+                            Toast.makeText(context, "Seeding users…", Toast.LENGTH_SHORT).show()
+                            val inserted = app.seedSyntheticUsers(UserManagementApplication.SEED_USER_COUNT)
+                            Toast.makeText(context, "Seeded $inserted users", Toast.LENGTH_LONG).show()
+                        }
+                    }
+                },
+                onToggleWorkloadRecording = application?.takeIf { it.isDebuggable }?.let { app ->
+                    {
+                        scope.launch {
+                            drawerState.close()
+                            if (isRecordingWorkload) {
+                                withContext(Dispatchers.IO) { app.stopWorkloadRecording() }
+                                Toast.makeText(context, "Workload recording stopped", Toast.LENGTH_SHORT).show()
+                            } else {
+                                val file = withContext(Dispatchers.IO) { app.startWorkloadRecording() }
+                                Toast.makeText(context, "Recording workload to ${file.path}", Toast.LENGTH_LONG).show()
+                            }
+                            isRecordingWorkload = app.workloadRecorder.isRecording
+                        }
+                    }
+                },
+                isRecordingWorkload = isRecordingWorkload
             )
         }
     ) {
@@ -94,6 +147,7 @@ fun DrawerScreen(
                         viewModel = viewModel,
                         onAddClick = { navController.navigate("addUser") },
                         onEditClick = { userId ->
+                            viewModel.prefetchUser(userId)
                             navController.navigate("editUser/$userId")
                         }
                     )
@@ -104,6 +158,18 @@ fun DrawerScreen(
                         onNavigateBack = { navController.popBackStack() }
                     )
                 }
+                composable("statistics") {
+                    StatisticsScreen(viewModel = viewModel)
+                }
+                composable("duplicates") {
+                    DuplicatesScreen(
+                        viewModel = viewModel,
+                        onEditClick = { userId ->
+                            viewModel.prefetchUser(userId)
+                            navController.navigate("editUser/$userId")
+                        }
+                    )
+                }
                 composable("editUser/{userId}") { backStackEntry ->
                     val userId = backStackEntry.arguments?.getString("userId")?.toLongOrNull()
                     if (userId != null) {
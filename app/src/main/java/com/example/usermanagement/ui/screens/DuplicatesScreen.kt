@@ -0,0 +1,106 @@
+package com.example.usermanagement.ui.screens
+
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.Column
+import androidx.compose.foundation.layout.PaddingValues
+import androidx.compose.foundation.layout.Row
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material3.Card
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.collectAsState
+import androidx.compose.runtime.getValue
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.platform.testTag
+import androidx.compose.ui.unit.dp
+import com.example.usermanagement.data.User
+import com.example.usermanagement.dedupe.DuplicateCluster
+import com.example.usermanagement.dedupe.DuplicateScorer
+import com.example.usermanagement.viewmodel.UserViewModel
+import kotlin.math.roundToInt
+
+/**
+ * A composable function that lists the clusters of probable duplicate users for review, strongest first.
+ * Each cluster can be dismissed as different people, or a user opened to merge or delete it by hand.
+ * @param viewModel The [UserViewModel] instance providing the clusters.
+ * @param onEditClick Callback function invoked with the ID of a user tapped in a cluster.
+ */
+@Composable
+fun DuplicatesScreen(viewModel: UserViewModel, onEditClick: (Long) -> Unit) {
+    val clusters by viewModel.duplicateClusters.collectAsState()
+
+    if (clusters.isEmpty()) {
+        Text(
+            "No duplicates found",
+            style = MaterialTheme.typography.bodyLarge,
+            modifier = Modifier
+                .padding(16.dp)
+                .testTag("duplicates_empty_text")
+        )
+        return
+    }
+    LazyColumn(
+        modifier = Modifier.fillMaxSize(),
+        contentPadding = PaddingValues(16.dp),
+        verticalArrangement = Arrangement.spacedBy(8.dp)
+    ) {
+        items(clusters, key = { it.users.first().id }) { cluster ->
+            ClusterCard(cluster, onEditClick, onDismiss = { viewModel.dismissDuplicates(cluster) })
+        }
+    }
+}
+
+@Composable
+private fun ClusterCard(cluster: DuplicateCluster, onEditClick: (Long) -> Unit, onDismiss: () -> Unit) {
+    Card(
+        modifier = Modifier
+            .fillMaxWidth()
+            .testTag("duplicate_cluster")
+    ) {
+        Column(modifier = Modifier.padding(12.dp), verticalArrangement = Arrangement.spacedBy(4.dp)) {
+            Text(
+                "${(cluster.score * 100).roundToInt()}% match: ${reasonsText(cluster)}",
+                style = MaterialTheme.typography.titleSmall
+            )
+            cluster.users.forEach { user -> ClusterUser(user, onClick = { onEditClick(user.id) }) }
+            Row(modifier = Modifier.fillMaxWidth(), horizontalArrangement = Arrangement.End) {
+                TextButton(onClick = onDismiss, modifier = Modifier.testTag("dismiss_duplicates_button")) {
+                    Text("Not duplicates")
+                }
+            }
+        }
+    }
+}
+
+@Composable
+private fun ClusterUser(user: User, onClick: () -> Unit) {
+    Row(modifier = Modifier.fillMaxWidth(), verticalAlignment = Alignment.CenterVertically) {
+        TextButton(onClick = onClick) {
+            Text("${user.firstName} ${user.lastName}", style = MaterialTheme.typography.bodyLarge)
+        }
+        Text(
+            listOf(user.email, user.phone, user.dob).filter { it.isNotBlank() }.joinToString(" · "),
+            style = MaterialTheme.typography.bodySmall
+        )
+    }
+}
+
+/**
+ * The fields that matched in any pair of the cluster.
+ */
+private fun reasonsText(cluster: DuplicateCluster): String {
+    val reasons = cluster.pairs.fold(0) { acc, pair -> acc or pair.reasons }
+    return listOfNotNull(
+        "name".takeIf { reasons and DuplicateScorer.REASON_NAME != 0 },
+        "email".takeIf { reasons and DuplicateScorer.REASON_EMAIL != 0 },
+        "phone".takeIf { reasons and DuplicateScorer.REASON_PHONE != 0 },
+        "date of birth".takeIf { reasons and DuplicateScorer.REASON_DOB != 0 }
+    ).joinToString(", ")
+}
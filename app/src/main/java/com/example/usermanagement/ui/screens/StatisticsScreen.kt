@@ -0,0 +1,82 @@
+package com.example.usermanagement.ui.screens
+
+import androidx.compose.foundation.layout.Arrangement
+import androidx.compose.foundation.layout.PaddingValues
+import androidx.compose.foundation.layout.Row
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material3.Divider
+import androidx.compose.material3.MaterialTheme
+import androidx.compose.material3.Text
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.collectAsState
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.remember
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.platform.testTag
+import androidx.compose.ui.unit.dp
+import com.example.usermanagement.viewmodel.UserViewModel
+import java.time.LocalDate
+
+/**
+ * Number of domains listed before the rest are summed into one row.
+ */
+private const val TOP_DOMAINS = 10
+
+/**
+ * A composable function that displays the directory statistics: total users, users per email domain and per age range.
+ * Everything shown comes from the precomputed counters, so the screen costs the same at any number of users.
+ * @param viewModel The [UserViewModel] instance providing the statistics.
+ */
+@Composable
+fun StatisticsScreen(viewModel: UserViewModel) {
+    val stats by viewModel.stats.collectAsState()
+    val currentYear = remember { LocalDate.now().year }
+    val ageBuckets = remember(stats, currentYear) { stats.ageBuckets(currentYear) }
+    val otherDomains = remember(stats) { stats.byDomain.drop(TOP_DOMAINS).sumOf { it.second } }
+
+    LazyColumn(
+        modifier = Modifier.fillMaxSize(),
+        contentPadding = PaddingValues(16.dp),
+        verticalArrangement = Arrangement.spacedBy(8.dp)
+    ) {
+        item {
+            Text(
+                "${stats.total} users",
+                style = MaterialTheme.typography.headlineSmall,
+                modifier = Modifier.testTag("stats_total_text")
+            )
+        }
+        item { SectionTitle("By email domain") }
+        items(stats.byDomain.take(TOP_DOMAINS), key = { "domain:${it.first}" }) { (domain, count) ->
+            StatRow(domain, count)
+        }
+        if (otherDomains > 0) {
+            item { StatRow("Other domains", otherDomains) }
+        }
+        item { SectionTitle("By age") }
+        items(ageBuckets, key = { "age:${it.label}" }) { bucket ->
+            StatRow(bucket.label, bucket.count)
+        }
+    }
+}
+
+@Composable
+private fun SectionTitle(title: String) {
+    Text(title, style = MaterialTheme.typography.titleMedium, modifier = Modifier.padding(top = 16.dp))
+    Divider()
+}
+
+@Composable
+private fun StatRow(label: String, count: Long) {
+    Row(
+        modifier = Modifier.fillMaxWidth(),
+        horizontalArrangement = Arrangement.SpaceBetween
+    ) {
+        Text(label, style = MaterialTheme.typography.bodyLarge)
+        Text(count.toString(), style = MaterialTheme.typography.bodyLarge)
+    }
+}
@@ -7,6 +7,7 @@ import androidx.compose.foundation.rememberScrollState
 import androidx.compose.foundation.verticalScroll
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.automirrored.filled.ArrowBack
+import androidx.compose.material3.CircularProgressIndicator
 import androidx.compose.material3.ExperimentalMaterial3Api
 import androidx.compose.material3.Icon
 import androidx.compose.material3.IconButton
@@ -23,6 +24,7 @@ import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.remember
 import androidx.compose.runtime.rememberCoroutineScope
 import androidx.compose.runtime.setValue
+import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.platform.testTag
 import androidx.compose.ui.unit.dp
@@ -30,6 +32,7 @@ import com.example.usermanagement.data.User
 import com.example.usermanagement.ui.components.UserForm
 import com.example.usermanagement.util.Result
 import com.example.usermanagement.viewmodel.UserViewModel
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
 
 /**
@@ -67,20 +70,30 @@ fun UserFormScreen(
     val snackbarHostState = remember { SnackbarHostState() }
     val scope = rememberCoroutineScope()
 
+    /**
+     * `true` once the form has its initial values; immediately for a new user.
+     */
+    var isUserLoaded by remember { mutableStateOf(userId == null) }
+
     /**
      * [LaunchedEffect] to load user data when [userId] changes (i.e., when entering edit mode).
-     * It finds the user from the current UI state of the ViewModel and updates the local [user] state.
+     * The user is resolved by ID from the repository's shared flow, independent of the loaded list or search.
+     * Only the first value seeds the form, so later writes do not overwrite the user's edits.
+     * If no user has the ID, e.g. because it was deleted meanwhile, an error is shown and the screen is left.
      */
     LaunchedEffect(userId) {
         if (userId != null) {
-            // Find the user in the current list
-            val currentUser = viewModel.uiState.value.let { state ->
-                when (state) {
-                    is Result.Success -> state.data.find { it.id == userId }
-                    else -> null
-                }
+            val stored = viewModel.observeUser(userId).first()
+            if (stored == null) {
+                snackbarHostState.showSnackbar(
+                    message = "This user no longer exists",
+                    duration = SnackbarDuration.Short
+                )
+                onNavigateBack()
+            } else {
+                user = stored
+                isUserLoaded = true
             }
-            currentUser?.let { user = it }
         }
     }
 
@@ -141,20 +154,24 @@ fun UserFormScreen(
         ) {
             // Add padding inside the scrollable content
             Column(modifier = Modifier.padding(16.dp)) {
-                UserForm(
-                    initialState = user,
-                    onUserChange = { user = it },
-                    onSubmit = {
-                        scope.launch {
-                            if (isEditMode) {
-                                viewModel.updateUser(user)
-                            } else {
-                                viewModel.addUser(user)
+                if (!isUserLoaded) {
+                    CircularProgressIndicator(modifier = Modifier.align(Alignment.CenterHorizontally))
+                } else {
+                    UserForm(
+                        initialState = user,
+                        onUserChange = { user = it },
+                        onSubmit = {
+                            scope.launch {
+                                if (isEditMode) {
+                                    viewModel.updateUser(user)
+                                } else {
+                                    viewModel.addUser(user)
+                                }
+                                onNavigateBack()
                             }
-                            onNavigateBack()
                         }
-                    }
-                )
+                    )
+                }
             }
         }
     }
@@ -1,65 +1,127 @@
 package com.example.usermanagement.ui.screens
 
+import androidx.compose.foundation.ExperimentalFoundationApi
+import androidx.compose.foundation.background
+import androidx.compose.foundation.gestures.detectTapGestures
+import androidx.compose.foundation.gestures.detectVerticalDragGestures
 import androidx.compose.foundation.layout.Arrangement
 import androidx.compose.foundation.layout.Box
 import androidx.compose.foundation.layout.Column
 import androidx.compose.foundation.layout.PaddingValues
+import androidx.compose.foundation.layout.Row
+import androidx.compose.foundation.layout.fillMaxHeight
 import androidx.compose.foundation.layout.fillMaxSize
 import androidx.compose.foundation.layout.fillMaxWidth
 import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.layout.width
 import androidx.compose.foundation.lazy.LazyColumn
 import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.rememberLazyListState
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.Clear
+import androidx.compose.material.icons.filled.Close
 import androidx.compose.material.icons.filled.Search
 import androidx.compose.material3.CircularProgressIndicator
+import androidx.compose.material3.DropdownMenu
+import androidx.compose.material3.DropdownMenuItem
 import androidx.compose.material3.ExperimentalMaterial3Api
+import androidx.compose.material3.FilterChip
 import androidx.compose.material3.Icon
 import androidx.compose.material3.IconButton
+import androidx.compose.material3.LinearProgressIndicator
+import androidx.compose.material3.MaterialTheme
 import androidx.compose.material3.OutlinedTextField
 import androidx.compose.material3.Text
+import androidx.compose.material3.TextButton
 import androidx.compose.runtime.Composable
+import androidx.compose.runtime.SideEffect
 import androidx.compose.runtime.collectAsState
 import androidx.compose.runtime.getValue
 import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.remember
+import androidx.compose.runtime.rememberCoroutineScope
+import androidx.compose.runtime.rememberUpdatedState
 import androidx.compose.runtime.setValue
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.focus.onFocusChanged
+import androidx.compose.ui.input.pointer.pointerInput
+import androidx.compose.ui.layout.onSizeChanged
 import androidx.compose.ui.platform.testTag
 import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.unit.dp
+import androidx.compose.ui.window.PopupProperties
 import com.example.usermanagement.R
-import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.ui.components.BulkEditDialog
 import com.example.usermanagement.ui.components.ConfirmationDialog
 import com.example.usermanagement.ui.components.UserCard
-import com.example.usermanagement.util.Result
+import com.example.usermanagement.ui.state.SelectionState
+import com.example.usermanagement.sort.UserSection
+import com.example.usermanagement.sort.UserSort
+import com.example.usermanagement.ui.state.UserListItem
+import com.example.usermanagement.viewmodel.SearchMode
 import com.example.usermanagement.viewmodel.UserViewModel
 import com.google.accompanist.swiperefresh.SwipeRefresh
 import com.google.accompanist.swiperefresh.rememberSwipeRefreshState
+import kotlinx.coroutines.launch
+
+private const val USER_CARD_CONTENT_TYPE = "user_card"
+private const val SECTION_HEADER_CONTENT_TYPE = "section_header"
+private const val SECTION_KEY_PREFIX = "section:"
+
+/**
+ * Most labels the fast-scroll index shows; with more sections, every n-th label is shown but all stay reachable.
+ */
+private const val MAX_INDEX_LABELS = 28
+private val FAST_SCROLL_INDEX_WIDTH = 32.dp
 
 /**
  * A composable function that displays the list of users.
  * It includes a search bar, a list of [UserCard]s, and handles user interactions like adding, editing, and deleting users.
  * It also supports pull-to-refresh to reload the user list.
+ * Long-pressing a card enters multi-select mode, where the selection can be extended to every user matching the
+ * search and deleted or edited in bulk. While every user is listed in a sort order, the list has sticky section
+ * headers and a fast-scroll index that jumps straight to a section. Typing shows suggestions right away, and
+ * picking one opens that user.
  * @param viewModel The [UserViewModel] instance providing user data and handling user-related logic.
  * @param onAddClick Callback function invoked when the "Add User" button is clicked.
  * @param onEditClick Callback function invoked when a user card's "Edit" button is clicked, providing the ID of the user to edit.
  */
-@OptIn(ExperimentalMaterial3Api::class)
+@OptIn(ExperimentalMaterial3Api::class, ExperimentalFoundationApi::class)
 @Composable
 fun UserListScreen(
     viewModel: UserViewModel,
     onAddClick: () -> Unit,
     onEditClick: (Long) -> Unit
 ) {
-    val uiState by viewModel.uiState.collectAsState()
-    var userToDelete by remember { mutableStateOf<User?>(null) }
+    val listState by viewModel.listState.collectAsState()
+    var userToDelete by remember { mutableStateOf<UserListItem?>(null) }
+    // Hoisted once so every card receives the same lambda instance and can be skipped.
+    val onDeleteRequest = remember { { user: UserListItem -> userToDelete = user } }
     val searchQuery by viewModel.searchQuery.collectAsState()
+    val searchMode by viewModel.searchMode.collectAsState()
+    val sort by viewModel.sort.collectAsState()
+    val latestSections by viewModel.sections.collectAsState()
+    // The two states are collected separately, so a frame can pair the sections with a list of another length;
+    // slicing is only safe while the counts add up to the items shown.
+    val sections = remember(latestSections, listState.items) {
+        if (latestSections.sumOf { it.count } == listState.items.size) latestSections else emptyList()
+    }
+    val suggestions by viewModel.suggestions.collectAsState()
+    val lazyListState = rememberLazyListState()
+    val coroutineScope = rememberCoroutineScope()
     var isSearchActive by remember { mutableStateOf(false) }
+    val selectionState by viewModel.selectionState.collectAsState()
+    val onSelectClick = remember { { userId: Long -> viewModel.toggleSelection(userId) } }
+    var showBulkDeleteDialog by remember { mutableStateOf(false) }
+    var showBulkEditDialog by remember { mutableStateOf(false) }
 
     // Determine if the refresh indicator should be shown based on UI state and search query.
-    val isRefreshing = uiState is Result.Loading && searchQuery.isBlank()
+    // Searches show a slim progress bar over the retained list instead.
+    val isRefreshing = listState.isLoaded && listState.isRefreshing && searchQuery.isBlank()
+    // Runs after each successful composition, marking when a result actually reached the screen.
+    SideEffect { viewModel.onListRendered(listState.version) }
     val swipeRefreshState = rememberSwipeRefreshState(isRefreshing = isRefreshing)
 
     // SwipeRefresh component enables pull-to-refresh functionality.
@@ -73,75 +135,113 @@ fun UserListScreen(
                 .fillMaxSize()
                 .padding(PaddingValues(0.dp)) // Reset padding to match MainScreen's scaffold
         ) {
-            // Search input field for filtering users.
-            OutlinedTextField(
-                value = searchQuery,
-                onValueChange = {
-                    viewModel.updateSearchQuery(it)
-                    isSearchActive = true
-                },
-                label = { Text(stringResource(R.string.search_hint)) },
-                leadingIcon = { Icon(Icons.Default.Search, contentDescription = null) },
-                trailingIcon = {
-                    if (searchQuery.isNotEmpty()) {
-                        // Clear search button visible when query is not empty.
-                        IconButton(onClick = {
-                            viewModel.updateSearchQuery("")
-                            isSearchActive = false
-                        }) {
-                            Icon(Icons.Default.Clear, contentDescription = "Clear search")
+            if (selectionState.isActive) {
+                SelectionBar(
+                    selectionState = selectionState,
+                    onSelectAllMatching = { viewModel.selectAllMatching() },
+                    onSetAddress = { showBulkEditDialog = true },
+                    onDelete = { showBulkDeleteDialog = true },
+                    onClose = { viewModel.clearSelection() }
+                )
+            }
+
+            // Search input field for filtering users, with typeahead suggestions below it.
+            Box {
+                OutlinedTextField(
+                    value = searchQuery,
+                    onValueChange = {
+                        viewModel.updateSearchQuery(it)
+                        isSearchActive = true
+                    },
+                    label = { Text(stringResource(R.string.search_hint)) },
+                    leadingIcon = { Icon(Icons.Default.Search, contentDescription = null) },
+                    trailingIcon = {
+                        if (searchQuery.isNotEmpty()) {
+                            // Clear search button visible when query is not empty.
+                            IconButton(onClick = {
+                                viewModel.updateSearchQuery("")
+                                isSearchActive = false
+                            }) {
+                                Icon(Icons.Default.Clear, contentDescription = "Clear search")
+                            }
                         }
+                    },
+                    singleLine = true,
+                    modifier = Modifier
+                        .fillMaxWidth()
+                        .padding(start = 16.dp, top = 16.dp, end = 16.dp)
+                        .onFocusChanged { if (it.isFocused) viewModel.prepareSuggestions() }
+                        .testTag("search_bar")
+                )
+                // Not focusable, so the field keeps the keyboard while the suggestions follow the typing.
+                DropdownMenu(
+                    expanded = suggestions.isNotEmpty(),
+                    onDismissRequest = { viewModel.dismissSuggestions() },
+                    properties = PopupProperties(focusable = false),
+                    modifier = Modifier.testTag("search_suggestions")
+                ) {
+                    suggestions.forEach { suggestion ->
+                        DropdownMenuItem(
+                            text = {
+                                Column {
+                                    Text(suggestion.fullName, style = MaterialTheme.typography.bodyLarge)
+                                    Text(suggestion.email, style = MaterialTheme.typography.bodySmall)
+                                }
+                            },
+                            onClick = {
+                                // Opens the user by ID; the list search for the typed text goes on behind it.
+                                viewModel.dismissSuggestions()
+                                onEditClick(suggestion.userId)
+                            }
+                        )
                     }
-                },
-                singleLine = true,
-                modifier = Modifier
-                    .fillMaxWidth()
-                    .padding(16.dp)
-                    .testTag("search_bar")
-            )
+                }
+            }
+            Row(
+                horizontalArrangement = Arrangement.spacedBy(8.dp),
+                modifier = Modifier.padding(horizontal = 16.dp)
+            ) {
+                // Each chip toggles its own mode; turning it off goes back to substring matching.
+                FilterChip(
+                    selected = searchMode == SearchMode.FUZZY,
+                    onClick = {
+                        viewModel.setSearchMode(
+                            if (searchMode == SearchMode.FUZZY) SearchMode.SUBSTRING else SearchMode.FUZZY
+                        )
+                    },
+                    label = { Text(stringResource(R.string.search_fuzzy)) },
+                    modifier = Modifier.testTag("fuzzy_search_chip")
+                )
+                FilterChip(
+                    selected = searchMode == SearchMode.SOUNDS_LIKE,
+                    onClick = {
+                        viewModel.setSearchMode(
+                            if (searchMode == SearchMode.SOUNDS_LIKE) SearchMode.SUBSTRING else SearchMode.SOUNDS_LIKE
+                        )
+                    },
+                    label = { Text(stringResource(R.string.search_sounds_like)) },
+                    modifier = Modifier.testTag("sounds_like_search_chip")
+                )
+                SortChip(sort = sort, onSortSelected = { viewModel.setSort(it) })
+            }
 
             Box(
                 modifier = Modifier
                     .fillMaxSize()
             ) {
-                // Handle different UI states (Success, Error, Loading).
-                when (val state = uiState) {
-                    is Result.Success -> {
-                        // Display message if no users are found.
-                        if (state.data.isEmpty()) {
-                            Text(
-                                text = if (isSearchActive)
-                                    stringResource(R.string.no_users_found)
-                                else
-                                    stringResource(R.string.no_users_found),
-                                modifier = Modifier
-                                    .align(Alignment.Center)
-                                    .padding(16.dp)
-                                    .testTag("empty_state_message")
-                            )
-                        } else {
-                            // Display the list of users using LazyColumn.
-                            LazyColumn(
-                                modifier = Modifier.fillMaxSize(),
-                                contentPadding = PaddingValues(16.dp),
-                                verticalArrangement = Arrangement.spacedBy(8.dp)
-                            ) {
-                                items(state.data) { user ->
-                                    // Individual user card with edit and delete options.
-                                    UserCard(
-                                        user = user,
-                                        onEditClick = { onEditClick(user.id) },
-                                        onDeleteClick = { userToDelete = user }
-                                    )
-                                }
-                            }
-                        }
+                // The list stays composed while a refresh or search runs; only the first load shows a spinner.
+                val error = listState.error
+                when {
+                    !listState.isLoaded -> {
+                        CircularProgressIndicator(
+                            modifier = Modifier.align(Alignment.Center)
+                        )
                     }
 
-                    is Result.Error -> {
+                    error != null && listState.items.isEmpty() -> {
                         // Display error message.
                         Text(
-                            text = state.exception.message
+                            text = error.message
                                 ?: stringResource(R.string.error_unknown),
                             modifier = Modifier
                                 .align(Alignment.Center)
@@ -149,15 +249,90 @@ fun UserListScreen(
                         )
                     }
 
-                    is Result.Loading -> {
-                        // Show loading indicator only when not in a refresh state from search (i.e., initial load or full refresh).
-                        if (!isRefreshing) {
-                            CircularProgressIndicator(
-                                modifier = Modifier.align(Alignment.Center)
+                    listState.items.isEmpty() -> {
+                        // Display message if no users are found.
+                        Text(
+                            text = if (isSearchActive)
+                                stringResource(R.string.no_users_found)
+                            else
+                                stringResource(R.string.no_users_found),
+                            modifier = Modifier
+                                .align(Alignment.Center)
+                                .padding(16.dp)
+                                .testTag("empty_state_message")
+                        )
+                    }
+
+                    else -> {
+                        // Display the list of users using LazyColumn.
+                        // Items are keyed by ID so inserts keep scroll position and reuse existing cards.
+                        LazyColumn(
+                            state = lazyListState,
+                            modifier = Modifier.fillMaxSize(),
+                            contentPadding = PaddingValues(
+                                start = 16.dp,
+                                top = 16.dp,
+                                end = if (sections.isEmpty()) 16.dp else FAST_SCROLL_INDEX_WIDTH,
+                                bottom = 16.dp
+                            ),
+                            verticalArrangement = Arrangement.spacedBy(8.dp)
+                        ) {
+                            val userCards = { users: List<UserListItem> ->
+                                items(
+                                    items = users,
+                                    key = { user -> user.id },
+                                    contentType = { USER_CARD_CONTENT_TYPE }
+                                ) { user ->
+                                    // Individual user card with edit and delete options.
+                                    // Reads the selection state, so a selection change re-runs this block; cards whose
+                                    // selected flag did not change are skipped.
+                                    UserCard(
+                                        user = user,
+                                        onEditClick = onEditClick,
+                                        onDeleteClick = onDeleteRequest,
+                                        selectionMode = selectionState.isActive,
+                                        selected = selectionState.isSelected(user.id),
+                                        onSelectClick = onSelectClick
+                                    )
+                                }
+                            }
+                            if (sections.isEmpty()) {
+                                userCards(listState.items)
+                            } else {
+                                // Sections slice the list without copying it; each header sticks until the next one.
+                                for (section in sections) {
+                                    stickyHeader(
+                                        key = SECTION_KEY_PREFIX + section.label,
+                                        contentType = SECTION_HEADER_CONTENT_TYPE
+                                    ) {
+                                        SectionHeader(section.label)
+                                    }
+                                    userCards(listState.items.subList(section.offset, section.offset + section.count))
+                                }
+                            }
+                        }
+                        if (sections.isNotEmpty()) {
+                            // Section i's header is preceded by the users and headers of the i sections before it,
+                            // so a jump is one scrollToItem however far away the section is.
+                            FastScrollIndex(
+                                sections = sections,
+                                onSectionSelected = { index ->
+                                    coroutineScope.launch { lazyListState.scrollToItem(sections[index].offset + index) }
+                                },
+                                modifier = Modifier.align(Alignment.CenterEnd)
                             )
                         }
                     }
                 }
+
+                if (listState.isLoaded && listState.isRefreshing && searchQuery.isNotBlank()) {
+                    LinearProgressIndicator(
+                        modifier = Modifier
+                            .fillMaxWidth()
+                            .align(Alignment.TopCenter)
+                            .testTag("search_progress")
+                    )
+                }
             }
         }
     }
@@ -167,10 +342,172 @@ fun UserListScreen(
         ConfirmationDialog(
             message = stringResource(R.string.dialog_delete_confirmation, user.fullName),
             onConfirm = {
-                viewModel.deleteUser(user)
+                viewModel.deleteUser(user.id)
                 userToDelete = null
             },
             onDismiss = { userToDelete = null }
         )
     }
-} 
\ No newline at end of file
+
+    if (showBulkDeleteDialog) {
+        ConfirmationDialog(
+            message = stringResource(R.string.dialog_bulk_delete_confirmation, selectionState.count),
+            onConfirm = {
+                viewModel.deleteSelected()
+                showBulkDeleteDialog = false
+            },
+            onDismiss = { showBulkDeleteDialog = false }
+        )
+    }
+
+    if (showBulkEditDialog) {
+        BulkEditDialog(
+            title = stringResource(R.string.dialog_bulk_set_address, selectionState.count),
+            label = stringResource(R.string.label_address),
+            onConfirm = { address ->
+                viewModel.updateSelected(UserColumn.ADDRESS, address)
+                showBulkEditDialog = false
+            },
+            onDismiss = { showBulkEditDialog = false }
+        )
+    }
+}
+
+/**
+ * Action bar shown in multi-select mode.
+ * @param selectionState The current [SelectionState].
+ * @param onSelectAllMatching Callback function invoked to select every user matching the search.
+ * @param onSetAddress Callback function invoked to set the address of the selected users.
+ * @param onDelete Callback function invoked to delete the selected users.
+ * @param onClose Callback function invoked to leave multi-select mode.
+ */
+@Composable
+private fun SelectionBar(
+    selectionState: SelectionState,
+    onSelectAllMatching: () -> Unit,
+    onSetAddress: () -> Unit,
+    onDelete: () -> Unit,
+    onClose: () -> Unit
+) {
+    val hasSelection = selectionState.count > 0 && !selectionState.isBulkOperationRunning
+    Row(
+        modifier = Modifier
+            .fillMaxWidth()
+            .padding(horizontal = 8.dp)
+            .testTag("selection_bar"),
+        verticalAlignment = Alignment.CenterVertically
+    ) {
+        IconButton(onClick = onClose) {
+            Icon(Icons.Default.Close, contentDescription = stringResource(R.string.content_description_exit_selection))
+        }
+        Text(
+            text = stringResource(R.string.selection_count, selectionState.count),
+            style = MaterialTheme.typography.titleMedium,
+            modifier = Modifier
+                .weight(1f)
+                .testTag("selection_count")
+        )
+        TextButton(onClick = onSelectAllMatching, enabled = !selectionState.isBulkOperationRunning) {
+            Text(stringResource(R.string.button_select_all_matching))
+        }
+        TextButton(onClick = onSetAddress, enabled = hasSelection) {
+            Text(stringResource(R.string.button_set_address))
+        }
+        TextButton(onClick = onDelete, enabled = hasSelection) {
+            Text(stringResource(R.string.button_delete))
+        }
+    }
+}
+
+/**
+ * Chip showing the order of the list, opening a menu of the [UserSort] orders.
+ * @param sort The current order, or null for the repository's order.
+ * @param onSortSelected Callback function invoked with the chosen order.
+ */
+@Composable
+private fun SortChip(sort: UserSort?, onSortSelected: (UserSort?) -> Unit) {
+    var isMenuOpen by remember { mutableStateOf(false) }
+    Box {
+        FilterChip(
+            selected = sort != null,
+            onClick = { isMenuOpen = true },
+            label = { Text(stringResource(sortLabel(sort))) },
+            modifier = Modifier.testTag("sort_chip")
+        )
+        DropdownMenu(expanded = isMenuOpen, onDismissRequest = { isMenuOpen = false }) {
+            (listOf(null) + UserSort.values()).forEach { option ->
+                DropdownMenuItem(
+                    text = { Text(stringResource(sortLabel(option))) },
+                    onClick = {
+                        isMenuOpen = false
+                        onSortSelected(option)
+                    }
+                )
+            }
+        }
+    }
+}
+
+private fun sortLabel(sort: UserSort?): Int = when (sort) {
+    null -> R.string.sort_none
+    UserSort.LAST_NAME -> R.string.sort_last_name
+    UserSort.FIRST_NAME -> R.string.sort_first_name
+    UserSort.EMAIL -> R.string.sort_email
+    UserSort.DOB -> R.string.sort_dob
+}
+
+/**
+ * Sticky header of one section of the sorted list.
+ * @param label The section's label.
+ */
+@Composable
+private fun SectionHeader(label: String) {
+    Text(
+        text = label,
+        style = MaterialTheme.typography.titleSmall,
+        color = MaterialTheme.colorScheme.primary,
+        modifier = Modifier
+            .fillMaxWidth()
+            .background(MaterialTheme.colorScheme.surface)
+            .padding(vertical = 4.dp)
+            .testTag("section_header")
+    )
+}
+
+/**
+ * Alphabet-style index along the list's edge; tapping or dragging over it selects the section under the finger.
+ * @param sections The sections of the list, in list order.
+ * @param onSectionSelected Callback function invoked with the index of the selected section.
+ * @param modifier The modifier to apply to the index.
+ */
+@Composable
+private fun FastScrollIndex(
+    sections: List<UserSection>,
+    onSectionSelected: (Int) -> Unit,
+    modifier: Modifier = Modifier
+) {
+    var height by remember { mutableStateOf(0) }
+    val currentOnSectionSelected by rememberUpdatedState(onSectionSelected)
+    val select = { y: Float ->
+        if (height > 0) currentOnSectionSelected((y / height * sections.size).toInt().coerceIn(0, sections.lastIndex))
+    }
+    val step = (sections.size + MAX_INDEX_LABELS - 1) / MAX_INDEX_LABELS
+    Column(
+        modifier = modifier
+            .fillMaxHeight()
+            .width(FAST_SCROLL_INDEX_WIDTH)
+            .padding(vertical = 8.dp)
+            .onSizeChanged { height = it.height }
+            .pointerInput(sections) { detectTapGestures { select(it.y) } }
+            .pointerInput(sections) { detectVerticalDragGestures { change, _ -> select(change.position.y) } }
+            .testTag("fast_scroll_index"),
+        verticalArrangement = Arrangement.SpaceEvenly,
+        horizontalAlignment = Alignment.CenterHorizontally
+    ) {
+        sections.forEachIndexed { index, section ->
+            if (index % step == 0) {
+                Text(text = section.label, style = MaterialTheme.typography.labelSmall)
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.usermanagement.ui.state
+
+import androidx.compose.runtime.Immutable
+import com.example.usermanagement.util.LongIdSet
+
+/**
+ * UI state of multi-select mode in the user list.
+ * @param isActive `true` while multi-select mode is on.
+ * @param isBulkOperationRunning `true` while a bulk delete or edit of the selection is being written.
+ * @param selectedIds The selected IDs. Never modified once published: every selection change publishes a new
+ * state with a new set, so rows reading [isSelected] during composition are recomposed when it changes.
+ */
+@Immutable
+data class SelectionState(
+    val isActive: Boolean = false,
+    val isBulkOperationRunning: Boolean = false,
+    val selectedIds: LongIdSet = LongIdSet()
+) {
+    /**
+     * The number of selected users.
+     */
+    val count: Int
+        get() = selectedIds.size
+
+    /**
+     * Checks whether the user with [userId] is selected.
+     */
+    fun isSelected(userId: Long): Boolean = userId in selectedIds
+}
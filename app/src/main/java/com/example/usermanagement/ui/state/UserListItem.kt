@@ -0,0 +1,31 @@
+package com.example.usermanagement.ui.state
+
+import androidx.compose.runtime.Immutable
+import com.example.usermanagement.data.User
+
+/**
+ * Immutable projection of a [User] holding only what a list row renders.
+ * Compose treats it as stable, so a row is skipped when its item is unchanged between emissions.
+ * @param id The ID of the user, also used as the stable list key.
+ * @param fullName The user's full name.
+ * @param email The user's email address.
+ * @param phone The user's phone number.
+ */
+@Immutable
+data class UserListItem(
+    val id: Long,
+    val fullName: String,
+    val email: String,
+    val phone: String
+)
+
+/**
+ * Maps this [User] to its list representation.
+ * @return A [UserListItem] built from the user's current values.
+ */
+fun User.toListItem(): UserListItem = UserListItem(
+    id = id,
+    fullName = fullName,
+    email = email,
+    phone = phone
+)
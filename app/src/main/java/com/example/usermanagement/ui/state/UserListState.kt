@@ -0,0 +1,24 @@
+package com.example.usermanagement.ui.state
+
+import androidx.compose.runtime.Immutable
+import com.example.usermanagement.sort.UserSort
+
+/**
+ * UI state of the user list that keeps the last good data on screen while a refresh or search runs.
+ * @param items The most recently loaded rows; retained while [isRefreshing] is `true`.
+ * @param isLoaded `true` once the first result has arrived, so a spinner is only shown for the initial load.
+ * @param isRefreshing `true` while a new result is being computed for the current query.
+ * @param version Incremented on every new result, letting consumers cheaply detect fresh data.
+ * @param error The last load failure, or `null` if the latest load succeeded.
+ * @param sectionedBy The order of [items] when they are every user in a [UserSort] order, so that the order's
+ * sections index them; `null` for search results and the repository's order.
+ */
+@Immutable
+data class UserListState(
+    val items: List<UserListItem> = emptyList(),
+    val isLoaded: Boolean = false,
+    val isRefreshing: Boolean = false,
+    val version: Long = 0,
+    val error: Exception? = null,
+    val sectionedBy: UserSort? = null
+)
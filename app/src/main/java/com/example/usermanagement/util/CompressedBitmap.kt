@@ -0,0 +1,449 @@
+package com.example.usermanagement.util
+
+/**
+ * An immutable set of non-negative `Int`s in the layout of a Roaring bitmap: the values are split into chunks of
+ * 65536 by their high 16 bits, and each chunk stores its low 16 bits either as a sorted `CharArray` (up to
+ * [ARRAY_MAX] values, two bytes each) or as a 1024-word bitmap (8 KB however many values). Sparse sets therefore
+ * cost about two bytes per value and dense ones one bit, and [and], [or] and [andNot] work a chunk at a time
+ * without ever visiting single values of bitmap chunks.
+ *
+ * Build instances with [Builder], [range] or [empty]. Instances are thread safe.
+ */
+class CompressedBitmap private constructor(
+    private val keys: CharArray,
+    private val containers: Array<Container>
+) {
+    /**
+     * The number of values in the set.
+     */
+    val cardinality: Int = containers.sumOf { it.cardinality }
+
+    /**
+     * @return `true` if the set contains no values.
+     */
+    fun isEmpty(): Boolean = containers.isEmpty()
+
+    /**
+     * Checks whether [value] is in the set.
+     */
+    operator fun contains(value: Int): Boolean {
+        if (value < 0) return false
+        val index = keys.binarySearch(high(value))
+        return index >= 0 && containers[index].contains(low(value))
+    }
+
+    /**
+     * Returns the [rank]-th smallest value, counting from zero, skipping whole chunks by their cardinality.
+     * @throws IndexOutOfBoundsException if [rank] is not below [cardinality].
+     */
+    fun select(rank: Int): Int {
+        if (rank < 0 || rank >= cardinality) throw IndexOutOfBoundsException("Rank $rank of $cardinality")
+        var remaining = rank
+        for (i in containers.indices) {
+            val container = containers[i]
+            if (remaining < container.cardinality) return (keys[i].code shl 16) or container.select(remaining)
+            remaining -= container.cardinality
+        }
+        throw IllegalStateException("Cardinality out of sync")
+    }
+
+    /**
+     * Iterates the values in ascending order.
+     */
+    fun iterator(): IntIterator = object : IntIterator() {
+        private var container = 0
+        private var inner: IntIterator? = containers.firstOrNull()?.iterator()
+
+        override fun hasNext(): Boolean {
+            while (true) {
+                val current = inner ?: return false
+                if (current.hasNext()) return true
+                container++
+                inner = containers.getOrNull(container)?.iterator()
+            }
+        }
+
+        override fun nextInt(): Int {
+            if (!hasNext()) throw NoSuchElementException()
+            return (keys[container].code shl 16) or inner!!.nextInt()
+        }
+    }
+
+    /**
+     * Calls [action] with every value in ascending order.
+     */
+    inline fun forEach(action: (Int) -> Unit) {
+        val values = iterator()
+        while (values.hasNext()) action(values.nextInt())
+    }
+
+    /**
+     * @return The values in both sets.
+     */
+    infix fun and(other: CompressedBitmap): CompressedBitmap =
+        merge(other, keepLeft = false, keepRight = false) { a, b -> a.and(b) }
+
+    /**
+     * @return The values in either set.
+     */
+    infix fun or(other: CompressedBitmap): CompressedBitmap =
+        merge(other, keepLeft = true, keepRight = true) { a, b -> a.or(b) }
+
+    /**
+     * @return The values in this set but not in [other].
+     */
+    infix fun andNot(other: CompressedBitmap): CompressedBitmap =
+        merge(other, keepLeft = true, keepRight = false) { a, b -> a.andNot(b) }
+
+    /**
+     * @return The values of this set accepted by [predicate], keeping the chunk layout.
+     */
+    inline fun filter(predicate: (Int) -> Boolean): CompressedBitmap {
+        val builder = Builder()
+        forEach { if (predicate(it)) builder.add(it) }
+        return builder.build()
+    }
+
+    /**
+     * Walks both sorted key lists once; chunks only on one side are kept or dropped as the operation requires.
+     */
+    private inline fun merge(
+        other: CompressedBitmap,
+        keepLeft: Boolean,
+        keepRight: Boolean,
+        combine: (Container, Container) -> Container?
+    ): CompressedBitmap {
+        val keys = CharArray(this.keys.size + other.keys.size)
+        val containers = arrayOfNulls<Container>(keys.size)
+        var size = 0
+        var i = 0
+        var j = 0
+        while (i < this.keys.size || j < other.keys.size) {
+            val left = if (i < this.keys.size) this.keys[i] else Char.MAX_VALUE
+            val right = if (j < other.keys.size) other.keys[j] else Char.MAX_VALUE
+            val key: Char
+            val container: Container?
+            when {
+                j >= other.keys.size || i < this.keys.size && left < right -> {
+                    key = left
+                    container = if (keepLeft) this.containers[i] else null
+                    i++
+                }
+                i >= this.keys.size || right < left -> {
+                    key = right
+                    container = if (keepRight) other.containers[j] else null
+                    j++
+                }
+                else -> {
+                    key = left
+                    container = combine(this.containers[i++], other.containers[j++])
+                }
+            }
+            if (container != null) {
+                keys[size] = key
+                containers[size++] = container
+            }
+        }
+        @Suppress("UNCHECKED_CAST")
+        return CompressedBitmap(keys.copyOf(size), (containers.copyOf(size) as Array<Container>))
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is CompressedBitmap || other.cardinality != cardinality) return false
+        val mine = iterator()
+        val theirs = other.iterator()
+        while (mine.hasNext()) if (mine.nextInt() != theirs.nextInt()) return false
+        return true
+    }
+
+    override fun hashCode(): Int {
+        var hash = cardinality
+        forEach { hash = 31 * hash + it }
+        return hash
+    }
+
+    override fun toString() = "CompressedBitmap(cardinality=$cardinality, chunks=${keys.size})"
+
+    /**
+     * Collects values given in strictly ascending order, as posting lists are built while walking ordinals.
+     */
+    class Builder {
+        private var keys = CharArray(INITIAL_CHUNKS)
+        private var containers = arrayOfNulls<Container>(INITIAL_CHUNKS)
+        private var chunks = 0
+        private var currentKey = -1
+        private var values = CharArray(ARRAY_MAX)
+        private var count = 0
+        private var words: LongArray? = null
+        private var last = -1
+
+        /**
+         * Adds [value], which must be greater than every value added before.
+         * @throws IllegalArgumentException if [value] is negative or not ascending.
+         */
+        fun add(value: Int) {
+            require(value > last) { "Values must be added in ascending order: $value after $last" }
+            last = value
+            val key = value ushr 16
+            if (key != currentKey) {
+                flush()
+                currentKey = key
+            }
+            val low = value and 0xFFFF
+            val bitmap = words
+            if (bitmap != null) {
+                bitmap[low ushr 6] = bitmap[low ushr 6] or (1L shl low)
+            } else if (count < ARRAY_MAX) {
+                values[count] = low.toChar()
+            } else {
+                val promoted = LongArray(BITMAP_WORDS)
+                for (k in 0 until count) promoted[values[k].code ushr 6] = promoted[values[k].code ushr 6] or (1L shl values[k].code)
+                promoted[low ushr 6] = promoted[low ushr 6] or (1L shl low)
+                words = promoted
+            }
+            count++
+        }
+
+        /**
+         * @return The bitmap of the values added so far.
+         */
+        fun build(): CompressedBitmap {
+            flush()
+            @Suppress("UNCHECKED_CAST")
+            return CompressedBitmap(keys.copyOf(chunks), containers.copyOf(chunks) as Array<Container>)
+        }
+
+        private fun flush() {
+            if (count == 0) return
+            val bitmap = words
+            val container = if (bitmap != null) BitmapContainer(bitmap, count) else ArrayContainer(values.copyOf(count))
+            if (chunks == keys.size) {
+                keys = keys.copyOf(chunks * 2)
+                containers = containers.copyOf(chunks * 2)
+            }
+            keys[chunks] = currentKey.toChar()
+            containers[chunks++] = container
+            words = null
+            count = 0
+        }
+    }
+
+    /**
+     * The low 16 bits of the values of one chunk.
+     */
+    private sealed class Container {
+        abstract val cardinality: Int
+        abstract fun contains(low: Int): Boolean
+        abstract fun select(rank: Int): Int
+        abstract fun iterator(): IntIterator
+
+        /** @return The intersection, or null if it is empty. */
+        abstract fun and(other: Container): Container?
+
+        abstract fun or(other: Container): Container
+
+        /** @return The difference, or null if it is empty. */
+        abstract fun andNot(other: Container): Container?
+    }
+
+    private class ArrayContainer(val values: CharArray) : Container() {
+        override val cardinality get() = values.size
+
+        override fun contains(low: Int) = values.binarySearch(low.toChar()) >= 0
+
+        override fun select(rank: Int) = values[rank].code
+
+        override fun iterator() = object : IntIterator() {
+            private var next = 0
+            override fun hasNext() = next < values.size
+            override fun nextInt() = values[next++].code
+        }
+
+        override fun and(other: Container): Container? = when (other) {
+            is ArrayContainer -> arrayOrNull(intersect(values, other.values))
+            is BitmapContainer -> arrayOrNull(values.filter { other.contains(it.code) }.toCharArray())
+        }
+
+        override fun or(other: Container): Container = when (other) {
+            is ArrayContainer -> {
+                if (values.size + other.values.size <= ARRAY_MAX) {
+                    ArrayContainer(union(values, other.values))
+                } else {
+                    toBitmap().or(other)
+                }
+            }
+            is BitmapContainer -> other.or(this)
+        }
+
+        override fun andNot(other: Container): Container? =
+            arrayOrNull(values.filter { !other.contains(it.code) }.toCharArray())
+
+        fun toBitmap(): BitmapContainer {
+            val words = LongArray(BITMAP_WORDS)
+            for (value in values) words[value.code ushr 6] = words[value.code ushr 6] or (1L shl value.code)
+            return BitmapContainer(words, values.size)
+        }
+    }
+
+    private class BitmapContainer(val words: LongArray, override val cardinality: Int) : Container() {
+
+        override fun contains(low: Int) = words[low ushr 6] and (1L shl low) != 0L
+
+        override fun select(rank: Int): Int {
+            var remaining = rank
+            for (w in words.indices) {
+                val bits = java.lang.Long.bitCount(words[w])
+                if (remaining < bits) {
+                    var word = words[w]
+                    repeat(remaining) { word = word and (word - 1) }
+                    return (w shl 6) + java.lang.Long.numberOfTrailingZeros(word)
+                }
+                remaining -= bits
+            }
+            throw IllegalStateException("Cardinality out of sync")
+        }
+
+        override fun iterator() = object : IntIterator() {
+            private var w = 0
+            private var word = words[0]
+
+            override fun hasNext(): Boolean {
+                while (word == 0L) {
+                    if (++w >= words.size) return false
+                    word = words[w]
+                }
+                return true
+            }
+
+            override fun nextInt(): Int {
+                if (!hasNext()) throw NoSuchElementException()
+                val bit = java.lang.Long.numberOfTrailingZeros(word)
+                word = word and (word - 1)
+                return (w shl 6) + bit
+            }
+        }
+
+        override fun and(other: Container): Container? = when (other) {
+            is ArrayContainer -> other.and(this)
+            is BitmapContainer -> fromWords(LongArray(BITMAP_WORDS) { words[it] and other.words[it] })
+        }
+
+        override fun or(other: Container): Container = when (other) {
+            is ArrayContainer -> {
+                val result = words.copyOf()
+                for (value in other.values) result[value.code ushr 6] = result[value.code ushr 6] or (1L shl value.code)
+                fromWords(result)!!
+            }
+            is BitmapContainer -> fromWords(LongArray(BITMAP_WORDS) { words[it] or other.words[it] })!!
+        }
+
+        override fun andNot(other: Container): Container? = when (other) {
+            is ArrayContainer -> {
+                val result = words.copyOf()
+                for (value in other.values) result[value.code ushr 6] = result[value.code ushr 6] and (1L shl value.code).inv()
+                fromWords(result)
+            }
+            is BitmapContainer -> fromWords(LongArray(BITMAP_WORDS) { words[it] and other.words[it].inv() })
+        }
+    }
+
+    companion object {
+        /**
+         * Largest chunk stored as a sorted array; beyond it the 8 KB bitmap is smaller.
+         */
+        const val ARRAY_MAX = 4096
+
+        private const val BITMAP_WORDS = 1024
+        private const val INITIAL_CHUNKS = 4
+        private const val FULL_CHUNK = 1 shl 16
+
+        private val EMPTY = CompressedBitmap(CharArray(0), emptyArray())
+
+        /**
+         * @return The empty set.
+         */
+        fun empty(): CompressedBitmap = EMPTY
+
+        /**
+         * @return The set of all values from [from] inclusive to [to] exclusive, as whole bitmap chunks.
+         */
+        fun range(from: Int, to: Int): CompressedBitmap {
+            require(from in 0..to) { "Invalid range $from..$to" }
+            if (from == to) return EMPTY
+            val firstKey = from ushr 16
+            val lastKey = (to - 1) ushr 16
+            val keys = CharArray(lastKey - firstKey + 1) { (firstKey + it).toChar() }
+            val containers = Array<Container>(keys.size) { i ->
+                val start = if (i == 0) from and 0xFFFF else 0
+                val end = if (i == keys.size - 1) ((to - 1) and 0xFFFF) + 1 else FULL_CHUNK
+                val words = LongArray(BITMAP_WORDS)
+                for (bit in start until end) words[bit ushr 6] = words[bit ushr 6] or (1L shl bit)
+                fromWords(words)!!
+            }
+            return CompressedBitmap(keys, containers)
+        }
+
+        private fun high(value: Int): Char = (value ushr 16).toChar()
+
+        private fun low(value: Int): Int = value and 0xFFFF
+
+        private fun arrayOrNull(values: CharArray): Container? = if (values.isEmpty()) null else ArrayContainer(values)
+
+        /**
+         * Wraps [words] in the smaller of the two containers, or returns null if no bit is set.
+         */
+        private fun fromWords(words: LongArray): Container? {
+            var cardinality = 0
+            for (word in words) cardinality += java.lang.Long.bitCount(word)
+            if (cardinality == 0) return null
+            if (cardinality > ARRAY_MAX) return BitmapContainer(words, cardinality)
+            val values = CharArray(cardinality)
+            var n = 0
+            for (w in words.indices) {
+                var word = words[w]
+                while (word != 0L) {
+                    values[n++] = ((w shl 6) + java.lang.Long.numberOfTrailingZeros(word)).toChar()
+                    word = word and (word - 1)
+                }
+            }
+            return ArrayContainer(values)
+        }
+
+        private fun intersect(a: CharArray, b: CharArray): CharArray {
+            val result = CharArray(minOf(a.size, b.size))
+            var n = 0
+            var i = 0
+            var j = 0
+            while (i < a.size && j < b.size) {
+                when {
+                    a[i] < b[j] -> i++
+                    a[i] > b[j] -> j++
+                    else -> {
+                        result[n++] = a[i++]
+                        j++
+                    }
+                }
+            }
+            return result.copyOf(n)
+        }
+
+        private fun union(a: CharArray, b: CharArray): CharArray {
+            val result = CharArray(a.size + b.size)
+            var n = 0
+            var i = 0
+            var j = 0
+            while (i < a.size || j < b.size) {
+                result[n++] = when {
+                    j >= b.size || i < a.size && a[i] < b[j] -> a[i++]
+                    i >= a.size || b[j] < a[i] -> b[j++]
+                    else -> {
+                        j++
+                        a[i++]
+                    }
+                }
+            }
+            return result.copyOf(n)
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.usermanagement.util
+
+/**
+ * A compact, mutable set of positive `Long` IDs backed by an open-addressing [LongArray].
+ * Holding tens of thousands of IDs costs a few hundred kilobytes and no per-element objects,
+ * unlike a `Set<Long>` or a `List<User>`.
+ * Not thread-safe; confine each instance to one thread.
+ * @param expectedSize The number of IDs the set should hold without resizing.
+ */
+class LongIdSet(expectedSize: Int = DEFAULT_EXPECTED_SIZE) {
+    private var slots = LongArray(capacityFor(expectedSize))
+    private var mask = slots.size - 1
+
+    /**
+     * The number of IDs in the set.
+     */
+    var size: Int = 0
+        private set
+
+    /**
+     * @return `true` if the set contains no IDs.
+     */
+    fun isEmpty(): Boolean = size == 0
+
+    /**
+     * Checks whether [id] is in the set.
+     * @param id The ID to look up.
+     * @return `true` if the set contains [id].
+     */
+    operator fun contains(id: Long): Boolean {
+        if (id <= 0L) return false
+        var index = indexFor(id)
+        while (true) {
+            val slot = slots[index]
+            if (slot == EMPTY) return false
+            if (slot == id) return true
+            index = (index + 1) and mask
+        }
+    }
+
+    /**
+     * Adds [id] to the set.
+     * @param id The ID to add; must be positive, as Room row IDs are.
+     * @return `true` if the ID was not already present.
+     * @throws IllegalArgumentException if [id] is not positive.
+     */
+    fun add(id: Long): Boolean {
+        require(id > 0L) { "IDs must be positive: $id" }
+        if ((size + 1) * 4 > slots.size * 3) grow()
+        var index = indexFor(id)
+        while (true) {
+            val slot = slots[index]
+            if (slot == id) return false
+            if (slot == EMPTY) {
+                slots[index] = id
+                size++
+                return true
+            }
+            index = (index + 1) and mask
+        }
+    }
+
+    /**
+     * Adds every ID of [ids] to the set.
+     * @param ids The IDs to add.
+     */
+    fun addAll(ids: LongArray) {
+        for (id in ids) add(id)
+    }
+
+    /**
+     * Removes [id] from the set.
+     * @param id The ID to remove.
+     * @return `true` if the ID was present.
+     */
+    fun remove(id: Long): Boolean {
+        if (id <= 0L) return false
+        var index = indexFor(id)
+        while (true) {
+            val slot = slots[index]
+            if (slot == EMPTY) return false
+            if (slot == id) break
+            index = (index + 1) and mask
+        }
+        slots[index] = EMPTY
+        size--
+        // Re-insert the rest of the probe run so later lookups do not stop at the new gap.
+        var next = (index + 1) and mask
+        while (slots[next] != EMPTY) {
+            val moved = slots[next]
+            slots[next] = EMPTY
+            size--
+            add(moved)
+            next = (next + 1) and mask
+        }
+        return true
+    }
+
+    /**
+     * Adds [id] if absent, removes it otherwise.
+     * @param id The ID to toggle.
+     * @return `true` if the ID is in the set afterwards.
+     */
+    fun toggle(id: Long): Boolean = if (remove(id)) false else add(id)
+
+    /**
+     * Removes all IDs, keeping the allocated capacity.
+     */
+    fun clear() {
+        slots.fill(EMPTY)
+        size = 0
+    }
+
+    /**
+     * Calls [action] for every ID, in no particular order, without copying the set.
+     * @param action The function to call; must not modify this set.
+     */
+    inline fun forEach(action: (Long) -> Unit) {
+        for (slot in slotsForIteration()) {
+            if (slot != EMPTY) action(slot)
+        }
+    }
+
+    @PublishedApi
+    internal fun slotsForIteration(): LongArray = slots
+
+    /**
+     * Copies the IDs into a new array, in no particular order.
+     * @return A [LongArray] of length [size].
+     */
+    fun toLongArray(): LongArray {
+        val result = LongArray(size)
+        var i = 0
+        for (slot in slots) {
+            if (slot != EMPTY) result[i++] = slot
+        }
+        return result
+    }
+
+    private fun indexFor(id: Long): Int {
+        // Fibonacci hashing spreads sequential row IDs across the table.
+        return ((id * -0x61c8864680b583ebL) ushr 32).toInt() and mask
+    }
+
+    private fun grow() {
+        val old = slots
+        slots = LongArray(old.size * 2)
+        mask = slots.size - 1
+        size = 0
+        for (slot in old) {
+            if (slot != EMPTY) add(slot)
+        }
+    }
+
+    companion object {
+        @PublishedApi
+        internal const val EMPTY = 0L
+        private const val DEFAULT_EXPECTED_SIZE = 16
+
+        /**
+         * Creates a set holding the given [ids].
+         * @param ids The IDs to add.
+         * @return A new [LongIdSet] sized for [ids].
+         */
+        fun of(ids: LongArray): LongIdSet = LongIdSet(ids.size).apply { addAll(ids) }
+
+        private fun capacityFor(expectedSize: Int): Int {
+            // Keep the load factor at or below 0.75.
+            val needed = maxOf(expectedSize, 1) * 4 / 3 + 1
+            return Integer.highestOneBit(needed - 1).coerceAtLeast(4) shl 1
+        }
+    }
+}
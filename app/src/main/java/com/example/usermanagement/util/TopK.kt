@@ -0,0 +1,53 @@
+package com.example.usermanagement.util
+
+import java.util.PriorityQueue
+
+/**
+ * Keeps the [k] smallest items offered according to [comparator], without sorting everything offered.
+ * Backed by a max-heap of at most [k] items, so offering n items costs O(n log k) time and O(k) memory.
+ * Not thread-safe.
+ * @param k The number of items to keep; must be positive.
+ * @param comparator The order in which smaller items are better.
+ */
+class TopK<T>(private val k: Int, private val comparator: Comparator<T>) {
+    private val heap: PriorityQueue<T>
+
+    init {
+        require(k > 0) { "k must be positive: $k" }
+        heap = PriorityQueue(minOf(k, INITIAL_CAPACITY), comparator.reversed())
+    }
+
+    /**
+     * Whether [k] items are kept, so a new item must beat [worst] to be kept.
+     */
+    val isFull: Boolean
+        get() = heap.size == k
+
+    /**
+     * The worst kept item, or `null` if none is kept yet.
+     */
+    fun worst(): T? = heap.peek()
+
+    /**
+     * Offers [item], keeping it only if it is among the [k] best seen so far.
+     * @param item The candidate.
+     */
+    fun offer(item: T) {
+        if (heap.size < k) {
+            heap.add(item)
+        } else if (comparator.compare(item, heap.peek()) < 0) {
+            heap.poll()
+            heap.add(item)
+        }
+    }
+
+    /**
+     * The kept items, best first.
+     * @return At most [k] items sorted by [comparator].
+     */
+    fun sorted(): List<T> = heap.sortedWith(comparator)
+
+    private companion object {
+        const val INITIAL_CAPACITY = 64
+    }
+}
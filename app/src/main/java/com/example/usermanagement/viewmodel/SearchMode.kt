@@ -0,0 +1,17 @@
+package com.example.usermanagement.viewmodel
+
+import com.example.usermanagement.repository.IUserRepository
+
+/**
+ * How the user list matches a non-blank search query against the names.
+ */
+enum class SearchMode {
+    /** Case-insensitive substring matching, see [IUserRepository.searchUsers]. */
+    SUBSTRING,
+
+    /** Typo-tolerant, ranked matching, see [IUserRepository.fuzzySearch]. */
+    FUZZY,
+
+    /** Matching by the sound of the names, see [IUserRepository.soundsLike]. */
+    SOUNDS_LIKE
+}
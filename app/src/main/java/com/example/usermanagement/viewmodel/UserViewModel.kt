@@ -6,15 +6,44 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.viewModelScope
 import com.example.usermanagement.data.User
-import com.example.usermanagement.filter.UserFilter
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.data.UserStats
+import com.example.usermanagement.dedupe.DuplicateCluster
+import com.example.usermanagement.filter.FilterParser
+import com.example.usermanagement.filter.FilterSyntaxException
 import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.search.UserSuggestion
+import com.example.usermanagement.sort.SortedUsers
+import com.example.usermanagement.sort.UserSection
+import com.example.usermanagement.sort.UserSort
 import com.example.usermanagement.strategy.*
+import com.example.usermanagement.trace.AppTrace
+import com.example.usermanagement.ui.state.SelectionState
+import com.example.usermanagement.ui.state.UserListItem
+import com.example.usermanagement.ui.state.UserListState
+import com.example.usermanagement.ui.state.toListItem
+import com.example.usermanagement.util.LongIdSet
 import com.example.usermanagement.util.Result
 import com.example.usermanagement.util.ValidationResult
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.drop
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import kotlinx.coroutines.flow.debounce
 import kotlinx.coroutines.flow.Flow
 
@@ -36,54 +65,214 @@ open class UserViewModel(
     private val _uiState = MutableStateFlow<Result<List<User>>>(Result.loading())
     val uiState: StateFlow<Result<List<User>>> = _uiState.asStateFlow()
 
+    /**
+     * [StateFlow] of the user list as immutable [UserListItem]s.
+     * Refreshes and searches keep the previous items on screen and only toggle [UserListState.isRefreshing].
+     */
+    private val _listState = MutableStateFlow(UserListState())
+    val listState: StateFlow<UserListState> = _listState.asStateFlow()
+
+    /**
+     * The collector of the currently displayed query; replaced whenever a new query starts.
+     */
+    private var fetchJob: Job? = null
+
     /**
      * [MutableStateFlow] holding the current search query string.
      */
     private val _searchQuery = MutableStateFlow("")
     val searchQuery: StateFlow<String> = _searchQuery.asStateFlow()
 
+    /**
+     * How non-blank queries are matched against the names.
+     */
+    private val _searchMode = MutableStateFlow(SearchMode.SUBSTRING)
+    val searchMode: StateFlow<SearchMode> = _searchMode.asStateFlow()
+
+    /**
+     * Typeahead completions of [searchQuery], updated on every keystroke without the search debounce.
+     */
+    private val _suggestions = MutableStateFlow<List<UserSuggestion>>(emptyList())
+    val suggestions: StateFlow<List<UserSuggestion>> = _suggestions.asStateFlow()
+
+    /**
+     * Computes the suggestions of the latest keystroke; replaced by the next one.
+     */
+    private var suggestJob: Job? = null
+
+    /**
+     * The order of the user list; null keeps the order of the repository, such as the ranking of fuzzy search.
+     */
+    private val _sort = MutableStateFlow<UserSort?>(null)
+    val sort: StateFlow<UserSort?> = _sort.asStateFlow()
+
     private val validationStrategy = UserValidationStrategy(application)
 
-    private val _filteredUsers = MutableStateFlow<List<User>>(emptyList())
-    val filteredUsers: StateFlow<List<User>> = _filteredUsers.asStateFlow()
+    /**
+     * Cookies of the async trace sections of the latest search keystroke; 0 when none is open.
+     * [searchTraceCookie] spans from the keystroke until the result is rendered, [debounceTraceCookie]
+     * covers the debounce wait. Only touched on the main thread.
+     */
+    private var searchTraceCookie = 0
+    private var debounceTraceCookie = 0
+
+    /**
+     * The [UserListState.version] that will complete the open search trace, or -1 while the query is still running.
+     */
+    private var searchTraceVersion = -1L
 
-    private var currentFilterFirstName: String? = null
+    /**
+     * The filter expression of [filteredUsers], see [FilterParser]; null while no filter is set.
+     */
+    private val _filter = MutableStateFlow<String?>(null)
+    val filter: StateFlow<String?> = _filter.asStateFlow()
+
+    /**
+     * Why the last expression passed to [validateFilter] or [setFilter] was rejected, with the position of the
+     * problem; null once a valid one is passed.
+     */
+    private val _filterError = MutableStateFlow<FilterSyntaxException?>(null)
+    val filterError: StateFlow<FilterSyntaxException?> = _filterError.asStateFlow()
+
+    /**
+     * [StateFlow] of the users matching [filter], or of all users while none is set, collected like [stats].
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val filteredUsers: StateFlow<List<User>> = _filter
+        .flatMapLatest { expression -> if (expression == null) repository.allUsers else repository.filterUsers(expression) }
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STATS_STOP_TIMEOUT_MILLIS), emptyList())
+
+    /**
+     * [StateFlow] of the sections of [listState] for the sticky headers and the fast-scroll index, from the
+     * repository's counters; empty unless the list holds every user in a [sort] order. Counters and list are
+     * observed separately, so sections are only passed on while their counts add up to the list; collectors
+     * holding [listState] separately must check that against the list they render, which can be a different one.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val sections: StateFlow<List<UserSection>> = _listState
+        .map { it.sectionedBy }
+        .distinctUntilChanged()
+        .flatMapLatest { sort -> if (sort == null) flowOf(emptyList()) else repository.observeSections(sort) }
+        .combine(_listState) { sections, state ->
+            if (sections.sumOf { it.count } == state.items.size) sections else emptyList()
+        }
+        .distinctUntilChanged()
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(STATS_STOP_TIMEOUT_MILLIS), emptyList())
+
+    /**
+     * [StateFlow] of the multi-select mode and the selected IDs. Only updated on the main thread.
+     */
+    private val _selectionState = MutableStateFlow(SelectionState())
+    val selectionState: StateFlow<SelectionState> = _selectionState.asStateFlow()
+
+    /**
+     * [StateFlow] of the directory statistics, backed by the repository's counters.
+     * Only collected while a screen shows them, plus a grace period that survives configuration changes.
+     */
+    val stats: StateFlow<UserStats> =
+        repository.stats.stateIn(viewModelScope, SharingStarted.WhileSubscribed(STATS_STOP_TIMEOUT_MILLIS), UserStats())
+
+    /**
+     * [StateFlow] of the probable duplicates awaiting review, collected like [stats].
+     */
+    val duplicateClusters: StateFlow<List<DuplicateCluster>> =
+        repository.duplicateClusters.stateIn(
+            viewModelScope,
+            SharingStarted.WhileSubscribed(STATS_STOP_TIMEOUT_MILLIS),
+            emptyList()
+        )
 
     init {
         // Initialize the user list and start observing search queries.
         loadUsers()
         observeSearch()
-        viewModelScope.launch {
-            repository.allUsers.collect { users ->
-                _uiState.value = Result.Success(users)
-                applyFilters(users)
-            }
-        }
     }
 
     /**
-     * Fetches users from the provided [Flow] and updates the [_uiState].
-     * This is a generalized function to reduce duplication in data fetching logic.
+     * Fetches users from the provided [Flow] and updates the [_uiState] and [_listState].
+     * Any previous query collector is cancelled, and the current items stay visible until the new result arrives.
+     * The collector stays active, so later writes are picked up without reloading.
+     * With a [sort] set, each collector keeps its own [SortedUsers], so a write changing a few users moves just
+     * those users instead of sorting the whole list again.
      * @param usersFlow The [Flow] of user lists to collect from (e.g., all users or search results).
+     * @param isWholeDirectory `true` if [usersFlow] emits every user, so the sorted list can be sectioned.
      */
-    private fun _fetchUsers(usersFlow: Flow<List<User>>) {
-        viewModelScope.launch {
+    private fun _fetchUsers(usersFlow: Flow<List<User>>, isWholeDirectory: Boolean) {
+        fetchJob?.cancel()
+        _listState.update { it.copy(isRefreshing = true) }
+        val sortedUsers = _sort.value?.let { SortedUsers(it) }
+        val sectionedBy = sortedUsers?.sort?.takeIf { isWholeDirectory }
+        fetchJob = viewModelScope.launch {
             try {
-                _uiState.value = Result.loading()
-                usersFlow.collect { userList ->
+                usersFlow.collect { emitted ->
+                    val (userList, items) = withContext(Dispatchers.Default) {
+                        val userList = if (sortedUsers == null) {
+                            emitted
+                        } else {
+                            AppTrace.section("UserViewModel.sortUsers") { sortedUsers.update(emitted).toList() }
+                        }
+                        userList to AppTrace.section("UserViewModel.mapListItems") { userList.map { it.toListItem() } }
+                    }
                     _uiState.value = Result.success(userList)
+                    _listState.update {
+                        it.copy(
+                            items = items,
+                            isLoaded = true,
+                            isRefreshing = false,
+                            version = it.version + 1,
+                            error = null,
+                            sectionedBy = sectionedBy
+                        )
+                    }
+                    if (searchTraceCookie != 0 && searchTraceVersion < 0) {
+                        searchTraceVersion = _listState.value.version
+                    }
                 }
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 _uiState.value = Result.error(e)
+                _listState.update { it.copy(isLoaded = true, isRefreshing = false, error = e) }
             }
         }
     }
 
     /**
-     * Loads all users from the repository and updates the UI state.
+     * Loads users for the current search query from the repository and updates the UI state.
      */
     private fun loadUsers() {
-        _fetchUsers(repository.allUsers)
+        val query = _searchQuery.value
+        _fetchUsers(
+            when {
+                query.isBlank() -> repository.allUsers
+                else -> when (_searchMode.value) {
+                    SearchMode.SUBSTRING -> repository.searchUsers(query)
+                    SearchMode.FUZZY -> repository.fuzzySearch(query)
+                    SearchMode.SOUNDS_LIKE -> repository.soundsLike(query)
+                }
+            },
+            isWholeDirectory = query.isBlank()
+        )
+    }
+
+    /**
+     * Switches how queries are matched and reruns the current query.
+     * @param mode The new search mode.
+     */
+    fun setSearchMode(mode: SearchMode) {
+        if (_searchMode.value == mode) return
+        _searchMode.value = mode
+        if (_searchQuery.value.isNotBlank()) loadUsers()
+    }
+
+    /**
+     * Changes the order of the user list and reloads it.
+     * @param sort The new order, or null for the repository's order.
+     */
+    fun setSort(sort: UserSort?) {
+        if (_sort.value == sort) return
+        _sort.value = sort
+        loadUsers()
     }
 
     /**
@@ -93,27 +282,119 @@ open class UserViewModel(
     private fun observeSearch() {
         viewModelScope.launch {
             searchQuery
+                .drop(1) // The initial query is already loaded by init.
                 .debounce(300)
-                .collect { query ->
-                    if (query.isBlank()) {
-                        _fetchUsers(repository.allUsers)
-                    } else {
-                        _fetchUsers(repository.searchUsers(query))
+                .distinctUntilChanged()
+                .collect {
+                    if (debounceTraceCookie != 0) {
+                        AppTrace.endAsync(TRACE_SEARCH_DEBOUNCE, debounceTraceCookie)
+                        debounceTraceCookie = 0
                     }
+                    AppTrace.section("UserViewModel.loadUsers") { loadUsers() }
                 }
         }
     }
 
+    /**
+     * Observes a single user by [userId] through the repository's shared, primary key backed flow.
+     * Works regardless of whether the user is part of the currently loaded or searched list.
+     * @param userId The ID of the user to observe.
+     * @return A [Flow] emitting the current [User], or `null` if it does not exist.
+     */
+    fun observeUser(userId: Long): Flow<User?> = repository.observeUserById(userId)
+
+    /**
+     * Warms the shared flow for [userId], typically when a card is tapped, so the edit screen
+     * receives the user without waiting for its own query.
+     * @param userId The ID of the user that is about to be opened.
+     */
+    fun prefetchUser(userId: Long) {
+        viewModelScope.launch {
+            try {
+                repository.observeUserById(userId).first()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                // A failed warm-up is harmless; the edit screen queries again on its own.
+            }
+        }
+    }
+
     /**
      * Updates the current search query.
      * @param query The new search query string.
      */
     fun updateSearchQuery(query: String) {
+        // A newer keystroke supersedes the search being traced.
+        endSearchTrace()
+        searchTraceCookie = AppTrace.beginAsync(TRACE_SEARCH)
+        debounceTraceCookie = AppTrace.beginAsync(TRACE_SEARCH_DEBOUNCE)
+        searchTraceVersion = -1L
         _searchQuery.value = query
+        suggestJob?.cancel()
+        if (query.isBlank()) {
+            _suggestions.value = emptyList()
+        } else {
+            suggestJob = viewModelScope.launch {
+                _suggestions.value = try {
+                    repository.suggest(query)
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    // Suggestions are a shortcut; the debounced search still reports failures.
+                    emptyList()
+                }
+            }
+        }
     }
 
     /**
-     * Refreshes the list of all users. This is typically called for pull-to-refresh functionality.
+     * Prepares the suggestions in the background once the search bar gains focus, before the first keystroke.
+     */
+    fun prepareSuggestions() {
+        viewModelScope.launch {
+            try {
+                repository.prepareSuggestions()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                // The first keystroke tries again and reports nothing either; the search itself is unaffected.
+            }
+        }
+    }
+
+    /**
+     * Hides the suggestions until the query changes again, e.g. once one was picked or the field lost focus.
+     */
+    fun dismissSuggestions() {
+        suggestJob?.cancel()
+        _suggestions.value = emptyList()
+    }
+
+    /**
+     * Called by the list screen after a [UserListState] has been composed, closing the search trace
+     * once the result of the traced keystroke is on screen.
+     * @param version The [UserListState.version] that was rendered.
+     */
+    fun onListRendered(version: Long) {
+        AppTrace.counter("UserListScreen.version", version.toInt())
+        if (searchTraceVersion in 0..version) endSearchTrace()
+    }
+
+    private fun endSearchTrace() {
+        if (debounceTraceCookie != 0) {
+            AppTrace.endAsync(TRACE_SEARCH_DEBOUNCE, debounceTraceCookie)
+            debounceTraceCookie = 0
+        }
+        if (searchTraceCookie != 0) {
+            AppTrace.endAsync(TRACE_SEARCH, searchTraceCookie)
+            searchTraceCookie = 0
+        }
+        searchTraceVersion = -1L
+    }
+
+    /**
+     * Refreshes the list for the current query. This is typically called for pull-to-refresh functionality.
      */
     fun refreshUsers() {
         loadUsers()
@@ -124,10 +405,7 @@ open class UserViewModel(
      * @param user The [User] object to add.
      */
     fun addUser(user: User) {
-        performUserOperation(user, AddUserStrategy()) {
-            repository.insertUser(it)
-            loadUsers()
-        }
+        performUserOperation(user, AddUserStrategy())
     }
 
     /**
@@ -135,10 +413,7 @@ open class UserViewModel(
      * @param user The [User] object to update.
      */
     fun updateUser(user: User) {
-        performUserOperation(user, UpdateUserStrategy()) {
-            repository.updateUser(it)
-            loadUsers()
-        }
+        performUserOperation(user, UpdateUserStrategy())
     }
 
     /**
@@ -147,24 +422,142 @@ open class UserViewModel(
      * @param user The [User] object to delete.
      */
     fun deleteUser(user: User) {
-        performUserOperation(user, DeleteUserStrategy(), performValidation = false) {
-            repository.deleteUser(it)
-            loadUsers()
+        performUserOperation(user, DeleteUserStrategy(), performValidation = false)
+    }
+
+    /**
+     * Deletes the user with the given [userId] from the data source.
+     * The user is resolved by primary key, so list rows only need to carry the ID.
+     * @param userId The ID of the user to delete.
+     */
+    fun deleteUser(userId: Long) {
+        viewModelScope.launch {
+            try {
+                repository.getUserById(userId)?.let { deleteUser(it) }
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                _uiState.value = Result.error(e)
+            }
+        }
+    }
+
+    /**
+     * Marks the users of [cluster] as different people, so they are no longer reported as duplicates.
+     * @param cluster The reviewed cluster.
+     */
+    fun dismissDuplicates(cluster: DuplicateCluster) {
+        viewModelScope.launch {
+            try {
+                repository.dismissDuplicates(cluster.userIds)
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                _uiState.value = Result.error(e)
+            }
+        }
+    }
+
+    /**
+     * Adds the user to the selection, or removes it if already selected, entering multi-select mode if needed.
+     * Leaving the last user unselected keeps the mode active until [clearSelection] is called.
+     * The published set is copied rather than changed, which costs a copy of the IDs per tap.
+     * @param userId The ID of the user to toggle.
+     */
+    fun toggleSelection(userId: Long) {
+        val selectedIds = LongIdSet.of(_selectionState.value.selectedIds.toLongArray())
+        selectedIds.toggle(userId)
+        publishSelection(isActive = true, selectedIds)
+    }
+
+    /**
+     * Selects every user matching the current search query, including those not loaded on screen.
+     * Only the IDs are queried, so no [User] objects are created for the matches.
+     */
+    fun selectAllMatching() {
+        val query = _searchQuery.value
+        viewModelScope.launch {
+            try {
+                // Only substring matches can be queried as IDs; the other modes select every result shown,
+                // which for fuzzy search is a ranked top-K anyway.
+                val ids = if (_searchMode.value != SearchMode.SUBSTRING && query.isNotBlank()) {
+                    val items = _listState.value.items
+                    LongArray(items.size) { items[it].id }
+                } else {
+                    repository.getUserIds(query)
+                }
+                publishSelection(isActive = true, LongIdSet.of(ids))
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                _uiState.value = Result.error(e)
+            }
         }
     }
 
+    /**
+     * Clears the selection and leaves multi-select mode.
+     */
+    fun clearSelection() {
+        publishSelection(isActive = false, LongIdSet())
+    }
+
+    /**
+     * Deletes all selected users with chunked `DELETE ... WHERE id IN (...)` statements in one transaction,
+     * then leaves multi-select mode. The active list collector picks up the change.
+     */
+    fun deleteSelected() {
+        runBulkOperation { ids -> repository.deleteUsersByIds(ids) }
+    }
+
+    /**
+     * Sets [column] to [value] for all selected users in one transaction, then leaves multi-select mode.
+     * @param column The column to set; [UserColumn.EMAIL] is rejected because emails are unique.
+     * @param value The new value of the column.
+     */
+    fun updateSelected(column: UserColumn, value: String) {
+        runBulkOperation { ids -> repository.updateColumnForIds(ids, column, value) }
+    }
+
+    /**
+     * Runs a bulk write on a snapshot of the selected IDs, reporting failures through [uiState].
+     * @param operation The write to perform, receiving the selected IDs.
+     */
+    private fun runBulkOperation(operation: suspend (LongArray) -> Int) {
+        val ids = _selectionState.value.selectedIds.toLongArray()
+        if (ids.isEmpty()) return
+        _selectionState.update { it.copy(isBulkOperationRunning = true) }
+        viewModelScope.launch {
+            try {
+                operation(ids)
+                clearSelection()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                _uiState.value = Result.error(e)
+            } finally {
+                _selectionState.update { it.copy(isBulkOperationRunning = false) }
+            }
+        }
+    }
+
+    private fun publishSelection(isActive: Boolean, selectedIds: LongIdSet) {
+        _selectionState.update { it.copy(isActive = isActive, selectedIds = selectedIds) }
+    }
+
     /**
      * A generic function to perform user operations (add, update, delete) with optional validation.
      * @param user The [User] object involved in the operation.
      * @param strategy The [UserOperationStrategy] to execute the specific operation.
      * @param performValidation A boolean indicating whether to perform validation before the operation. Defaults to `true`.
+     * The strategy performs the write itself; the active list collector picks up the change, so no reload is needed.
      * @param onSuccess A suspending lambda to be executed upon successful completion of the operation, receiving the [User] object.
      */
     private fun performUserOperation(
         user: User,
         strategy: UserOperationStrategy,
         performValidation: Boolean = true,
-        onSuccess: suspend (User) -> Unit
+        onSuccess: suspend (User) -> Unit = {}
     ) {
         viewModelScope.launch {
             try {
@@ -200,40 +593,45 @@ open class UserViewModel(
     }
 
     /**
-     * Applies filters to the user list
-     * @param users The list of users to filter
+     * Sets the filter expression of [filteredUsers]. An invalid expression leaves the current filter in place
+     * and is reported through [filterError].
+     * @param expression The filter expression, see [FilterParser]; blank clears the filter.
      */
-    private fun applyFilters(users: List<User>) {
-        _filteredUsers.value = if (currentFilterFirstName.isNullOrEmpty()) {
-            users
-        } else {
-            UserFilter.filterByFirstName(users, currentFilterFirstName!!)
+    fun setFilter(expression: String?) {
+        if (expression.isNullOrBlank()) {
+            clearFilters()
+            return
         }
+        if (validateFilter(expression)) _filter.value = expression
     }
 
     /**
-     * Sets the first name filter
-     * @param firstName The first name to filter by
+     * Checks [expression] without applying it, reporting a rejection through [filterError].
+     * @param expression The filter expression, see [FilterParser].
+     * @return Whether the expression is valid.
      */
-    fun setFirstNameFilter(firstName: String?) {
-        currentFilterFirstName = firstName
-        _uiState.value.let { state ->
-            if (state is Result.Success) {
-                applyFilters(state.data)
-            }
+    fun validateFilter(expression: String): Boolean {
+        _filterError.value = try {
+            FilterParser.parse(expression)
+            null
+        } catch (e: FilterSyntaxException) {
+            e
         }
+        return _filterError.value == null
     }
 
     /**
      * Clears all filters
      */
     fun clearFilters() {
-        currentFilterFirstName = null
-        _uiState.value.let { state ->
-            if (state is Result.Success) {
-                applyFilters(state.data)
-            }
-        }
+        _filterError.value = null
+        _filter.value = null
+    }
+
+    private companion object {
+        const val TRACE_SEARCH = "UserViewModel.search"
+        const val TRACE_SEARCH_DEBOUNCE = "UserViewModel.searchDebounce"
+        const val STATS_STOP_TIMEOUT_MILLIS = 5_000L
     }
 
     /**
@@ -0,0 +1,99 @@
+package com.example.usermanagement.data
+
+import android.app.Application
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.sort.UserSections
+import com.example.usermanagement.sort.UserSort
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class UserStatsTableTest {
+    private lateinit var db: UserDatabase
+    private lateinit var dao: UserDao
+
+    @Before
+    fun setup() {
+        db = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            UserDatabase::class.java
+        ).addCallback(UserStatsTable.CALLBACK).allowMainThreadQueries().build()
+        dao = db.userDao()
+    }
+
+    @After
+    fun cleanup() {
+        db.close()
+    }
+
+    @Test
+    fun triggersMatchAFullRebuildAfterMixedWrites() = runBlocking {
+        dao.insertUsers(SyntheticUserGenerator().users(0, 500))
+        val ids = dao.getAllUserIds()
+        for (id in ids.take(50)) {
+            val user = dao.getUserById(id)
+            dao.updateUser(user.copy(email = "moved$id@Example.org", dob = "1950-06-0${id % 9 + 1}"))
+        }
+        dao.updateColumnForIdsChunked(ids.copyOfRange(50, 100), UserColumn.DOB, "not a date")
+        dao.deleteUsersByIdsChunked(ids.copyOfRange(100, 200))
+
+        val maintained = stats()
+        db.runInTransaction(Runnable { UserStatsTable.rebuild(db.openHelper.writableDatabase) })
+
+        assertEquals(stats(), maintained)
+        assertEquals(400L, maintained.total)
+        assertEquals(50L, maintained.byDomain.single { it.first == "example.org" }.second)
+        assertEquals(maintained.total, maintained.byDomain.sumOf { it.second })
+    }
+
+    @Test
+    fun emptiedBucketsAreDropped() = runBlocking {
+        val id = dao.insertUser(User(firstName = "Ada", lastName = "Byron", email = "ada@solo.test", dob = "1815-12-10"))
+        dao.deleteUser(dao.getUserById(id))
+
+        assertEquals(UserStats(), stats())
+    }
+
+    @Test
+    fun matchesTheInMemoryComputation() = runBlocking {
+        val users = SyntheticUserGenerator().users(0, 300)
+        dao.insertUsers(users)
+
+        assertEquals(UserStats.of(users), stats())
+    }
+
+    @Test
+    fun initialCountersMatchTheInMemorySections() = runBlocking {
+        dao.insertUsers(
+            SyntheticUserGenerator().users(0, 300) +
+                User(firstName = "Émile", lastName = "Ölander", email = "1st@example.com", dob = "unknown")
+        )
+        val ids = dao.getAllUserIds()
+        dao.updateColumnForIdsChunked(ids.copyOfRange(0, 20), UserColumn.LAST_NAME, "zimmer")
+        for (id in ids.copyOfRange(20, 30)) {
+            val user = dao.getUserById(id)
+            dao.updateUser(user.copy(firstName = "ådne", email = "_$id@example.org"))
+        }
+        dao.deleteUsersByIdsChunked(ids.copyOfRange(30, 60))
+
+        val maintained = db.userStatsDao().observeStats().first()
+        val users = dao.getAllUsers().first()
+        for (sort in UserSort.values()) {
+            assertEquals(sort.name, UserSections.of(sort, users), UserSections.fromCounters(sort, maintained))
+        }
+        db.runInTransaction(Runnable { UserStatsTable.rebuild(db.openHelper.writableDatabase) })
+        assertEquals(maintained.toSet(), db.userStatsDao().observeStats().first().toSet())
+    }
+
+    private suspend fun stats(): UserStats = UserStats.from(db.userStatsDao().observeStats().first())
+}
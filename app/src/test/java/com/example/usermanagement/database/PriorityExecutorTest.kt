@@ -0,0 +1,52 @@
+package com.example.usermanagement.database
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class PriorityExecutorTest {
+
+    @Test
+    fun queuedInteractiveTasksOvertakeQueuedBackgroundTasks() {
+        val executor = PriorityExecutor("test", threads = 1)
+        val order = Collections.synchronizedList(mutableListOf<String>())
+        val release = CountDownLatch(1)
+        val done = CountDownLatch(5)
+
+        // Occupy the only thread so everything below queues up.
+        executor.executor(DbPriority.BACKGROUND).execute { release.await() }
+        for (i in 1..3) {
+            executor.executor(DbPriority.BACKGROUND).execute { order += "background$i"; done.countDown() }
+        }
+        for (i in 1..2) {
+            executor.executor(DbPriority.INTERACTIVE).execute { order += "interactive$i"; done.countDown() }
+        }
+        release.countDown()
+
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        assertEquals(listOf("interactive1", "interactive2", "background1", "background2", "background3"), order)
+    }
+
+    @Test
+    fun recordsQueueDepthAndWaitPerLane() {
+        val executor = PriorityExecutor("test", threads = 1)
+        val release = CountDownLatch(1)
+        val done = CountDownLatch(3)
+
+        executor.executor(DbPriority.INTERACTIVE).execute { release.await() }
+        repeat(3) { executor.executor(DbPriority.BACKGROUND).execute { done.countDown() } }
+        val queued = executor.snapshot().lanes.getValue(DbPriority.BACKGROUND)
+        release.countDown()
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        val finished = executor.snapshot().lanes.getValue(DbPriority.BACKGROUND)
+
+        assertEquals(3, queued.queueDepth)
+        assertEquals(0, finished.queueDepth)
+        assertEquals(3, finished.maxQueueDepth)
+        assertEquals(3L, finished.executed)
+        assertEquals(3L, finished.wait.count)
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.usermanagement.database
+
+import android.app.Application
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserDao
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.data.UserPhonetics
+import com.example.usermanagement.filter.FilterPlanner
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.lang.reflect.Modifier
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class SlowQueryMonitorTest {
+    private lateinit var monitor: SlowQueryMonitor
+    private lateinit var db: UserDatabase
+    private lateinit var dao: UserDao
+
+    @Before
+    fun setup() {
+        monitor = SlowQueryMonitor(thresholdMillis = Long.MAX_VALUE / 1_000_000, capacity = CAPACITY)
+        val builder = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            UserDatabase::class.java
+        ).allowMainThreadQueries()
+        db = monitor.install(builder).build()
+        dao = db.userDao()
+    }
+
+    @After
+    fun cleanup() {
+        db.close()
+    }
+
+    @Test
+    fun capturesOnlyStatementsAtOrAboveThreshold() {
+        insertUsers(10)
+        monitor.clear()
+
+        dao.getUserById(1)
+        assertTrue(monitor.slowQueries().isEmpty())
+
+        monitor.thresholdMillis = 0
+        dao.getUserById(1)
+        val captured = monitor.slowQueries().single { it.sql == "SELECT * FROM users WHERE id = ?" }
+        assertEquals(listOf<Any?>(1L), captured.bindArgs)
+        assertTrue(captured.plan.isNotEmpty())
+        assertFalse(captured.isFullScan)
+    }
+
+    @Test
+    fun ringBufferKeepsMostRecentStatements() {
+        insertUsers(CAPACITY * 2)
+        monitor.thresholdMillis = 0
+        monitor.clear()
+
+        for (id in 1..CAPACITY * 2) dao.getUserById(id.toLong())
+
+        val captured = monitor.slowQueries()
+        assertEquals(CAPACITY, captured.size)
+        assertEquals(listOf<Any?>((CAPACITY + 1).toLong()), captured.first().bindArgs)
+    }
+
+    @Test
+    fun flagsFullScans() {
+        insertUsers(10)
+        monitor.thresholdMillis = 0
+        monitor.clear()
+
+        dao.searchUserIds("First")
+
+        assertTrue(monitor.fullScans().isNotEmpty())
+    }
+
+    /**
+     * Runs every abstract [UserDao] method against 100k rows and asserts that none of them scans the users table,
+     * except for the queries that read everything or match substrings by design.
+     */
+    @Test
+    fun everyDaoQueryUsesAnIndexAt100kRows() = runBlocking {
+        insertUsers(LARGE_TABLE_ROWS)
+        monitor.thresholdMillis = 0
+        val ids = longArrayOf(1, 2, 3)
+        val user = dao.getUserById(42)!!
+
+        val calls: Map<String, suspend () -> Unit> = mapOf(
+            "getAllUsers" to { dao.getAllUsers().first() },
+            "getUserById" to { dao.getUserById(7) },
+            "observeUserById" to { dao.observeUserById(7).first() },
+            "insertUserRow" to { dao.insertUserRow(User(firstName = "New", lastName = "User", email = "new@example.com")) },
+            "insertUserRows" to { dao.insertUserRows(listOf(User(firstName = "Bulk", lastName = "User", email = "bulk@example.com"))) },
+            "updateUserRow" to { dao.updateUserRow(user.copy(firstName = "Changed")) },
+            "updateFirstName" to { dao.updateFirstName(7, "A") },
+            "updateLastName" to { dao.updateLastName(7, "B") },
+            "updateFirstNameCode" to { dao.updateFirstNameCode(7, "A") },
+            "updateLastNameCode" to { dao.updateLastNameCode(7, "B") },
+            "updateEmail" to { dao.updateEmail(7, "changed7@example.com") },
+            "updatePhone" to { dao.updatePhone(7, "123") },
+            "updateDob" to { dao.updateDob(7, "2000-01-01") },
+            "updateAddress" to { dao.updateAddress(7, "Street") },
+            "deleteUser" to { dao.deleteUser(user) },
+            "deleteUsersByIds" to { dao.deleteUsersByIds(ids) },
+            "updateFirstNameForIds" to { dao.updateFirstNameForIds(ids, "A") },
+            "updateLastNameForIds" to { dao.updateLastNameForIds(ids, "B") },
+            "updateFirstNameCodeForIds" to { dao.updateFirstNameCodeForIds(ids, "A") },
+            "updateLastNameCodeForIds" to { dao.updateLastNameCodeForIds(ids, "B") },
+            "updatePhoneForIds" to { dao.updatePhoneForIds(ids, "123") },
+            "updateDobForIds" to { dao.updateDobForIds(ids, "2000-01-01") },
+            "updateAddressForIds" to { dao.updateAddressForIds(ids, "Street") },
+            "searchUsers" to { dao.searchUsers("First5").first() },
+            "getUserByEmail" to { dao.getUserByEmail("user500@example.com") },
+            "getAllUserIds" to { dao.getAllUserIds() },
+            "searchUserIds" to { dao.searchUserIds("First5") },
+            "getAllUserNames" to { dao.getAllUserNames() },
+            "getAllUserContacts" to { dao.getAllUserContacts() },
+            "observeUsersByIds" to { dao.observeUsersByIds(ids).first() },
+            "insertPhonetics" to { dao.insertPhonetics(UserPhonetics.of(7, "Anna", "Smith")) },
+            "getUserNamesWithoutPhonetics" to { dao.getUserNamesWithoutPhonetics(LARGE_TABLE_ROWS / 2L, 100) },
+            "searchBySoundOfName" to { dao.searchBySoundOfName("SM0").first() },
+            "searchBySoundOfFullName" to { dao.searchBySoundOfFullName(listOf("AN", "SM0")).first() },
+            "filterUsers" to { dao.filterUsers(FilterPlanner().plan("last:last5* AND phone:555*").toQuery()).first() }
+        )
+
+        val abstractMethods = UserDao::class.java.declaredMethods
+            .filter { Modifier.isAbstract(it.modifiers) }
+            .map { it.name }
+            .toSet()
+        assertEquals("Every UserDao query must be covered here", abstractMethods, calls.keys)
+
+        val unexpectedScans = mutableMapOf<String, List<String>>()
+        for ((name, call) in calls) {
+            monitor.clear()
+            call()
+            val statements = monitor.slowQueries()
+            assertTrue("$name issued no statement", statements.isNotEmpty())
+            val scans = statements.filter { it.isFullScan }
+            if (scans.isNotEmpty() && name !in INTENTIONAL_FULL_SCANS) {
+                unexpectedScans[name] = scans.flatMap { it.plan }
+            }
+        }
+        assertTrue("Queries scanning users: $unexpectedScans", unexpectedScans.isEmpty())
+    }
+
+    private fun insertUsers(count: Int) {
+        val database = db.openHelper.writableDatabase
+        database.beginTransaction()
+        try {
+            val statement = database.compileStatement(
+                "INSERT INTO users (firstName, lastName, email, phone, dob, address) VALUES (?, ?, ?, ?, ?, ?)"
+            )
+            for (i in 1..count) {
+                statement.clearBindings()
+                statement.bindString(1, "First$i")
+                statement.bindString(2, "Last$i")
+                statement.bindString(3, "user$i@example.com")
+                statement.bindString(4, "555${i.toString().padStart(7, '0')}")
+                statement.bindString(5, "1990-01-01")
+                statement.bindString(6, "$i Main St")
+                statement.executeInsert()
+            }
+            database.setTransactionSuccessful()
+        } finally {
+            database.endTransaction()
+        }
+    }
+
+    private companion object {
+        const val CAPACITY = 8
+        const val LARGE_TABLE_ROWS = 100_000
+
+        /**
+         * Queries that read the whole table or match `LIKE '%...%'` substrings, which no B-tree index can serve.
+         */
+        val INTENTIONAL_FULL_SCANS = setOf(
+            "getAllUsers", "getAllUserIds", "searchUsers", "searchUserIds", "getAllUserNames", "getAllUserContacts"
+        )
+    }
+}
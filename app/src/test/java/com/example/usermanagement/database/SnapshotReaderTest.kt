@@ -0,0 +1,83 @@
+package com.example.usermanagement.database
+
+import android.app.Application
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserDatabase
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import kotlin.concurrent.thread
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class SnapshotReaderTest {
+    private lateinit var db: UserDatabase
+    private lateinit var reader: SnapshotReader
+
+    @Before
+    fun setup() {
+        db = Room.databaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            UserDatabase::class.java,
+            DATABASE_NAME
+        ).setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING).allowMainThreadQueries().build()
+        reader = SnapshotReader(db)
+        db.userDao().insertUsers((1..20).map { user(it) })
+    }
+
+    @After
+    fun cleanup() {
+        reader.close()
+        db.close()
+        ApplicationProvider.getApplicationContext<Application>().deleteDatabase(DATABASE_NAME)
+    }
+
+    @Test
+    fun listAndCountsAgree() {
+        val (users, count, matching) = reader.read { snapshot ->
+            Triple(snapshot.users(), snapshot.count(), snapshot.count("First1"))
+        }
+
+        assertEquals(20, users.size)
+        assertEquals(20, count)
+        assertEquals(users.count { it.firstName.contains("First1") }, matching)
+    }
+
+    @Test
+    fun writesCommittedDuringTheSnapshotAreNotVisibleInIt() {
+        val counts = reader.read { snapshot ->
+            val before = snapshot.count()
+            // Joined without a timeout: the write has to commit while the snapshot is still open.
+            var id = 0L
+            thread { id = db.userDao().insertUser(user(21)) }.join()
+            assertNotNull(db.userDao().getUserById(id))
+            before to snapshot.count()
+        }
+
+        assertEquals(20 to 20, counts)
+        assertEquals(21, reader.read { it.count() })
+        assertNull(reader.read { it.userById(99) })
+    }
+
+    private companion object {
+        const val DATABASE_NAME = "snapshot_reader_test.db"
+    }
+
+    private fun user(index: Int) = User(
+        firstName = "First$index",
+        lastName = "Last$index",
+        email = "user$index@example.com",
+        phone = "555000$index",
+        dob = "01/01/1990",
+        address = "$index Main Street"
+    )
+}
@@ -0,0 +1,117 @@
+package com.example.usermanagement.dedupe
+
+import android.app.Application
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.data.DedupeDao
+import com.example.usermanagement.data.DedupeTable
+import com.example.usermanagement.data.DuplicatePair
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.database.DatabaseExecutors
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class DuplicateDetectorTest {
+    private lateinit var db: UserDatabase
+    private lateinit var dao: DedupeDao
+    private lateinit var detector: DuplicateDetector
+    private val executors = DatabaseExecutors()
+
+    @Before
+    fun setup() {
+        db = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            UserDatabase::class.java
+        ).addCallback(DedupeTable.CALLBACK).allowMainThreadQueries().build()
+        dao = db.dedupeDao()
+        detector = DuplicateDetector(db, executors)
+    }
+
+    @After
+    fun cleanup() {
+        db.close()
+        executors.close()
+    }
+
+    @Test
+    fun findsDuplicatesAmongNewUsersAndEmptiesTheQueue() = runBlocking {
+        db.userDao().insertUsers(
+            listOf(
+                user("John", "Smith", "john@example.com", dob = "1990-04-01"),
+                user("Mary", "Jones", "mary@example.com", dob = "1990-04-01"),
+                user("John", "Smith", "jsmith@example.org", dob = "1990-04-01")
+            )
+        )
+
+        assertEquals(3, detector.drain())
+
+        assertEquals(listOf(1L to 3L), openPairs())
+        assertTrue(dao.getQueued(10).isEmpty())
+    }
+
+    @Test
+    fun onlyChangedUsersAreRescored() = runBlocking {
+        val userDao = db.userDao()
+        userDao.insertUsers(
+            listOf(
+                user("John", "Smith", "john@example.com", phone = "5551234567"),
+                user("Jon", "Smith", "jon@example.com", phone = "555-123-4567")
+            )
+        )
+        detector.drain()
+        assertEquals(listOf(1L to 2L), openPairs())
+
+        userDao.updatePhone(2, "5559876543")
+        assertEquals(1, detector.drain())
+        assertEquals(emptyList<Pair<Long, Long>>(), openPairs())
+
+        userDao.insertUser(user("John", "Smyth", "other@example.com", phone = "5551234567"))
+        assertEquals(1, detector.drain())
+        assertEquals(listOf(1L to 3L), openPairs())
+    }
+
+    @Test
+    fun dismissedPairsStayDismissedAndDeletedUsersLoseTheirPairs() = runBlocking {
+        val userDao = db.userDao()
+        userDao.insertUsers(
+            listOf(
+                user("John", "Smith", "john@example.com", dob = "1990-04-01"),
+                user("John", "Smith", "john.smith@example.org", dob = "1990-04-01"),
+                user("John", "Smith", "johnny@example.net", dob = "1990-04-01")
+            )
+        )
+        detector.drain()
+        assertEquals(3, dao.dismissPairs(longArrayOf(1, 2, 3)))
+
+        userDao.updateLastName(1, "Smith")
+        detector.drain()
+        assertEquals(emptyList<Pair<Long, Long>>(), openPairs())
+
+        userDao.insertUser(user("John", "Smith", "new@example.com", dob = "1990-04-01"))
+        detector.drain()
+        assertEquals(listOf(1L to 4L, 2L to 4L, 3L to 4L), openPairs())
+
+        userDao.deleteUsersByIds(longArrayOf(4))
+        assertEquals(emptyList<Pair<Long, Long>>(), openPairs())
+    }
+
+    private suspend fun openPairs(): List<Pair<Long, Long>> =
+        (dao.observeOpenPairs() as Flow<List<DuplicatePair>>).first()
+            .map { it.userId to it.otherUserId }
+            .sortedWith(compareBy({ it.first }, { it.second }))
+
+    private fun user(firstName: String, lastName: String, email: String, phone: String = "", dob: String = "") =
+        User(firstName = firstName, lastName = lastName, email = email, phone = phone, dob = dob)
+}
@@ -0,0 +1,102 @@
+package com.example.usermanagement.dedupe
+
+import com.example.usermanagement.data.DuplicatePair
+import com.example.usermanagement.data.User
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DuplicateScorerTest {
+
+    private fun user(
+        id: Long,
+        firstName: String,
+        lastName: String,
+        email: String = "user$id@example.com",
+        phone: String = "",
+        dob: String = ""
+    ) = User(id = id, firstName = firstName, lastName = lastName, email = email, phone = phone, dob = dob)
+
+    @Test
+    fun sameNameAndDateOfBirthIsADuplicate() {
+        val pair = DuplicateScorer.score(
+            user(2, "John", "Smith", dob = "1990-04-01"),
+            user(1, "john", "SMITH", dob = "1990-04-01")
+        )
+
+        assertNotNull(pair)
+        assertEquals(1L, pair!!.userId)
+        assertEquals(2L, pair.otherUserId)
+        assertEquals(DuplicateScorer.REASON_NAME or DuplicateScorer.REASON_DOB, pair.reasons)
+    }
+
+    @Test
+    fun sharedPhoneAloneIsNotADuplicate() {
+        assertNull(DuplicateScorer.score(user(1, "John", "Smith", phone = "5551234567"), user(2, "Mary", "Jones", phone = "5551234567")))
+    }
+
+    @Test
+    fun phoneFormattingAndSmallNameTyposAreIgnored() {
+        val pair = DuplicateScorer.score(
+            user(1, "John", "Smith", phone = "+1 (555) 123-4567"),
+            user(2, "Jon", "Smith", phone = "555.123.4567")
+        )
+
+        assertEquals(DuplicateScorer.REASON_PHONE or DuplicateScorer.REASON_NAME, pair?.reasons)
+    }
+
+    @Test
+    fun emailLocalPartsMatchAcrossDomainsDotsAndTags() {
+        val pair = DuplicateScorer.score(
+            user(1, "John", "Smith", email = "john.smith+news@gmail.com"),
+            user(2, "Smith", "John", email = "JohnSmith@example.org")
+        )
+
+        assertEquals(DuplicateScorer.REASON_EMAIL or DuplicateScorer.REASON_NAME, pair?.reasons)
+    }
+
+    @Test
+    fun blockingKeysSkipMissingFields() {
+        assertEquals(
+            listOf("p:5551234567", "e:john", "n:JN|SM0|1990-04-01"),
+            DuplicateScorer.blockingKeys(user(1, "John", "Smith", email = "john@example.com", phone = "555-123-4567", dob = "1990-04-01"))
+        )
+        assertEquals(listOf("e:john"), DuplicateScorer.blockingKeys(user(1, "John", "Smith", email = "john@example.com", phone = "123")))
+    }
+
+    @Test
+    fun finderComparesOnlyWithinBlocks() {
+        val users = listOf(
+            user(1, "John", "Smith", dob = "1990-04-01"),
+            user(2, "John", "Smith", dob = "1990-04-01"),
+            user(3, "John", "Smith", dob = "1985-01-01")
+        )
+
+        assertEquals(listOf(1L to 2L), DuplicateFinder.find(users).map { it.userId to it.otherUserId })
+    }
+
+    @Test
+    fun finderSkipsOversizedBlocks() {
+        val users = (1L..DuplicateScorer.MAX_BLOCK_SIZE + 1L).map { user(it, "Test", "User", phone = "0000000000") }
+
+        assertTrue(DuplicateFinder.find(users).isEmpty())
+    }
+
+    @Test
+    fun clustersLinkPairsTransitivelyAndSkipMissingUsers() {
+        val users = (1L..5L).map { user(it, "First$it", "Last$it") }
+        val pairs = listOf(
+            DuplicatePair(1, 2, 0.6, 0),
+            DuplicatePair(2, 3, 0.7, 0),
+            DuplicatePair(4, 5, 0.9, 0),
+            DuplicatePair(3, 99, 1.0, 0)
+        )
+
+        val clusters = DuplicateCluster.from(pairs, users)
+
+        assertEquals(listOf(listOf(4L, 5L), listOf(1L, 2L, 3L)), clusters.map { cluster -> cluster.users.map { it.id } })
+        assertEquals(0.7, clusters[1].score, 0.0)
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.usermanagement.filter
+
+import com.example.usermanagement.data.User
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import java.time.LocalDate
+
+class FilterPlannerTest {
+
+    @Test
+    fun normalizesTheExampleExpression() {
+        val expression = FilterParser.parse("last:Sm* AND (email:@acme.com OR phone:+44*) AND age:30..40").normalized()
+
+        assertEquals("age:30..40 AND (email:*@acme.com OR phone:+44*) AND last:sm*", expression.toString())
+    }
+
+    @Test
+    fun normalizedExpressionsParseBackToThemselves() {
+        val expressions = listOf(
+            "last:sm* AND (email:@acme.com OR phone:+44*) AND age:30..40",
+            "NOT (first:anna OR -last:\"van der berg\") age:..17",
+            "address:\"*high street*\" OR dob:1990-01-01",
+            "first:\"AND\" ann"
+        )
+        for (text in expressions) {
+            val normalized = FilterParser.parse(text).normalized()
+            assertEquals(text, normalized, FilterParser.parse(normalized.toString()).normalized())
+        }
+    }
+
+    @Test
+    fun bareWordsAndNameMatchEitherName() {
+        assertEquals("first:ann* OR last:ann*", FilterParser.parse("Ann").normalized().toString())
+        assertEquals("first:ann OR last:ann", FilterParser.parse("name:Ann").normalized().toString())
+        assertEquals("NOT (first:ann* OR last:ann*)", FilterParser.parse("-ann").normalized().toString())
+    }
+
+    @Test
+    fun equivalentExpressionsShareOnePlan() {
+        val planner = FilterPlanner()
+
+        val plan = planner.plan("last:Smith* AND age:30..40")
+
+        assertSame(plan, planner.plan("age:30..40   last:smith*"))
+        assertSame(plan, planner.plan("(age:30..40 AND last:SMITH*) AND NOT NOT last:smith*"))
+        assertEquals(1, planner.cachedPlans)
+    }
+
+    @Test
+    fun evictsTheLeastRecentlyUsedPlan() {
+        val planner = FilterPlanner(capacity = 2)
+        val a = planner.plan("first:a")
+        val b = planner.plan("first:b")
+        planner.plan("first:a")
+
+        planner.plan("first:c")
+
+        assertEquals(2, planner.cachedPlans)
+        assertSame(a, planner.plan("first:a"))
+        assertNotSame(b, planner.plan("first:b"))
+    }
+
+    @Test
+    fun reportsWhereTheSyntaxIsWrong() {
+        assertSyntaxError("last:sm* AND", 12)
+        assertSyntaxError("shoe:42", 0)
+        assertSyntaxError("(last:a OR first:b", 18)
+        assertSyntaxError("last:a )", 7)
+        assertSyntaxError("email:\"abc", 6)
+        assertSyntaxError("age:40..30", 0)
+        assertSyntaxError("first:**", 0)
+        assertSyntaxError("   ", 0)
+        assertSyntaxError("(".repeat(FilterParser.MAX_DEPTH + 1) + "a" + ")".repeat(FilterParser.MAX_DEPTH + 1), FilterParser.MAX_DEPTH)
+    }
+
+    @Test
+    fun indexedTermsCompileToIndexFriendlyComparisons() {
+        val planner = FilterPlanner()
+
+        assertEquals("lastName = ?", planner.plan("last:smith").whereClause)
+        assertEquals("lastName >= ? AND lastName < ?", planner.plan("last:sm*").whereClause)
+        assertEquals("phone >= ? AND phone < ?", planner.plan("phone:+44*").whereClause)
+        assertEquals("email LIKE ? ESCAPE '\\'", planner.plan("email:@acme.com").whereClause)
+        assertEquals("phone GLOB ?", planner.plan("phone:*99").whereClause)
+        assertEquals(
+            "dob <= ? AND dob > ? AND dob GLOB '[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]'",
+            planner.plan("age:30..40").whereClause
+        )
+    }
+
+    @Test
+    fun cheapOperandsAreEvaluatedFirst() {
+        assertEquals(
+            "(lastName = ?) AND (address LIKE ? ESCAPE '\\')",
+            FilterPlanner().plan("address:*street* last:smith").whereClause
+        )
+    }
+
+    @Test
+    fun onlyAgeTermsDependOnTheDay() {
+        val planner = FilterPlanner()
+
+        assertTrue(planner.plan("last:smith age:30..40").dependsOnToday)
+        assertFalse(planner.plan("last:smith OR dob:1990*").dependsOnToday)
+    }
+
+    @Test
+    fun predicateMatchesTheExampleExpression() {
+        val plan = FilterPlanner().plan("last:sm* AND (email:@acme.com OR phone:+44*) AND age:30..40")
+        val users = listOf(
+            user(1, "Smith", "anna@acme.com", "+1555", "1990-05-01"),
+            // 39 today, 40 tomorrow
+            user(2, "SMYTHE", "bob@other.com", "+44207", "1985-10-19"),
+            // 41 today
+            user(3, "Smith", "carl@ACME.COM", "+1555", "1985-10-18"),
+            user(4, "Jones", "dora@acme.com", "+1555", "1990-05-01"),
+            user(5, "Smith", "eve@acme.com", "+1555", ""),
+            // 30 today
+            user(6, "Small", "fay@Acme.com", "+1555", "1996-10-18"),
+            user(7, "Smith", "gus@acme.com.au", "+1555", "1990-05-01")
+        )
+
+        val matches = users.filter(plan.toPredicate(LocalDate.of(2026, 10, 18))).map { it.id }
+
+        assertEquals(listOf(1L, 2L, 6L), matches)
+    }
+
+    @Test
+    fun caseIsIgnoredForAsciiLettersOnly() {
+        val plan = FilterPlanner().plan("first:émile")
+        val matches = plan.toPredicate()
+
+        assertTrue(matches(User(firstName = "éMILE")))
+        assertFalse(matches(User(firstName = "Émile")))
+    }
+
+    private fun assertSyntaxError(text: String, position: Int) {
+        try {
+            FilterParser.parse(text)
+            fail("Parsed '$text'")
+        } catch (e: FilterSyntaxException) {
+            assertEquals("${e.message} in '$text'", position, e.position)
+        }
+    }
+
+    private fun user(id: Long, lastName: String, email: String, phone: String, dob: String) =
+        User(id = id, firstName = "Test", lastName = lastName, email = email, phone = phone, dob = dob)
+}
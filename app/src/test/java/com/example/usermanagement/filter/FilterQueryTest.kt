@@ -0,0 +1,82 @@
+package com.example.usermanagement.filter
+
+import android.app.Application
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserDatabase
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.time.LocalDate
+
+/**
+ * Checks that the SQL of every plan selects exactly the users its in-memory predicate accepts.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class FilterQueryTest {
+    private lateinit var db: UserDatabase
+    private lateinit var users: List<User>
+    private val planner = FilterPlanner()
+
+    @Before
+    fun setup() {
+        db = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            UserDatabase::class.java
+        ).allowMainThreadQueries().build()
+        db.userDao().insertUsers(
+            listOf(
+                User(firstName = "Anna", lastName = "Smith", email = "anna@acme.com", phone = "+441234", dob = "1990-05-01", address = "50% Off Lane"),
+                User(firstName = "BOB", lastName = "SMYTHE", email = "Bob@Acme.COM", phone = "+15550100", dob = "1985-10-19", address = "1 High Street"),
+                User(firstName = "carl", lastName = "smith", email = "carl@acme.com.au", phone = "+44777", dob = "01/02/1980", address = "2 high_street"),
+                User(firstName = "Émile", lastName = "O'Brien", email = "emile@example.com", phone = "0207", dob = "1996-10-18", address = ""),
+                User(firstName = "émile", lastName = "Sm[it]h", email = "e2@example.com", phone = "+1*99", dob = "2010-01-01", address = "Flat 5"),
+                User(firstName = "Hanna", lastName = "Annis", email = "hanna@example.org", phone = "", dob = "", address = "Annex")
+            )
+        )
+        users = runBlocking { db.userDao().getAllUsers().first() }
+    }
+
+    @After
+    fun cleanup() {
+        db.close()
+    }
+
+    @Test
+    fun sqlAndPredicateSelectTheSameUsers() = runBlocking {
+        val expressions = listOf(
+            "last:sm*", "last:smith", "name:SMITH", "ann", "first:émile", "first:Émile", "last:\"o'brien\"",
+            "last:sm[it]h", "last:*th", "email:@acme.com", "email:BOB@acme.com", "address:*50%*", "address:*high_st*",
+            "phone:+44*", "phone:*99", "phone:+1*99", "dob:1990*", "dob:1985-10-19", "age:30..40", "age:..17",
+            "-age:30..", "age:29", "first:a* OR last:*is", "NOT (first:anna OR first:bob)",
+            "last:sm* AND (email:@acme.com OR phone:+44*) AND age:30..40"
+        )
+        for (expression in expressions) {
+            val plan = planner.plan(expression)
+            val expected = users.filter(plan.toPredicate(TODAY)).map { it.id }.sorted()
+            val actual = db.userDao().filterUsers(plan.toQuery(TODAY)).first().map { it.id }.sorted()
+            assertEquals("$expression -> ${plan.whereClause}", expected, actual)
+        }
+    }
+
+    @Test
+    fun matchesTheExampleExpression() = runBlocking {
+        val plan = planner.plan("last:sm* AND (email:@acme.com OR phone:+44*) AND age:30..40")
+
+        val names = db.userDao().filterUsers(plan.toQuery(TODAY)).first().map { it.firstName }.sorted()
+
+        assertEquals(listOf("Anna", "BOB"), names)
+    }
+
+    private companion object {
+        val TODAY: LocalDate = LocalDate.of(2026, 10, 18)
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.usermanagement.filter
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+
+class ParallelUserFilterTest {
+    private val users = SyntheticUserGenerator().users(0, SAMPLE_SIZE).mapIndexed { i, user -> user.copy(id = i + 1L) }
+
+    @Test
+    fun parallelFilterKeepsTheSequentialOrder() {
+        val predicate: (User) -> Boolean = { it.lastName.startsWith("S") || it.phone.startsWith("+44") }
+
+        val parallel = ParallelUserFilter.filter(users, threshold = 0, predicate = predicate)
+
+        assertEquals(users.filter(predicate), parallel)
+        assertEquals(users.count(predicate), ParallelUserFilter.count(users, threshold = 0, predicate = predicate))
+    }
+
+    @Test
+    fun parallelTopKMatchesAFullSort() {
+        val predicate: (User) -> Boolean = { it.dob < "1980" }
+
+        val top = ParallelUserFilter.topK(users, K, threshold = 0, predicate = predicate)
+
+        assertEquals(users.filter(predicate).sortedWith(ParallelUserFilter.BY_NAME).take(K), top)
+        assertEquals(top, ParallelUserFilter.topK(users, K, threshold = Int.MAX_VALUE, predicate = predicate))
+    }
+
+    @Test
+    fun smallAndEmptyListsStaySequential() {
+        assertEquals(emptyList<User>(), ParallelUserFilter.filter(emptyList(), threshold = 0) { true })
+        assertEquals(users.take(3), ParallelUserFilter.filter(users.take(3), threshold = 0) { true })
+        assertEquals(0, ParallelUserFilter.topK(emptyList(), K).size)
+    }
+
+    @Test
+    fun listsBelowTheThresholdStayOnTheCallingThread() {
+        val below = users.subList(0, ParallelUserFilter.PARALLEL_THRESHOLD - 1)
+        val threads = Collections.newSetFromMap(ConcurrentHashMap<Thread, Boolean>())
+        val predicate: (User) -> Boolean = { threads.add(Thread.currentThread()) }
+
+        ParallelUserFilter.filter(below, predicate = predicate)
+        ParallelUserFilter.count(below, predicate = predicate)
+        ParallelUserFilter.topK(below, K, predicate = predicate)
+
+        assertEquals(setOf(Thread.currentThread()), threads)
+    }
+
+    private companion object {
+        // Not a multiple of the chunk size, so the last chunk is partial.
+        const val SAMPLE_SIZE = 50_000
+        const val K = 25
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.usermanagement.filter
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.LocalDate
+
+class UserBitmapIndexTest {
+    private val planner = FilterPlanner()
+
+    @Test
+    fun selectsTheUsersThePredicateAccepts() {
+        val users = SyntheticUserGenerator().users(0, SAMPLE_SIZE) + EDGE_CASES
+        val index = UserBitmapIndex(users)
+        val expressions = listOf(
+            "last:sm*", "last:smith", "name:SMITH", "ann", "first:jam*", "first:j*", "last:*son", "first:*a*",
+            "email:@gmail.com", "email:bob@acme.com", "email:*.com", "email:@", "phone:+44*", "phone:+4*", "phone:+447*",
+            "phone:+91*", "phone:*99", "phone:+1*", "dob:1990*", "dob:1985-10-19", "dob:19*", "age:30..40", "age:..17",
+            "-age:30..", "age:29", "age:60..", "first:a* OR last:*is", "NOT (first:anna OR first:bob)",
+            "last:sm* AND (email:@acme.com OR phone:+44*) AND age:30..40", "first:j* -phone:+1* age:20..50",
+            "(first:m* OR last:m*) AND NOT email:@gmail.com AND address:*street*", "address:*lane* OR phone:+91*"
+        )
+        for (expression in expressions) {
+            val plan = planner.plan(expression)
+            val expected = users.filter(plan.toPredicate(TODAY))
+
+            val actual = index.select(plan.expression, TODAY)
+
+            assertEquals(expression, expected.size, actual.size)
+            assertEquals(expression, expected, actual.toList())
+        }
+    }
+
+    @Test
+    fun countsAndPagesWithoutMaterializing() {
+        val users = SyntheticUserGenerator().users(0, SAMPLE_SIZE)
+        val selection = UserBitmapIndex(users).select(FilterParser.parse("phone:+1* age:30..60"), TODAY)
+        val expected = users.filter(planner.plan("phone:+1* age:30..60").toPredicate(TODAY))
+
+        assertEquals(expected.size, selection.size)
+        assertEquals(expected.subList(0, PAGE_SIZE), selection.subList(0, PAGE_SIZE))
+        assertEquals(expected[expected.size / 2], selection[expected.size / 2])
+        assertEquals(expected.last(), selection.last())
+        // The matches reach past the first chunk, so paging and select cross containers.
+        assertTrue(selection.ordinals.select(selection.size - 1) >= CHUNK_SIZE)
+    }
+
+    @Test
+    fun emptyListSelectsNothing() {
+        val selection = UserBitmapIndex(emptyList()).select(FilterParser.parse("-first:a"), TODAY)
+
+        assertEquals(0, selection.size)
+    }
+
+    private companion object {
+        // More than one 65536-ordinal chunk, so the bitmaps span several containers.
+        const val SAMPLE_SIZE = 100_000
+        const val CHUNK_SIZE = 1 shl 16
+        const val PAGE_SIZE = 50
+        val TODAY: LocalDate = LocalDate.of(2026, 10, 18)
+        val EDGE_CASES = listOf(
+            User(firstName = "Émile", lastName = "O'Brien", email = "a@b@Acme.COM", phone = "+4", dob = "1990xyz"),
+            User(firstName = "A", lastName = "Sm", email = "no-at-sign", phone = "+", dob = "1996-10-18"),
+            User(firstName = "", lastName = "", email = "bob@acme.com", phone = "+44a", dob = "1985-10-19"),
+            User(firstName = "anna", lastName = "Smithers", email = "x@", phone = "0207", dob = "01/02/1980")
+        )
+    }
+}
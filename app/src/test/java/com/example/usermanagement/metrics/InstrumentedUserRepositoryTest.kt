@@ -0,0 +1,90 @@
+package com.example.usermanagement.metrics
+
+import android.app.Application
+import com.example.usermanagement.data.User
+import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.UserRepository
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.onStart
+import kotlinx.coroutines.runBlocking
+import org.json.JSONObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+// The JSON dump needs org.json, which only Robolectric provides on the JVM.
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class InstrumentedUserRepositoryTest {
+
+    @Test
+    fun recordsCallsRowsAndLatencies() = runBlocking {
+        var now = 0L
+        val metrics = RepositoryMetrics(clock = { now })
+        val delegate = UserRepository()
+        // Lookups and searches take a fixed time on the fake clock; inserts take none.
+        val slow = object : IUserRepository by delegate {
+            override suspend fun getUserById(id: Long): User? {
+                now += LOOKUP_NANOS
+                return delegate.getUserById(id)
+            }
+
+            override fun searchUsers(query: String): Flow<List<User>> =
+                delegate.searchUsers(query).onStart { now += SEARCH_NANOS }
+        }
+        val repository = InstrumentedUserRepository(slow, metrics)
+
+        now = 1_000
+        val id = repository.insertUser(User(firstName = "Ada", lastName = "Lovelace", email = "ada@example.com"))
+        repository.getUserById(id)
+        repository.getUserById(id + 100)
+        repository.searchUsers("Ada").first()
+
+        val snapshot = metrics.snapshot()
+        assertEquals(1, snapshot.operations.getValue("insertUser").calls)
+        assertEquals(2, snapshot.operations.getValue("getUserById").calls)
+        assertEquals(1, snapshot.operations.getValue("getUserById").rows)
+        assertEquals(1, snapshot.flows.getValue("searchUsers").emissions)
+        assertEquals(1, snapshot.flows.getValue("searchUsers").rows)
+        assertEquals(0, snapshot.operations.getValue("insertUser").latency.maxNanos)
+        val lookups = snapshot.operations.getValue("getUserById").latency
+        assertEquals(2, lookups.count)
+        assertEquals(LOOKUP_NANOS, lookups.meanNanos)
+        assertEquals(LOOKUP_NANOS, lookups.maxNanos)
+        val search = snapshot.flows.getValue("searchUsers").firstEmissionLatency
+        assertEquals(1, search.count)
+        assertEquals(SEARCH_NANOS, search.maxNanos)
+    }
+
+    @Test
+    fun histogramPercentilesStayWithinBucketPrecision() {
+        val histogram = LatencyHistogram()
+        for (value in 1L..1_000L) histogram.record(value * 1_000)
+
+        val snapshot = histogram.snapshot()
+        assertEquals(1_000, snapshot.count)
+        assertEquals(1_000_000, snapshot.maxNanos)
+        assertTrue(snapshot.p50Nanos in 500_000L..540_000L)
+        assertTrue(snapshot.p99Nanos in 990_000L..1_000_000L)
+    }
+
+    @Test
+    fun snapshotSerializesToJson() = runBlocking {
+        val repository = InstrumentedUserRepository(UserRepository())
+        repository.getUserByEmail("nobody@example.com")
+
+        val json = JSONObject(repository.metrics.snapshot().toJson().toString())
+        val stats = json.getJSONObject("operations").getJSONObject("getUserByEmail")
+        assertEquals(1, stats.getLong("calls"))
+        assertEquals(0, stats.getLong("rows"))
+    }
+
+    private companion object {
+        const val LOOKUP_NANOS = 2_000_000L
+        const val SEARCH_NANOS = 5_000_000L
+    }
+}
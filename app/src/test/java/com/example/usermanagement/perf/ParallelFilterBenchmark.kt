@@ -0,0 +1,76 @@
+package com.example.usermanagement.perf
+
+import android.app.Application
+import com.example.usermanagement.data.User
+import com.example.usermanagement.filter.ParallelUserFilter
+import com.example.usermanagement.metrics.LatencyHistogram
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.json.JSONObject
+import org.junit.Assume.assumeTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Measures the sequential and parallel paths of [ParallelUserFilter] on the in-memory repository's search at half,
+ * once and twice [ParallelUserFilter.PARALLEL_THRESHOLD], and writes their median latencies to [RESULTS_FILE] for
+ * re-checking the threshold. Wall-clock timings depend on the core count and on machine noise, so nothing is
+ * asserted about them. Skipped where the common pool has a single worker, since both paths are then the same
+ * loop. Part of the perf suite, so it only runs with `-Pperf`.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class ParallelFilterBenchmark {
+
+    @Test
+    fun measureTheCrossover() {
+        assumeTrue(ForkJoinPool.getCommonPoolParallelism() > 1)
+        val threshold = ParallelUserFilter.PARALLEL_THRESHOLD
+        val users = SyntheticUserGenerator().users(0, threshold * 2).mapIndexed { i, user -> user.copy(id = i + 1L) }
+        val search: (User) -> Boolean = { it.matches("son") }
+
+        val results = JSONObject()
+        results.put("parallelism", ForkJoinPool.getCommonPoolParallelism())
+        results.put("threshold", threshold)
+        for (size in listOf(threshold / 2, threshold, threshold * 2)) {
+            val slice = users.subList(0, size)
+            results.put(
+                size.toString(),
+                JSONObject()
+                    .put("sequentialP50Micros", median { ParallelUserFilter.filter(slice, Int.MAX_VALUE, search) })
+                    .put("parallelP50Micros", median { ParallelUserFilter.filter(slice, 0, search) })
+            )
+        }
+        val file = File(RESULTS_FILE)
+        file.parentFile?.mkdirs()
+        file.writeText(results.toString(2) + "\n")
+    }
+
+    private fun median(block: () -> Unit): Double {
+        repeat(WARMUP_ITERATIONS) { block() }
+        val histogram = LatencyHistogram()
+        repeat(ITERATIONS) {
+            val start = System.nanoTime()
+            block()
+            histogram.record(System.nanoTime() - start)
+        }
+        return histogram.snapshot().p50Nanos / 1_000.0
+    }
+
+    /**
+     * The in-memory repository's search condition.
+     */
+    private fun User.matches(query: String): Boolean =
+        firstName.contains(query, ignoreCase = true) ||
+            lastName.contains(query, ignoreCase = true) ||
+            email.contains(query, ignoreCase = true)
+
+    private companion object {
+        const val WARMUP_ITERATIONS = 20
+        const val ITERATIONS = 50
+        const val RESULTS_FILE = "build/perf/parallel-filter.json"
+    }
+}
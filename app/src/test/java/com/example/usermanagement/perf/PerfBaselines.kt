@@ -0,0 +1,101 @@
+package com.example.usermanagement.perf
+
+import org.json.JSONObject
+import java.io.File
+
+/**
+ * Checked-in performance baselines and the comparison of new measurements against them.
+ *
+ * Metrics whose name ends in `Micros` are latencies (lower is better); metrics ending in `PerSecond` are
+ * throughputs (higher is better). A latency regresses when it exceeds `baseline * tolerance + absoluteSlackMicros`,
+ * a throughput when it falls below `baseline / tolerance`. A size or metric without a baseline fails as well, so the
+ * gate can never pass by comparing against nothing.
+ *
+ * Baselines are machine specific: record them on the reference machine with [RECORD_COMMAND], which rewrites
+ * [BASELINE_FILE] with the measured values, and commit the file.
+ * @param json The parsed baseline document.
+ */
+class PerfBaselines private constructor(private val json: JSONObject) {
+
+    private val tolerance: Double = json.optDouble("tolerance", DEFAULT_TOLERANCE)
+    private val absoluteSlackMicros: Double = json.optDouble("absoluteSlackMicros", DEFAULT_SLACK_MICROS)
+
+    /**
+     * Compares [results] of one dataset size against the baselines.
+     * @param size The dataset size the results were measured with.
+     * @param results Measured metric values by name.
+     * @return A human readable line per regressed metric or missing baseline; empty if nothing regressed.
+     */
+    fun regressions(size: Int, results: Map<String, Double>): List<String> {
+        val baseline = json.optJSONObject("sizes")?.optJSONObject(size.toString())
+            ?: return listOf("No baselines for $size rows; record them with $RECORD_COMMAND")
+        return results.mapNotNull { (metric, value) ->
+            if (!baseline.has(metric)) return@mapNotNull "$metric at $size rows has no baseline"
+            val expected = baseline.getDouble(metric)
+            when {
+                metric.endsWith(LATENCY_SUFFIX) && value > expected * tolerance + absoluteSlackMicros ->
+                    "$metric at $size rows: %.1f µs, baseline %.1f µs".format(value, expected)
+                metric.endsWith(THROUGHPUT_SUFFIX) && value < expected / tolerance ->
+                    "$metric at $size rows: %.0f/s, baseline %.0f/s".format(value, expected)
+                else -> null
+            }
+        }
+    }
+
+    /**
+     * Replaces the baselines of [size] with [results] and writes the document back to [BASELINE_FILE].
+     * @param size The dataset size the results were measured with.
+     * @param results Measured metric values by name.
+     */
+    fun update(size: Int, results: Map<String, Double>) {
+        val sizes = json.optJSONObject("sizes") ?: JSONObject().also { json.put("sizes", it) }
+        sizes.put(size.toString(), JSONObject(results.toSortedMap() as Map<*, *>))
+        json.put("tolerance", tolerance)
+        json.put("absoluteSlackMicros", absoluteSlackMicros)
+        File(BASELINE_FILE).writeText(json.toString(2) + "\n")
+    }
+
+    companion object {
+        /**
+         * Path of the baseline file relative to the module directory, which Gradle uses as the test working directory.
+         */
+        const val BASELINE_FILE = "src/test/resources/perf/baselines.json"
+
+        /**
+         * The command recording the baselines of the default sizes, run from the project directory.
+         */
+        const val RECORD_COMMAND =
+            "./gradlew testDebugUnitTest -Pperf -Dperf.updateBaselines=true --tests '*.UserDaoPerformanceTest'"
+
+        const val LATENCY_SUFFIX = "Micros"
+        const val THROUGHPUT_SUFFIX = "PerSecond"
+
+        private const val DEFAULT_TOLERANCE = 1.5
+        private const val DEFAULT_SLACK_MICROS = 250.0
+
+        /**
+         * Loads the baselines from the test classpath.
+         * @return The checked-in baselines, or empty baselines if the file is missing.
+         */
+        fun load(): PerfBaselines {
+            val text = PerfBaselines::class.java.classLoader
+                ?.getResourceAsStream("perf/baselines.json")
+                ?.bufferedReader()
+                ?.use { it.readText() }
+            return PerfBaselines(if (text == null) JSONObject() else JSONObject(text))
+        }
+
+        /**
+         * Writes [results] of one run to `build/perf`, so CI can archive and compare them.
+         * @param size The dataset size the results were measured with.
+         * @param results Measured metric values by name.
+         * @return The written file.
+         */
+        fun writeResults(size: Int, results: Map<String, Double>): File {
+            val file = File("build/perf/results-$size.json")
+            file.parentFile?.mkdirs()
+            file.writeText(JSONObject(results.toSortedMap() as Map<*, *>).toString(2) + "\n")
+            return file
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.usermanagement.perf
+
+import android.app.Application
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.data.DedupeTable
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.data.UserStatsTable
+import com.example.usermanagement.replay.RecordingUserRepository
+import com.example.usermanagement.replay.ReplayReport
+import com.example.usermanagement.replay.ReplaySpeed
+import com.example.usermanagement.replay.WorkloadLog
+import com.example.usermanagement.replay.WorkloadRecorder
+import com.example.usermanagement.replay.WorkloadReplayer
+import com.example.usermanagement.repository.IUserRepository
+import com.example.usermanagement.repository.UserRepository
+import com.example.usermanagement.repository.UserRepositoryImpl
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import com.example.usermanagement.synthetic.SyntheticWorkload
+import com.example.usermanagement.synthetic.WorkloadProfile
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+
+/**
+ * Replays one workload against every [IUserRepository] implementation and writes a report per implementation
+ * to `build/perf`, so they can be compared on the same operation mix.
+ *
+ * The workload is read from `-Dperf.replayLog=<file>` (a log recorded from the app's debug drawer) or,
+ * if that is not set, recorded from a [SyntheticWorkload]. Both implementations start from the same seeded dataset.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class RepositoryReplayBenchmark {
+
+    @Test
+    fun replayAgainstEveryImplementation() = runBlocking {
+        val log = System.getProperty("perf.replayLog")?.let { path -> File(path).inputStream().use { WorkloadLog.read(it) } }
+            ?: recordSyntheticWorkload()
+        val speed = if (System.getProperty("perf.replaySpeed") == "original") ReplaySpeed.ORIGINAL else ReplaySpeed.MAXIMUM
+
+        val inMemory = replay("in-memory", UserRepository(), log, speed)
+        val database = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), UserDatabase::class.java)
+            .addCallback(UserStatsTable.CALLBACK)
+            .addCallback(DedupeTable.CALLBACK)
+            .build()
+        try {
+            val room = replay("room", UserRepositoryImpl(database), log, speed)
+            assertEquals(room.calls, inMemory.calls)
+        } finally {
+            database.close()
+        }
+    }
+
+    private suspend fun replay(name: String, repository: IUserRepository, log: WorkloadLog, speed: ReplaySpeed): ReplayReport {
+        SyntheticUserGenerator().batches(POPULATION_SIZE).forEach { repository.insertUsers(it) }
+        val report = WorkloadReplayer(repository).replay(log.calls, speed)
+        val file = File("build/perf/replay-$name.json")
+        file.parentFile?.mkdirs()
+        file.writeText(report.toJson().toString(2) + "\n")
+        File("build/perf/replay-$name.txt").writeText(report.format())
+        return report
+    }
+
+    /**
+     * Records a synthetic session against a seeded in-memory repository.
+     */
+    private suspend fun recordSyntheticWorkload(): WorkloadLog {
+        val recorder = WorkloadRecorder()
+        val repository = RecordingUserRepository(UserRepository(), recorder)
+        SyntheticUserGenerator().batches(POPULATION_SIZE).forEach { repository.insertUsers(it) }
+        val output = ByteArrayOutputStream()
+        recorder.start(output, hashPii = false)
+        SyntheticWorkload(WorkloadProfile.BALANCED, POPULATION_SIZE).steps(STEP_COUNT).forEach { it.execute(repository) }
+        recorder.stop()
+        return WorkloadLog.read(ByteArrayInputStream(output.toByteArray()))
+    }
+
+    private companion object {
+        const val POPULATION_SIZE = 2_000
+        const val STEP_COUNT = 1_000
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.usermanagement.perf
+
+import com.example.usermanagement.data.UserContact
+import com.example.usermanagement.metrics.LatencyHistogram
+import com.example.usermanagement.search.TypeaheadIndex
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+/**
+ * Checks that a keystroke's suggestions fit in one 16 ms frame: over [USER_COUNT] synthetic users, the p99 of
+ * [TypeaheadIndex.suggest] for one- to four-character prefixes of names and emails must stay within
+ * [FRAME_BUDGET_MILLIS]. A user is re-indexed before every timed call, which clears the cached results, so each
+ * call does the full lookup. Part of the perf suite, so it only runs with `-Pperf`.
+ */
+class TypeaheadBenchmark {
+    private val random = Random(RANDOM_SEED)
+
+    @Test
+    fun suggestFitsInAFrame() {
+        val users = SyntheticUserGenerator().users(0, USER_COUNT).mapIndexed { i, user -> user.copy(id = i + 1L) }
+        val index = TypeaheadIndex()
+        index.putAll(users.map { UserContact(it.id, it.firstName, it.lastName, it.email) })
+        val prefixes = List(PREFIX_COUNT) {
+            val user = users[random.nextInt(users.size)]
+            val text = when (random.nextInt(3)) {
+                0 -> user.firstName
+                1 -> user.lastName
+                else -> user.email
+            }
+            text.take(1 + random.nextInt(MAX_PREFIX_LENGTH))
+        }
+        prefixes.take(WARMUP_ITERATIONS).forEach { index.suggest(it) }
+
+        val histogram = LatencyHistogram()
+        prefixes.forEachIndexed { i, prefix ->
+            val user = users[i]
+            index.put(user.id, user.firstName, user.lastName, user.email)
+            val start = System.nanoTime()
+            index.suggest(prefix)
+            histogram.record(System.nanoTime() - start)
+        }
+
+        val p99Millis = histogram.snapshot().p99Nanos / 1_000_000.0
+        assertTrue("suggest p99 is $p99Millis ms, over the frame budget", p99Millis <= FRAME_BUDGET_MILLIS)
+    }
+
+    private companion object {
+        const val USER_COUNT = 100_000
+        const val PREFIX_COUNT = 2_000
+        const val MAX_PREFIX_LENGTH = 4
+        const val WARMUP_ITERATIONS = 200
+        const val FRAME_BUDGET_MILLIS = 16.0
+        const val RANDOM_SEED = 42L
+    }
+}
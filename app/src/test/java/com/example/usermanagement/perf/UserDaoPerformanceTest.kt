@@ -0,0 +1,347 @@
+package com.example.usermanagement.perf
+
+import android.app.Application
+import android.content.Context
+import androidx.room.Room
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.data.DedupeTable
+import com.example.usermanagement.data.UserDao
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.data.UserStatsTable
+import com.example.usermanagement.database.DatabaseExecutors
+import com.example.usermanagement.dedupe.DuplicateDetector
+import com.example.usermanagement.filter.FilterPlanner
+import com.example.usermanagement.filter.UserBitmapIndex
+import com.example.usermanagement.metrics.LatencyHistogram
+import com.example.usermanagement.search.FuzzyNameIndex
+import com.example.usermanagement.search.Metaphone
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.ParameterizedRobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.util.Random
+
+/**
+ * Measures every [UserDao] query, fuzzy name search, bitmap filtering, bulk insert throughput, the migrations from 7 and Flow re-emission latency
+ * over synthetic datasets, and fails when a metric regresses beyond the tolerance of the checked-in baselines.
+ *
+ * Only runs with `-Pperf`. Dataset sizes come from `-Dperf.sizes` (default `10000,100000`; add `1000000` for the
+ * full run). Results of every run are written to `build/perf`; `-Dperf.updateBaselines=true` records them as new
+ * baselines, and a size without baselines fails until they are recorded.
+ */
+@RunWith(ParameterizedRobolectricTestRunner::class)
+@Config(application = Application::class)
+class UserDaoPerformanceTest(private val size: Int) {
+    private lateinit var context: Context
+    private lateinit var db: UserDatabase
+    private lateinit var dao: UserDao
+    private val generator = SyntheticUserGenerator()
+    private val random = Random(RANDOM_SEED)
+    private val results = linkedMapOf<String, Double>()
+
+    @Before
+    fun setup() {
+        context = ApplicationProvider.getApplicationContext()
+        context.deleteDatabase(DATABASE_NAME)
+        db = Room.databaseBuilder(context, UserDatabase::class.java, DATABASE_NAME)
+            .addCallback(UserStatsTable.CALLBACK)
+            .addCallback(DedupeTable.CALLBACK)
+            .allowMainThreadQueries()
+            .build()
+        dao = db.userDao()
+    }
+
+    @After
+    fun cleanup() {
+        db.close()
+        context.deleteDatabase(DATABASE_NAME)
+        context.deleteDatabase(MIGRATION_DATABASE_NAME)
+    }
+
+    @Test
+    fun daoPerformanceStaysWithinBaselines() = runBlocking {
+        measureBulkInsert()
+        measureReads()
+        measureFuzzySearch()
+        measureBitmapFilter()
+        measureDuplicateDetection()
+        measureWrites()
+        measureReemission()
+        measureMigration()
+
+        PerfBaselines.writeResults(size, results)
+        val baselines = PerfBaselines.load()
+        if (System.getProperty("perf.updateBaselines").toBoolean()) {
+            baselines.update(size, results)
+        } else {
+            val regressions = baselines.regressions(size, results)
+            assertTrue("Performance regressions:\n" + regressions.joinToString("\n"), regressions.isEmpty())
+        }
+    }
+
+    private fun measureBulkInsert() {
+        var insertNanos = 0L
+        var start = 0
+        while (start < size) {
+            val batch = generator.users(start, minOf(INSERT_BATCH_SIZE, size - start))
+            val begin = System.nanoTime()
+            dao.insertUsers(batch)
+            insertNanos += System.nanoTime() - begin
+            start += batch.size
+        }
+        results["bulkInsertRowsPerSecond"] = size / (insertNanos / 1e9)
+    }
+
+    private suspend fun measureReads() {
+        val scaled = scaledIterations(SCAN_ITERATIONS)
+        measure("getUserById", POINT_ITERATIONS) { dao.getUserById(randomId()) }
+        measure("getUserByEmail", POINT_ITERATIONS) { dao.getUserByEmail(generator.user(randomIndex()).email) }
+        measure("observeUserById", FLOW_ITERATIONS) { dao.observeUserById(randomId()).first() }
+        measure("searchUsers", scaled) { dao.searchUsers(generator.user(randomIndex()).lastName).first() }
+        measure("searchUserIds", scaled) { dao.searchUserIds(generator.user(randomIndex()).lastName) }
+        measure("getAllUserIds", scaled) { dao.getAllUserIds() }
+        measure("getAllUsers", scaledIterations(FULL_LOAD_ITERATIONS)) { dao.getAllUsers().first() }
+        measure("getAllUserNames", scaled) { dao.getAllUserNames() }
+        measure("observeUsersByIds", FLOW_ITERATIONS) { dao.observeUsersByIds(randomIds()).first() }
+        measure("searchBySoundOfName", FLOW_ITERATIONS) {
+            dao.searchBySoundOfName(Metaphone.encode(generator.user(randomIndex()).lastName)).first()
+        }
+        val planner = FilterPlanner()
+        measure("filterUsers", FLOW_ITERATIONS) {
+            val lastName = generator.user(randomIndex()).lastName
+            dao.filterUsers(planner.plan("last:${lastName.take(3)}* AND age:30..60").toQuery()).first()
+        }
+    }
+
+    /**
+     * Times loading the [FuzzyNameIndex] and searching it with one-typo last names, which must stay within one
+     * frame. Measured on the host JVM, so the budget check is a floor rather than a device guarantee.
+     */
+    private suspend fun measureFuzzySearch() {
+        val start = System.nanoTime()
+        val index = FuzzyNameIndex().apply { putAll(dao.getAllUserNames()) }
+        results["fuzzyIndexLoadMicros"] = (System.nanoTime() - start) / 1_000.0
+        measure("fuzzySearch", POINT_ITERATIONS) {
+            val name = generator.user(randomIndex()).lastName
+            val typo = if (name.length < 2) name else name.substring(0, name.length - 2) + name.last() + name[name.length - 2]
+            index.search(typo)
+        }
+        val p99 = results.getValue("fuzzySearch.p99Micros")
+        assertTrue("fuzzySearch p99 of $p99 µs exceeds one frame", p99 < FRAME_BUDGET_MICROS)
+    }
+
+    /**
+     * Times building the [UserBitmapIndex] of the in-memory repository and counting and paging a multi-criteria
+     * filter over it, which only touches the bitmaps and the users of the page.
+     */
+    private suspend fun measureBitmapFilter() {
+        val users = dao.getAllUsers().first()
+        val start = System.nanoTime()
+        val index = UserBitmapIndex(users)
+        results["bitmapIndexBuildMicros"] = (System.nanoTime() - start) / 1_000.0
+        val planner = FilterPlanner()
+        measure("bitmapFilterFirstPage", POINT_ITERATIONS) {
+            val lastName = generator.user(randomIndex()).lastName
+            val plan = planner.plan("last:${lastName.take(3)}* AND (phone:+1* OR phone:+44*) AND age:30..60")
+            val selection = index.select(plan.expression)
+            selection.size
+            selection.subList(0, minOf(PAGE_SIZE, selection.size)).toList()
+        }
+    }
+
+    /**
+     * Times the duplicate detection working through the queue the bulk insert left behind, which is the cost of
+     * the first run after an upgrade; later runs only see the users changed since.
+     */
+    private suspend fun measureDuplicateDetection() {
+        val start = System.nanoTime()
+        val processed = DatabaseExecutors().use { DuplicateDetector(db, it).drain() }
+        results["duplicateDetectionRowsPerSecond"] = processed / ((System.nanoTime() - start) / 1e9)
+    }
+
+    private suspend fun measureWrites() {
+        measure("updateChangedColumns", POINT_ITERATIONS) {
+            val id = randomId()
+            dao.getUserById(id)?.let { dao.updateChangedColumns(it.copy(address = "Updated $id")) }
+        }
+        measure("updateUser", POINT_ITERATIONS) {
+            val id = randomId()
+            dao.getUserById(id)?.let { dao.updateUser(it.copy(phone = "5550000000")) }
+        }
+        measure("updateFirstName", POINT_ITERATIONS) { dao.updateFirstName(randomId(), "Renamed") }
+        measure("updateLastName", POINT_ITERATIONS) { dao.updateLastName(randomId(), "Renamed") }
+        measure("updateEmail", POINT_ITERATIONS) {
+            val id = randomId()
+            dao.updateEmail(id, "updated.$id.${random.nextInt()}@example.com")
+        }
+        measure("updatePhone", POINT_ITERATIONS) { dao.updatePhone(randomId(), "5551234567") }
+        measure("updateDob", POINT_ITERATIONS) { dao.updateDob(randomId(), "2000-01-01") }
+        measure("updateAddress", POINT_ITERATIONS) { dao.updateAddress(randomId(), "1 Perf Way") }
+        measure("updateAddressForIds", BULK_ITERATIONS) { dao.updateAddressForIds(randomIds(), "2 Perf Way") }
+        measure("updateFirstNameForIds", BULK_ITERATIONS) { dao.updateFirstNameForIds(randomIds(), "Bulk") }
+        measure("updateLastNameForIds", BULK_ITERATIONS) { dao.updateLastNameForIds(randomIds(), "Bulk") }
+        measure("updatePhoneForIds", BULK_ITERATIONS) { dao.updatePhoneForIds(randomIds(), "5559999999") }
+        measure("updateDobForIds", BULK_ITERATIONS) { dao.updateDobForIds(randomIds(), "1999-12-31") }
+        var nextIndex = size
+        measure("insertUser", POINT_ITERATIONS) { dao.insertUser(generator.user(nextIndex++)) }
+        measure("deleteUser", POINT_ITERATIONS) { dao.getUserById(randomId())?.let { dao.deleteUser(it) } }
+        measure("deleteUsersByIds", BULK_ITERATIONS) { dao.deleteUsersByIds(randomIds()) }
+    }
+
+    /**
+     * Measures the time from a committed write to the next emission of an observing flow,
+     * i.e. Room's invalidation plus the re-query.
+     */
+    private suspend fun measureReemission() {
+        val id = dao.getAllUserIds().first()
+        measureReemission("observeUserById.reemission", dao.observeUserById(id), FLOW_ITERATIONS) { i ->
+            dao.updateAddress(id, "Reemission $i")
+        }
+        val lastName = dao.getUserById(id)!!.lastName
+        measureReemission("searchUsers.reemission", dao.searchUsers(lastName), scaledIterations(SCAN_ITERATIONS)) { i ->
+            dao.updateAddress(id, "Search reemission $i")
+        }
+    }
+
+    private suspend fun <T> measureReemission(name: String, flow: Flow<T>, iterations: Int, write: (Int) -> Unit) {
+        val histogram = LatencyHistogram()
+        val emissions = Channel<Long>(Channel.UNLIMITED)
+        coroutineScope {
+            val collector = launch(Dispatchers.IO) { flow.collect { emissions.send(System.nanoTime()) } }
+            withTimeout(EMISSION_TIMEOUT_MS) { emissions.receive() }
+            repeat(iterations) { i ->
+                val start = System.nanoTime()
+                write(i)
+                val emittedAt = withTimeout(EMISSION_TIMEOUT_MS) { emissions.receive() }
+                histogram.record(emittedAt - start)
+                // Drop any extra invalidations so the next sample starts clean.
+                while (emissions.tryReceive().isSuccess) Unit
+            }
+            collector.cancel()
+        }
+        record(name, histogram)
+    }
+
+    /**
+     * Builds a version 7 database with [size] rows and times opening it with Room, which runs every migration from 7,
+     * including the rebuild of the `user_stats` counters, and validates the resulting schema.
+     */
+    private fun measureMigration() {
+        context.deleteDatabase(MIGRATION_DATABASE_NAME)
+        val helper = FrameworkSQLiteOpenHelperFactory().create(
+            SupportSQLiteOpenHelper.Configuration.builder(context)
+                .name(MIGRATION_DATABASE_NAME)
+                .callback(object : SupportSQLiteOpenHelper.Callback(7) {
+                    override fun onCreate(db: SupportSQLiteDatabase) {
+                        db.execSQL(
+                            "CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                                "firstName TEXT NOT NULL, lastName TEXT NOT NULL, email TEXT NOT NULL, phone TEXT NOT NULL)"
+                        )
+                        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_users_email` ON `users` (`email`)")
+                    }
+
+                    override fun onUpgrade(db: SupportSQLiteDatabase, oldVersion: Int, newVersion: Int) = Unit
+                })
+                .build()
+        )
+        val legacy = helper.writableDatabase
+        legacy.beginTransaction()
+        try {
+            val statement = legacy.compileStatement(
+                "INSERT INTO users (firstName, lastName, email, phone) VALUES (?, ?, ?, ?)"
+            )
+            for (i in 0 until size) {
+                val user = generator.user(i)
+                statement.clearBindings()
+                statement.bindString(1, user.firstName)
+                statement.bindString(2, user.lastName)
+                statement.bindString(3, user.email)
+                statement.bindString(4, user.phone)
+                statement.executeInsert()
+            }
+            legacy.setTransactionSuccessful()
+        } finally {
+            legacy.endTransaction()
+        }
+        helper.close()
+
+        val migrated = Room.databaseBuilder(context, UserDatabase::class.java, MIGRATION_DATABASE_NAME)
+            .addMigrations(*UserDatabase.ALL_MIGRATIONS)
+            .addCallback(UserStatsTable.CALLBACK)
+            .addCallback(DedupeTable.CALLBACK)
+            .allowMainThreadQueries()
+            .build()
+        val start = System.nanoTime()
+        migrated.openHelper.writableDatabase
+        results["migrationFrom7Micros"] = (System.nanoTime() - start) / 1_000.0
+        migrated.close()
+    }
+
+    private suspend fun measure(name: String, iterations: Int, block: suspend () -> Unit) {
+        repeat(WARMUP_ITERATIONS) { block() }
+        val histogram = LatencyHistogram()
+        repeat(iterations) {
+            val start = System.nanoTime()
+            block()
+            histogram.record(System.nanoTime() - start)
+        }
+        record(name, histogram)
+    }
+
+    private fun record(name: String, histogram: LatencyHistogram) {
+        val snapshot = histogram.snapshot()
+        results["$name.p50Micros"] = snapshot.p50Nanos / 1_000.0
+        results["$name.p99Micros"] = snapshot.p99Nanos / 1_000.0
+    }
+
+    private fun randomIndex(): Int = random.nextInt(size)
+
+    private fun randomId(): Long = 1L + random.nextInt(size)
+
+    private fun randomIds(): LongArray = LongArray(BULK_IDS) { randomId() }
+
+    /**
+     * Scales iterations of whole-table operations down as the table grows, keeping large runs tractable.
+     */
+    private fun scaledIterations(iterationsAt10k: Int): Int = maxOf(MIN_SCALED_ITERATIONS, iterationsAt10k * 10_000 / size)
+
+    companion object {
+        private const val DATABASE_NAME = "perf_users.db"
+        private const val MIGRATION_DATABASE_NAME = "perf_migration.db"
+        private const val RANDOM_SEED = 42L
+        private const val INSERT_BATCH_SIZE = 5_000
+        private const val WARMUP_ITERATIONS = 5
+        private const val POINT_ITERATIONS = 300
+        private const val FLOW_ITERATIONS = 100
+        private const val BULK_ITERATIONS = 50
+        private const val BULK_IDS = 100
+        private const val PAGE_SIZE = 50
+        private const val SCAN_ITERATIONS = 50
+        private const val FULL_LOAD_ITERATIONS = 10
+        private const val MIN_SCALED_ITERATIONS = 3
+        private const val EMISSION_TIMEOUT_MS = 10_000L
+        private const val FRAME_BUDGET_MICROS = 16_000.0
+
+        @JvmStatic
+        @ParameterizedRobolectricTestRunner.Parameters(name = "{0} users")
+        fun sizes(): List<Array<Any>> {
+            val sizes = System.getProperty("perf.sizes") ?: "10000,100000"
+            return sizes.split(',').map { arrayOf<Any>(it.trim().toInt()) }
+        }
+    }
+}
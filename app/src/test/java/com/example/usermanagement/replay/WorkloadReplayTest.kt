@@ -0,0 +1,138 @@
+package com.example.usermanagement.replay
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.repository.UserOperation
+import com.example.usermanagement.repository.UserRepository
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+
+class WorkloadReplayTest {
+    private var nowNanos = 0L
+
+    // Each recorded call reads the clock twice, so calls start 10µs apart and take 5µs.
+    private val recorder = WorkloadRecorder { nowNanos.also { nowNanos += 5_000 } }
+    private val repository = RecordingUserRepository(UserRepository(), recorder)
+
+    @Test
+    fun logRoundTripsEveryCall() = runBlocking {
+        val output = ByteArrayOutputStream()
+        recorder.start(output, hashPii = false)
+        nowNanos = 0
+        runSession()
+        recorder.stop()
+
+        val log = WorkloadLog.read(ByteArrayInputStream(output.toByteArray()))
+
+        assertFalse(log.piiHashed)
+        assertEquals(
+            listOf(
+                RepositoryCall.InsertUser(ALICE),
+                RepositoryCall.InsertUsers(listOf(BOB)),
+                RepositoryCall.GetUserById(1),
+                RepositoryCall.SearchUsers("Ali"),
+                RepositoryCall.GetUserByEmail(ALICE.email),
+                RepositoryCall.ApplyBatch(listOf(UserOperation.Update(ALICE.copy(id = 1, address = "2 Elm St")))),
+                RepositoryCall.UpdateColumnForIds(listOf(1L, 2L), UserColumn.PHONE, "5550000000"),
+                RepositoryCall.DeleteUsersByIds(listOf(2L))
+            ),
+            log.calls.map { it.call }
+        )
+        assertEquals(listOf(0L, 10L, 20L, 30L, 40L, 50L, 60L, 70L), log.calls.map { it.startMicros })
+        assertTrue(log.calls.all { it.durationMicros == 5L })
+    }
+
+    @Test
+    fun hashedLogContainsNoPersonalData() = runBlocking {
+        val output = ByteArrayOutputStream()
+        recorder.start(output, hashPii = true)
+        nowNanos = 0
+        runSession()
+        recorder.stop()
+
+        val bytes = output.toByteArray()
+        val text = String(bytes, Charsets.UTF_8)
+        listOf("Alice", "Smith", "alice@example.com", "Main St", "Ali").forEach {
+            assertFalse("$it leaked into the log", text.contains(it))
+        }
+        val calls = WorkloadLog.read(ByteArrayInputStream(bytes)).calls.map { it.call }
+        val inserted = (calls[0] as RepositoryCall.InsertUser).user
+        val lookedUp = (calls[4] as RepositoryCall.GetUserByEmail).email
+        assertEquals("Equal emails keep equal pseudonyms", inserted.email, lookedUp)
+        assertNotEquals(ALICE.email, lookedUp)
+        assertEquals(RepositoryCall.GetUserById(1), calls[2])
+    }
+
+    @Test
+    fun hashedSearchesForWholeNamesStillFindTheirUsers() = runBlocking {
+        val output = ByteArrayOutputStream()
+        recorder.start(output, hashPii = true)
+        repository.insertUser(ALICE)
+        repository.searchUsers("smith").first()
+        repository.fuzzySearch("ALICE Smith", 5).first()
+        recorder.stop()
+        val calls = WorkloadLog.read(ByteArrayInputStream(output.toByteArray())).calls.map { it.call }
+        val target = UserRepository()
+
+        calls[0].execute(target)
+
+        val search = calls[1] as RepositoryCall.SearchUsers
+        val fuzzy = calls[2] as RepositoryCall.FuzzySearch
+        assertEquals(1, target.searchUsers(search.query).first().size)
+        assertEquals(1, target.fuzzySearch(fuzzy.query, fuzzy.limit).first().size)
+    }
+
+    @Test
+    fun replayReportsEveryCall() = runBlocking {
+        val output = ByteArrayOutputStream()
+        recorder.start(output, hashPii = false)
+        nowNanos = 0
+        runSession()
+        recorder.stop()
+        val log = WorkloadLog.read(ByteArrayInputStream(output.toByteArray()))
+        val target = UserRepository()
+
+        val report = WorkloadReplayer(target).replay(log.calls, ReplaySpeed.MAXIMUM)
+
+        assertEquals(log.calls.size, report.calls)
+        assertEquals(0, report.errors)
+        assertEquals(log.calls.size.toLong(), report.latency.count)
+        assertEquals(log.calls.map { it.call.name }.toSortedSet(), report.operations.keys)
+        assertEquals(listOf("2 Elm St"), target.allUsers.first().map { it.address })
+    }
+
+    @Test
+    fun callsAreNotRecordedWhenIdle() = runBlocking {
+        val output = ByteArrayOutputStream()
+        recorder.start(output, hashPii = false)
+        recorder.stop()
+        runSession()
+
+        assertTrue(WorkloadLog.read(ByteArrayInputStream(output.toByteArray())).calls.isEmpty())
+    }
+
+    private suspend fun runSession() {
+        repository.insertUser(ALICE)
+        repository.insertUsers(listOf(BOB))
+        repository.getUserById(1)
+        repository.searchUsers("Ali").first()
+        repository.getUserByEmail(ALICE.email)
+        repository.applyBatch(listOf(UserOperation.Update(ALICE.copy(id = 1, address = "2 Elm St"))))
+        repository.updateColumnForIds(longArrayOf(1, 2), UserColumn.PHONE, "5550000000")
+        repository.deleteUsersByIds(longArrayOf(2))
+    }
+
+    private companion object {
+        val ALICE = User(firstName = "Alice", lastName = "Smith", email = "alice@example.com", phone = "5551234567",
+            dob = "1990-01-01", address = "1 Main St")
+        val BOB = User(firstName = "Bob", lastName = "Jones", email = "bob@example.com", phone = "5557654321",
+            dob = "1985-05-05", address = "3 Oak Ave")
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.usermanagement.repository
+
+import android.app.Application
+import android.database.sqlite.SQLiteConstraintException
+import androidx.test.core.app.ApplicationProvider
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserColumn
+import com.example.usermanagement.data.UserDatabase
+import com.example.usermanagement.database.DatabaseExecutors
+import com.example.usermanagement.database.InMemoryDatabaseFactory
+import com.example.usermanagement.util.Result
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = Application::class)
+class UserRepositoryImplTest {
+    private lateinit var db: UserDatabase
+    private lateinit var scope: CoroutineScope
+    private lateinit var repository: UserRepositoryImpl
+    private val executors = DatabaseExecutors()
+
+    @Before
+    fun setup() {
+        db = InMemoryDatabaseFactory().createDatabase(ApplicationProvider.getApplicationContext())
+        scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+        repository = UserRepositoryImpl(db, executors, scope)
+    }
+
+    @After
+    fun cleanup() {
+        scope.cancel()
+        db.close()
+        executors.close()
+    }
+
+    @Test
+    fun batchReportsEachFailureAndCommitsTheRest() = runBlocking {
+        val alice = user("Alice", "Walker", "alice@example.com").let { it.copy(id = repository.insertUser(it)) }
+        val bob = user("Bob", "Stone", "bob@example.com").let { it.copy(id = repository.insertUser(it)) }
+        // Loads the indexes, so the batch has to keep them current.
+        repository.suggest("a")
+        repository.fuzzySearch("Alice", 5).first()
+
+        val results = repository.applyBatch(
+            listOf(
+                UserOperation.Add(user("Carol", "King", "carol@example.com")),
+                // Rejected before writing: the email belongs to Alice.
+                UserOperation.Add(user("Alicia", "Clone", "alice@example.com")),
+                UserOperation.Update(alice.copy(firstName = "Alison")),
+                // Fails inside the DAO transaction: the ID is Bob's, which rolls the first attempt back.
+                UserOperation.Add(user("Dave", "Brown", "dave@example.com").copy(id = bob.id)),
+                UserOperation.Delete(bob)
+            )
+        )
+
+        assertEquals(Result.Success(Unit), results[0])
+        assertTrue((results[1] as Result.Error).exception is SQLiteConstraintException)
+        assertEquals(Result.Success(Unit), results[2])
+        assertTrue((results[3] as Result.Error).exception is SQLiteConstraintException)
+        assertEquals(Result.Success(Unit), results[4])
+
+        val stored = repository.allUsers.first().map { it.email }.sorted()
+        assertEquals(listOf("alice@example.com", "carol@example.com"), stored)
+        assertEquals("Alison", repository.getUserById(alice.id)?.firstName)
+        assertEquals(listOf("Alison Walker"), repository.suggest("ali").map { it.fullName })
+        assertEquals(listOf("Carol King"), repository.suggest("car").map { it.fullName })
+        assertEquals(emptyList<String>(), repository.suggest("dave").map { it.fullName })
+        assertEquals(emptyList<String>(), repository.suggest("bob").map { it.fullName })
+        assertEquals("Alison", repository.fuzzySearch("Alison", 5).first().first().firstName)
+        assertTrue(repository.fuzzySearch("Dave Brown", 5).first().none { it.firstName == "Dave" })
+    }
+
+    @Test
+    fun suggestionsFollowEveryWrite() = runBlocking {
+        // Loads the index before the writes, so each of them has to keep it current.
+        repository.prepareSuggestions()
+        val alice = user("Alice", "Walker", "alice@example.com").let { it.copy(id = repository.insertUser(it)) }
+        val bob = user("Bob", "Stone", "bob@example.com").let { it.copy(id = repository.insertUser(it)) }
+        assertEquals(listOf("Alice Walker"), suggestedNames("ali"))
+
+        repository.updateUser(alice.copy(firstName = "Alison", email = "alison@example.com"))
+        assertEquals(listOf("Alison Walker"), suggestedNames("ali"))
+        assertEquals(emptyList<String>(), suggestedNames("alice"))
+
+        repository.updateColumnForIds(longArrayOf(alice.id, bob.id), UserColumn.LAST_NAME, "Young")
+        assertEquals(listOf("Alison Young", "Bob Young"), suggestedNames("young"))
+        assertEquals(emptyList<String>(), suggestedNames("walker"))
+
+        repository.deleteUsersByIds(longArrayOf(bob.id))
+        assertEquals(listOf("Alison Young"), suggestedNames("young"))
+        assertEquals(emptyList<String>(), suggestedNames("bob"))
+
+        repository.applyBatch(
+            listOf(
+                UserOperation.Add(user("Carol", "Young", "carol@example.com")),
+                UserOperation.Update(alice.copy(firstName = "Alison", lastName = "Reed", email = "alison@example.com"))
+            )
+        )
+        assertEquals(listOf("Carol Young"), suggestedNames("young"))
+        assertEquals(listOf("Alison Reed"), suggestedNames("reed"))
+    }
+
+    @Test
+    fun phoneticKeysFollowInsertsAndUpdates() = runBlocking {
+        val catherine = user("Catherine", "Smith", "catherine@example.com")
+            .let { it.copy(id = repository.insertUser(it)) }
+        assertEquals(listOf(catherine.id), repository.soundsLike("Kathryn Smyth").first().map { it.id })
+
+        repository.updateUser(catherine.copy(lastName = "Jones"))
+        assertEquals(emptyList<Long>(), repository.soundsLike("Smyth").first().map { it.id })
+        assertEquals(listOf(catherine.id), repository.soundsLike("Jonez").first().map { it.id })
+
+        repository.updateColumnForIds(longArrayOf(catherine.id), UserColumn.FIRST_NAME, "Mary")
+        assertEquals(emptyList<Long>(), repository.soundsLike("Kathryn").first().map { it.id })
+        assertEquals(listOf(catherine.id), repository.soundsLike("Marie Jonez").first().map { it.id })
+    }
+
+    @Test
+    fun phoneticBackfillGivesStoredUsersTheirKeys() = runBlocking {
+        insertWithoutKeys(user("Catherine", "Smith", "catherine@example.com"))
+
+        // A new repository starts the backfill again, as on the first start after the upgrade.
+        val restarted = UserRepositoryImpl(db, executors, scope)
+
+        assertEquals(listOf("Catherine Smith"), restarted.soundsLike("Kathryn Smyth").first().map { it.fullName })
+    }
+
+    @Test
+    fun soundsLikeStillWorksAfterTheBackfillFails() = runBlocking {
+        val sql = db.openHelper.writableDatabase
+        sql.execSQL(
+            "CREATE TRIGGER fail_phonetics BEFORE INSERT ON user_phonetics BEGIN SELECT RAISE(ABORT, 'failed'); END"
+        )
+        insertWithoutKeys(user("Catherine", "Smith", "catherine@example.com"))
+
+        val restarted = UserRepositoryImpl(db, executors, scope)
+        assertEquals(emptyList<String>(), restarted.soundsLike("Kathryn").first().map { it.fullName })
+
+        sql.execSQL("DROP TRIGGER fail_phonetics")
+        restarted.insertUser(user("Kathryn", "Jones", "kathryn@example.com"))
+        assertEquals(listOf("Kathryn Jones"), restarted.soundsLike("Kathryn").first().map { it.fullName })
+    }
+
+    private suspend fun suggestedNames(text: String) = repository.suggest(text).map { it.fullName }
+
+    /**
+     * Stores [user] the way versions before the phonetic keys did, without its keys.
+     */
+    private fun insertWithoutKeys(user: User) {
+        db.openHelper.writableDatabase.execSQL(
+            "INSERT INTO users (firstName, lastName, email, phone, dob, address) VALUES (?, ?, ?, ?, ?, ?)",
+            arrayOf(user.firstName, user.lastName, user.email, user.phone, user.dob, user.address)
+        )
+    }
+
+    private fun user(firstName: String, lastName: String, email: String) = User(
+        firstName = firstName,
+        lastName = lastName,
+        email = email,
+        phone = "5550000000",
+        dob = "1990-01-01",
+        address = "1 Main Street"
+    )
+}
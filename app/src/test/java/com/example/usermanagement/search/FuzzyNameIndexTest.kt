@@ -0,0 +1,78 @@
+package com.example.usermanagement.search
+
+import com.example.usermanagement.data.UserName
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class FuzzyNameIndexTest {
+
+    private fun index(vararg names: Pair<String, String>) = FuzzyNameIndex().apply {
+        putAll(names.mapIndexed { i, (first, last) -> UserName(i + 1L, first, last) })
+    }
+
+    private fun FuzzyNameIndex.ids(query: String, limit: Int = FuzzyNameIndex.DEFAULT_LIMIT) =
+        search(query, limit).map { it.userId }
+
+    @Test
+    fun transposedLettersStillFindTheName() {
+        val index = index("John" to "Smith", "Mary" to "Jones", "Jon" to "Snow")
+
+        val matches = index.search("jonh")
+
+        assertEquals(1L, matches.first().userId)
+        assertEquals(MatchKind.FUZZY, matches.first().kind)
+        assertEquals(1, matches.first().distance)
+    }
+
+    @Test
+    fun ranksExactBeforePrefixBeforeFuzzy() {
+        val index = index("Annabel" to "Lee", "Ann" to "Perkins", "Anne" to "Frank", "Jan" to "Ann")
+
+        assertEquals(listOf(2L, 4L, 3L, 1L), index.ids("ann"))
+        assertEquals(
+            listOf(MatchKind.EXACT, MatchKind.EXACT, MatchKind.PREFIX, MatchKind.PREFIX),
+            index.search("ann").map { it.kind }
+        )
+    }
+
+    @Test
+    fun everyQueryWordMustMatch() {
+        val index = index("José" to "O'Brien", "Jose" to "Garcia", "Joseph" to "Brien")
+
+        assertEquals(listOf(1L, 3L), index.ids("jose obrien"))
+        assertEquals(listOf(MatchKind.EXACT, MatchKind.FUZZY), index.search("jose obrien").map { it.kind })
+        assertEquals(listOf(1L, 2L, 3L), index.ids("JOSE"))
+    }
+
+    @Test
+    fun followsIncrementalChanges() {
+        val index = index("Alice" to "Walker", "Bob" to "Walker")
+        val version = index.version.value
+
+        index.setFirstName(longArrayOf(2), "Alicia")
+        index.remove(1)
+        index.put(3, "Alice", "Cooper")
+
+        assertEquals(listOf(3L, 2L), index.ids("alice"))
+        assertEquals(listOf(2L), index.ids("walker"))
+        assertTrue(index.version.value > version)
+        assertEquals(2, index.size)
+    }
+
+    @Test
+    fun boundedSearchEqualsTheHeadOfAFullRanking() {
+        val generator = SyntheticUserGenerator()
+        val index = FuzzyNameIndex().apply {
+            putAll(generator.users(0, 5_000).mapIndexed { i, user -> UserName(i + 1L, user.firstName, user.lastName) })
+        }
+
+        for (i in 0 until 50) {
+            val user = generator.user(i * 97)
+            for (query in listOf(user.lastName.take(3), user.firstName.dropLast(1) + "x", "${user.firstName} ${user.lastName.take(2)}")) {
+                assertEquals(query, index.search(query, Int.MAX_VALUE).take(10), index.search(query, 10))
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.usermanagement.search
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Test
+
+class MetaphoneTest {
+
+    @Test
+    fun namesThatSoundAlikeShareAKey() {
+        assertEquals("SM0", Metaphone.encode("Smith"))
+        assertEquals("SM0", Metaphone.encode("Smyth"))
+        assertEquals("K0RN", Metaphone.encode("Catherine"))
+        assertEquals("K0RN", Metaphone.encode("Kathryn"))
+        assertEquals(Metaphone.encode("Philips"), Metaphone.encode("Fillips"))
+        assertEquals(Metaphone.encode("Knight"), Metaphone.encode("Night"))
+    }
+
+    @Test
+    fun differentSoundsGetDifferentKeys() {
+        assertNotEquals(Metaphone.encode("Smith"), Metaphone.encode("Schmidt"))
+        assertNotEquals(Metaphone.encode("Catherine"), Metaphone.encode("Caroline"))
+    }
+
+    @Test
+    fun accentsCaseAndSeparatorsAreIgnored() {
+        assertEquals(Metaphone.encode("Jose"), Metaphone.encode("JOSÉ"))
+        assertEquals(Metaphone.encode("Maryann"), Metaphone.encode("Mary-Ann"))
+        assertEquals(Metaphone.encode("OBrien"), Metaphone.encode("O'Brien"))
+        assertEquals("", Metaphone.encode("1234"))
+    }
+
+    @Test
+    fun keysAreCappedAtMaxLength() {
+        assertEquals(Metaphone.MAX_LENGTH, Metaphone.encode("Wolfeschlegelsteinhausen").length)
+    }
+
+    @Test
+    fun encodesEachWordOfAQuery() {
+        assertEquals(listOf("K0RN", "SM0"), Metaphone.encodeWords("Kathryn  Smyth"))
+        assertEquals(listOf("SM0"), Metaphone.encodeWords("Smith Smyth"))
+        assertEquals(emptyList<String>(), Metaphone.encodeWords(" - "))
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.usermanagement.search
+
+import com.example.usermanagement.data.UserContact
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class TypeaheadIndexTest {
+
+    private fun index(vararg users: Triple<String, String, String>) = TypeaheadIndex().apply {
+        putAll(users.mapIndexed { i, (first, last, email) -> UserContact(i + 1L, first, last, email) })
+    }
+
+    private fun TypeaheadIndex.ids(text: String, limit: Int = TypeaheadIndex.DEFAULT_LIMIT) =
+        suggest(text, limit).map { it.userId }
+
+    @Test
+    fun completesNamesBeforeEmails() {
+        val index = index(
+            Triple("John", "Smith", "jsmith@example.com"),
+            Triple("Mary", "Johnson", "mary@example.com"),
+            Triple("Ada", "Lovelace", "johnny@example.org")
+        )
+
+        assertEquals(listOf(1L, 2L, 3L), index.ids("joh"))
+        assertEquals(listOf(false, false, true), index.suggest("joh").map { it.matchedEmail })
+        assertEquals(listOf(1L), index.ids("john sm"))
+        assertEquals(listOf(1L), index.ids("JSMITH@"))
+    }
+
+    @Test
+    fun ignoresAccentsAndPunctuationInNames() {
+        val index = index(Triple("José", "O'Brien", "jose@example.com"), Triple("Joseph", "Brien", "jb@example.com"))
+
+        assertEquals(listOf(1L), index.ids("obr"))
+        assertEquals(listOf(1L, 2L), index.ids("Jos"))
+        assertEquals(listOf(1L), index.ids("jose o"))
+    }
+
+    @Test
+    fun stopsAtTheLimitAndListsEachUserOnce() {
+        val users = SyntheticUserGenerator().users(0, 5_000)
+        val index = TypeaheadIndex().apply {
+            putAll(users.mapIndexed { i, user -> UserContact(i + 1L, user.firstName, user.lastName, user.email) })
+        }
+
+        for (text in listOf("a", "m", "s", "j")) {
+            val ids = index.ids(text, 10)
+            assertTrue(ids.size <= 10)
+            assertEquals(ids.distinct(), ids)
+        }
+    }
+
+    @Test
+    fun recentQueriesAreCachedUntilTheNextChange() {
+        val index = index(Triple("Alice", "Walker", "alice@example.com"))
+
+        val first = index.suggest("ali")
+        assertSame(first, index.suggest("ali"))
+
+        index.put(2, "Alina", "Stone", "alina@example.com")
+        assertEquals(listOf(1L, 2L), index.ids("ali"))
+    }
+
+    @Test
+    fun followsIncrementalChanges() {
+        val index = index(
+            Triple("Alice", "Walker", "alice@example.com"),
+            Triple("Bob", "Walker", "bob@example.com")
+        )
+
+        index.setFirstName(longArrayOf(2), "Alicia")
+        index.remove(1)
+        index.setLastName(longArrayOf(2), "Cooper")
+
+        assertEquals(listOf(2L), index.ids("ali"))
+        assertEquals(emptyList<Long>(), index.ids("walk"))
+        assertEquals(listOf(2L), index.ids("bob@"))
+        assertEquals("Alicia Cooper", index.suggest("coo").single().fullName)
+        assertEquals(1, index.size)
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.usermanagement.sort
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.text.Collator
+import java.util.Locale
+
+class SortedUsersTest {
+    private val users = SyntheticUserGenerator().users(0, SAMPLE_SIZE).mapIndexed { i, user -> user.copy(id = i + 1L) }
+    private lateinit var defaultLocale: Locale
+
+    @Before
+    fun setup() {
+        defaultLocale = Locale.getDefault()
+        Locale.setDefault(Locale.US)
+    }
+
+    @After
+    fun cleanup() {
+        Locale.setDefault(defaultLocale)
+    }
+
+    @Test
+    fun sortsLikeTheCollator() {
+        val collator = Collator.getInstance(Locale.US)
+        val expected = users.sortedWith(
+            compareBy<User, String>(collator) { it.lastName }.thenBy(collator) { it.firstName }.thenBy { it.id }
+        )
+
+        assertEquals(expected, SortedUsers(UserSort.LAST_NAME).update(users))
+    }
+
+    @Test
+    fun accentsSortWithTheirBaseLetter() {
+        val names = listOf("Zed", "Émile", "Adam", "eve").mapIndexed { i, name ->
+            User(id = i + 1L, firstName = name, lastName = "Doe", email = "$i@example.com")
+        }
+
+        val sorted = SortedUsers(UserSort.FIRST_NAME).update(names)
+
+        assertEquals(listOf("Adam", "Émile", "eve", "Zed"), sorted.map { it.firstName })
+    }
+
+    @Test
+    fun incrementalUpdatesMatchAFullSort() {
+        for (sort in UserSort.values()) {
+            val sorted = SortedUsers(sort)
+            sorted.update(users)
+            val changed = users.toMutableList()
+            changed[10] = changed[10].copy(lastName = "Aaron", email = "aaron@example.com", dob = "1901-01-01")
+            changed.removeAt(20)
+            changed.add(User(id = SAMPLE_SIZE + 1L, firstName = "Zoë", lastName = "Young", email = "zoe@example.com"))
+
+            assertEquals(sort.name, SortedUsers(sort).update(changed), sorted.update(changed).toList())
+        }
+    }
+
+    @Test
+    fun insertKeepsTheOrder() {
+        val sorted = SortedUsers(UserSort.EMAIL)
+        sorted.update(users.drop(1))
+
+        sorted.insert(users[0])
+        sorted.insert(users[1].copy(email = "changed@example.com"))
+
+        val changed = listOf(users[0], users[1].copy(email = "changed@example.com")) + users.drop(2)
+        assertEquals(SortedUsers(UserSort.EMAIL).update(changed), sorted.users.toList())
+        assertEquals(users.size, sorted.size)
+    }
+
+    private companion object {
+        const val SAMPLE_SIZE = 5_000
+    }
+}
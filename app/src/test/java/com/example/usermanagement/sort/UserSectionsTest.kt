@@ -0,0 +1,76 @@
+package com.example.usermanagement.sort
+
+import com.example.usermanagement.data.User
+import com.example.usermanagement.data.UserStat
+import com.example.usermanagement.data.UserStatsTable
+import com.example.usermanagement.synthetic.SyntheticUserGenerator
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.util.Locale
+
+class UserSectionsTest {
+    private lateinit var defaultLocale: Locale
+
+    @Before
+    fun setup() {
+        defaultLocale = Locale.getDefault()
+        Locale.setDefault(Locale.US)
+    }
+
+    @After
+    fun cleanup() {
+        Locale.setDefault(defaultLocale)
+    }
+
+    @Test
+    fun sectionsIndexTheSortedList() {
+        val users = SyntheticUserGenerator().users(0, 2_000).mapIndexed { i, user -> user.copy(id = i + 1L) } +
+            listOf("émile", "Eve", "9lives", "").mapIndexed { i, name ->
+                User(id = 10_000L + i, firstName = "X", lastName = name, email = "$i@example.com")
+            }
+
+        for (sort in UserSort.values()) {
+            val sorted = SortedUsers(sort).update(users)
+            val sections = UserSections.of(sort, users)
+
+            assertEquals(sort.name, users.size, sections.sumOf { it.count })
+            for (section in sections) {
+                val slice = sorted.subList(section.offset, section.offset + section.count)
+                assertEquals(sort.name, setOf(section.label), slice.map { UserSections.labelOf(sort, it) }.toSet())
+            }
+        }
+    }
+
+    @Test
+    fun countersFoldAccentsAndCaseIntoOneSection() {
+        val rows = listOf(
+            UserStat(UserStatsTable.KIND_LAST_INITIAL, "E", 3),
+            UserStat(UserStatsTable.KIND_LAST_INITIAL, "é", 2),
+            UserStat(UserStatsTable.KIND_LAST_INITIAL, "A", 4),
+            UserStat(UserStatsTable.KIND_LAST_INITIAL, "'", 1),
+            UserStat(UserStatsTable.KIND_LAST_INITIAL, "", 1),
+            UserStat(UserStatsTable.KIND_FIRST_INITIAL, "Z", 7)
+        )
+
+        assertEquals(
+            listOf(UserSection(UserSections.OTHER, 0, 2), UserSection("A", 2, 4), UserSection("E", 6, 5)),
+            UserSections.fromCounters(UserSort.LAST_NAME, rows)
+        )
+    }
+
+    @Test
+    fun birthYearsSortNumericallyAfterUnknownDates() {
+        val rows = listOf(
+            UserStat(UserStatsTable.KIND_BIRTH_YEAR, "1990", 2),
+            UserStat(UserStatsTable.KIND_BIRTH_YEAR, "", 1),
+            UserStat(UserStatsTable.KIND_BIRTH_YEAR, "1985", 3)
+        )
+
+        assertEquals(
+            listOf(UserSection(UserSections.OTHER, 0, 1), UserSection("1985", 1, 3), UserSection("1990", 4, 2)),
+            UserSections.fromCounters(UserSort.DOB, rows)
+        )
+    }
+}
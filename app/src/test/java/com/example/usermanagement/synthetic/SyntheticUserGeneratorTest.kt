@@ -0,0 +1,61 @@
+package com.example.usermanagement.synthetic
+
+import com.example.usermanagement.util.ValidationUtils
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SyntheticUserGeneratorTest {
+    private val generator = SyntheticUserGenerator()
+
+    @Test
+    fun sameSeedAndIndexProduceSameUser() {
+        assertEquals(generator.user(1234), SyntheticUserGenerator().user(1234))
+        assertNotEquals(generator.user(1234), SyntheticUserGenerator(seed = 7).user(1234))
+    }
+
+    @Test
+    fun generatedUsersAreUniqueAndValid() {
+        val users = generator.users(0, SAMPLE_SIZE)
+
+        assertEquals(SAMPLE_SIZE, users.map { it.email }.toSet().size)
+        users.forEach { user ->
+            assertTrue(user.phone, ValidationUtils.isValidPhone(user.phone))
+            assertTrue(user.dob, ValidationUtils.isValidDate(user.dob))
+            assertTrue(user.address.isNotBlank())
+        }
+    }
+
+    @Test
+    fun firstNamesAreSkewed() {
+        val counts = generator.users(0, SAMPLE_SIZE).groupingBy { it.firstName }.eachCount()
+        val uniformShare = SAMPLE_SIZE / counts.size
+
+        assertTrue("Most common name should dominate: $counts", counts.values.max() > uniformShare * 3)
+    }
+
+    @Test
+    fun batchesCoverTheRequestedRange() {
+        val batches = generator.batches(count = 2_500, batchSize = 1_000, start = 10).toList()
+
+        assertEquals(listOf(1_000, 1_000, 500), batches.map { it.size })
+        assertEquals(generator.user(10), batches.first().first())
+        assertEquals(generator.user(2_509), batches.last().last())
+    }
+
+    @Test
+    fun workloadFollowsProfileMix() {
+        val profile = WorkloadProfile.SEARCH_HEAVY
+        val steps = SyntheticWorkload(profile, populationSize = 1_000).steps(SAMPLE_SIZE).toList()
+        val searches = steps.count { it is WorkloadStep.Search }
+        val expected = SAMPLE_SIZE * profile.searches / profile.total
+
+        assertTrue("$searches searches, expected about $expected", Math.abs(searches - expected) < SAMPLE_SIZE / 50)
+        assertEquals(steps, SyntheticWorkload(profile, populationSize = 1_000).steps(SAMPLE_SIZE).toList())
+    }
+
+    private companion object {
+        const val SAMPLE_SIZE = 10_000
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.usermanagement.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.BitSet
+import kotlin.random.Random
+
+class CompressedBitmapTest {
+
+    @Test
+    fun setOperationsMatchBitSet() {
+        val random = Random(42)
+        // Densities either side of the array/bitmap threshold of a 65536-value chunk.
+        val densities = listOf(0.001, 0.05, 0.5)
+        for (a in densities) for (b in densities) {
+            val left = randomBits(random, a)
+            val right = randomBits(random, b)
+
+            assertBitsEqual(left.copy { and(right) }, bitmapOf(left) and bitmapOf(right))
+            assertBitsEqual(left.copy { or(right) }, bitmapOf(left) or bitmapOf(right))
+            assertBitsEqual(left.copy { andNot(right) }, bitmapOf(left) andNot bitmapOf(right))
+        }
+    }
+
+    @Test
+    fun selectContainsAndIterateAgree() {
+        val bits = randomBits(Random(7), 0.2)
+        val bitmap = bitmapOf(bits)
+
+        assertEquals(bits.cardinality(), bitmap.cardinality)
+        var rank = 0
+        var value = bits.nextSetBit(0)
+        while (value >= 0) {
+            assertEquals(value, bitmap.select(rank++))
+            assertTrue(value in bitmap)
+            value = bits.nextSetBit(value + 1)
+        }
+        assertFalse(-1 in bitmap)
+        assertFalse(UNIVERSE in bitmap)
+    }
+
+    @Test
+    fun rangeCoversPartialChunks() {
+        val range = CompressedBitmap.range(100, 140_000)
+
+        assertEquals(139_900, range.cardinality)
+        assertEquals(100, range.select(0))
+        assertEquals(139_999, range.select(139_899))
+        assertEquals(CompressedBitmap.empty(), CompressedBitmap.range(5, 5))
+        assertEquals(range, range and CompressedBitmap.range(0, UNIVERSE))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun builderRejectsDescendingValues() {
+        CompressedBitmap.Builder().apply {
+            add(10)
+            add(3)
+        }
+    }
+
+    private fun randomBits(random: Random, density: Double): BitSet {
+        val bits = BitSet(UNIVERSE)
+        for (i in 0 until UNIVERSE) if (random.nextDouble() < density) bits.set(i)
+        return bits
+    }
+
+    private fun BitSet.copy(change: BitSet.() -> Unit): BitSet = (clone() as BitSet).apply(change)
+
+    private fun bitmapOf(bits: BitSet): CompressedBitmap {
+        val builder = CompressedBitmap.Builder()
+        var value = bits.nextSetBit(0)
+        while (value >= 0) {
+            builder.add(value)
+            value = bits.nextSetBit(value + 1)
+        }
+        return builder.build()
+    }
+
+    private fun assertBitsEqual(expected: BitSet, actual: CompressedBitmap) {
+        val values = mutableListOf<Int>()
+        actual.forEach { values += it }
+        assertEquals(expected.stream().toArray().toList(), values)
+        assertEquals(expected.cardinality(), actual.cardinality)
+    }
+
+    private companion object {
+        // Three chunks, the last one partial.
+        const val UNIVERSE = 150_000
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.usermanagement.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertThrows
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+class LongIdSetTest {
+
+    @Test
+    fun addContainsAndRemoveAcrossGrowth() {
+        val set = LongIdSet(expectedSize = 4)
+        for (id in 1L..GROWN_SIZE) assertTrue(set.add(id))
+        assertFalse(set.add(GROWN_SIZE))
+        assertEquals(GROWN_SIZE.toInt(), set.size)
+        for (id in 1L..GROWN_SIZE) assertTrue(id in set)
+        assertFalse(GROWN_SIZE + 1 in set)
+
+        for (id in 1L..GROWN_SIZE step 2) assertTrue(set.remove(id))
+        assertFalse(set.remove(1L))
+        assertEquals(GROWN_SIZE.toInt() / 2, set.size)
+        for (id in 1L..GROWN_SIZE) assertEquals(id % 2 == 0L, id in set)
+        assertEquals((2L..GROWN_SIZE step 2).toSet(), set.toLongArray().toSet())
+    }
+
+    @Test
+    fun removingFromTheMiddleOfAProbeRunKeepsTheRestReachable() {
+        val set = LongIdSet(expectedSize = RUN_LENGTH)
+        val ids = collidingIds(RUN_LENGTH, RUN_LENGTH)
+        ids.forEach { set.add(it) }
+
+        assertTrue(set.remove(ids[2]))
+
+        assertFalse(ids[2] in set)
+        for (id in ids - ids[2]) assertTrue("$id lost after removing ${ids[2]}", id in set)
+        assertEquals(RUN_LENGTH - 1, set.size)
+        assertTrue(set.remove(ids[4]))
+        assertTrue(set.remove(ids[0]))
+        assertEquals(setOf(ids[1], ids[3]), set.toLongArray().toSet())
+    }
+
+    @Test
+    fun zeroAndNegativeIdsAreNeverMembers() {
+        val set = LongIdSet.of(longArrayOf(1L, 2L))
+
+        for (id in longArrayOf(0L, -1L, Long.MIN_VALUE)) {
+            assertFalse(id in set)
+            assertFalse(set.remove(id))
+            assertThrows(IllegalArgumentException::class.java) { set.add(id) }
+        }
+        assertEquals(setOf(1L, 2L), set.toLongArray().toSet())
+    }
+
+    @Test
+    fun randomOperationsMatchHashSet() {
+        val random = Random(42)
+        val set = LongIdSet()
+        val expected = HashSet<Long>()
+        repeat(OPERATIONS) {
+            // A small ID range keeps the set dense, so removals often hit probe runs.
+            val id = 1L + random.nextInt(ID_RANGE)
+            when (random.nextInt(4)) {
+                0, 1 -> assertEquals(expected.add(id), set.add(id))
+                2 -> assertEquals(expected.remove(id), set.remove(id))
+                else -> {
+                    val present = !expected.remove(id) && expected.add(id)
+                    assertEquals(present, set.toggle(id))
+                }
+            }
+            assertEquals(expected.size, set.size)
+        }
+        for (id in 1L..ID_RANGE) assertEquals(id in expected, id in set)
+        assertEquals(expected, set.toLongArray().toSet())
+
+        set.clear()
+        assertTrue(set.isEmpty())
+        assertFalse(expected.first() in set)
+    }
+
+    /**
+     * Finds [count] IDs with the same home slot in a set of [expectedSize], so that added together they form one
+     * probe run. The set must not grow while they are added.
+     */
+    private fun collidingIds(expectedSize: Int, count: Int): List<Long> {
+        val home = homeSlot(expectedSize, 1L)
+        return generateSequence(1L) { it + 1 }.filter { homeSlot(expectedSize, it) == home }.take(count).toList()
+    }
+
+    /**
+     * The slot [id] lands in when it is the only ID of a set of [expectedSize].
+     */
+    private fun homeSlot(expectedSize: Int, id: Long): Int {
+        val set = LongIdSet(expectedSize)
+        set.add(id)
+        return set.slotsForIteration().indexOf(id)
+    }
+
+    private companion object {
+        const val GROWN_SIZE = 10_000L
+        const val RUN_LENGTH = 5
+        const val OPERATIONS = 50_000
+        const val ID_RANGE = 2_000
+    }
+}